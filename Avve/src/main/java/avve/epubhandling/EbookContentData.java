@@ -1,10 +1,14 @@
 package avve.epubhandling;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
 
 import org.apache.logging.log4j.Logger;
 
+import avve.textpreprocess.POSGermanTag;
+
 /**
  * This class is the central piece of information, which holds all data retrieved from an e-book. When an object is created,
  * the plain text will be stored. Subsequently this object can be passed to objects that implement the TextPreprocessor interface.
@@ -12,12 +16,19 @@ import org.apache.logging.log4j.Logger;
  * 
  * Once populated, the objects of this class will also provide statistical information about the text, through its many getter methods.
  * 
+ * Tokens and lemmas are stored as int IDs of a per-book Vocabulary, parts of speech as byte codes (the POSGermanTag ordinal for tags of
+ * the tag set). The String array getters and setters convert from and to this representation, so getTokens(), getLemmas() and
+ * getPartsOfSpeech() return a new array on each call; callers should keep the returned array instead of calling the getter in a loop.
+ * Callers that only read the text can use the per-sentence getters instead, which decode a single sentence.
+ * 
  * @author Kai Weber
  *
  */
 public class EbookContentData implements Serializable
 {
-	private static final long serialVersionUID = 3022250504362756894L;
+	private static final long serialVersionUID = -4127064655396419218L;
+	private static final POSGermanTag[] posTags = POSGermanTag.values();
+	private static final byte nullPartOfSpeechCode = (byte)0xFF;
 	private static final ResourceBundle errorMessagesBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
 	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
 	
@@ -26,17 +37,23 @@ public class EbookContentData implements Serializable
 	private String plainText;
 	private String[] sentences;
 	private String targetClass;
-	private String[][] tokenizedSentences;
-	private String[][] lemmatizedSentences;
-	private String[][] partsOfSpeech;
-	private SortedMap<String, Integer> lemmaFrequencies;
-	private SortedMap<String, Integer> hyperonymFrequencies;
-	private SortedMap<String, Integer> wordFrequencies;
-	private SortedMap<String, Integer> partsOfSpeechFrequencies;
+	private final Vocabulary vocabulary;
+	private int[][] tokenIds;
+	private int[][] lemmaIds;
+	private byte[][] partOfSpeechCodes;
+	// part of speech tags that are not part of the POSGermanTag set (e.g. combined tags like "ADV|FM"), encoded beyond the enum's ordinals
+	private final List<String> additionalPartsOfSpeech;
+	private final FrequencyCounter lemmaFrequencies;
+	private FrequencyCounter hyperonymFrequencies;
+	private final FrequencyCounter wordFrequencies;
+	// indexed by part of speech code, see encodePartOfSpeech()
+	private final int[] partOfSpeechFrequencies;
 	private int numberOfTokens;
 	private int numberOfWords;
 	private final Map<String, String> warengruppenMap;
 	private long wordLength;
+	private int numberOfSentences = -1;
+	transient private ContentSectionLoader sectionLoader;
 	
 	/**
 	 * Constructor
@@ -50,15 +67,32 @@ public class EbookContentData implements Serializable
 		this.logger = logger;
 		this.plainText = plainText;
 		this.targetClass = targetClass;
-		setHyperonymFrequencies(new TreeMap<String, Integer>());
-		lemmaFrequencies = new TreeMap<String, Integer>();
-		wordFrequencies = new TreeMap<String, Integer>();
-		partsOfSpeechFrequencies = new TreeMap<String, Integer>();
+		setHyperonymFrequencies(new FrequencyCounter());
+		lemmaFrequencies = new FrequencyCounter();
+		wordFrequencies = new FrequencyCounter();
+		partOfSpeechFrequencies = new int[(nullPartOfSpeechCode & 0xFF) + 1];
 		warengruppenMap = new HashMap<String, String>();
+		vocabulary = new Vocabulary();
+		additionalPartsOfSpeech = new ArrayList<String>();
 		
 		initializeWarengruppenMap();
 	}
 	
+	/**
+	 * Constructor for restoring a serialized e-book, used by the EbookContentDataSerializer. The plain text, sentences, tokens, lemmas and 
+	 * parts of speech are not passed in, but are fetched from the section loader when they are accessed for the first time.
+	 */
+	EbookContentData(EpubFile epubFile, String targetClass, Logger logger, ContentSectionLoader sectionLoader, int numberOfTokens, 
+			int numberOfWords, long wordLength, int numberOfSentences)
+	{
+		this(epubFile, null, targetClass, logger);
+		this.sectionLoader = sectionLoader;
+		this.numberOfTokens = numberOfTokens;
+		this.numberOfWords = numberOfWords;
+		this.wordLength = wordLength;
+		this.numberOfSentences = numberOfSentences;
+	}
+	
 	/**
 	 * Word counts are maintained to retrieve several statistics, such as word frequency or average word length
 	 * For this purpose every word encountered in a document should be passed to the countWord() function exactly once
@@ -68,20 +102,39 @@ public class EbookContentData implements Serializable
 	public void countWord(String word)
 	{
 		// add new words to the word frequency counter
-		if(wordFrequencies.containsKey(word))
-		{
-			wordFrequencies.put(word, wordFrequencies.get(word) + 1);
-		}
-		else
-		{
-			wordFrequencies.put(word, 1);
-		}
+		wordFrequencies.increment(word);
 		
 		// add new words to word length variables, to be able to calculate average word length
 		numberOfWords++;
 		wordLength += word.length();
 	}
 
+	/**
+	 * Counts the parts of speech that have been set via setPartsOfSpeech(). Should be called once by the part of speech tagging 
+	 * TextPreprocessor after setting the parts of speech, before any of the part of speech ratios are retrieved.
+	 */
+	public void countPartsOfSpeech()
+	{
+		Arrays.fill(partOfSpeechFrequencies, 0);
+		if(null == partOfSpeechCodes)
+		{
+			return;
+		}
+		for(byte[] sentence : partOfSpeechCodes)
+		{
+			if(null != sentence)
+			{
+				for(byte code : sentence)
+				{
+					if(code != nullPartOfSpeechCode)
+					{
+						partOfSpeechFrequencies[code & 0xFF]++;
+					}
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Get the number of adjectives, divided by the number of tokens in this text.
 	 * @return The adjectives-to-tokens ratio
@@ -238,9 +291,9 @@ public class EbookContentData implements Serializable
 	/**
 	 * Returns the frequencies for hyperonyms that have been counted on the base of this e-book's text
 	 * 
-	 * @return A sorted map with the hyperonym String as the key and the frequency as the value
+	 * @return The hyperonym frequencies, or null if no hyperonyms have been determined
 	 */
-	public SortedMap<String, Integer> getHyperonymFrequencies()
+	public FrequencyCounter getHyperonymFrequencies()
 	{
 		return hyperonymFrequencies;
 	}
@@ -301,9 +354,9 @@ public class EbookContentData implements Serializable
 	/**
 	 * Returns the lemma frequencies, as counted by a lemmatizing TextPreprocessor
 	 * 
-	 * @return A sorted map with the lemma as the key String and the frequency as its value
+	 * @return The lemma frequencies
 	 */
-	public SortedMap<String, Integer> getLemmaFrequencies()
+	public FrequencyCounter getLemmaFrequencies()
 	{
 		return lemmaFrequencies;
 	}
@@ -315,7 +368,20 @@ public class EbookContentData implements Serializable
 	 */
 	public String[][] getLemmas()
 	{
-		return lemmatizedSentences;
+		loadLemmas();
+		return decode(lemmaIds);
+	}
+	
+	/**
+	 * Returns the lemmas of a single sentence, without decoding the lemmas of the other sentences
+	 * 
+	 * @param sentence The index of the sentence
+	 * @return The sentence's lemmas, or null if the text hasn't been lemmatized
+	 */
+	public String[] getLemmas(final int sentence)
+	{
+		loadLemmas();
+		return null == lemmaIds ? null : vocabulary.decode(lemmaIds[sentence]);
 	}
 	
 	/**
@@ -382,8 +448,7 @@ public class EbookContentData implements Serializable
 	 */
 	public double getNormalizedLemmaFrequency(String lemma)
 	{
-		int lemmaFrequency = null != getLemmaFrequencies().get(lemma) ? getLemmaFrequencies().get(lemma) : 0;
-		return lemmaFrequency / (double)lemmaFrequencies.size();
+		return lemmaFrequencies.get(lemma) / (double)lemmaFrequencies.size();
 	}
 	
 	/**
@@ -425,10 +490,13 @@ public class EbookContentData implements Serializable
 	 */
 	public int getNumberOfPassiveConstructions()
 	{
+		loadLemmas();
 		int counter = 0; 
 		// iterate through sentences
-		for(int i = 0; i < lemmatizedSentences.length; i++)
+		for(int i = 0; i < lemmaIds.length; i++)
 		{
+			String[] lemmatizedSentence = getLemmas(i);
+			String[] partsOfSpeech = getPartsOfSpeech(i);
 			boolean hasAuxiliarVerb = false;
 			boolean hasParticiple = false;
 			
@@ -436,27 +504,27 @@ public class EbookContentData implements Serializable
 			String participleMessage = "";
 			
 			// iterate through lemmas in the sentence
-			for(int j = 0; j < lemmatizedSentences[i].length; j++)
+			for(int j = 0; j < lemmatizedSentence.length; j++)
 			{	
 				try
 				{
 					// search for tokens "werden" ("Vorgangspassiv") and "sein" ("Zustandspassiv")
-					if((lemmatizedSentences[i][j].equals("werden") || lemmatizedSentences[i][j].equals("sein"))
-							&& (  partsOfSpeech[i][j].equals("VAFIN") 
-								|| partsOfSpeech[i][j].equals("VAIMP")
-								|| partsOfSpeech[i][j].equals("VAINF")
+					if((lemmatizedSentence[j].equals("werden") || lemmatizedSentence[j].equals("sein"))
+							&& (  partsOfSpeech[j].equals("VAFIN") 
+								|| partsOfSpeech[j].equals("VAIMP")
+								|| partsOfSpeech[j].equals("VAINF")
 							   )
 						)
 					{
 						hasAuxiliarVerb = true;
-						auxiliarVerbMessage = String.format(infoMessagesBundle.getString("avve.epubhandling.auxiliarVerbMessage"), lemmatizedSentences[i][j],
-								j, i, partsOfSpeech[i][j]);
+						auxiliarVerbMessage = String.format(infoMessagesBundle.getString("avve.epubhandling.auxiliarVerbMessage"), lemmatizedSentence[j],
+								j, i, partsOfSpeech[j]);
 					}
-					if(partsOfSpeech[i][j].equals("VAPP") || partsOfSpeech[i][j].equals("VMPP") || partsOfSpeech[i][j].equals("VVPP"))
+					if(partsOfSpeech[j].equals("VAPP") || partsOfSpeech[j].equals("VMPP") || partsOfSpeech[j].equals("VVPP"))
 					{
 						hasParticiple = true;
-						participleMessage = String.format(infoMessagesBundle.getString("avve.epubhandling.participleMessage"), lemmatizedSentences[i][j],
-								j, i, partsOfSpeech[i][j]);
+						participleMessage = String.format(infoMessagesBundle.getString("avve.epubhandling.participleMessage"), lemmatizedSentence[j],
+								j, i, partsOfSpeech[j]);
 					}
 					
 					if(hasAuxiliarVerb && hasParticiple)
@@ -481,6 +549,20 @@ public class EbookContentData implements Serializable
 		return counter;
 	}
 	
+	/**
+	 * The number of sentences of this e-book. Unlike getSentences().length, this doesn't require the sentences of a deserialized e-book to be loaded.
+	 * 
+	 * @return The number of sentences, or 0 if no sentences have been set
+	 */
+	public int getNumberOfSentences()
+	{
+		if(null != sentences || null == sectionLoader)
+		{
+			return null == sentences ? 0 : sentences.length;
+		}
+		return numberOfSentences < 0 ? 0 : numberOfSentences;
+	}
+	
 	/**
 	 * The overall number of chapters contained in the e-book file. Usually counted by the number of spine-elements in the EPUB file's table of contents
 	 * 
@@ -503,14 +585,27 @@ public class EbookContentData implements Serializable
 	{
 		if(0 == numberOfTokens)
 		{
-			for(int i = 0; i < getTokens().length; i++)
+			loadTokens();
+			for(int i = 0; i < tokenIds.length; i++)
 			{
-				numberOfTokens += getTokens()[i].length;
+				numberOfTokens += tokenIds[i].length;
 			}
 		}
 		return numberOfTokens;
 	}
 	
+	/**
+	 * The number of sentences after a tokenizing TextPreprocessor has tokenized this e-book's plain text; this is the number of sentences
+	 * that can be read with the per-sentence getters
+	 * 
+	 * @return The number of tokenized sentences, or 0 if the text hasn't been tokenized
+	 */
+	public int getNumberOfTokenizedSentences()
+	{
+		loadTokens();
+		return null == tokenIds ? 0 : tokenIds.length;
+	}
+	
 	/**
 	 * The overall number of words of this e-book. Note that returned values are only accurate, if all words have been passed to the countWords() function before
 	 * @return The overall number of words (not normalized)
@@ -528,16 +623,76 @@ public class EbookContentData implements Serializable
 	 */
 	public String[][] getPartsOfSpeech()
 	{
+		loadPartsOfSpeech();
+		if(null == partOfSpeechCodes)
+		{
+			return null;
+		}
+		String[][] partsOfSpeech = new String[partOfSpeechCodes.length][];
+		for(int i = 0; i < partOfSpeechCodes.length; i++)
+		{
+			partsOfSpeech[i] = decodePartsOfSpeech(partOfSpeechCodes[i]);
+		}
 		return partsOfSpeech;
 	}
+	
+	/**
+	 * Returns the parts of speech of a single sentence, without decoding the parts of speech of the other sentences
+	 * 
+	 * @param sentence The index of the sentence
+	 * @return The sentence's parts of speech, or null if the text hasn't been tagged
+	 */
+	public String[] getPartsOfSpeech(final int sentence)
+	{
+		loadPartsOfSpeech();
+		return null == partOfSpeechCodes ? null : decodePartsOfSpeech(partOfSpeechCodes[sentence]);
+	}
 
 	/**
-	 * Returns the part of speech frequencies after they have been set by a POS-counting TextPreprocessor.
+	 * The number of distinct parts of speech, after they have been counted via countPartsOfSpeech()
+	 * 
+	 * @return The number of distinct parts of speech
+	 */
+	public int getNumberOfDistinctPartsOfSpeech()
+	{
+		int numberOfDistinctPartsOfSpeech = 0;
+		for(int frequency : partOfSpeechFrequencies)
+		{
+			if(frequency > 0)
+			{
+				numberOfDistinctPartsOfSpeech++;
+			}
+		}
+		return numberOfDistinctPartsOfSpeech;
+	}
+	
+	/**
+	 * The frequency of a single part of speech, after the parts of speech have been counted via countPartsOfSpeech()
+	 * 
+	 * @param tag The part of speech tag, e.g. "NN"
+	 * @return The frequency of the tag
+	 */
+	public int getPartOfSpeechFrequency(final String tag)
+	{
+		int code = findPartOfSpeechCode(tag);
+		return code < 0 ? 0 : partOfSpeechFrequencies[code];
+	}
+	
+	/**
+	 * Returns the part of speech frequencies after they have been counted via countPartsOfSpeech(). The map is created on each call.
 	 * 
 	 * @return A sorted map with the POS as the key String and the corresponding frequency as the value
 	 */
 	public SortedMap<String, Integer> getPartsOfSpeechFrequencies()
 	{
+		SortedMap<String, Integer> partsOfSpeechFrequencies = new TreeMap<String, Integer>();
+		for(int code = 0; code < partOfSpeechFrequencies.length; code++)
+		{
+			if(partOfSpeechFrequencies[code] > 0)
+			{
+				partsOfSpeechFrequencies.put(decodePartOfSpeech((byte)code), partOfSpeechFrequencies[code]);
+			}
+		}
 		return partsOfSpeechFrequencies;
 	}
 	
@@ -557,6 +712,10 @@ public class EbookContentData implements Serializable
 	 */
 	public String getPlainText()
 	{
+		if(null == plainText && null != sectionLoader)
+		{
+			plainText = sectionLoader.loadPlainText();
+		}
 		return plainText;
 	}
 	
@@ -576,6 +735,10 @@ public class EbookContentData implements Serializable
 	 */
 	public String[] getSentences()
 	{
+		if(null == sentences && null != sectionLoader)
+		{
+			sentences = sectionLoader.loadSentences();
+		}
 		return sentences;
 	}
 	
@@ -649,7 +812,20 @@ public class EbookContentData implements Serializable
 	 */
 	public String[][] getTokens()
 	{
-		return tokenizedSentences;
+		loadTokens();
+		return decode(tokenIds);
+	}
+	
+	/**
+	 * Returns the tokens of a single sentence, without decoding the tokens of the other sentences
+	 * 
+	 * @param sentence The index of the sentence
+	 * @return The sentence's tokens, or null if the text hasn't been tokenized
+	 */
+	public String[] getTokens(final int sentence)
+	{
+		loadTokens();
+		return null == tokenIds ? null : vocabulary.decode(tokenIds[sentence]);
 	}
 	
 	/**
@@ -674,16 +850,16 @@ public class EbookContentData implements Serializable
 	/**
 	 * A method to be called by a hyperonym counting TextPreprocessor to set the counting results
 	 * 
-	 * @param A sorted map with the hyperonym String as the key and the frequency as the value
+	 * @param The hyperonym frequencies
 	 */
-	public void setHyperonymFrequencies(SortedMap<String, Integer> hyperonymFrequencies)
+	public void setHyperonymFrequencies(FrequencyCounter hyperonymFrequencies)
 	{
 		this.hyperonymFrequencies = hyperonymFrequencies;
 	}
 	
 	public void setLemmas(final String[][] lemmas)
 	{
-		this.lemmatizedSentences = lemmas;
+		this.lemmaIds = encode(lemmas);
 	}
 	
 	public void setNumberOfTokens(final int tokenCount)
@@ -693,7 +869,24 @@ public class EbookContentData implements Serializable
 	
 	public void setPartsOfSpeech(final String[][] partsOfSpeech)
 	{
-		this.partsOfSpeech = partsOfSpeech;
+		if(null == partsOfSpeech)
+		{
+			this.partOfSpeechCodes = null;
+			return;
+		}
+		byte[][] codes = new byte[partsOfSpeech.length][];
+		for(int i = 0; i < partsOfSpeech.length; i++)
+		{
+			if(null != partsOfSpeech[i])
+			{
+				codes[i] = new byte[partsOfSpeech[i].length];
+				for(int j = 0; j < partsOfSpeech[i].length; j++)
+				{
+					codes[i][j] = encodePartOfSpeech(partsOfSpeech[i][j]);
+				}
+			}
+		}
+		this.partOfSpeechCodes = codes;
 	}
 
 	public void setPlainText(final String plainText)
@@ -708,18 +901,46 @@ public class EbookContentData implements Serializable
 
 	public void setTokens(final String[][] tokens)
 	{
-		this.tokenizedSentences = tokens;
+		this.tokenIds = encode(tokens);
+	}
+	
+	EpubFile getEpubFile()
+	{
+		return epubFile;
+	}
+	
+	/**
+	 * @return The target class as it has been set, without mapping it through the Warengruppen map
+	 */
+	String getRawTargetClass()
+	{
+		return targetClass;
+	}
+	
+	FrequencyCounter getWordFrequencies()
+	{
+		return wordFrequencies;
+	}
+	
+	long getWordLength()
+	{
+		return wordLength;
+	}
+	
+	void setPartOfSpeechFrequency(final String tag, final int frequency)
+	{
+		partOfSpeechFrequencies[encodePartOfSpeech(tag) & 0xFF] = frequency;
 	}
 	
 	private double calculatePosTokenRatio(final String posToken)
 	{
-		if(null == posToken || !partsOfSpeechFrequencies.containsKey(posToken))
+		int posTokenCount = getPartOfSpeechFrequency(posToken);
+		if(posTokenCount == 0)
 		{
 			return 0.0;
 		}
 		else
 		{
-			int posTokenCount = partsOfSpeechFrequencies.get(posToken);
 			return calculateRatio(posTokenCount, getNumberOfTokens());
 		}
 	}
@@ -729,14 +950,7 @@ public class EbookContentData implements Serializable
 		int posTokenCount = 0;
 		for(int i = 0; i < posTokens.length; i++)
 		{
-			if(!partsOfSpeechFrequencies.containsKey(posTokens[i]))
-			{
-				// nothing to do, assuming posTokenCount for posTokens[i] is 0 
-			}
-			else
-			{
-				posTokenCount += partsOfSpeechFrequencies.get(posTokens[i]);
-			}
+			posTokenCount += getPartOfSpeechFrequency(posTokens[i]);
 		}
 		
 		return calculateRatio(posTokenCount, getNumberOfTokens());
@@ -754,6 +968,105 @@ public class EbookContentData implements Serializable
 		}
 	}
 	
+	private String[][] decode(final int[][] encodedSentences)
+	{
+		if(null == encodedSentences)
+		{
+			return null;
+		}
+		String[][] sentences = new String[encodedSentences.length][];
+		for(int i = 0; i < encodedSentences.length; i++)
+		{
+			sentences[i] = vocabulary.decode(encodedSentences[i]);
+		}
+		return sentences;
+	}
+	
+	private String decodePartOfSpeech(final byte code)
+	{
+		int index = code & 0xFF;
+		if(code == nullPartOfSpeechCode)
+		{
+			return null;
+		}
+		else if(index < posTags.length)
+		{
+			return posTags[index].name();
+		}
+		else
+		{
+			return additionalPartsOfSpeech.get(index - posTags.length);
+		}
+	}
+	
+	private String[] decodePartsOfSpeech(final byte[] codes)
+	{
+		if(null == codes)
+		{
+			return null;
+		}
+		String[] partsOfSpeech = new String[codes.length];
+		for(int j = 0; j < codes.length; j++)
+		{
+			partsOfSpeech[j] = decodePartOfSpeech(codes[j]);
+		}
+		return partsOfSpeech;
+	}
+	
+	private int[][] encode(final String[][] sentences)
+	{
+		if(null == sentences)
+		{
+			return null;
+		}
+		int[][] encodedSentences = new int[sentences.length][];
+		for(int i = 0; i < sentences.length; i++)
+		{
+			encodedSentences[i] = vocabulary.encode(sentences[i]);
+		}
+		return encodedSentences;
+	}
+	
+	// returns the code of the tag, or -1 if the tag hasn't been encoded yet
+	private int findPartOfSpeechCode(final String tag)
+	{
+		if(null == tag)
+		{
+			return -1;
+		}
+		POSGermanTag posTag = POSGermanTag.forName(tag);
+		if(null != posTag)
+		{
+			return posTag.ordinal();
+		}
+		int index = additionalPartsOfSpeech.indexOf(tag);
+		return index < 0 ? -1 : posTags.length + index;
+	}
+	
+	private byte encodePartOfSpeech(final String tag)
+	{
+		if(null == tag)
+		{
+			return nullPartOfSpeechCode;
+		}
+		POSGermanTag posTag = POSGermanTag.forName(tag);
+		if(null != posTag)
+		{
+			return (byte)posTag.ordinal();
+		}
+		int index = additionalPartsOfSpeech.indexOf(tag);
+		if(index < 0)
+		{
+			index = additionalPartsOfSpeech.size();
+			if(posTags.length + index >= (nullPartOfSpeechCode & 0xFF))
+			{
+				throw new IllegalStateException(String.format(errorMessagesBundle.getString("avve.epubhandling.tooManyPartOfSpeechTags"), tag));
+			}
+			additionalPartsOfSpeech.add(tag);
+		}
+		return (byte)(posTags.length + index);
+	}
+	
 	private void initializeWarengruppenMap()
 	{
 		//warengruppenMap.put("111", "110");
@@ -762,20 +1075,24 @@ public class EbookContentData implements Serializable
 
 	private String lemmasToString(boolean withForeignWords)
 	{
+		loadLemmas();
+		loadPartsOfSpeech();
 		StringBuilder stringbuilder = new StringBuilder();
+		byte foreignMaterialCode = (byte)POSGermanTag.FM.ordinal();
 			
-		for(int i = 0; i < lemmatizedSentences.length; i++)
+		// the lemmas are read from the vocabulary directly, so no decoded copy of the text is created
+		for(int i = 0; i < lemmaIds.length; i++)
 		{
-			for(int j = 0; j < lemmatizedSentences[i].length; j++)
+			for(int j = 0; j < lemmaIds[i].length; j++)
 			{
 				if(withForeignWords)
 				{
-					stringbuilder.append(lemmatizedSentences[i][j]);
+					stringbuilder.append(vocabulary.get(lemmaIds[i][j]));
 					stringbuilder.append(" ");
 				}
 				else
 				{
-					String lemma = partsOfSpeech[i][j].equals("FM") ? "" : lemmatizedSentences[i][j] + " ";
+					String lemma = partOfSpeechCodes[i][j] == foreignMaterialCode ? "" : vocabulary.get(lemmaIds[i][j]) + " ";
 					stringbuilder.append(lemma);
 				}
 
@@ -785,4 +1102,55 @@ public class EbookContentData implements Serializable
 		
 		return stringbuilder.toString();
 	}
+	
+	private void loadLemmas()
+	{
+		if(null == lemmaIds && null != sectionLoader)
+		{
+			setLemmas(sectionLoader.loadLemmas());
+		}
+	}
+	
+	private void loadPartsOfSpeech()
+	{
+		if(null == partOfSpeechCodes && null != sectionLoader)
+		{
+			setPartsOfSpeech(sectionLoader.loadPartsOfSpeech());
+		}
+	}
+	
+	private void loadTokens()
+	{
+		if(null == tokenIds && null != sectionLoader)
+		{
+			setTokens(sectionLoader.loadTokens());
+		}
+	}
+	
+	private void writeObject(ObjectOutputStream outputStream) throws IOException
+	{
+		// sections of a deserialized e-book that haven't been accessed yet must be loaded before Java serialization
+		getPlainText();
+		getSentences();
+		loadTokens();
+		loadLemmas();
+		loadPartsOfSpeech();
+		outputStream.defaultWriteObject();
+	}
+	
+	/**
+	 * Provides the content of the heavy fields of a deserialized e-book on demand
+	 */
+	interface ContentSectionLoader
+	{
+		String loadPlainText();
+		
+		String[] loadSentences();
+		
+		String[][] loadTokens();
+		
+		String[][] loadLemmas();
+		
+		String[][] loadPartsOfSpeech();
+	}
 }
\ No newline at end of file
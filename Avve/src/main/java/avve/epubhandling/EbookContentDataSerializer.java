@@ -0,0 +1,688 @@
+package avve.epubhandling;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.ResourceBundle;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.Logger;
+
+import avve.textpreprocess.POSGermanTag;
+
+/**
+ * A compact binary format for storing EbookContentData objects between the two iterations of the EpubExtractor, replacing Java
+ * serialization of the whole object graph.
+ *
+ * The file starts with the magic bytes "AVVE" and a format version, followed by a section table (section ID and length of each section)
+ * and the sections themselves. All strings of the tokens, lemmas and frequency maps are stored once in a per-file string dictionary and
+ * referenced by varint-encoded IDs; parts of speech are stored as one byte per token. When reading a file, only the metadata, the
+ * dictionary and the frequency maps are decoded right away. The plain text, sentences, tokens, lemmas and parts of speech are decoded
+ * on first access.
+ *
+ * @author Kai Weber
+ *
+ */
+public class EbookContentDataSerializer
+{
+	public static final String FILE_EXTENSION = "avve";
+
+	private static final byte[] MAGIC = { 'A', 'V', 'V', 'E' };
+	private static final byte VERSION = 1;
+	private static final ResourceBundle errorMessagesBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
+
+	// section IDs, also defining the order of sections in the file
+	private static final int METADATA = 0;
+	private static final int DICTIONARY = 1;
+	private static final int FREQUENCIES = 2;
+	private static final int PLAIN_TEXT = 3;
+	private static final int SENTENCES = 4;
+	private static final int TOKENS = 5;
+	private static final int LEMMAS = 6;
+	private static final int PARTS_OF_SPEECH = 7;
+	private static final int NUMBER_OF_SECTIONS = 8;
+
+	// part of speech codes beyond the POSGermanTag ordinals
+	private static final int POS_NULL = 0xFE;
+	private static final int POS_ESCAPE = 0xFF;
+
+	public EbookContentDataSerializer(final Logger logger)
+	{
+		this.logger = logger;
+	}
+
+	/**
+	 * Checks if the given data starts with the header of this serialization format
+	 *
+	 * @param data The content of a temp file
+	 * @return true, if the data can be read by read()
+	 */
+	public static boolean hasSerializerHeader(final byte[] data)
+	{
+		if(data.length < MAGIC.length + 1)
+		{
+			return false;
+		}
+		for(int i = 0; i < MAGIC.length; i++)
+		{
+			if(data[i] != MAGIC[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the e-book content data to the output stream
+	 *
+	 * @param content The e-book content data
+	 * @param outputStream The output stream; it is not closed by this method
+	 * @throws IOException If writing to the output stream fails
+	 */
+	public void write(final EbookContentData content, final OutputStream outputStream) throws IOException
+	{
+		StringDictionary dictionary = new StringDictionary();
+		SectionWriter[] sections = new SectionWriter[NUMBER_OF_SECTIONS];
+		for(int i = 0; i < NUMBER_OF_SECTIONS; i++)
+		{
+			sections[i] = new SectionWriter();
+		}
+
+		writeMetadata(sections[METADATA], content);
+		writeFrequencies(sections[FREQUENCIES], dictionary, content);
+		sections[PLAIN_TEXT].writeString(content.getPlainText());
+		writeStringArray(sections[SENTENCES], content.getSentences());
+		writeStringMatrix(sections[TOKENS], dictionary, content.getTokens());
+		writeStringMatrix(sections[LEMMAS], dictionary, content.getLemmas());
+		writePartsOfSpeech(sections[PARTS_OF_SPEECH], dictionary, content.getPartsOfSpeech());
+		// the dictionary is complete only after all other sections have been encoded
+		dictionary.writeTo(sections[DICTIONARY]);
+
+		SectionWriter header = new SectionWriter();
+		header.write(MAGIC, 0, MAGIC.length);
+		header.write(VERSION);
+		header.writeVarInt(NUMBER_OF_SECTIONS);
+		for(int i = 0; i < NUMBER_OF_SECTIONS; i++)
+		{
+			header.writeVarInt(i);
+			header.writeVarInt(sections[i].size());
+		}
+		header.writeTo(outputStream);
+		for(SectionWriter section : sections)
+		{
+			section.writeTo(outputStream);
+		}
+	}
+
+	/**
+	 * Reads e-book content data from the content of a file written by write(). The heavy sections (plain text, sentences, tokens, lemmas,
+	 * parts of speech) are decoded lazily, when the respective getter of the returned object is called for the first time.
+	 *
+	 * @param data The file content
+	 * @return The e-book content data
+	 * @throws IOException If the data doesn't start with a valid header or is corrupted
+	 */
+	public EbookContentData read(final byte[] data) throws IOException
+	{
+		if(!hasSerializerHeader(data) || data[MAGIC.length] != VERSION)
+		{
+			throw new IOException(errorMessagesBundle.getString("avve.epubhandling.invalidSerializerHeader"));
+		}
+
+		try
+		{
+			SectionReader header = new SectionReader(data, MAGIC.length + 1, data.length);
+			int numberOfSections = header.readVarInt();
+			int[] sectionIds = new int[numberOfSections];
+			int[] sectionLengths = new int[numberOfSections];
+			for(int i = 0; i < numberOfSections; i++)
+			{
+				sectionIds[i] = header.readVarInt();
+				sectionLengths[i] = header.readVarInt();
+			}
+
+			int[] sectionOffsets = new int[NUMBER_OF_SECTIONS];
+			int[] sectionEnds = new int[NUMBER_OF_SECTIONS];
+			int offset = header.getPosition();
+			for(int i = 0; i < numberOfSections; i++)
+			{
+				if(sectionIds[i] < NUMBER_OF_SECTIONS)
+				{
+					sectionOffsets[sectionIds[i]] = offset;
+					sectionEnds[sectionIds[i]] = offset + sectionLengths[i];
+				}
+				offset += sectionLengths[i];
+			}
+			if(offset > data.length)
+			{
+				throw new IOException(errorMessagesBundle.getString("avve.epubhandling.invalidSerializerHeader"));
+			}
+
+			String[] dictionary = readDictionary(new SectionReader(data, sectionOffsets[DICTIONARY], sectionEnds[DICTIONARY]));
+			LazySectionLoader loader = new LazySectionLoader(data, sectionOffsets, sectionEnds, dictionary);
+
+			EbookContentData content = readMetadata(new SectionReader(data, sectionOffsets[METADATA], sectionEnds[METADATA]), loader);
+			readFrequencies(new SectionReader(data, sectionOffsets[FREQUENCIES], sectionEnds[FREQUENCIES]), dictionary, content);
+			return content;
+		}
+		catch(ArrayIndexOutOfBoundsException exc)
+		{
+			throw new IOException(errorMessagesBundle.getString("avve.epubhandling.corruptSerializedData"), exc);
+		}
+	}
+
+	private void writeMetadata(final SectionWriter section, final EbookContentData content)
+	{
+		EpubFile epubFile = content.getEpubFile();
+		section.write(null == epubFile ? 0 : 1);
+		if(null != epubFile)
+		{
+			section.writeString(epubFile.getDocumentId());
+			section.writeString(epubFile.getFilePath());
+			section.writeVarLong(epubFile.getFileSize());
+			section.writeString(epubFile.getLanguageCode());
+			section.writeSignedVarInt(epubFile.getNumberOfChapters());
+			section.writeSignedVarInt(epubFile.getNumberOfImages());
+			section.writeSignedVarInt(epubFile.getNumberOfTocItems());
+			section.writeString(epubFile.getPathToTocFile());
+			section.writeSignedVarInt(epubFile.getDepthOfToc());
+		}
+		section.writeString(content.getRawTargetClass());
+		section.writeSignedVarInt(null == content.getTokens() ? 0 : content.getNumberOfTokens());
+		section.writeSignedVarInt(content.getNumberOfWords());
+		section.writeVarLong(content.getWordLength());
+		section.writeSignedVarInt(content.getNumberOfSentences());
+	}
+
+	private EbookContentData readMetadata(final SectionReader section, final EbookContentData.ContentSectionLoader loader)
+	{
+		EpubFile epubFile = null;
+		if(section.readByte() != 0)
+		{
+			String documentId = section.readString();
+			String filePath = section.readString();
+			long fileSize = section.readVarLong();
+			String language = section.readString();
+			int numberOfChapters = section.readSignedVarInt();
+			int numberOfImages = section.readSignedVarInt();
+			int numberOfTocItems = section.readSignedVarInt();
+			String pathToTocFile = section.readString();
+			int depthOfToc = section.readSignedVarInt();
+			epubFile = new EpubFile(documentId, filePath, fileSize, language, numberOfChapters, numberOfImages, numberOfTocItems, pathToTocFile, depthOfToc, logger);
+		}
+		String targetClass = section.readString();
+		int numberOfTokens = section.readSignedVarInt();
+		int numberOfWords = section.readSignedVarInt();
+		long wordLength = section.readVarLong();
+		int numberOfSentences = section.readSignedVarInt();
+
+		return new EbookContentData(epubFile, targetClass, logger, loader, numberOfTokens, numberOfWords, wordLength, numberOfSentences);
+	}
+
+	private void writeFrequencies(final SectionWriter section, final StringDictionary dictionary, final EbookContentData content)
+	{
+		writeFrequencyCounter(section, dictionary, content.getLemmaFrequencies());
+		writeFrequencyCounter(section, dictionary, content.getHyperonymFrequencies());
+		writeFrequencyCounter(section, dictionary, content.getWordFrequencies());
+		writeFrequencyMap(section, dictionary, content.getPartsOfSpeechFrequencies());
+	}
+
+	private void readFrequencies(final SectionReader section, final String[] dictionary, final EbookContentData content)
+	{
+		readFrequencyCounter(section, dictionary, content.getLemmaFrequencies());
+		FrequencyCounter hyperonymFrequencies = new FrequencyCounter();
+		if(readFrequencyCounter(section, dictionary, hyperonymFrequencies))
+		{
+			content.setHyperonymFrequencies(hyperonymFrequencies);
+		}
+		else
+		{
+			content.setHyperonymFrequencies(null);
+		}
+		readFrequencyCounter(section, dictionary, content.getWordFrequencies());
+		SortedMap<String, Integer> partsOfSpeechFrequencies = new TreeMap<String, Integer>();
+		readFrequencyMap(section, dictionary, partsOfSpeechFrequencies);
+		for(Entry<String, Integer> entry : partsOfSpeechFrequencies.entrySet())
+		{
+			content.setPartOfSpeechFrequency(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private void writeFrequencyCounter(final SectionWriter section, final StringDictionary dictionary, final FrequencyCounter frequencies)
+	{
+		if(null == frequencies)
+		{
+			section.writeSignedVarInt(-1);
+			return;
+		}
+		section.writeSignedVarInt(frequencies.size());
+		frequencies.forEach((key, count) ->
+		{
+			section.writeVarInt(dictionary.idOf(key));
+			section.writeSignedVarInt(count);
+		});
+	}
+
+	// returns false, if the counter was null when it was written
+	private boolean readFrequencyCounter(final SectionReader section, final String[] dictionary, final FrequencyCounter frequencies)
+	{
+		int size = section.readSignedVarInt();
+		for(int i = 0; i < size; i++)
+		{
+			String key = dictionary[section.readVarInt()];
+			frequencies.add(key, section.readSignedVarInt());
+		}
+		return size >= 0;
+	}
+
+	private void writeFrequencyMap(final SectionWriter section, final StringDictionary dictionary, final Map<String, Integer> frequencies)
+	{
+		if(null == frequencies)
+		{
+			section.writeSignedVarInt(-1);
+			return;
+		}
+		section.writeSignedVarInt(frequencies.size());
+		for(Entry<String, Integer> entry : frequencies.entrySet())
+		{
+			section.writeVarInt(dictionary.idOf(entry.getKey()));
+			section.writeSignedVarInt(entry.getValue());
+		}
+	}
+
+	private void readFrequencyMap(final SectionReader section, final String[] dictionary, final Map<String, Integer> frequencies)
+	{
+		int size = section.readSignedVarInt();
+		for(int i = 0; i < size; i++)
+		{
+			String key = dictionary[section.readVarInt()];
+			frequencies.put(key, section.readSignedVarInt());
+		}
+	}
+
+	private void writeStringArray(final SectionWriter section, final String[] strings)
+	{
+		if(null == strings)
+		{
+			section.writeSignedVarInt(-1);
+			return;
+		}
+		section.writeSignedVarInt(strings.length);
+		for(String string : strings)
+		{
+			section.writeString(string);
+		}
+	}
+
+	private static String[] readStringArray(final SectionReader section)
+	{
+		int length = section.readSignedVarInt();
+		if(length < 0)
+		{
+			return null;
+		}
+		String[] strings = new String[length];
+		for(int i = 0; i < length; i++)
+		{
+			strings[i] = section.readString();
+		}
+		return strings;
+	}
+
+	private void writeStringMatrix(final SectionWriter section, final StringDictionary dictionary, final String[][] matrix)
+	{
+		if(null == matrix)
+		{
+			section.writeSignedVarInt(-1);
+			return;
+		}
+		section.writeSignedVarInt(matrix.length);
+		for(String[] row : matrix)
+		{
+			if(null == row)
+			{
+				section.writeSignedVarInt(-1);
+				continue;
+			}
+			section.writeSignedVarInt(row.length);
+			for(String string : row)
+			{
+				section.writeVarInt(dictionary.idOf(string));
+			}
+		}
+	}
+
+	private static String[][] readStringMatrix(final SectionReader section, final String[] dictionary)
+	{
+		int numberOfRows = section.readSignedVarInt();
+		if(numberOfRows < 0)
+		{
+			return null;
+		}
+		String[][] matrix = new String[numberOfRows][];
+		for(int i = 0; i < numberOfRows; i++)
+		{
+			int rowLength = section.readSignedVarInt();
+			if(rowLength < 0)
+			{
+				continue;
+			}
+			String[] row = new String[rowLength];
+			for(int j = 0; j < rowLength; j++)
+			{
+				row[j] = dictionary[section.readVarInt()];
+			}
+			matrix[i] = row;
+		}
+		return matrix;
+	}
+
+	private void writePartsOfSpeech(final SectionWriter section, final StringDictionary dictionary, final String[][] partsOfSpeech)
+	{
+		if(null == partsOfSpeech)
+		{
+			section.writeSignedVarInt(-1);
+			return;
+		}
+		section.writeSignedVarInt(partsOfSpeech.length);
+		for(String[] row : partsOfSpeech)
+		{
+			if(null == row)
+			{
+				section.writeSignedVarInt(-1);
+				continue;
+			}
+			section.writeSignedVarInt(row.length);
+			for(String tag : row)
+			{
+				POSGermanTag posTag = null == tag ? null : POSGermanTag.forName(tag);
+				if(null == tag)
+				{
+					section.write(POS_NULL);
+				}
+				else if(null != posTag && posTag.ordinal() < POS_NULL)
+				{
+					section.write(posTag.ordinal());
+				}
+				else
+				{
+					// tags that are not part of the tag set (e.g. combined tags like "VVFIN|VVINF") go to the dictionary
+					section.write(POS_ESCAPE);
+					section.writeVarInt(dictionary.idOf(tag));
+				}
+			}
+		}
+	}
+
+	private static String[][] readPartsOfSpeech(final SectionReader section, final String[] dictionary)
+	{
+		POSGermanTag[] posTags = POSGermanTag.values();
+		int numberOfRows = section.readSignedVarInt();
+		if(numberOfRows < 0)
+		{
+			return null;
+		}
+		String[][] partsOfSpeech = new String[numberOfRows][];
+		for(int i = 0; i < numberOfRows; i++)
+		{
+			int rowLength = section.readSignedVarInt();
+			if(rowLength < 0)
+			{
+				continue;
+			}
+			String[] row = new String[rowLength];
+			for(int j = 0; j < rowLength; j++)
+			{
+				int code = section.readByte();
+				if(code == POS_ESCAPE)
+				{
+					row[j] = dictionary[section.readVarInt()];
+				}
+				else if(code != POS_NULL)
+				{
+					row[j] = posTags[code].name();
+				}
+			}
+			partsOfSpeech[i] = row;
+		}
+		return partsOfSpeech;
+	}
+
+	private static String[] readDictionary(final SectionReader section)
+	{
+		int size = section.readVarInt();
+		// ID 0 is reserved for null
+		String[] dictionary = new String[size + 1];
+		for(int i = 1; i <= size; i++)
+		{
+			dictionary[i] = section.readString();
+		}
+		return dictionary;
+	}
+
+	/**
+	 * Decodes the heavy sections of a serialized EbookContentData object on demand
+	 */
+	private static class LazySectionLoader implements EbookContentData.ContentSectionLoader
+	{
+		private LazySectionLoader(final byte[] data, final int[] sectionOffsets, final int[] sectionEnds, final String[] dictionary)
+		{
+			this.data = data;
+			this.sectionOffsets = sectionOffsets;
+			this.sectionEnds = sectionEnds;
+			this.dictionary = dictionary;
+		}
+
+		@Override
+		public String loadPlainText()
+		{
+			return section(PLAIN_TEXT).readString();
+		}
+
+		@Override
+		public String[] loadSentences()
+		{
+			return readStringArray(section(SENTENCES));
+		}
+
+		@Override
+		public String[][] loadTokens()
+		{
+			return readStringMatrix(section(TOKENS), dictionary);
+		}
+
+		@Override
+		public String[][] loadLemmas()
+		{
+			return readStringMatrix(section(LEMMAS), dictionary);
+		}
+
+		@Override
+		public String[][] loadPartsOfSpeech()
+		{
+			return readPartsOfSpeech(section(PARTS_OF_SPEECH), dictionary);
+		}
+
+		private SectionReader section(final int sectionId)
+		{
+			if(sectionEnds[sectionId] == 0)
+			{
+				throw new UncheckedIOException(new IOException(errorMessagesBundle.getString("avve.epubhandling.corruptSerializedData")));
+			}
+			return new SectionReader(data, sectionOffsets[sectionId], sectionEnds[sectionId]);
+		}
+
+		private final byte[] data;
+		private final String[] dictionary;
+		private final int[] sectionEnds;
+		private final int[] sectionOffsets;
+	}
+
+	/**
+	 * Assigns IDs to strings in order of their first occurrence; ID 0 represents null
+	 */
+	private static class StringDictionary
+	{
+		int idOf(final String string)
+		{
+			if(null == string)
+			{
+				return 0;
+			}
+			Integer id = ids.get(string);
+			if(null == id)
+			{
+				strings.add(string);
+				id = strings.size();
+				ids.put(string, id);
+			}
+			return id;
+		}
+
+		void writeTo(final SectionWriter section)
+		{
+			section.writeVarInt(strings.size());
+			for(String string : strings)
+			{
+				section.writeString(string);
+			}
+		}
+
+		private final Map<String, Integer> ids = new HashMap<String, Integer>();
+		private final List<String> strings = new ArrayList<String>();
+	}
+
+	private static class SectionWriter extends ByteArrayOutputStream
+	{
+		void writeVarInt(int value)
+		{
+			while((value & ~0x7F) != 0)
+			{
+				write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			write(value);
+		}
+
+		void writeSignedVarInt(final int value)
+		{
+			// zigzag encoding, so that small negative values stay small
+			writeVarInt((value << 1) ^ (value >> 31));
+		}
+
+		void writeVarLong(long value)
+		{
+			while((value & ~0x7FL) != 0)
+			{
+				write((int)((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			write((int)value);
+		}
+
+		// strings are written as UTF-8 bytes, prefixed with their length + 1; a length of 0 represents null
+		void writeString(final String string)
+		{
+			if(null == string)
+			{
+				writeVarInt(0);
+				return;
+			}
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length + 1);
+			write(bytes, 0, bytes.length);
+		}
+	}
+
+	private static class SectionReader
+	{
+		SectionReader(final byte[] data, final int start, final int end)
+		{
+			this.data = data;
+			this.position = start;
+			this.end = end;
+		}
+
+		int getPosition()
+		{
+			return position;
+		}
+
+		int readByte()
+		{
+			if(position >= end)
+			{
+				throw new ArrayIndexOutOfBoundsException(position);
+			}
+			return data[position++] & 0xFF;
+		}
+
+		int readVarInt()
+		{
+			int value = 0;
+			int shift = 0;
+			int currentByte;
+			do
+			{
+				currentByte = readByte();
+				value |= (currentByte & 0x7F) << shift;
+				shift += 7;
+			}
+			while((currentByte & 0x80) != 0);
+			return value;
+		}
+
+		int readSignedVarInt()
+		{
+			int value = readVarInt();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		long readVarLong()
+		{
+			long value = 0;
+			int shift = 0;
+			int currentByte;
+			do
+			{
+				currentByte = readByte();
+				value |= (long)(currentByte & 0x7F) << shift;
+				shift += 7;
+			}
+			while((currentByte & 0x80) != 0);
+			return value;
+		}
+
+		String readString()
+		{
+			int length = readVarInt() - 1;
+			if(length < 0)
+			{
+				return null;
+			}
+			if(position + length > end)
+			{
+				throw new ArrayIndexOutOfBoundsException(position + length);
+			}
+			String string = new String(data, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return string;
+		}
+
+		private final byte[] data;
+		private final int end;
+		private int position;
+	}
+
+	private Logger logger;
+}
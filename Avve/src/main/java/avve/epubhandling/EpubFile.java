@@ -6,6 +6,7 @@ import avve.services.XmlService;
 import java.io.*;
 import java.util.*;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import nu.xom.*;
@@ -27,6 +28,11 @@ public class EpubFile implements Serializable
 	private static final ResourceBundle errorMessagesBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
 	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
 	
+	static
+	{
+		opfNamespace.addNamespace("dc", "http://purl.org/dc/elements/1.1/");
+	}
+	
 	// private instance fields
 	private String documentId;
 	private String filePath;
@@ -39,7 +45,10 @@ public class EpubFile implements Serializable
 	private int numberOfTocItems;
 	private String pathToTocFile;
 	private int depthOfToc;
+	transient private boolean readFromZip = false;
+	transient private boolean useXsltTextExtraction = false;
 	transient private XmlService xmlService;
+	transient private ZipFile zipFile;
 	
 	/**
 	 * Constructor, checks if file exists and therefore might throw an IOException
@@ -60,40 +69,68 @@ public class EpubFile implements Serializable
 		this.fileService = fileService;
 		this.logger = logger;
 		this.xmlService = new XmlService(fileService, logger);
-		opfNamespace.addNamespace("dc", "http://purl.org/dc/elements/1.1/");
+	}
+
+	/**
+	 * Constructor for restoring the metadata of an already processed e-book, e.g. by the EbookContentDataSerializer. The EPUB file itself
+	 * is not accessed, so extractPlainText() must not be called on such an object.
+	 */
+	EpubFile(String documentId, String filePath, long fileSize, String language, int numberOfChapters, int numberOfImages, int numberOfTocItems,
+			String pathToTocFile, int depthOfToc, Logger logger)
+	{
+		this.documentId = documentId;
+		this.filePath = filePath;
+		this.fileSize = fileSize;
+		this.language = language;
+		this.numberOfChapters = numberOfChapters;
+		this.numberOfImages = numberOfImages;
+		this.numberOfTocItems = numberOfTocItems;
+		this.pathToTocFile = pathToTocFile;
+		this.depthOfToc = depthOfToc;
+		this.logger = logger;
 	}
 	
 	/**
-	 * Extracts the plain text of the e-book, using some XSLT script and thus stripping (X)HTML tags. 
+	 * Extracts the plain text of the e-book, stripping (X)HTML tags either with a streaming parser or with some XSLT script. 
 	 * 
 	 * @return The plain text of all e-book chapters as a single String
 	 */
 	public String extractPlainText()
 	{
-		StringBuffer sb = new StringBuffer();
+		StringBuilder sb = new StringBuilder();
+		String tempDir = null;
 		
 		try
 		{
-		    // unzip to temp folder
-		    String tempDir = FilenameUtils.concat(System.getProperty("java.io.tmpdir"), "avve");
-		    fileService.createDirectory(tempDir);
-		    unzipEpubToTempFolder(tempDir);
-		    
-		    // read text from Epub
-			String pathToOebpsFile = getOebpsFilePath(tempDir);
-			List<String> textOfAllContentFiles = getPlainTextFromContentFiles(pathToOebpsFile);
-			for(String chapter : textOfAllContentFiles)
+			String epubDir;
+			if(readFromZip)
+			{
+				// read all entries directly from the EPUB archive; entry paths are relative to the archive root
+				zipFile = new ZipFile(filePath);
+				epubDir = "";
+			}
+			else
 			{
-				sb.append(chapter);
-				sb.append(System.lineSeparator());
+			    // unzip to temp folder; each thread gets its own sub-folder, so that several EPUB files can be extracted in parallel
+			    tempDir = FilenameUtils.concat(FilenameUtils.concat(System.getProperty("java.io.tmpdir"), "avve"), String.valueOf(Thread.currentThread().getId()));
+			    fileService.createDirectory(tempDir);
+			    unzipEpubToTempFolder(tempDir);
+			    epubDir = tempDir;
 			}
+		    
+		    // read text from Epub
+			String pathToOebpsFile = getOebpsFilePath(epubDir);
+			appendPlainTextFromContentFiles(pathToOebpsFile, sb);
 			
 			// determine table of contents (TOC) structure (NOTE: the pathToTocFile instance variable is set by getPlainTextFromContentFiles(), so we can only work on pathToTocFile afterwards)
-			String absolutePathToTocFile = FilenameUtils.concat(new File(pathToOebpsFile).getParent(), pathToTocFile);
+			String absolutePathToTocFile = FilenameUtils.concat(FilenameUtils.getFullPath(pathToOebpsFile), pathToTocFile);
 			determineTocStructure(absolutePathToTocFile);
 			
 			// clear temp folder
-			fileService.clearFolder(tempDir);
+			if(null != tempDir)
+			{
+				fileService.clearFolder(tempDir);
+			}
 		}
 		catch (IOException exc)
 		{
@@ -107,6 +144,11 @@ public class EpubFile implements Serializable
 		{
 			logger.error(exc.getLocalizedMessage(), exc);
 		}
+		finally
+		{
+			fileService.safeClose(zipFile);
+			zipFile = null;
+		}
 		
 		return sb.toString();
 	}
@@ -141,6 +183,26 @@ public class EpubFile implements Serializable
 		return fileSize;
 	}
 
+	/**
+	 * The path to the e-book file, as given to the constructor
+	 * 
+	 * @return The e-book's file path
+	 */
+	String getFilePath()
+	{
+		return filePath;
+	}
+
+	/**
+	 * The path to the table of contents file (NCX or navigation document) within the e-book, as found in the OPF file
+	 * 
+	 * @return The path to the table of contents file, may be empty if the e-book has no table of contents
+	 */
+	String getPathToTocFile()
+	{
+		return pathToTocFile;
+	}
+
 	/**
 	 * The language code from the e-book manifest's metadata
 	 * 
@@ -185,6 +247,28 @@ public class EpubFile implements Serializable
 		return numberOfTocItems;
 	}
 
+	/**
+	 * If set to true, extractPlainText() reads container.xml, the OPF file, the content documents and the table of contents directly
+	 * from the EPUB archive instead of unzipping the e-book to a temp folder first.
+	 * 
+	 * @param readFromZip true for reading from the EPUB archive, false for unzipping to the temp folder (default)
+	 */
+	public void setReadFromZip(final boolean readFromZip)
+	{
+		this.readFromZip = readFromZip;
+	}
+	
+	/**
+	 * If set to true, the text of the content documents is extracted by building a document tree and running an XSLT script on it. By
+	 * default, the text is extracted by a streaming parser, which yields the same result with less memory and CPU consumption.
+	 * 
+	 * @param useXsltTextExtraction true for the XSLT based text extraction, false for streaming text extraction (default)
+	 */
+	public void setUseXsltTextExtraction(final boolean useXsltTextExtraction)
+	{
+		this.useXsltTextExtraction = useXsltTextExtraction;
+	}
+
 	private void determineTocStructure(String pathToTocFile)
 	{
 		if(null != pathToTocFile && pathToTocFile.length() > 0)
@@ -193,7 +277,7 @@ public class EpubFile implements Serializable
 			switch(extension)
 			{
 				case "ncx":
-					try(InputStream instream = fileService.createFileInputStream(pathToTocFile))
+					try(InputStream instream = openEpubResource(pathToTocFile))
 					{
 						Document parsedTocFile = xmlService.build(instream);
 						
@@ -218,7 +302,7 @@ public class EpubFile implements Serializable
 				case "html":
 				case "xhtml":
 				case "htm":
-					try(InputStream instream = fileService.createFileInputStream(pathToTocFile))
+					try(InputStream instream = openEpubResource(pathToTocFile))
 					{
 						Document parsedTocFile = xmlService.build(instream);
 						numberOfTocItems = parsedTocFile.query("/*[local-name() = 'nav']//*[local-name() = 'li']", null).size();
@@ -249,15 +333,14 @@ public class EpubFile implements Serializable
 		}
 	}
 	
-	private List<String> getPlainTextFromContentFiles(String pathToOebpsFile) throws IOException, ParsingException, SAXException
+	// appends the text of all content files to the target buffer, each followed by a line separator
+	private void appendPlainTextFromContentFiles(String pathToOebpsFile, StringBuilder target) throws IOException, ParsingException, SAXException
 	{
 		logger.trace(infoMessagesBundle.getString("startReadingOebpsSpine") + " " + pathToOebpsFile);
 		
-		List<String> resultList = new ArrayList<String>();
-		
 		String oebpsDirectoryPath = FilenameUtils.getFullPath(pathToOebpsFile);
 		
-		try(InputStream instream = fileService.createFileInputStream(pathToOebpsFile))
+		try(InputStream instream = openEpubResource(pathToOebpsFile))
 		{
 			Document parsedOebpsFile = xmlService.build(instream);
 			determineLanguage(parsedOebpsFile);
@@ -285,11 +368,18 @@ public class EpubFile implements Serializable
 				
 				logger.trace(String.format(infoMessagesBundle.getString("workingOnContentItem"), contentFilepath));
 			
-				try(InputStream inputStream = fileService.createFileInputStream(contentFilepath))
+				try(InputStream inputStream = openEpubResource(contentFilepath))
 				{
-					Document contentDocument = xmlService.build(inputStream);
-					String plainText = xmlService.extractTextFromXhtml(contentDocument);
-					resultList.add(plainText);
+					if(useXsltTextExtraction)
+					{
+						Document contentDocument = xmlService.build(inputStream);
+						target.append(xmlService.extractTextFromXhtml(contentDocument));
+					}
+					else
+					{
+						xmlService.extractTextFromXhtml(inputStream, target);
+					}
+					target.append(System.lineSeparator());
 				}
 			}
 			
@@ -306,7 +396,6 @@ public class EpubFile implements Serializable
 				pathToTocFile = "";
 			}
 		}
-		return resultList;
 	}
 
 	// Try to determine the document ID from the EPUB's metadata and store it in the documentId instance variable.
@@ -357,7 +446,11 @@ public class EpubFile implements Serializable
 
 	private String getOebpsFilePath(final String epubDir) throws IOException, ParsingException, SAXException
 	{
-		Document parsedContainerFile = xmlService.build(FilenameUtils.concat(epubDir, "META-INF/container.xml"));
+		Document parsedContainerFile = null;
+		try(InputStream instream = openEpubResource(FilenameUtils.concat(epubDir, "META-INF/container.xml")))
+		{
+			parsedContainerFile = xmlService.build(instream);
+		}
 		if(null == parsedContainerFile)
 		{
 			throw new IOException(errorMessagesBundle.getString("RootfileEntryNotFoundInEpubContainer"));
@@ -373,6 +466,22 @@ public class EpubFile implements Serializable
 		return FilenameUtils.concat(epubDir, ((Element)rootFileNode).getAttribute("full-path").getValue());
 	}
 	
+	// Opens an EPUB resource either from the temp folder or, if we are reading directly from the archive, as a zip entry
+	private InputStream openEpubResource(final String path) throws IOException
+	{
+		if(null == zipFile)
+		{
+			return fileService.createFileInputStream(path);
+		}
+		
+		ZipEntry zipEntry = (null == path) ? null : zipFile.getEntry(FilenameUtils.separatorsToUnix(path));
+		if(null == zipEntry)
+		{
+			throw new FileNotFoundException(String.format(errorMessagesBundle.getString("avve.epubhandling.zipEntryNotFound"), path, filePath));
+		}
+		return zipFile.getInputStream(zipEntry);
+	}
+	
 	private void setDocumentId(String documentId)
 	{
 		this.documentId = documentId;
@@ -0,0 +1,173 @@
+package avve.epubhandling;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Counts the occurrences of strings (words, lemmas, hyperonyms) in an open-addressing hash table with primitive int counts. Unlike a
+ * SortedMap&lt;String, Integer&gt;, incrementing a count is a single hash lookup without boxing. A sorted view, e.g. for writing output
+ * files, can be created on demand via toSortedMap().
+ *
+ * Instances are not thread-safe.
+ *
+ * @author Kai Weber
+ *
+ */
+public class FrequencyCounter implements Serializable
+{
+	private static final long serialVersionUID = 6580296331374081127L;
+	private static final int INITIAL_CAPACITY = 64;
+
+	public FrequencyCounter()
+	{
+		keys = new String[INITIAL_CAPACITY];
+		counts = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Adds an amount to the count of a key; keys that haven't been counted before start from 0
+	 *
+	 * @param key The string to be counted, must not be null
+	 * @param amount The amount to add
+	 */
+	public void add(final String key, final int amount)
+	{
+		Objects.requireNonNull(key);
+		int slot = findSlot(key);
+		if(null == keys[slot])
+		{
+			if((size + 1) * 2 > keys.length)
+			{
+				resize();
+				slot = findSlot(key);
+			}
+			keys[slot] = key;
+			size++;
+		}
+		counts[slot] += amount;
+	}
+
+	/**
+	 * Adds all counts of another counter to this counter, e.g. for merging counts that have been collected in parallel
+	 *
+	 * @param other The counter to be added
+	 * @return This counter
+	 */
+	public FrequencyCounter addAll(final FrequencyCounter other)
+	{
+		other.forEach((key, count) -> add(key, count));
+		return this;
+	}
+
+	public boolean contains(final String key)
+	{
+		return null != key && null != keys[findSlot(key)];
+	}
+
+	/**
+	 * Calls the consumer for each key and its count, in no particular order
+	 *
+	 * @param consumer The consumer to call
+	 */
+	public void forEach(final ObjIntConsumer<String> consumer)
+	{
+		for(int i = 0; i < keys.length; i++)
+		{
+			if(null != keys[i])
+			{
+				consumer.accept(keys[i], counts[i]);
+			}
+		}
+	}
+
+	/**
+	 * @param key A string
+	 * @return The count of the string, or 0 if it hasn't been counted
+	 */
+	public int get(final String key)
+	{
+		if(null == key)
+		{
+			return 0;
+		}
+		return counts[findSlot(key)];
+	}
+
+	public void increment(final String key)
+	{
+		add(key, 1);
+	}
+
+	/**
+	 * @return A new array of all counted keys, in no particular order
+	 */
+	public String[] keys()
+	{
+		String[] result = new String[size];
+		int index = 0;
+		for(String key : keys)
+		{
+			if(null != key)
+			{
+				result[index++] = key;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return The number of distinct keys
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return A new sorted map with the keys and their counts
+	 */
+	public SortedMap<String, Integer> toSortedMap()
+	{
+		SortedMap<String, Integer> sortedMap = new TreeMap<String, Integer>();
+		forEach((key, count) -> sortedMap.put(key, count));
+		return sortedMap;
+	}
+
+	// linear probing; returns the slot holding the key or the empty slot where it would be inserted
+	private int findSlot(final String key)
+	{
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		int mask = keys.length - 1;
+		int slot = hash & mask;
+		while(null != keys[slot] && !keys[slot].equals(key))
+		{
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void resize()
+	{
+		String[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new String[oldKeys.length * 2];
+		counts = new int[oldCounts.length * 2];
+		for(int i = 0; i < oldKeys.length; i++)
+		{
+			if(null != oldKeys[i])
+			{
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	private int[] counts;
+	private String[] keys;
+	private int size;
+}
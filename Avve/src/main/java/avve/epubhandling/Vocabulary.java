@@ -0,0 +1,110 @@
+package avve.epubhandling;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A per-book dictionary that maps each distinct token or lemma string onto an int ID. EbookContentData stores its tokenized and lemmatized
+ * sentences as int arrays of such IDs, so that each distinct word is held in memory only once, no matter how often it occurs in the text.
+ *
+ * IDs are assigned consecutively, starting from 0, in order of the first occurrence of a string. null is represented by the ID -1.
+ * Instances are not thread-safe; they are meant to be used by the thread that processes the book.
+ *
+ * @author Kai Weber
+ *
+ */
+public class Vocabulary implements Serializable
+{
+	private static final long serialVersionUID = -2311868270436525094L;
+
+	public static final int NULL_ID = -1;
+
+	/**
+	 * Returns the ID of a string, adding the string to the vocabulary if it hasn't been seen before
+	 *
+	 * @param string The token or lemma
+	 * @return The string's ID, or NULL_ID if the string is null
+	 */
+	public int idOf(final String string)
+	{
+		if(null == string)
+		{
+			return NULL_ID;
+		}
+		Integer id = ids.get(string);
+		if(null == id)
+		{
+			if(size == strings.length)
+			{
+				strings = Arrays.copyOf(strings, strings.length * 2);
+			}
+			id = size;
+			strings[size++] = string;
+			ids.put(string, id);
+		}
+		return id;
+	}
+
+	/**
+	 * @param id A string ID
+	 * @return The string with the given ID, or null for NULL_ID
+	 */
+	public String get(final int id)
+	{
+		return id == NULL_ID ? null : strings[id];
+	}
+
+	/**
+	 * Encodes an array of strings as an array of IDs
+	 *
+	 * @param sentence The tokens or lemmas of a sentence
+	 * @return The IDs, or null if the sentence is null
+	 */
+	public int[] encode(final String[] sentence)
+	{
+		if(null == sentence)
+		{
+			return null;
+		}
+		int[] encodedSentence = new int[sentence.length];
+		for(int i = 0; i < sentence.length; i++)
+		{
+			encodedSentence[i] = idOf(sentence[i]);
+		}
+		return encodedSentence;
+	}
+
+	/**
+	 * Decodes an array of IDs to an array of strings. The strings are shared with the vocabulary, so no new string objects are created.
+	 *
+	 * @param encodedSentence The IDs of a sentence's tokens or lemmas
+	 * @return The strings, or null if the array of IDs is null
+	 */
+	public String[] decode(final int[] encodedSentence)
+	{
+		if(null == encodedSentence)
+		{
+			return null;
+		}
+		String[] sentence = new String[encodedSentence.length];
+		for(int i = 0; i < encodedSentence.length; i++)
+		{
+			sentence[i] = get(encodedSentence[i]);
+		}
+		return sentence;
+	}
+
+	/**
+	 * @return The number of distinct strings in the vocabulary
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private int size;
+	private String[] strings = new String[1024];
+}
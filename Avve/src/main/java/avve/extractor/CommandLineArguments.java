@@ -12,17 +12,32 @@ import org.apache.commons.cli.Options;
 public enum CommandLineArguments
 {
 	CONTROLLEDVOCABULARY("cv"),
+	CORPUSFORMAT("cf"),
 	DONOTINDEXFOREIGNWORDS("dnifw"),
 	FOLDER("folder"), 
 	INPUT("i"), 
+	INTRABOOKTHREADS("ibt"),
+	LEMMACACHEFILE("lcf"),
+	LEMMACACHESIZE("lcs"),
 	LEMMACORRECTION("lc"), 
+	LUCENECOMMITINTERVAL("lci"),
 	MULTILABEL("ml"), 
 	NOLIGATURES("nolig"),
 	NORMALIZEURLS("urlnorm"),
+	PIPELINE("pipeline"),
 	POSCORRECTION("pc"),
+	READFROMZIP("rfz"),
+	TERMVECTORS("tv"),
+	THESAURUSCACHESIZE("tcs"),
+	THESAURUSDUMP("thd"),
+	THESAURUSSNAPSHOT("ths"),
+	THREADS("threads"),
+	TREETAGGERBATCHSIZE("ttbs"),
+	TREETAGGERPROCESSES("ttp"),
 	USETHESAURUS("usethesaurus"),
 	WARENGRUPPE("wg"), 
-	WORDVECTORSIZE("wvs");
+	WORDVECTORSIZE("wvs"),
+	XSLTTEXTEXTRACTION("xslt");
 	
 	private String commandLineArgument;
 	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
@@ -42,17 +57,32 @@ public enum CommandLineArguments
 	{
 		Options options = new Options();
 		options.addOption(CommandLineArguments.CONTROLLEDVOCABULARY.toString(), "controlledvocabulary", true, infoMessagesBundle.getString("explainControlledVocabularyOption"));
+		options.addOption(CommandLineArguments.CORPUSFORMAT.toString(), "corpusformat", true, infoMessagesBundle.getString("explainCorpusFormatOption"));
 		options.addOption(CommandLineArguments.DONOTINDEXFOREIGNWORDS.toString(), "donotindexforeignwords", false, infoMessagesBundle.getString("explainDoNotIndexForeignWordsOption"));
 		options.addOption(CommandLineArguments.INPUT.toString(), "input", true, infoMessagesBundle.getString("explainInputOption"));
+		options.addOption(CommandLineArguments.INTRABOOKTHREADS.toString(), "intrabookthreads", true, infoMessagesBundle.getString("explainIntraBookThreadsOption"));
 		options.addOption(CommandLineArguments.FOLDER.toString(), "inputfolder", true, infoMessagesBundle.getString("explainInputFolderOption"));
+		options.addOption(CommandLineArguments.LEMMACACHEFILE.toString(), "lemmacachefile", true, infoMessagesBundle.getString("explainLemmaCacheFileOption"));
+		options.addOption(CommandLineArguments.LEMMACACHESIZE.toString(), "lemmacachesize", true, infoMessagesBundle.getString("explainLemmaCacheSizeOption"));
 		options.addOption(CommandLineArguments.LEMMACORRECTION.toString(), "lemmacorrection", false, infoMessagesBundle.getString("explainLemmaCorrectionOption"));
+		options.addOption(CommandLineArguments.LUCENECOMMITINTERVAL.toString(), "lucenecommitinterval", true, infoMessagesBundle.getString("explainLuceneCommitIntervalOption"));
 		options.addOption(CommandLineArguments.MULTILABEL.toString(), "multilabel", false, infoMessagesBundle.getString("explainMultiLabelOption"));
 		options.addOption(CommandLineArguments.NOLIGATURES.toString(), "noligatures", false, infoMessagesBundle.getString("explainNoLigaturesOption"));
 		options.addOption(CommandLineArguments.NORMALIZEURLS.toString(), "normalizeurls", false, infoMessagesBundle.getString("explainUrlNormOption"));
+		options.addOption(CommandLineArguments.PIPELINE.toString(), "pipelinefile", true, infoMessagesBundle.getString("explainPipelineOption"));
 		options.addOption(CommandLineArguments.POSCORRECTION.toString(), "poscorrection", false, infoMessagesBundle.getString("explainPosCorrectionOption"));
+		options.addOption(CommandLineArguments.READFROMZIP.toString(), "readfromzip", false, infoMessagesBundle.getString("explainReadFromZipOption"));
+		options.addOption(CommandLineArguments.TERMVECTORS.toString(), "termvectors", false, infoMessagesBundle.getString("explainTermVectorsOption"));
+		options.addOption(CommandLineArguments.THESAURUSCACHESIZE.toString(), "thesauruscachesize", true, infoMessagesBundle.getString("explainThesaurusCacheSizeOption"));
+		options.addOption(CommandLineArguments.THESAURUSDUMP.toString(), "thesaurusdump", true, infoMessagesBundle.getString("explainThesaurusDumpOption"));
+		options.addOption(CommandLineArguments.THESAURUSSNAPSHOT.toString(), "thesaurussnapshot", true, infoMessagesBundle.getString("explainThesaurusSnapshotOption"));
+		options.addOption(CommandLineArguments.THREADS.toString(), "threads", true, infoMessagesBundle.getString("explainThreadsOption"));
+		options.addOption(CommandLineArguments.TREETAGGERBATCHSIZE.toString(), "treetaggerbatchsize", true, infoMessagesBundle.getString("explainTreeTaggerBatchSizeOption"));
+		options.addOption(CommandLineArguments.TREETAGGERPROCESSES.toString(), "treetaggerprocesses", true, infoMessagesBundle.getString("explainTreeTaggerProcessesOption"));
 		options.addOption(CommandLineArguments.USETHESAURUS.toString(), "usethesaurus", false, infoMessagesBundle.getString("explainThesaurusOption"));
 		options.addOption(CommandLineArguments.WARENGRUPPE.toString(), "warengruppe", true, infoMessagesBundle.getString("explainWarengruppeOption"));
 		options.addOption(CommandLineArguments.WORDVECTORSIZE.toString(), "wordvectorsize", true, infoMessagesBundle.getString("explainWordVectorSizeOption"));
+		options.addOption(CommandLineArguments.XSLTTEXTEXTRACTION.toString(), "xslttextextraction", false, infoMessagesBundle.getString("explainXsltTextExtractionOption"));
 		return options;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,580 @@
+package avve.extractor;
+
+import avve.epubhandling.EbookContentData;
+import avve.services.ControlledVocabularyService;
+import avve.services.FileService;
+import avve.services.lucene.LuceneService;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.Map.Entry;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.Logger;
+
+import weka.core.Utils;
+
+/**
+ * Writes the statistical attributes of all e-books of a corpus to a single file for Weka or Meka, in XRFF, dense ARFF or sparse ARFF format.
+ * The header is written once: the attributes are taken from the feature schema (see EbookFeature) and the controlled vocabulary, the class
+ * labels are passed in. Each e-book is then appended as a single instance, so the second iteration of the EpubExtractor neither writes one
+ * XRFF file per book nor merges these files afterwards.
+ *
+ * As in the merged files, the lemmas are left out. In multi-label mode, every class label is a binary attribute in front of the other
+ * attributes, as expected by Meka; otherwise the class is a nominal attribute after the statistical attributes.
+ *
+ * With term vectors, the hyperonyms and the terms with the highest TF/IDF values are not written as strings, but as numeric attributes of a
+ * corpus-wide term dictionary, named "hy_" and "wv_" plus the term, with the relative hyperonym frequencies and the normalized TF/IDF values
+ * as values. So Weka or Meka don't need to build word vectors from the strings. The dictionary attributes follow the class attribute in the
+ * order in which the terms first occur. As the dictionary is only known after the last e-book, the instances are written to a temporary
+ * file and copied to the corpus file after the header; they are always sparse instances, whatever the format.
+ *
+ * @author Kai Weber
+ *
+ */
+public class CorpusFileWriter implements Closeable
+{
+	/**
+	 * The formats of the corpus file
+	 */
+	public enum Format
+	{
+		ARFF("arff"),
+		SPARSEARFF("arff"),
+		XRFF("xrff");
+
+		private final String fileExtension;
+
+		private Format(final String fileExtension)
+		{
+			this.fileExtension = fileExtension;
+		}
+
+		public String getFileExtension()
+		{
+			return fileExtension;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param filePath The corpus file
+	 * @param format The format of the corpus file
+	 * @param classNames The class names; each one may consist of several comma-separated labels
+	 * @param multiLabel Whether the instances may belong to more than one class (Meka) or not (Weka)
+	 * @param withHyperonyms Whether the e-books have been processed with a thesaurus, so that there are hyperonyms
+	 * @param termVectors Whether the hyperonyms and the top TF/IDF terms are written as term vectors instead of strings
+	 * @param fileService The file service
+	 * @param luceneService The Lucene service; its searcher manager must be open while e-books are appended
+	 * @param logger The logger to be used
+	 * @param controlledVocabularyService The controlled vocabulary service, or null if there is no controlled vocabulary
+	 */
+	public CorpusFileWriter(final String filePath, final Format format, final Collection<String> classNames, final boolean multiLabel,
+			final boolean withHyperonyms, final boolean termVectors, final FileService fileService, final LuceneService luceneService,
+			final Logger logger, final ControlledVocabularyService controlledVocabularyService)
+	{
+		this.controlledVocabularyService = controlledVocabularyService;
+		this.filePath = filePath;
+		this.fileService = fileService;
+		this.format = format;
+		this.logger = logger;
+		this.luceneService = luceneService;
+		this.multiLabel = multiLabel;
+		this.termVectors = termVectors;
+		this.withHyperonyms = withHyperonyms;
+
+		// each class name may consist of several comma-separated labels
+		for(String className : classNames)
+		{
+			classLabels.addAll(Arrays.asList(className.split(",")));
+		}
+		if(null != controlledVocabularyService)
+		{
+			Iterator<String> cvIterator = controlledVocabularyService.getControlledVocabularyIterator();
+			while(cvIterator.hasNext())
+			{
+				controlledVocabulary.add(cvIterator.next());
+			}
+		}
+		// the class flags or the class attribute, the numeric statistical attributes and the controlled vocabulary attributes
+		numberOfFixedAttributes = (multiLabel ? classLabels.size() : 1) + EbookFeature.numericFeatures.size() + controlledVocabulary.size();
+	}
+
+	/**
+	 * Creates the corpus file and writes its header; with term vectors, the header is written when the file is closed
+	 *
+	 * @throws IOException If the file cannot be written
+	 */
+	public void open() throws IOException
+	{
+		logger.info(String.format(infoMessagesBundle.getString("avve.extractor.writingCorpusFile"), filePath));
+
+		outputStream = fileService.createFileOutputStream(filePath);
+		outputWriter = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 65536);
+		if(termVectors)
+		{
+			instancesFile = new File(filePath + ".instances");
+			instancesOutputStream = fileService.createFileOutputStream(instancesFile.getPath());
+			instancesWriter = new BufferedWriter(new OutputStreamWriter(instancesOutputStream, StandardCharsets.UTF_8), 65536);
+		}
+		else
+		{
+			instancesWriter = outputWriter;
+		}
+		try
+		{
+			if(!termVectors)
+			{
+				writeHeader();
+			}
+			if(format == Format.XRFF)
+			{
+				instancesXmlWriter = xmlOutputFactory.createXMLStreamWriter(instancesWriter);
+			}
+		}
+		catch (XMLStreamException exc)
+		{
+			throw new IOException(exc.getLocalizedMessage(), exc);
+		}
+	}
+
+	/**
+	 * Appends the statistical attributes of an e-book to the corpus file as a single instance
+	 *
+	 * @param content The e-book
+	 * @param wordVectorSize The maximum number of terms with the highest TF/IDF values
+	 */
+	public void appendEbookContentData(final EbookContentData content, final int wordVectorSize)
+	{
+		List<Entry<String, TfIdfTuple>> topTfIdfTerms = findTopTfIdfTerms(content, wordVectorSize);
+		try
+		{
+			if(format == Format.XRFF)
+			{
+				writeXrffInstance(content, topTfIdfTerms);
+			}
+			else
+			{
+				writeArffInstance(content, topTfIdfTerms);
+			}
+		}
+		catch (IOException exc)
+		{
+			logger.error(exc.getLocalizedMessage(), exc);
+		}
+		catch (XMLStreamException exc)
+		{
+			logger.error(exc.getLocalizedMessage(), exc);
+		}
+	}
+
+	/**
+	 * Completes and closes the corpus file
+	 *
+	 * @throws IOException If the file cannot be written
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			if(null != instancesXmlWriter)
+			{
+				instancesXmlWriter.flush();
+			}
+			if(termVectors && null != instancesWriter)
+			{
+				// now that the term dictionary is complete, the header is written and the instances are copied behind it
+				instancesWriter.close();
+				writeHeader();
+				try (Reader instancesReader = new InputStreamReader(new FileInputStream(instancesFile), StandardCharsets.UTF_8))
+				{
+					IOUtils.copy(instancesReader, outputWriter);
+				}
+			}
+			if(null != headerXmlWriter)
+			{
+				XrffFileWriter.writeLineBreak(headerXmlWriter, 2);
+				headerXmlWriter.writeEndElement();
+				XrffFileWriter.writeLineBreak(headerXmlWriter, 1);
+				headerXmlWriter.writeEndElement();
+				XrffFileWriter.writeLineBreak(headerXmlWriter, 0);
+				headerXmlWriter.writeEndElement();
+				headerXmlWriter.writeCharacters(System.lineSeparator());
+				headerXmlWriter.writeEndDocument();
+				headerXmlWriter.close();
+			}
+			if(null != outputWriter)
+			{
+				outputWriter.flush();
+			}
+		}
+		catch (XMLStreamException exc)
+		{
+			throw new IOException(exc.getLocalizedMessage(), exc);
+		}
+		finally
+		{
+			fileService.safeClose(instancesOutputStream);
+			fileService.safeClose(outputStream);
+			if(null != instancesFile)
+			{
+				instancesFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Determines the terms of an e-book with the highest TF/IDF values in the Lucene index
+	 *
+	 * @param content The e-book
+	 * @param wordVectorSize The maximum number of terms
+	 * @return The terms with their TF/IDF values, or null if they cannot be read from the index
+	 */
+	List<Entry<String, TfIdfTuple>> findTopTfIdfTerms(final EbookContentData content, final int wordVectorSize)
+	{
+		return XrffFileWriter.findTopTfIdfTerms(luceneService, content, wordVectorSize, logger);
+	}
+
+	private void writeHeader() throws IOException, XMLStreamException
+	{
+		if(format == Format.XRFF)
+		{
+			outputWriter.write(XrffFileWriter.xmlDeclarationAndDoctype);
+			headerXmlWriter = xmlOutputFactory.createXMLStreamWriter(outputWriter);
+			writeXrffHeader();
+			// the instances are written behind the start tag of the instances element by another stream writer
+			headerXmlWriter.writeCharacters("");
+			headerXmlWriter.flush();
+		}
+		else
+		{
+			writeArffHeader();
+		}
+	}
+
+	private void writeArffHeader() throws IOException
+	{
+		if(multiLabel)
+		{
+			// Meka reads the number of class attributes from the relation name
+			outputWriter.write("@relation \"Avve multiclass dataset: -C " + classLabels.size() + "\"\n\n");
+			for(String classLabel : classLabels)
+			{
+				outputWriter.write("@attribute " + Utils.quote(classLabel) + " {0, 1}\n");
+			}
+		}
+		else
+		{
+			outputWriter.write("@relation avve\n\n");
+		}
+
+		for(EbookFeature feature : EbookFeature.numericFeatures)
+		{
+			outputWriter.write("@attribute " + feature.getAttributeName() + " numeric\n");
+		}
+		for(String term : controlledVocabulary)
+		{
+			outputWriter.write("@attribute " + Utils.quote("cv_" + term) + " numeric\n");
+		}
+		if(withHyperonyms && !termVectors)
+		{
+			outputWriter.write("@attribute hyperonyms string\n");
+		}
+		if(!termVectors)
+		{
+			outputWriter.write("@attribute top-idf string\n");
+		}
+
+		if(!multiLabel)
+		{
+			StringJoiner labels = new StringJoiner(",", "{", "}");
+			for(String classLabel : classLabels)
+			{
+				labels.add(Utils.quote(classLabel));
+			}
+			outputWriter.write("@attribute class " + labels + "\n");
+		}
+		for(String term : termIndices.keySet())
+		{
+			outputWriter.write("@attribute " + Utils.quote(term) + " numeric\n");
+		}
+		outputWriter.write("\n@data\n");
+	}
+
+	// writes one data line; in sparse format, zero values of numeric and binary class attributes are left out
+	private void writeArffInstance(final EbookContentData content, final List<Entry<String, TfIdfTuple>> topTfIdfTerms) throws IOException
+	{
+		List<String> values = new ArrayList<String>();
+		List<Boolean> numeric = new ArrayList<Boolean>();
+
+		if(multiLabel)
+		{
+			String classes = "," + content.getTargetClass() + ",";
+			for(String classLabel : classLabels)
+			{
+				values.add(classes.contains("," + classLabel + ",") ? "1" : "0");
+				numeric.add(true);
+			}
+		}
+		for(EbookFeature feature : EbookFeature.numericFeatures)
+		{
+			values.add(toArffNumber(feature.getValue(content)));
+			numeric.add(true);
+		}
+		for(String term : controlledVocabulary)
+		{
+			values.add(toArffNumber("" + content.getNormalizedLemmaFrequency(term)));
+			numeric.add(true);
+		}
+		if(withHyperonyms && !termVectors)
+		{
+			values.add(Utils.quote(String.join(" ", XrffFileWriter.getHyperonymLines(content))));
+			numeric.add(false);
+		}
+		if(!termVectors)
+		{
+			StringJoiner topTerms = new StringJoiner(" ");
+			if(null != topTfIdfTerms)
+			{
+				for(Entry<String, TfIdfTuple> topTfIdfTerm : topTfIdfTerms)
+				{
+					topTerms.add(topTfIdfTerm.getKey());
+				}
+			}
+			values.add(Utils.quote(topTerms.toString()));
+			numeric.add(false);
+		}
+		if(!multiLabel)
+		{
+			values.add(Utils.quote(content.getTargetClass()));
+			numeric.add(false);
+		}
+
+		instancesWriter.write("% " + content.getDocumentId() + "\n");
+		if(format == Format.SPARSEARFF || termVectors)
+		{
+			StringJoiner instance = new StringJoiner(",", "{", "}");
+			for(int i = 0; i < values.size(); i++)
+			{
+				// string and nominal values are always written, because Weka would read a missing one as the first value of the attribute
+				if(!numeric.get(i) || !isZero(values.get(i)))
+				{
+					instance.add(i + " " + values.get(i));
+				}
+			}
+			if(termVectors)
+			{
+				for(Entry<Integer, Double> termValue : getTermVector(content, topTfIdfTerms).entrySet())
+				{
+					instance.add(termValue.getKey() + " " + termValue.getValue());
+				}
+			}
+			instancesWriter.write(instance + "\n");
+		}
+		else
+		{
+			instancesWriter.write(String.join(",", values) + "\n");
+		}
+	}
+
+	private void writeXrffHeader() throws XMLStreamException
+	{
+		headerXmlWriter.writeStartElement("dataset");
+		headerXmlWriter.writeAttribute("name", multiLabel ? "Avve multiclass dataset: -C " + classLabels.size() : "avve");
+		XrffFileWriter.writeLineBreak(headerXmlWriter, 1);
+		headerXmlWriter.writeStartElement("header");
+		XrffFileWriter.writeLineBreak(headerXmlWriter, 2);
+		headerXmlWriter.writeStartElement("attributes");
+
+		if(multiLabel)
+		{
+			for(String classLabel : classLabels)
+			{
+				writeNominalAttributeDefinition(classLabel, binaryLabels, false);
+			}
+		}
+		if(termVectors)
+		{
+			XrffFileWriter.writeNumericFeatureAttributes(headerXmlWriter, controlledVocabularyService);
+		}
+		else
+		{
+			XrffFileWriter.writeFeatureAttributes(headerXmlWriter, controlledVocabularyService, withHyperonyms);
+		}
+		if(!multiLabel)
+		{
+			writeNominalAttributeDefinition("class", classLabels, true);
+		}
+		for(String term : termIndices.keySet())
+		{
+			XrffFileWriter.writeAttributeDefinition(headerXmlWriter, term, "numeric");
+		}
+
+		XrffFileWriter.writeLineBreak(headerXmlWriter, 2);
+		headerXmlWriter.writeEndElement();
+		XrffFileWriter.writeLineBreak(headerXmlWriter, 1);
+		headerXmlWriter.writeEndElement();
+		XrffFileWriter.writeLineBreak(headerXmlWriter, 1);
+		headerXmlWriter.writeStartElement("body");
+		XrffFileWriter.writeLineBreak(headerXmlWriter, 2);
+		headerXmlWriter.writeStartElement("instances");
+	}
+
+	// with term vectors, the instance is sparse and each value has a 1-based attribute index
+	private void writeXrffInstance(final EbookContentData content, final List<Entry<String, TfIdfTuple>> topTfIdfTerms) throws XMLStreamException
+	{
+		XrffFileWriter.writeLineBreak(instancesXmlWriter, 3);
+		instancesXmlWriter.writeStartElement("instance");
+		if(termVectors)
+		{
+			instancesXmlWriter.writeAttribute("type", "sparse");
+		}
+		instancesXmlWriter.writeAttribute("documentId", content.getDocumentId());
+
+		int index = termVectors ? 1 : 0;
+		if(multiLabel)
+		{
+			String classes = "," + content.getTargetClass() + ",";
+			for(String classLabel : classLabels)
+			{
+				XrffFileWriter.writeValue(instancesXmlWriter, classLabel, classes.contains("," + classLabel + ",") ? "1" : "0", index);
+				index = termVectors ? index + 1 : 0;
+			}
+		}
+		if(termVectors)
+		{
+			XrffFileWriter.writeNumericFeatureValues(instancesXmlWriter, content, controlledVocabularyService, index);
+		}
+		else
+		{
+			XrffFileWriter.writeFeatureValues(instancesXmlWriter, content, controlledVocabularyService, withHyperonyms, topTfIdfTerms);
+		}
+		if(!multiLabel)
+		{
+			XrffFileWriter.writeValue(instancesXmlWriter, "class", content.getTargetClass(), termVectors ? numberOfFixedAttributes : 0);
+		}
+		if(termVectors)
+		{
+			for(Entry<Integer, Double> termValue : getTermVector(content, topTfIdfTerms).entrySet())
+			{
+				XrffFileWriter.writeValue(instancesXmlWriter, null, "" + termValue.getValue(), termValue.getKey() + 1);
+			}
+		}
+
+		XrffFileWriter.writeLineBreak(instancesXmlWriter, 3);
+		instancesXmlWriter.writeEndElement();
+	}
+
+	private void writeNominalAttributeDefinition(final String name, final Collection<String> labels, final boolean isClass) throws XMLStreamException
+	{
+		XrffFileWriter.writeLineBreak(headerXmlWriter, 3);
+		headerXmlWriter.writeStartElement("attribute");
+		if(isClass)
+		{
+			headerXmlWriter.writeAttribute("class", "yes");
+		}
+		headerXmlWriter.writeAttribute("name", name);
+		headerXmlWriter.writeAttribute("type", "nominal");
+		XrffFileWriter.writeLineBreak(headerXmlWriter, 4);
+		headerXmlWriter.writeStartElement("labels");
+		for(String label : labels)
+		{
+			XrffFileWriter.writeLineBreak(headerXmlWriter, 5);
+			headerXmlWriter.writeStartElement("label");
+			headerXmlWriter.writeCharacters(label);
+			headerXmlWriter.writeEndElement();
+		}
+		XrffFileWriter.writeLineBreak(headerXmlWriter, 4);
+		headerXmlWriter.writeEndElement();
+		XrffFileWriter.writeLineBreak(headerXmlWriter, 3);
+		headerXmlWriter.writeEndElement();
+	}
+
+	/**
+	 * Determines the values of the term dictionary attributes of an e-book; terms that are not in the dictionary yet are added to it
+	 *
+	 * @param content The e-book
+	 * @param topTfIdfTerms The terms with the highest TF/IDF values, or null if they are not known
+	 * @return The relative hyperonym frequencies and the normalized TF/IDF values by 0-based attribute index, in ascending index order
+	 */
+	private SortedMap<Integer, Double> getTermVector(final EbookContentData content, final List<Entry<String, TfIdfTuple>> topTfIdfTerms)
+	{
+		SortedMap<Integer, Double> termVector = new TreeMap<Integer, Double>();
+		if(withHyperonyms)
+		{
+			for(Entry<String, Double> hyperonym : XrffFileWriter.getHyperonymWeights(content).entrySet())
+			{
+				termVector.put(getTermIndex("hy_" + hyperonym.getKey()), hyperonym.getValue());
+			}
+		}
+		if(null != topTfIdfTerms)
+		{
+			for(Entry<String, TfIdfTuple> topTfIdfTerm : topTfIdfTerms)
+			{
+				termVector.put(getTermIndex("wv_" + topTfIdfTerm.getKey()), topTfIdfTerm.getValue().getNormalizedTfIdfValue());
+			}
+		}
+		return termVector;
+	}
+
+	private int getTermIndex(final String attributeName)
+	{
+		Integer index = termIndices.get(attributeName);
+		if(null == index)
+		{
+			index = numberOfFixedAttributes + termIndices.size();
+			termIndices.put(attributeName, index);
+		}
+		return index;
+	}
+
+	// Weka reads NaN as a missing value; in ARFF files, missing values are written as question marks
+	private static String toArffNumber(final String value)
+	{
+		return "NaN".equals(value) ? "?" : value;
+	}
+
+	private static boolean isZero(final String value)
+	{
+		try
+		{
+			return Double.parseDouble(value) == 0.0;
+		}
+		catch (NumberFormatException exc)
+		{
+			return false;
+		}
+	}
+
+	private final SortedSet<String> classLabels = new TreeSet<String>();
+	private final List<String> controlledVocabulary = new ArrayList<String>();
+	private final ControlledVocabularyService controlledVocabularyService;
+	private final String filePath;
+	private final FileService fileService;
+	private final Format format;
+	private final Logger logger;
+	private final LuceneService luceneService;
+	private final boolean multiLabel;
+	private final int numberOfFixedAttributes;
+	// the attribute indices of the term dictionary, in the order of the first occurrence of the terms
+	private final Map<String, Integer> termIndices = new LinkedHashMap<String, Integer>();
+	private final boolean termVectors;
+	private final boolean withHyperonyms;
+	private XMLStreamWriter headerXmlWriter;
+	private File instancesFile;
+	private FileOutputStream instancesOutputStream;
+	private Writer instancesWriter;
+	private XMLStreamWriter instancesXmlWriter;
+	private FileOutputStream outputStream;
+	private Writer outputWriter;
+
+	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
+	private static final List<String> binaryLabels = Arrays.asList("0", "1");
+	private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+}
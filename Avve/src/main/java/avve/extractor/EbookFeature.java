@@ -0,0 +1,102 @@
+package avve.extractor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import avve.epubhandling.EbookContentData;
+
+/**
+ * A numeric statistical attribute of an e-book: the attribute name in the XRFF and ARFF files, the description that is written as a
+ * comment next to the value, and the function that determines the value. The list of numeric features defines the order of these
+ * attributes in the per-book XRFF files and in the corpus files, so both are written from the same schema.
+ *
+ * @author Kai Weber
+ *
+ */
+final class EbookFeature
+{
+	private EbookFeature(final String attributeName, final String description, final Function<EbookContentData, Object> valueFunction)
+	{
+		this.attributeName = attributeName;
+		this.description = description;
+		this.valueFunction = valueFunction;
+	}
+
+	String getAttributeName()
+	{
+		return attributeName;
+	}
+
+	String getDescription()
+	{
+		return description;
+	}
+
+	String getValue(final EbookContentData content)
+	{
+		return "" + valueFunction.apply(content);
+	}
+
+	private final String attributeName;
+	private final String description;
+	private final Function<EbookContentData, Object> valueFunction;
+
+	static final List<EbookFeature> numericFeatures = Collections.unmodifiableList(Arrays.asList(
+			new EbookFeature("fileSizeInBytes", "file size in bytes", content -> content.getFileSize()),
+			new EbookFeature("numberOfTopLevelChapters", "number of top-level chapters", content -> content.getNumberOfChapters()),
+			new EbookFeature("numberOfTocElements", "number of table-of-contents items", content -> content.getNumberOfTocItems()),
+			new EbookFeature("depthOfToc", "depth of table of contents", content -> content.getDepthOfToc()),
+			new EbookFeature("wordsPerSentence", "words per sentence",
+					content -> (double)content.getNumberOfTokens() / (double)content.getNumberOfSentences()),
+			new EbookFeature("lemmasToTokensRatio", "lemma to token ratio",
+					content -> (double)content.getLemmaFrequencies().size() / (double)content.getNumberOfTokens()),
+			new EbookFeature("uniquePartsOfSpeech", "unique parts of speech", content -> content.getNumberOfDistinctPartsOfSpeech()),
+			new EbookFeature("totalNumberOfWords", "total number of words", content -> content.getNumberOfWords()),
+			new EbookFeature("uniqueNumberOfWords", "unique number of words", content -> content.getUniqueNumberOfWords()),
+			new EbookFeature("vocabularyRichness", "vocabulary richness", content -> content.getVocabularyRichness()),
+			new EbookFeature("averageWordLength", "average word length", content -> content.getAverageWordLength()),
+			new EbookFeature("ratioOfPassiveSentences", "ratio of passive sentences",
+					content -> (double)content.getNumberOfPassiveConstructions() / (double)content.getNumberOfSentences()),
+			new EbookFeature("ratioOfAdjectives", "ratio of adjectives", content -> content.getAdjectiveRatio()),
+			new EbookFeature("ratioOfAdverbs", "ratio of adverbs", content -> content.getAdverbRatio()),
+			new EbookFeature("ratioOfCardinals", "ratio of cardinal numbers", content -> content.getCardinalsRatio()),
+			new EbookFeature("ratioOfForeignLanguageWords", "ratio of foreign language words", content -> content.getForeignLanguageWordsRatio()),
+			new EbookFeature("ratioOfInterjections", "ratio of interjections", content -> content.getInterjectionRatio()),
+			new EbookFeature("ratioOfNouns", "ratio of nouns", content -> content.getNounRatio()),
+			new EbookFeature("ratioOfNamedEntities", "ratio of named entities", content -> content.getNamedEntityRatio()),
+			new EbookFeature("subDemPronRatio", "ratio of substitutive demonstrative pronouns",
+					content -> content.getSubstitutingDemonstrativePronounRatio()),
+			new EbookFeature("attrDemPronRatio", "ratio of attributive demonstrative pronouns",
+					content -> content.getAttributiveDemonstrativePronounRatio()),
+			new EbookFeature("subIndefPronRatio", "ratio of substitutive indefinite pronouns",
+					content -> content.getSubstitutingIndefinitePronounRatio()),
+			new EbookFeature("attrIndefPronRatio", "ratio of attributive indefinite pronouns",
+					content -> content.getAttributiveIndefinitePronounRatio()),
+			new EbookFeature("personalPronounRatio", "ratio of personal pronouns", content -> content.getPersonalPronounRatio()),
+			new EbookFeature("subPossPronRatio", "ratio of substitutive possessive pronouns",
+					content -> content.getSubstitutivePossessivePronounRatio()),
+			new EbookFeature("attrPossPronRatio", "ratio of attributive possessive pronouns",
+					content -> content.getAttributivePossessivePronounRatio()),
+			new EbookFeature("subRelPronRatio", "ratio of substitutive relative pronouns",
+					content -> content.getSubstitutiveRelativePronounRatio()),
+			new EbookFeature("attrRelPronRatio", "ratio of attributive relative pronouns",
+					content -> content.getAttributivePossessivePronounRatio()),
+			new EbookFeature("pronominalAdverbRatio", "ratio of pronominal adverbs", content -> content.getPronominalAdverbRatio()),
+			new EbookFeature("interrogativePronounRatio", "ratio of interrogative pronouns", content -> content.getInterrogativePronounRatio()),
+			new EbookFeature("negationParticleRatio", "ratio of negation particles", content -> content.getNegationParticleRatio()),
+			new EbookFeature("answerParticleRatio", "ratio of answer particles", content -> content.getAnswerParticlesRatio()),
+			new EbookFeature("compoundPartRatio", "ratio of compound word parts", content -> content.getCompoundWords()),
+			new EbookFeature("finiteMainVerbsRatio", "ratio of finite main verbs", content -> content.getFiniteMainVerbsRatio()),
+			new EbookFeature("imperativeMainVerbsRatio", "ratio of imperative main verbs", content -> content.getImperativeMainVerbsRatio()),
+			new EbookFeature("infinitiveMainVerbsRatio", "ratio of infinitive main verbs", content -> content.getInfinitiveMainVerbsRatio()),
+			new EbookFeature("perfectParticipleMainVerbsRatio", "ratio of perfect participle main verbs",
+					content -> content.getMainVerbPerfectParticiplesRatio()),
+			new EbookFeature("auxiliarVerbsRatio", "ratio of auxiliar verbs", content -> content.getAuxiliarVerbsRatio()),
+			new EbookFeature("modalVerbsRatio", "ratio of modal verbs", content -> content.getModalVerbRatio()),
+			new EbookFeature("coordinatingConjunctionsRatio", "ratio of coordinating conjunctions", content -> content.getCoordinatingConjunctions()),
+			new EbookFeature("subordinatingConjunctionsRatio", "ratio of subordinating conjunctions", content -> content.getCoordinatingConjunctions()),
+			new EbookFeature("numberOfImages", "number of images", content -> content.getNumberOfImages())
+			));
+}
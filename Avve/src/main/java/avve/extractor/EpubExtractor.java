@@ -1,18 +1,33 @@
 package avve.extractor;
 
 import java.io.*;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.apache.commons.cli.*;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import avve.epubhandling.EbookContentData;
+import avve.epubhandling.EbookContentDataSerializer;
 import avve.epubhandling.EpubFile;
 import avve.services.*;
 import avve.services.lucene.LuceneService;
+import avve.textpreprocess.LemmaCache;
+import avve.textpreprocess.SentenceChunkExecutor;
+import avve.textpreprocess.TreeTaggerPool;
+import avve.textpreprocess.hyperonym.EmbeddedThesaurusBackend;
+import avve.textpreprocess.hyperonym.JdbcThesaurusBackend;
+import avve.textpreprocess.hyperonym.OpenThesaurusDumpImporter;
+import avve.textpreprocess.hyperonym.ThesaurusBackend;
+import avve.textpreprocess.hyperonym.ThesaurusConnectionPool;
+import avve.textpreprocess.hyperonym.ThesaurusEntryCache;
+import avve.textpreprocess.hyperonym.ThesaurusSnapshot;
 
 /**
  * This main class provides an entry point for extracting text from EPUB files, applying a series of data transformations and writing the result 
@@ -49,7 +64,22 @@ public class EpubExtractor
 	private static String textDirectory = "output/text";
 	private static ControlledVocabularyService controlledVocabularyService = null;
 	private static LuceneService luceneService = new LuceneService(logger, fileService);
-	private static DataPreprocessorService textPreprocessor = null;
+	private static final int numberOfThreadsDefaultValue = 1;
+	private static final int luceneCommitIntervalDefaultValue = 0;
+	private static final int intraBookThreadsDefaultValue = 1;
+	// the Lemmatizers of all threads share the TreeTagger processes of this pool and the lemma cache
+	private static TreeTaggerPool treeTaggerPool = null;
+	private static LemmaCache lemmaCache = null;
+	private static ThesaurusBackend thesaurusBackend = null;
+	// runs the per-sentence preprocessing stages of large books in parallel chunks; without -ibt, each book is processed by a single thread
+	private static ForkJoinPool intraBookPool = null;
+	private static SentenceChunkExecutor chunkExecutor = SentenceChunkExecutor.sequential();
+	// every thread gets its own preprocessor chain, because the OpenNLP and TreeTagger components must not be shared between threads
+	private static ThreadLocal<DataPreprocessorService> textPreprocessor = null;
+	private static PreprocessingPipeline preprocessingPipeline = null;
+	// the preprocessing times of all threads, written to a JSON report after the first iteration
+	private static StageTimings stageTimings = new StageTimings();
+	private static final String stageTimingsReportFile = "output/preprocessing-timings.json";
 	
 	/**
 	 * The main method parses all EPUB files in the input folder (INPUT command line argument) and writes the respective output after
@@ -87,57 +117,55 @@ public class EpubExtractor
 			}
 		}
 		
+		preprocessingPipeline = createPreprocessingPipeline(cliArguments);
+		logger.info(String.format(infoMessagesBundle.getString("avve.extractor.preprocessingPipeline"), preprocessingPipeline));
+		
 		// process all input files, first run: preprocess input files, push text to Lucene index, write serialized temp files
-		for(File inputFile : inputFiles)
+		luceneService.setCommitInterval(getIntegerOption(cliArguments, CommandLineArguments.LUCENECOMMITINTERVAL, luceneCommitIntervalDefaultValue, "avve.extractor.luceneCommitIntervalNumberFormatError"));
+		luceneService.openIndexWriter(language);
+		int numberOfThreads = Math.max(getIntegerOption(cliArguments, CommandLineArguments.THREADS, numberOfThreadsDefaultValue, "avve.extractor.threadsNumberFormatError"), 1);
+		// by default, there is one TreeTagger process per thread
+		treeTaggerPool = new TreeTaggerPool(getIntegerOption(cliArguments, CommandLineArguments.TREETAGGERPROCESSES, numberOfThreads, "avve.extractor.treeTaggerProcessesNumberFormatError"), logger);
+		lemmaCache = new LemmaCache(getIntegerOption(cliArguments, CommandLineArguments.LEMMACACHESIZE, LemmaCache.capacityDefaultValue, "avve.extractor.lemmaCacheSizeNumberFormatError"), logger);
+		loadLemmaCache(cliArguments);
+		thesaurusBackend = createThesaurusBackend(cliArguments, numberOfThreads);
+		int numberOfIntraBookThreads = getIntegerOption(cliArguments, CommandLineArguments.INTRABOOKTHREADS, intraBookThreadsDefaultValue, "avve.extractor.intraBookThreadsNumberFormatError");
+		if(numberOfIntraBookThreads > 1)
 		{
-			logger.info(infoMessagesBundle.getString("avve.extractor.startEpubExtraction") + ": " + inputFile);
-
-			// parse input files
-			String plainText = "";
-			String languageCode = null;
-			EpubFile epubFile = null;
-			try
-			{
-				epubFile = new EpubFile(inputFile.getAbsolutePath(), fileService, logger);
-				plainText = epubFile.extractPlainText();
-				languageCode = epubFile.getLanguageCode();
-			}
-			catch (IOException exc)
-			{
-				logger.error(exc.getLocalizedMessage(), exc);
-			}
-			
-			// determine "warengruppe" class code, either from command line parameter or from folder name
-			String warengruppe = determineClassName(cliArguments, inputFile);
-			
-			// Pre-process the text data (e.g. tokenization, sentence detection, part-of-speech tagging
-			EbookContentData ebookContentData = preprocessText(plainText, epubFile, warengruppe, cliArguments);
-			
-			if(null != epubFile && languageCode.equals(language))
-			{
-				String lemmatizedText = ebookContentData.getLemmatizedText();
-				
-				// add the text to a Lucene index (for TF/IDF retrieval)
-				luceneService.addTextToLuceneIndex(ebookContentData, language, cliArguments.hasOption(CommandLineArguments.DONOTINDEXFOREIGNWORDS.toString()));
-				
-				if(lemmatizedText.length() > 0)
-				{
-					// serialize temporary file to disk
-					serializeTempEbookContentFileToDisk(inputFile, warengruppe, ebookContentData);	
-				}
-				else
-				{
-					logger.error(String.format(errorMessageBundle.getString("avve.textpreprocess.noTokensAvailable"), "EpubExtractor.serializeTempEbookContentFileToDisk()"));
-				}
-			}
-			else
+			intraBookPool = new ForkJoinPool(numberOfIntraBookThreads);
+			chunkExecutor = new SentenceChunkExecutor(intraBookPool, SentenceChunkExecutor.chunkSizeDefaultValue);
+		}
+		if(numberOfThreads > 1)
+		{
+			preprocessEpubFilesInParallel(inputFiles, cliArguments, numberOfThreads);
+		}
+		else
+		{
+			for(File inputFile : inputFiles)
 			{
-				logger.error(String.format(errorMessageBundle.getString("InvalidLanguage"), languageCode));
+				storePreprocessedEbook(preprocessEpubFile(inputFile, cliArguments));
 			}
 		}
+		luceneService.closeIndexWriter();
+		treeTaggerPool.close();
+		saveLemmaCache(cliArguments);
+		if(null != thesaurusBackend)
+		{
+			thesaurusBackend.close();
+		}
+		if(null != intraBookPool)
+		{
+			intraBookPool.shutdown();
+		}
+		writeStageTimingsReport();
 		
 		ArrayList<File> preprocessedFiles = getCollectionOfSerializedTempFiles(fileService, "output/temp/");
-		// second iteration: build statistics and write xrff files for Weka or Meka data mining
+		int wordVectorSize = getIntegerOption(cliArguments, CommandLineArguments.WORDVECTORSIZE, wordVectorSizeDefaultValue, "avve.extractor.wordVectorNumberFormatError");
+		// with a corpus file format, all e-books are appended to a single file instead of writing one XRFF file per e-book and merging them
+		CorpusFileWriter corpusFileWriter = createCorpusFileWriter(cliArguments);
+		// all XrffFileWriters or the CorpusFileWriter of the second iteration share one index searcher
+		luceneService.openSearcherManager();
+		// second iteration: build statistics and write xrff files or a corpus file for Weka or Meka data mining
 		for(File preprocessedFile : preprocessedFiles)
 		{
 			logger.info(infoMessagesBundle.getString("avve.extractor.startWorkingOnSerializedTempFiles") + ": " + preprocessedFile);
@@ -148,18 +176,12 @@ public class EpubExtractor
 			try
 			{
 				fileInputStream = fileService.createFileInputStream(preprocessedFile.getAbsolutePath());
-
-				ObjectInputStream objectInputStream = new ObjectInputStream( fileInputStream );
-				ebookContentData = (EbookContentData) objectInputStream.readObject();
+				ebookContentData = new EbookContentDataSerializer(logger).read(IOUtils.toByteArray(fileInputStream));
 			}
 			catch (IOException exc)
 			{
 				logger.error(exc.getLocalizedMessage());
 			}
-			catch (ClassNotFoundException exc)
-			{
-				logger.error(exc.getLocalizedMessage());
-			}
 			finally
 			{
 				fileService.safeClose(fileInputStream);
@@ -171,23 +193,35 @@ public class EpubExtractor
 				String warengruppe = ebookContentData.getTargetClass();
 				
 				// save the processing result to the file system, one file with plain text, one file with statistical attributes
-				writePreprocessingResultsToFileSystem(warengruppe, ebookContentData, preprocessedFile, cliArguments);
+				writePreprocessingResultsToFileSystem(warengruppe, ebookContentData, preprocessedFile, wordVectorSize, corpusFileWriter);
 			}
 			else
 			{
 				logger.error(String.format(errorMessageBundle.getString("InvalidLanguage"), ebookContentData.getLanguage()));
 			}
 		}
+		luceneService.closeSearcherManager();
 		
-		if(cliArguments.hasOption(CommandLineArguments.MULTILABEL.toString()))
+		if(null != corpusFileWriter)
+		{
+			try
+			{
+				corpusFileWriter.close();
+			}
+			catch (IOException exc)
+			{
+				logger.error(exc.getLocalizedMessage(), exc);
+			}
+		}
+		else if(cliArguments.hasOption(CommandLineArguments.MULTILABEL.toString()))
 		{
 			// combine all xrff files written in the previous step and save them as a single multilabel file Meka in ARFF format
-			xmlService.createCombinedMultiClassFile(getCollectionOfClassNames(fileService, cliArguments));
+			xmlService.createCombinedMultiClassFile(getCollectionOfClassNames(fileService, cliArguments, statsDirectory));
 		}
 		else
 		{
 			// combine all xrff files written in the previous step and save them as a single file for Weka in XRFF format
-			xmlService.combineXrffFiles(getCollectionOfClassNames(fileService, cliArguments));	
+			xmlService.combineXrffFiles(getCollectionOfClassNames(fileService, cliArguments, statsDirectory));	
 		}
 
 		LocalDateTime endTime = LocalDateTime.now();
@@ -215,7 +249,52 @@ public class EpubExtractor
 		return warengruppe;
 	}
 
-	private static Collection<String> getCollectionOfClassNames(FileService fileService, CommandLine cliArguments)
+	/**
+	 * Creates the writer of the corpus file and writes the header, if a corpus file format (-cf) or term vectors (-tv) are requested; term
+	 * vectors are written to an XRFF file, unless another format is given. As there are no per-book statistics files then, the class names are
+	 * taken from the folders of the serialized temp files.
+	 * 
+	 * @return The corpus file writer, or null if the statistics are written to one XRFF file per e-book
+	 */
+	private static CorpusFileWriter createCorpusFileWriter(final CommandLine cliArguments)
+	{
+		boolean termVectors = cliArguments.hasOption(CommandLineArguments.TERMVECTORS.toString());
+		if(!cliArguments.hasOption(CommandLineArguments.CORPUSFORMAT.toString()) && !termVectors)
+		{
+			return null;
+		}
+		String formatName = cliArguments.getOptionValue(CommandLineArguments.CORPUSFORMAT.toString(), CorpusFileWriter.Format.XRFF.toString());
+		CorpusFileWriter.Format format;
+		try
+		{
+			format = CorpusFileWriter.Format.valueOf(formatName.toUpperCase(Locale.ROOT));
+		}
+		catch (IllegalArgumentException exc)
+		{
+			logger.error(String.format(errorMessageBundle.getString("avve.extractor.corpusFormatError"), formatName));
+			format = CorpusFileWriter.Format.XRFF;
+		}
+		
+		String corpusFile = "output/result_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd-HHmmss")) + "." + format.getFileExtension();
+		CorpusFileWriter corpusFileWriter = new CorpusFileWriter(corpusFile, format, getCollectionOfClassNames(fileService, cliArguments, "output/temp"),
+				cliArguments.hasOption(CommandLineArguments.MULTILABEL.toString()), preprocessingPipeline.getStages().contains(PreprocessingStage.HYPERONYMS),
+				termVectors, fileService, luceneService, logger, controlledVocabularyService);
+		try
+		{
+			fileService.createDirectory("output");
+			corpusFileWriter.open();
+		}
+		catch (IOException exc)
+		{
+			// fall back to one XRFF file per e-book
+			logger.error(String.format(errorMessageBundle.getString("avve.extractor.corpusFileError"), corpusFile), exc);
+			IOUtils.closeQuietly(corpusFileWriter);
+			return null;
+		}
+		return corpusFileWriter;
+	}
+
+	private static Collection<String> getCollectionOfClassNames(FileService fileService, CommandLine cliArguments, String classDirectory)
 	{
 		ArrayList<String> classNames = new ArrayList<String>();
 		if(cliArguments.hasOption(CommandLineArguments.INPUT.toString()))
@@ -224,7 +303,7 @@ public class EpubExtractor
 		}
 		else if(cliArguments.hasOption(CommandLineArguments.FOLDER.toString()));
 		{
-			classNames.addAll(fileService.getAllFolders(statsDirectory));
+			classNames.addAll(fileService.getAllFolders(classDirectory));
 		}
 		return classNames;
 	}
@@ -275,29 +354,318 @@ public class EpubExtractor
 	
 	private static EbookContentData preprocessText(String plainText, EpubFile epubFile, String warengruppe, CommandLine cliArguments)
 	{
-		// only instantiate preprocessor service once to save on resources
-		if(null == textPreprocessor)
+		// only instantiate preprocessor service once per thread to save on resources
+		synchronized(EpubExtractor.class)
 		{
-			textPreprocessor = new DataPreprocessorService(logger, cliArguments);
+			if(null == textPreprocessor)
+			{
+				PreprocessingContext preprocessingContext = new PreprocessingContext(logger, cliArguments, treeTaggerPool, lemmaCache, chunkExecutor, thesaurusBackend);
+				textPreprocessor = ThreadLocal.withInitial(() -> new DataPreprocessorService(preprocessingPipeline, preprocessingContext, stageTimings));
+			}
 		}
 		// The pre-processing results will be stored in the EbookContentData object
 		EbookContentData ebookContentData = new EbookContentData(epubFile, plainText, warengruppe, logger);
 		
-		textPreprocessor.preProcessText(ebookContentData);
+		textPreprocessor.get().preProcessText(ebookContentData);
 		return ebookContentData;
 	}
 	
+	/**
+	 * Parses a single EPUB file and runs the text preprocessors on it. This method may be called concurrently from several worker threads.
+	 * 
+	 * @param inputFile The EPUB file to process
+	 * @param cliArguments The command line arguments
+	 * @return The preprocessed e-book, to be handed over to storePreprocessedEbook()
+	 */
+	private static PreprocessedEbook preprocessEpubFile(final File inputFile, final CommandLine cliArguments)
+	{
+		logger.info(infoMessagesBundle.getString("avve.extractor.startEpubExtraction") + ": " + inputFile);
+
+		// parse input files
+		String plainText = "";
+		String languageCode = null;
+		EpubFile epubFile = null;
+		try
+		{
+			epubFile = new EpubFile(inputFile.getAbsolutePath(), fileService, logger);
+			epubFile.setReadFromZip(cliArguments.hasOption(CommandLineArguments.READFROMZIP.toString()));
+			epubFile.setUseXsltTextExtraction(cliArguments.hasOption(CommandLineArguments.XSLTTEXTEXTRACTION.toString()));
+			plainText = epubFile.extractPlainText();
+			languageCode = epubFile.getLanguageCode();
+		}
+		catch (IOException exc)
+		{
+			logger.error(exc.getLocalizedMessage(), exc);
+		}
+		
+		// determine "warengruppe" class code, either from command line parameter or from folder name
+		String warengruppe = determineClassName(cliArguments, inputFile);
+		
+		// Pre-process the text data (e.g. tokenization, sentence detection, part-of-speech tagging
+		EbookContentData ebookContentData = preprocessText(plainText, epubFile, warengruppe, cliArguments);
+		
+		if(null != epubFile && languageCode.equals(language))
+		{
+			// add the text to a Lucene index (for TF/IDF retrieval); the index writer is shared by all threads
+			luceneService.addTextToLuceneIndex(ebookContentData, language, cliArguments.hasOption(CommandLineArguments.DONOTINDEXFOREIGNWORDS.toString()));
+		}
+		
+		return new PreprocessedEbook(inputFile, warengruppe, epubFile, languageCode, ebookContentData);
+	}
+	
+	/**
+	 * Runs preprocessEpubFile() for all input files on a fixed pool of worker threads. The results are collected on the calling thread,
+	 * which acts as the single sink for the serialized temp files. To keep memory consumption bounded, the workers
+	 * may only be a limited number of books ahead of the sink.
+	 */
+	private static void preprocessEpubFilesInParallel(final List<File> inputFiles, final CommandLine cliArguments, final int numberOfThreads)
+	{
+		logger.info(String.format(infoMessagesBundle.getString("avve.extractor.parallelPreprocessingStarted"), numberOfThreads));
+		
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		CompletionService<PreprocessedEbook> completionService = new ExecutorCompletionService<PreprocessedEbook>(executor);
+		int maximumBooksInFlight = 2 * numberOfThreads;
+		int submittedBooks = 0;
+		int storedBooks = 0;
+		
+		try
+		{
+			for(File inputFile : inputFiles)
+			{
+				if(submittedBooks - storedBooks >= maximumBooksInFlight)
+				{
+					storeNextCompletedEbook(completionService);
+					storedBooks++;
+				}
+				completionService.submit(() -> preprocessEpubFile(inputFile, cliArguments));
+				submittedBooks++;
+			}
+			
+			while(storedBooks < submittedBooks)
+			{
+				storeNextCompletedEbook(completionService);
+				storedBooks++;
+			}
+		}
+		catch (InterruptedException exc)
+		{
+			logger.error(exc.getLocalizedMessage(), exc);
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	private static void storeNextCompletedEbook(final CompletionService<PreprocessedEbook> completionService) throws InterruptedException
+	{
+		Future<PreprocessedEbook> result = completionService.take();
+		try
+		{
+			storePreprocessedEbook(result.get());
+		}
+		catch (ExecutionException exc)
+		{
+			logger.error(errorMessageBundle.getString("avve.extractor.parallelPreprocessingError"), exc.getCause());
+		}
+	}
+	
+	/**
+	 * Serializes a preprocessed e-book to a temp file. Only ever called from the main thread.
+	 */
+	private static void storePreprocessedEbook(final PreprocessedEbook preprocessedEbook)
+	{
+		EbookContentData ebookContentData = preprocessedEbook.ebookContentData;
+		
+		if(null != preprocessedEbook.epubFile && preprocessedEbook.languageCode.equals(language))
+		{
+			String lemmatizedText = ebookContentData.getLemmatizedText();
+			
+			if(lemmatizedText.length() > 0)
+			{
+				// serialize temporary file to disk
+				serializeTempEbookContentFileToDisk(preprocessedEbook.inputFile, preprocessedEbook.warengruppe, ebookContentData);	
+			}
+			else
+			{
+				logger.error(String.format(errorMessageBundle.getString("avve.textpreprocess.noTokensAvailable"), "EpubExtractor.serializeTempEbookContentFileToDisk()"));
+			}
+		}
+		else
+		{
+			logger.error(String.format(errorMessageBundle.getString("InvalidLanguage"), preprocessedEbook.languageCode));
+		}
+	}
+	
+	private static PreprocessingPipeline createPreprocessingPipeline(final CommandLine cliArguments)
+	{
+		if(!cliArguments.hasOption(CommandLineArguments.PIPELINE.toString()))
+		{
+			return PreprocessingPipeline.defaultPipeline(cliArguments);
+		}
+		try
+		{
+			return PreprocessingPipeline.fromFile(new File(cliArguments.getOptionValue(CommandLineArguments.PIPELINE.toString())).toPath());
+		}
+		catch (IOException | IllegalArgumentException exc)
+		{
+			logger.error(exc.getLocalizedMessage(), exc);
+			System.exit(1);
+			return null;
+		}
+	}
+	
+	private static void writeStageTimingsReport()
+	{
+		Writer writer = null;
+		try
+		{
+			writer = new OutputStreamWriter(fileService.createFileOutputStream(stageTimingsReportFile), "UTF-8");
+			stageTimings.writeJsonReport(writer);
+			logger.info(String.format(infoMessagesBundle.getString("avve.extractor.stageTimingsReportWritten"), stageTimingsReportFile));
+		}
+		catch (IOException exc)
+		{
+			logger.error(String.format(errorMessageBundle.getString("avve.extractor.fileOutputError"), stageTimingsReportFile), exc);
+		}
+		finally
+		{
+			fileService.safeClose(writer);
+		}
+	}
+	
+	private static void loadLemmaCache(final CommandLine cliArguments)
+	{
+		if(cliArguments.hasOption(CommandLineArguments.LEMMACACHEFILE.toString()))
+		{
+			File lemmaCacheFile = new File(cliArguments.getOptionValue(CommandLineArguments.LEMMACACHEFILE.toString()));
+			// the cache file doesn't exist on the first run; it is created at the end of the first iteration
+			if(lemmaCacheFile.exists())
+			{
+				try
+				{
+					lemmaCache.load(lemmaCacheFile.toPath());
+				}
+				catch (IOException exc)
+				{
+					logger.error(exc.getLocalizedMessage(), exc);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Creates the thesaurus backend, if the pipeline uses a thesaurus. An embedded thesaurus is used if a snapshot file (-ths) or an OpenThesaurus
+	 * dump (-thd) is given: an existing snapshot file is loaded, otherwise the snapshot is imported from the dump or, without a dump, read from
+	 * the thesaurus database, and saved to the snapshot file. Without these options, or if the snapshot cannot be created, the thesaurus
+	 * database is queried.
+	 */
+	private static ThesaurusBackend createThesaurusBackend(final CommandLine cliArguments, final int numberOfThreads)
+	{
+		if(!preprocessingPipeline.getStages().contains(PreprocessingStage.HYPERONYMS))
+		{
+			return null;
+		}
+		File snapshotFile = cliArguments.hasOption(CommandLineArguments.THESAURUSSNAPSHOT.toString())
+				? new File(cliArguments.getOptionValue(CommandLineArguments.THESAURUSSNAPSHOT.toString())) : null;
+		File dumpFile = cliArguments.hasOption(CommandLineArguments.THESAURUSDUMP.toString())
+				? new File(cliArguments.getOptionValue(CommandLineArguments.THESAURUSDUMP.toString())) : null;
+		ThesaurusSnapshot thesaurusSnapshot = null;
+		try
+		{
+			if(null != snapshotFile && snapshotFile.exists())
+			{
+				thesaurusSnapshot = ThesaurusSnapshot.load(snapshotFile.toPath());
+				logger.info(String.format(infoMessagesBundle.getString("avve.extractor.thesaurusSnapshotLoaded"), thesaurusSnapshot.size(), snapshotFile));
+			}
+			else if(null != dumpFile)
+			{
+				thesaurusSnapshot = OpenThesaurusDumpImporter.importDump(dumpFile.toPath());
+				logger.info(String.format(infoMessagesBundle.getString("avve.extractor.thesaurusDumpImported"), thesaurusSnapshot.size(), dumpFile));
+			}
+			else if(null != snapshotFile)
+			{
+				JdbcThesaurusBackend jdbcThesaurusBackend = createJdbcThesaurusBackend(cliArguments, 1);
+				try
+				{
+					thesaurusSnapshot = jdbcThesaurusBackend.createSnapshot();
+				}
+				finally
+				{
+					jdbcThesaurusBackend.close();
+				}
+			}
+			if(null != thesaurusSnapshot && null != snapshotFile && !snapshotFile.exists())
+			{
+				thesaurusSnapshot.save(snapshotFile.toPath());
+				logger.info(String.format(infoMessagesBundle.getString("avve.extractor.thesaurusSnapshotSaved"), thesaurusSnapshot.size(), snapshotFile));
+			}
+		}
+		catch (IOException | SQLException exc)
+		{
+			logger.error(String.format(errorMessageBundle.getString("avve.extractor.thesaurusSnapshotNotAvailable"), null != dumpFile ? dumpFile : snapshotFile), exc);
+		}
+		
+		if(null != thesaurusSnapshot)
+		{
+			return new EmbeddedThesaurusBackend(thesaurusSnapshot);
+		}
+		// by default, there is one database connection per thread
+		return createJdbcThesaurusBackend(cliArguments, numberOfThreads);
+	}
+	
+	private static JdbcThesaurusBackend createJdbcThesaurusBackend(final CommandLine cliArguments, final int numberOfConnections)
+	{
+		return new JdbcThesaurusBackend(new ThesaurusConnectionPool(numberOfConnections, logger),
+				new ThesaurusEntryCache(getIntegerOption(cliArguments, CommandLineArguments.THESAURUSCACHESIZE, ThesaurusEntryCache.capacityDefaultValue, "avve.extractor.thesaurusCacheSizeNumberFormatError")),
+				logger);
+	}
+	
+	private static void saveLemmaCache(final CommandLine cliArguments)
+	{
+		if(cliArguments.hasOption(CommandLineArguments.LEMMACACHEFILE.toString()))
+		{
+			try
+			{
+				lemmaCache.save(new File(cliArguments.getOptionValue(CommandLineArguments.LEMMACACHEFILE.toString())).toPath());
+			}
+			catch (IOException exc)
+			{
+				logger.error(String.format(errorMessageBundle.getString("avve.extractor.lemmaCacheNotSaved"), cliArguments.getOptionValue(CommandLineArguments.LEMMACACHEFILE.toString())), exc);
+			}
+		}
+	}
+	
+	private static int getIntegerOption(final CommandLine cliArguments, final CommandLineArguments option, final int defaultValue, final String numberFormatErrorKey)
+	{
+		int value;
+		try
+		{
+			value = Integer.parseInt(cliArguments.getOptionValue(option.toString()));
+		}
+		catch (NumberFormatException exc)
+		{
+			logger.error(String.format(errorMessageBundle.getString(numberFormatErrorKey), defaultValue));
+			value = defaultValue;
+		}
+		catch (NullPointerException exc)
+		{
+			value = defaultValue;
+		}
+		return value;
+	}
+	
 	private static void serializeTempEbookContentFileToDisk(File inputFile, String warengruppe, EbookContentData ebookContentData)
 	{
 		OutputStream fileOutputStream = null;
-		ObjectOutputStream objectOutputStream = null;
 		
 		fileService.createDirectory("output/temp/" + warengruppe);
 		try
 		{
-			fileOutputStream = new FileOutputStream(FilenameUtils.concat("output/temp/" + warengruppe + "/", inputFile.getName() + ".ser"));
-			objectOutputStream = new ObjectOutputStream( fileOutputStream );
-			objectOutputStream.writeObject( ebookContentData );
+			fileOutputStream = new BufferedOutputStream(new FileOutputStream(FilenameUtils.concat("output/temp/" + warengruppe + "/", 
+					inputFile.getName() + "." + EbookContentDataSerializer.FILE_EXTENSION)));
+			new EbookContentDataSerializer(logger).write(ebookContentData, fileOutputStream);
 		}
 		catch ( IOException exc )
 		{
@@ -305,12 +673,12 @@ public class EpubExtractor
 		}
 		finally
 		{
-			fileService.safeClose(objectOutputStream);
 			fileService.safeClose(fileOutputStream);
 		}
 	}
 	
-	private static void writePreprocessingResultsToFileSystem(String warengruppe, EbookContentData ebookContentData, File inputFile, CommandLine cliArguments)
+	private static void writePreprocessingResultsToFileSystem(String warengruppe, EbookContentData ebookContentData, File inputFile, int wordVectorSize,
+			CorpusFileWriter corpusFileWriter)
 	{
 		fileService.createDirectory("output");
 		
@@ -325,30 +693,22 @@ public class EpubExtractor
 		try
 		{
 			fileService.createDirectory(outputDirForFiles);
-			fileService.createDirectory(outputDirForAttributes);
 			
 			OutputStream out1 = fileService.createFileOutputStream(outputFile);
 			printStream = new PrintStream(out1);
 			printStream.print(ebookContentData.getPlainText());
 			printStream.close();
 			
-			int wordVectorSize;
-			try
-			{
-				wordVectorSize = Integer.parseInt(cliArguments.getOptionValue(CommandLineArguments.WORDVECTORSIZE.toString()));
-			}
-			catch (NumberFormatException exc)
+			if(null != corpusFileWriter)
 			{
-				logger.error(String.format(errorMessageBundle.getString("avve.extractor.wordVectorNumberFormatError"), wordVectorSizeDefaultValue));
-				wordVectorSize = wordVectorSizeDefaultValue;
+				corpusFileWriter.appendEbookContentData(ebookContentData, wordVectorSize);
 			}
-			catch (NullPointerException exc)
+			else
 			{
-				wordVectorSize = wordVectorSizeDefaultValue;
+				fileService.createDirectory(outputDirForAttributes);
+				XrffFileWriter xrffFile = new XrffFileWriter(outputAttributes, fileService, luceneService, logger, controlledVocabularyService);
+				xrffFile.saveEbookContentData(ebookContentData, wordVectorSize);
 			}
-			
-			XrffFileWriter xrffFile = new XrffFileWriter(outputAttributes, fileService, luceneService.getLuceneIndexDirectory(), logger, controlledVocabularyService);
-			xrffFile.saveEbookContentData(ebookContentData, wordVectorSize);
 		}
 		catch (FileNotFoundException exc)
 		{
@@ -360,4 +720,25 @@ public class EpubExtractor
 			fileService.safeClose(printStream);
 		}
 	}
+	
+	/**
+	 * The result of the first iteration for a single input file, handed from the worker threads to the index and serialization sink
+	 */
+	private static class PreprocessedEbook
+	{
+		private final File inputFile;
+		private final String warengruppe;
+		private final EpubFile epubFile;
+		private final String languageCode;
+		private final EbookContentData ebookContentData;
+		
+		private PreprocessedEbook(final File inputFile, final String warengruppe, final EpubFile epubFile, final String languageCode, final EbookContentData ebookContentData)
+		{
+			this.inputFile = inputFile;
+			this.warengruppe = warengruppe;
+			this.epubFile = epubFile;
+			this.languageCode = languageCode;
+			this.ebookContentData = ebookContentData;
+		}
+	}
 }
\ No newline at end of file
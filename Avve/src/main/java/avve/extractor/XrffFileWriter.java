@@ -3,71 +3,72 @@ package avve.extractor;
 import avve.epubhandling.EbookContentData;
 import avve.services.ControlledVocabularyService;
 import avve.services.FileService;
+import avve.services.lucene.InverseDocumentFrequencyTable;
+import avve.services.lucene.LuceneService;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.Map.Entry;
 
-import nu.xom.*;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.logging.log4j.Logger;
-import org.apache.lucene.analysis.core.KeywordAnalyzer;
 import org.apache.lucene.index.*;
-import org.apache.lucene.search.*;
-import org.apache.lucene.store.Directory;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.util.BytesRef;
-import org.apache.lucene.util.QueryBuilder;
 
+/**
+ * Writes the statistical attributes of an e-book to an XRFF file for Weka. The file is streamed with StAX to a buffered UTF-8 output stream:
+ * the XML declaration and the internal DTD subset are written as a constant prefix, followed by the header and the instance, element by
+ * element. So no document tree is built, not even for the lemmas of long books.
+ * 
+ * @author Kai Weber
+ *
+ */
 public class XrffFileWriter
 {
-	public XrffFileWriter(final String filePath, final FileService fileService, final Directory luceneIndexDirectory, final Logger logger,
+	public XrffFileWriter(final String filePath, final FileService fileService, final LuceneService luceneService, final Logger logger,
 			final ControlledVocabularyService controlledVocabularyService)
 	{
 		this.controlledVocabularyService = controlledVocabularyService;
 		this.filePath = filePath;
 		this.fileService = fileService;
 		this.logger = logger;
-		this.luceneIndexDirectory = luceneIndexDirectory;
+		this.luceneService = luceneService;
 	}
 	
 	public void saveEbookContentData(final EbookContentData content, final int wordVectorSize)
 	{
+		// the TF/IDF values are read from the Lucene index before the file is opened
+		List<Entry<String, TfIdfTuple>> topTfIdfTerms = findTopTfIdfTerms(luceneService, content, wordVectorSize, logger);
+		
 		FileOutputStream outputStream = null;
 		try
 		{
 			outputStream = fileService.createFileOutputStream(filePath);
-			Element root = new Element("dataset");
-			root.addAttribute(new Attribute("name", "avve"));
-			Document xmlOutputDocument = new Document(root);
-			
-			writeHeader(root, content);
-			writeBody(root, content);
-			addTfIdfStatistics(root, content, wordVectorSize);
-			
-			// workaround for internal DTD subset, see http://www.xom.nu/tutorial.xhtml
-			Builder builder = new Builder();
-			Document tempDoc = builder.build(dtd + System.lineSeparator() + "<root />", null);
-			DocType doctype = tempDoc.getDocType();
-			doctype.detach();
-			xmlOutputDocument.setDocType(doctype);
+			Writer outputWriter = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 65536);
+			outputWriter.write(xmlDeclarationAndDoctype);
 			
-			// serialize XML Document and write it to the output stream
-			
-			Serializer serializer = new Serializer(outputStream, "UTF-8");
-			serializer.setIndent(4);
-		 	serializer.setMaxLength(256);
-		 	serializer.write(xmlOutputDocument);  
+			XMLStreamWriter writer = xmlOutputFactory.createXMLStreamWriter(outputWriter);
+			writer.writeStartElement("dataset");
+			writer.writeAttribute("name", "avve");
+			writeHeader(writer, content);
+			writeBody(writer, content, topTfIdfTerms);
+			writeLineBreak(writer, 0);
+			writer.writeEndElement();
+			writer.writeCharacters(System.lineSeparator());
+			writer.writeEndDocument();
+			writer.close();
+			outputWriter.flush();
 		}
 		catch (IOException exc)
-		{
-			logger.error(exc.getLocalizedMessage(), exc);
-			
-		}
-		catch (ValidityException exc)
 		{
 			logger.error(exc.getLocalizedMessage(), exc);
 		}
-		catch (ParsingException exc)
+		catch (XMLStreamException exc)
 		{
 			logger.error(exc.getLocalizedMessage(), exc);
 		}
@@ -77,646 +78,182 @@ public class XrffFileWriter
 		}
 	}
 	
-	private void writeBody(final Element root, final EbookContentData content)
+	private void writeBody(final XMLStreamWriter writer, final EbookContentData content, final List<Entry<String, TfIdfTuple>> topTfIdfTerms)
+			throws XMLStreamException
 	{
-		Element bodyElement = new Element("body");
-		root.appendChild(bodyElement);
-		
-		Element instancesElement = new Element("instances");
-		bodyElement.appendChild(instancesElement);
-		
-		Element instanceElement = new Element("instance");
-		instanceElement.addAttribute(new Attribute("documentId", content.getDocumentId()));
-		instancesElement.appendChild(instanceElement);
-		
-		// print all lemmas and part of speech tags
-		Element lemmasElement = new Element("value");
-		Comment lemmasComment = new Comment("lemmas");
-		lemmasElement.appendChild(lemmasComment);
-		StringBuffer lemmaSerializer = new StringBuffer();
-		// iterate through all lemmatized sentences
-		for(int i = 0; i < content.getLemmas().length; i++)
+		writeLineBreak(writer, 1);
+		writer.writeStartElement("body");
+		writeLineBreak(writer, 2);
+		writer.writeStartElement("instances");
+		writeLineBreak(writer, 3);
+		writer.writeStartElement("instance");
+		writer.writeAttribute("documentId", content.getDocumentId());
+		
+		// print all lemmas and part of speech tags, sentence by sentence
+		writeLineBreak(writer, 4);
+		writer.writeStartElement("value");
+		writer.writeComment("lemmas");
+		StringBuilder lemmaSerializer = new StringBuilder();
+		// iterate through all lemmatized sentences, decoding one sentence at a time
+		for(int i = 0; i < content.getNumberOfTokenizedSentences(); i++)
 		{
-			lemmaSerializer.append("[" + i + "] "); // print number of sentences
+			String[] lemmas = content.getLemmas(i);
+			String[] partsOfSpeech = content.getPartsOfSpeech(i);
+			lemmaSerializer.setLength(0);
+			lemmaSerializer.append("[").append(i).append("] "); // print number of sentences
 			// iterate through all lemmas in the current sentence
-			for(int j = 0; j < content.getLemmas()[i].length; j++)
+			for(int j = 0; j < lemmas.length; j++)
 			{
 				String posTag = "";
-				try
-				{
-					posTag = content.getPartsOfSpeech()[i][j];
-				}
-				catch(StringIndexOutOfBoundsException exc)
+				if(null != partsOfSpeech && j < partsOfSpeech.length)
 				{
-					// ignore
+					posTag = partsOfSpeech[j];
 				}
-				lemmaSerializer.append(content.getLemmas()[i][j] + "_" + posTag + " ");
+				lemmaSerializer.append(lemmas[j]).append("_").append(posTag).append(" ");
 			}
 			lemmaSerializer.append(System.lineSeparator());
+			writer.writeCharacters(lemmaSerializer.toString());
 		}
-		lemmasElement.appendChild(lemmaSerializer.toString());
-		instanceElement.appendChild(lemmasElement);
-		
-		// print file size
-		Element fileSizeElement = new Element("value");
-		Comment fileSizeComment = new Comment("file size in bytes");
-		fileSizeElement.appendChild(fileSizeComment);
-		fileSizeElement.appendChild("" + content.getFileSize());
-		instanceElement.appendChild(fileSizeElement);
-		
-		// print number of top-level chapters
-		Element chaptersElement = new Element("value");
-		Comment chaptersComment = new Comment("number of top-level chapters");
-		chaptersElement.appendChild(chaptersComment);
-		chaptersElement.appendChild("" + content.getNumberOfChapters());
-		instanceElement.appendChild(chaptersElement);
-		
-		// print number of table-of-contents items
-		Element tocCountElement = new Element("value");
-		Comment tocCountComment = new Comment("number of table-of-contents items");
-		tocCountElement.appendChild(tocCountComment);
-		tocCountElement.appendChild("" + content.getNumberOfTocItems());
-		instanceElement.appendChild(tocCountElement);
-		
-		// print number of table-of-contents depth
-		Element tocDepthElement = new Element("value");
-		Comment tocDepthComment = new Comment("depth of table of contents");
-		tocDepthElement.appendChild(tocDepthComment);
-		tocDepthElement.appendChild("" + content.getDepthOfToc());
-		instanceElement.appendChild(tocDepthElement);
-		
-		// print ratio of words per sentence
-		Element wordsPerSentenceElement = new Element("value");
-		Comment wordsPerSentenceComment = new Comment("words per sentence");
-		wordsPerSentenceElement.appendChild(wordsPerSentenceComment);
-		wordsPerSentenceElement.appendChild("" + ((double)content.getNumberOfTokens() / (double)content.getSentences().length));
-		instanceElement.appendChild(wordsPerSentenceElement);
-		
-		// print ratio of lemmas divided by number of tokens
-		Element lemmasPerTokensElement = new Element("value");
-		Comment lemmasPerTokensElementComment = new Comment("lemma to token ratio");
-		lemmasPerTokensElement.appendChild(lemmasPerTokensElementComment);
-		lemmasPerTokensElement.appendChild("" + ((double)content.getLemmaFrequencies().size() / (double)content.getNumberOfTokens()));
-		instanceElement.appendChild(lemmasPerTokensElement);
-		
-		// print number of unique parts of speech
-		Element uniquePartsOfSpeech = new Element("value");
-		Comment uniquePartsOfSpeechComment = new Comment("unique parts of speech");
-		uniquePartsOfSpeech.appendChild(uniquePartsOfSpeechComment);
-		uniquePartsOfSpeech.appendChild("" + content.getPartsOfSpeechFrequencies().size());
-		instanceElement.appendChild(uniquePartsOfSpeech);
-		
-		// print total number of words
-		Element totalNumberOfWords = new Element("value");
-		Comment totalNumberOfWordsComment = new Comment("total number of words");
-		totalNumberOfWords.appendChild(totalNumberOfWordsComment);
-		totalNumberOfWords.appendChild("" + content.getNumberOfWords());
-		instanceElement.appendChild(totalNumberOfWords);
-		
-		// print number of unique words
-		Element uniqueNumberOfWords = new Element("value");
-		Comment uniqueNumberOfWordsComment = new Comment("unique number of words");
-		uniqueNumberOfWords.appendChild(uniqueNumberOfWordsComment);
-		uniqueNumberOfWords.appendChild("" + content.getUniqueNumberOfWords());
-		instanceElement.appendChild(uniqueNumberOfWords);
-		
-		// print vocabulary richness value
-		Element vocabularyRichness = new Element("value");
-		Comment vocabularyRichnessComment = new Comment("vocabulary richness");
-		vocabularyRichness.appendChild(vocabularyRichnessComment);
-		vocabularyRichness.appendChild("" + content.getVocabularyRichness());
-		instanceElement.appendChild(vocabularyRichness);
-		
-		// print average word length
-		Element averageWordLength = new Element("value");
-		Comment averageWordLengthComment = new Comment("average word length");
-		averageWordLength.appendChild(averageWordLengthComment);
-		averageWordLength.appendChild("" + content.getAverageWordLength());
-		instanceElement.appendChild(averageWordLength);
+		writer.writeEndElement();
 		
-		// print ratio of passive sentences
-		Element ratioOfPassiveSentences = new Element("value");
-		Comment ratioOfPassiveSentencesComment = new Comment("ratio of passive sentences");
-		ratioOfPassiveSentences.appendChild(ratioOfPassiveSentencesComment);
-		ratioOfPassiveSentences.appendChild("" + ((double)content.getNumberOfPassiveConstructions() / (double)content.getSentences().length));
-		instanceElement.appendChild(ratioOfPassiveSentences);
+		writeFeatureValues(writer, content, controlledVocabularyService, null != content.getHyperonymFrequencies(), topTfIdfTerms);
 		
-		// print ratio of adjectives
-		Element ratioOfAdjectives = new Element("value");
-		Comment ratioOfAdjectivesComment = new Comment("ratio of adjectives");
-		ratioOfAdjectives.appendChild(ratioOfAdjectivesComment);
-		ratioOfAdjectives.appendChild("" + content.getAdjectiveRatio());
-		instanceElement.appendChild(ratioOfAdjectives);
+		// print class
+		writeValue(writer, "class", content.getTargetClass());
+		
+		writeLineBreak(writer, 3);
+		writer.writeEndElement();
+		writeLineBreak(writer, 2);
+		writer.writeEndElement();
+		writeLineBreak(writer, 1);
+		writer.writeEndElement();
+	}
+
+	private void writeHeader(final XMLStreamWriter writer, final EbookContentData content) throws XMLStreamException
+	{
+		writeLineBreak(writer, 1);
+		writer.writeStartElement("header");
+		writeLineBreak(writer, 2);
+		writer.writeStartElement("attributes");
 		
-		// print ratio of adverbs
-		Element ratioOfAdverbs = new Element("value");
-		Comment ratioOfAdverbsComment = new Comment("ratio of adverbs");
-		ratioOfAdverbs.appendChild(ratioOfAdverbsComment);
-		ratioOfAdverbs.appendChild("" + content.getAdverbRatio());
-		instanceElement.appendChild(ratioOfAdverbs);
+		// lemmas and part-of-speech-tags
+		writeAttributeDefinition(writer, "lemmas", "string");
 		
-		// print ratio of cardinals
-		Element ratioOfCardinals = new Element("value");
-		Comment ratioOfCardinalsComment = new Comment("ratio of cardinal numbers");
-		ratioOfCardinals.appendChild(ratioOfCardinalsComment);
-		ratioOfCardinals.appendChild("" + content.getCardinalsRatio());
-		instanceElement.appendChild(ratioOfCardinals);
+		writeFeatureAttributes(writer, controlledVocabularyService, null != content.getHyperonymFrequencies());
 		
-		// print ratio of foreign language material
-		Element ratioOfForeignLanguageWords = new Element("value");
-		Comment ratioOfForeignLanguageWordsComment = new Comment("ratio of foreign language words");
-		ratioOfForeignLanguageWords.appendChild(ratioOfForeignLanguageWordsComment);
-		ratioOfForeignLanguageWords.appendChild("" + content.getForeignLanguageWordsRatio());
-		instanceElement.appendChild(ratioOfForeignLanguageWords);
-				
-		// print ratio of interjections
-		Element ratioOfInterjectionsElement = new Element("value");
-		Comment ratioOfInterjectionsElementComment = new Comment("ratio of interjections");
-		ratioOfInterjectionsElement.appendChild(ratioOfInterjectionsElementComment);
-		ratioOfInterjectionsElement.appendChild("" + content.getInterjectionRatio());
-		instanceElement.appendChild(ratioOfInterjectionsElement);
+		// class element
+		writeLineBreak(writer, 3);
+		writer.writeEmptyElement("attribute");
+		writer.writeAttribute("class", "yes");
+		writer.writeAttribute("name", "class");
+		writer.writeAttribute("type", "nominal");
+		
+		writeLineBreak(writer, 2);
+		writer.writeEndElement();
+		writeLineBreak(writer, 1);
+		writer.writeEndElement();
+	}
 
-		// print ratio of nouns
-		Element nounsElement = new Element("value");
-		Comment nounsElementComment = new Comment("ratio of nouns");
-		nounsElement.appendChild(nounsElementComment);
-		nounsElement.appendChild("" + content.getNounRatio());
-		instanceElement.appendChild(nounsElement);
+	/**
+	 * Writes the definitions of the statistical attributes, i.e. of all attributes but the lemmas and the class. The corpus files use the same
+	 * attributes as the per-book files.
+	 *
+	 * @param writer The XML stream writer, positioned in the attributes element
+	 * @param controlledVocabularyService The controlled vocabulary service, or null if there is no controlled vocabulary
+	 * @param withHyperonyms Whether the hyperonyms attribute is written
+	 * @throws XMLStreamException If the attributes cannot be written
+	 */
+	static void writeFeatureAttributes(final XMLStreamWriter writer, final ControlledVocabularyService controlledVocabularyService,
+			final boolean withHyperonyms) throws XMLStreamException
+	{
+		writeNumericFeatureAttributes(writer, controlledVocabularyService);
 
-		// print ratio of named entities
-		Element namedEntitiesElement = new Element("value");
-		Comment namedEntitiesElementComment = new Comment("ratio of named entities");
-		namedEntitiesElement.appendChild(namedEntitiesElementComment);
-		namedEntitiesElement.appendChild("" + content.getNamedEntityRatio());
-		instanceElement.appendChild(namedEntitiesElement);
-		
-		// print ratio of substituting demonstrative pronouns
-		Element subDemPronElement = new Element("value");
-		Comment subDemPronElementComment = new Comment("ratio of substitutive demonstrative pronouns");
-		subDemPronElement.appendChild(subDemPronElementComment);
-		subDemPronElement.appendChild("" + content.getSubstitutingDemonstrativePronounRatio());
-		instanceElement.appendChild(subDemPronElement);
-		
-		// print ratio of attributive demonstrative pronouns
-		Element attrDemPronElement = new Element("value");
-		Comment attrDemPronElementComment = new Comment("ratio of attributive demonstrative pronouns");
-		attrDemPronElement.appendChild(attrDemPronElementComment);
-		attrDemPronElement.appendChild("" + content.getAttributiveDemonstrativePronounRatio());
-		instanceElement.appendChild(attrDemPronElement);
-		
-		// print ratio of substituting indefinite pronouns
-		Element subIndefPronElement = new Element("value");
-		Comment subIndefPronElementComment = new Comment("ratio of substitutive indefinite pronouns");
-		subIndefPronElement.appendChild(subIndefPronElementComment);
-		subIndefPronElement.appendChild("" + content.getSubstitutingIndefinitePronounRatio());
-		instanceElement.appendChild(subIndefPronElement);
-		
-		// print ratio of attributive indefinite pronouns
-		Element attrIndefPronElement = new Element("value");
-		Comment attrIndefPronElementComment = new Comment("ratio of attributive indefinite pronouns");
-		attrIndefPronElement.appendChild(attrIndefPronElementComment);
-		attrIndefPronElement.appendChild("" + content.getAttributiveIndefinitePronounRatio());
-		instanceElement.appendChild(attrIndefPronElement);
+		// handle hyperonyms, if they're available
+		if(withHyperonyms)
+		{
+			writeAttributeDefinition(writer, "hyperonyms", "string");
+		}
+
+		// terms with the highest TF/IDF values
+		writeAttributeDefinition(writer, "top-idf", "string");
+	}
+
+	/**
+	 * Writes the definitions of the numeric statistical attributes and of the controlled vocabulary attributes
+	 *
+	 * @param writer The XML stream writer, positioned in the attributes element
+	 * @param controlledVocabularyService The controlled vocabulary service, or null if there is no controlled vocabulary
+	 * @throws XMLStreamException If the attributes cannot be written
+	 */
+	static void writeNumericFeatureAttributes(final XMLStreamWriter writer, final ControlledVocabularyService controlledVocabularyService)
+			throws XMLStreamException
+	{
+		for(EbookFeature feature : EbookFeature.numericFeatures)
+		{
+			writeAttributeDefinition(writer, feature.getAttributeName(), "numeric");
+		}
 
-		// print ratio of personal pronouns
-		Element personalPronounElement = new Element("value");
-		Comment personalPronounElementComment = new Comment("ratio of personal pronouns");
-		personalPronounElement.appendChild(personalPronounElementComment);
-		personalPronounElement.appendChild("" + content.getPersonalPronounRatio());
-		instanceElement.appendChild(personalPronounElement);
-		
-		// print ratio of substituting possessive pronouns
-		Element subPossPronElement = new Element("value");
-		Comment subPossPronElementComment = new Comment("ratio of substitutive possessive pronouns");
-		subPossPronElement.appendChild(subPossPronElementComment);
-		subPossPronElement.appendChild("" + content.getSubstitutivePossessivePronounRatio());
-		instanceElement.appendChild(subPossPronElement);
-		
-		// print ratio of attributive possessive pronouns
-		Element attrPossPronElement = new Element("value");
-		Comment attrPossPronElementComment = new Comment("ratio of attributive possessive pronouns");
-		attrPossPronElement.appendChild(attrPossPronElementComment);
-		attrPossPronElement.appendChild("" + content.getAttributivePossessivePronounRatio());
-		instanceElement.appendChild(attrPossPronElement);
-	
-		// print ratio of substituting relative pronouns
-		Element subRelPronElement = new Element("value");
-		Comment subRelPronElementComment = new Comment("ratio of substitutive relative pronouns");
-		subRelPronElement.appendChild(subRelPronElementComment);
-		subRelPronElement.appendChild("" + content.getSubstitutiveRelativePronounRatio());
-		instanceElement.appendChild(subRelPronElement);
-		
-		// print ratio of attributive relative pronouns
-		Element attrRelPronElement = new Element("value");
-		Comment attrRelPronElementComment = new Comment("ratio of attributive relative pronouns");
-		attrRelPronElement.appendChild(attrRelPronElementComment);
-		attrRelPronElement.appendChild("" + content.getAttributivePossessivePronounRatio());
-		instanceElement.appendChild(attrRelPronElement);
-		
-		// print ratio of pronominal adverbs
-		Element pronominalAdverbElement = new Element("value");
-		Comment pronominalAdverbElementComment = new Comment("ratio of pronominal adverbs");
-		pronominalAdverbElement.appendChild(pronominalAdverbElementComment);
-		pronominalAdverbElement.appendChild("" + content.getPronominalAdverbRatio());
-		instanceElement.appendChild(pronominalAdverbElement);
-		
-		// print ratio of interrogative pronouns
-		Element interrogativePronounElement = new Element("value");
-		Comment interrogativePronounElementComment = new Comment("ratio of interrogative pronouns");
-		interrogativePronounElement.appendChild(interrogativePronounElementComment);
-		interrogativePronounElement.appendChild("" + content.getInterrogativePronounRatio());
-		instanceElement.appendChild(interrogativePronounElement);
-		
-		// print ratio of negation particles
-		Element negationParticlesElement = new Element("value");
-		Comment negationParticlesElementComment = new Comment("ratio of negation particles");
-		negationParticlesElement.appendChild(negationParticlesElementComment);
-		negationParticlesElement.appendChild("" + content.getNegationParticleRatio());
-		instanceElement.appendChild(negationParticlesElement);
-		
-		// print ratio of answer particles
-		Element answerParticlesElement = new Element("value");
-		Comment answerParticlesElementComment = new Comment("ratio of answer particles");
-		answerParticlesElement.appendChild(answerParticlesElementComment);
-		answerParticlesElement.appendChild("" + content.getAnswerParticlesRatio());
-		instanceElement.appendChild(answerParticlesElement);
-		
-		// print ratio of compound parts
-		Element compoundElement = new Element("value");
-		Comment compoundElementComment = new Comment("ratio of compound word parts");
-		compoundElement.appendChild(compoundElementComment);
-		compoundElement.appendChild("" + content.getCompoundWords());
-		instanceElement.appendChild(compoundElement);
-		
-		// print ratio of finite main verbs
-		Element finiteMainVerbsElement = new Element("value");
-		Comment finiteMainVerbsElementComment = new Comment("ratio of finite main verbs");
-		finiteMainVerbsElement.appendChild(finiteMainVerbsElementComment);
-		finiteMainVerbsElement.appendChild("" + content.getFiniteMainVerbsRatio());
-		instanceElement.appendChild(finiteMainVerbsElement);
-	
-		// print ratio of imperative main verbs
-		Element imperativeMainVerbsElement = new Element("value");
-		Comment imperativeMainVerbsElementComment = new Comment("ratio of imperative main verbs");
-		imperativeMainVerbsElement.appendChild(imperativeMainVerbsElementComment);
-		imperativeMainVerbsElement.appendChild("" + content.getImperativeMainVerbsRatio());
-		instanceElement.appendChild(imperativeMainVerbsElement);
-		
-		// print ratio of infinitive main verbs
-		Element infinitiveMainVerbsElement = new Element("value");
-		Comment infinitiveMainVerbsElementComment = new Comment("ratio of infinitive main verbs");
-		infinitiveMainVerbsElement.appendChild(infinitiveMainVerbsElementComment);
-		infinitiveMainVerbsElement.appendChild("" + content.getInfinitiveMainVerbsRatio());
-		instanceElement.appendChild(infinitiveMainVerbsElement);
-		
-		// print ratio of perfect participle main verbs
-		Element perfPartMainVerbsElement = new Element("value");
-		Comment perfPartMainVerbsElementComment = new Comment("ratio of perfect participle main verbs");
-		perfPartMainVerbsElement.appendChild(perfPartMainVerbsElementComment);
-		perfPartMainVerbsElement.appendChild("" + content.getMainVerbPerfectParticiplesRatio());
-		instanceElement.appendChild(perfPartMainVerbsElement);
-		
-		// print ratio of auxiliar verbs
-		Element auxiliarVerbsElement = new Element("value");
-		Comment auxiliarVerbsElementComment = new Comment("ratio of auxiliar verbs");
-		auxiliarVerbsElement.appendChild(auxiliarVerbsElementComment);
-		auxiliarVerbsElement.appendChild("" + content.getAuxiliarVerbsRatio());
-		instanceElement.appendChild(auxiliarVerbsElement);
-		
-		// print ratio of modal verbs
-		Element modalVerbsElement = new Element("value");
-		Comment modalVerbsElementComment = new Comment("ratio of modal verbs");
-		modalVerbsElement.appendChild(modalVerbsElementComment);
-		modalVerbsElement.appendChild("" + content.getModalVerbRatio());
-		instanceElement.appendChild(modalVerbsElement);
-		
-		// print ratio of coordinating conjunctions
-		Element coordConjunctionsElement = new Element("value");
-		Comment coordConjunctionsComment = new Comment("ratio of coordinating conjunctions");
-		coordConjunctionsElement.appendChild(coordConjunctionsComment);
-		coordConjunctionsElement.appendChild("" + content.getCoordinatingConjunctions());
-		instanceElement.appendChild(coordConjunctionsElement);
-		
-		// print ratio of subordinating conjunctions
-		Element subConjunctionsElement = new Element("value");
-		Comment subConjunctionsComment = new Comment("ratio of subordinating conjunctions");
-		subConjunctionsElement.appendChild(subConjunctionsComment);
-		subConjunctionsElement.appendChild("" + content.getCoordinatingConjunctions());
-		instanceElement.appendChild(subConjunctionsElement);
-		
-		// print number of images
-		Element numberOfImagesElement = new Element("value");
-		Comment numberOfImagesElementComment = new Comment("number of images");
-		numberOfImagesElement.appendChild(numberOfImagesElementComment);
-		numberOfImagesElement.appendChild("" + content.getNumberOfImages());
-		instanceElement.appendChild(numberOfImagesElement);
-		
 		// handle controlled vocabulary terms, if an appropriate service is defined
 		if(null != controlledVocabularyService)
 		{
 			Iterator<String> cvIterator = controlledVocabularyService.getControlledVocabularyIterator();
 			while(cvIterator.hasNext())
 			{
-				String term = cvIterator.next();
-				double numberOfOccurrences = content.getNormalizedLemmaFrequency(term);
-				Element termElement = new Element("value");
-				Comment termElementComment = new Comment("number of term occurrances for " + term);
-				termElement.appendChild(termElementComment);
-				termElement.appendChild("" + numberOfOccurrences);
-				instanceElement.appendChild(termElement);
+				writeAttributeDefinition(writer, "cv_" + cvIterator.next(), "numeric");
 			}
 		}
-		
-		if(null != content.getHyperonymFrequencies())
+	}
+
+	/**
+	 * Writes the values of the statistical attributes of an e-book, in the order of writeFeatureAttributes()
+	 *
+	 * @param writer The XML stream writer, positioned in the instance element
+	 * @param content The e-book
+	 * @param controlledVocabularyService The controlled vocabulary service, or null if there is no controlled vocabulary
+	 * @param withHyperonyms Whether the hyperonyms value is written; it is empty if the e-book has no hyperonyms
+	 * @param topTfIdfTerms The terms with the highest TF/IDF values, or null if they are not known
+	 * @throws XMLStreamException If the values cannot be written
+	 */
+	static void writeFeatureValues(final XMLStreamWriter writer, final EbookContentData content, final ControlledVocabularyService controlledVocabularyService,
+			final boolean withHyperonyms, final List<Entry<String, TfIdfTuple>> topTfIdfTerms) throws XMLStreamException
+	{
+		writeNumericFeatureValues(writer, content, controlledVocabularyService, 0);
+
+		if(withHyperonyms)
 		{
-			Element hyperonymElement = new Element("value");
-			Comment hyperonymElementComment = new Comment("hyperonyms");
-			hyperonymElement.appendChild(hyperonymElementComment);
-			int numberOfHyperonyms = content.getHyperonymFrequencies().size();
-			StringBuilder sb = new StringBuilder();
-			for(String hyperonym : content.getHyperonymFrequencies().keySet())
+			writeLineBreak(writer, 4);
+			writer.writeStartElement("value");
+			writer.writeComment("hyperonyms");
+			for(String hyperonym : getHyperonymLines(content))
 			{
-				sb.append(hyperonym.replace(' ', '_'));
-				sb.append(" ");
-				sb.append("<!-- " + ((double)content.getHyperonymFrequencies().get(hyperonym) / (double)numberOfHyperonyms) + " -->");
-				sb.append(System.lineSeparator());
+				writer.writeCharacters(hyperonym + System.lineSeparator());
 			}
-			hyperonymElement.appendChild(sb.toString());
-			instanceElement.appendChild(hyperonymElement);
+			writer.writeEndElement();
 		}
-		
-		// print class
-		Element classElement = new Element("value");
-		Comment classComment = new Comment("class");
-		classElement.appendChild(classComment);
-		classElement.appendChild(content.getTargetClass());
-		instanceElement.appendChild(classElement);
+
+		writeTfIdfStatistics(writer, topTfIdfTerms);
 	}
 
-	private void writeHeader(final Element root, final EbookContentData content)
+	/**
+	 * Writes the values of the numeric statistical attributes and of the controlled vocabulary attributes of an e-book, in the order of
+	 * writeNumericFeatureAttributes()
+	 *
+	 * @param writer The XML stream writer, positioned in the instance element
+	 * @param content The e-book
+	 * @param controlledVocabularyService The controlled vocabulary service, or null if there is no controlled vocabulary
+	 * @param firstIndex The 1-based attribute index of the first value in a sparse instance, or 0 in a normal instance
+	 * @throws XMLStreamException If the values cannot be written
+	 */
+	static void writeNumericFeatureValues(final XMLStreamWriter writer, final EbookContentData content,
+			final ControlledVocabularyService controlledVocabularyService, final int firstIndex) throws XMLStreamException
 	{
-		Element headerElement = new Element("header");
-		root.appendChild(headerElement);
-		
-		Element attributes = new Element("attributes");
-		headerElement.appendChild(attributes);
-		
-		// lemmas and part-of-speech-tags
-		Element lemmas = new Element("attribute");
-		lemmas.addAttribute(new Attribute("name", "lemmas"));
-		lemmas.addAttribute(new Attribute("type", "string"));
-		attributes.appendChild(lemmas);
-		
-		// file size in bytes
-		Element fileSizeElement = new Element("attribute");
-		fileSizeElement.addAttribute(new Attribute("name", "fileSizeInBytes"));
-		fileSizeElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(fileSizeElement);
-		
-		// top-level chapters
-		Element chaptersElement = new Element("attribute");
-		chaptersElement.addAttribute(new Attribute("name", "numberOfTopLevelChapters"));
-		chaptersElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(chaptersElement);
-		
-		// print number of table-of-contents items
-		Element tocCountElement = new Element("attribute");
-		tocCountElement.addAttribute(new Attribute("name", "numberOfTocElements"));
-		tocCountElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(tocCountElement);
-		
-		// print number of table-of-contents depth
-		Element tocDepthElement = new Element("attribute");
-		tocDepthElement.addAttribute(new Attribute("name", "depthOfToc"));
-		tocDepthElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(tocDepthElement);
-		
-		// word per sentence
-		Element wordsPerSentence = new Element("attribute");
-		wordsPerSentence.addAttribute(new Attribute("name", "wordsPerSentence"));
-		wordsPerSentence.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(wordsPerSentence);
-		
-		Element lemmasPerSentence = new Element("attribute");
-		lemmasPerSentence.addAttribute(new Attribute("name", "lemmasToTokensRatio"));
-		lemmasPerSentence.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(lemmasPerSentence);
-		
-		Element uniquePartsOfSpeech = new Element("attribute");
-		uniquePartsOfSpeech.addAttribute(new Attribute("name", "uniquePartsOfSpeech"));
-		uniquePartsOfSpeech.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(uniquePartsOfSpeech);
-		
-		// total number of words
-		Element totalNumberOfWords = new Element("attribute");
-		totalNumberOfWords.addAttribute(new Attribute("name", "totalNumberOfWords"));
-		totalNumberOfWords.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(totalNumberOfWords);
-		
-		// unique number of words
-		Element uniqueNumberOfWords = new Element("attribute");
-		uniqueNumberOfWords.addAttribute(new Attribute("name", "uniqueNumberOfWords"));
-		uniqueNumberOfWords.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(uniqueNumberOfWords);
-		
-		// vocabulary richness
-		Element vocabularyRichness = new Element("attribute");
-		vocabularyRichness.addAttribute(new Attribute("name", "vocabularyRichness"));
-		vocabularyRichness.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(vocabularyRichness);
-		
-		// average word length
-		Element averageWordLength = new Element("attribute");
-		averageWordLength.addAttribute(new Attribute("name", "averageWordLength"));
-		averageWordLength.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(averageWordLength);
-		
-		// ratio of passive sentences
-		Element ratioOfPassiveSentences = new Element("attribute");
-		ratioOfPassiveSentences.addAttribute(new Attribute("name", "ratioOfPassiveSentences"));
-		ratioOfPassiveSentences.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(ratioOfPassiveSentences);
-		
-		// ratio of adjectives element
-		Element adjectivesElement = new Element("attribute");
-		adjectivesElement.addAttribute(new Attribute("name", "ratioOfAdjectives"));
-		adjectivesElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(adjectivesElement);
-		
-		// ratio of adverbs element
-		Element adverbsElement = new Element("attribute");
-		adverbsElement.addAttribute(new Attribute("name", "ratioOfAdverbs"));
-		adverbsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(adverbsElement);
-		
-		// ratio of cardinals element
-		Element cardinalsElement = new Element("attribute");
-		cardinalsElement.addAttribute(new Attribute("name", "ratioOfCardinals"));
-		cardinalsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(cardinalsElement);
-
-		// ratio of foreign language words element
-		Element foreignLanguageWordsElement = new Element("attribute");
-		foreignLanguageWordsElement.addAttribute(new Attribute("name", "ratioOfForeignLanguageWords"));
-		foreignLanguageWordsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(foreignLanguageWordsElement);
-		
-		// ratio of interjections
-		Element interjectionsElement = new Element("attribute");
-		interjectionsElement.addAttribute(new Attribute("name", "ratioOfInterjections"));
-		interjectionsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(interjectionsElement);
-		
-		// ratio of nouns
-		Element nounsElement = new Element("attribute");
-		nounsElement.addAttribute(new Attribute("name", "ratioOfNouns"));
-		nounsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(nounsElement);
-		
-		// ratio of named entities
-		Element namedEntityElement = new Element("attribute");
-		namedEntityElement.addAttribute(new Attribute("name", "ratioOfNamedEntities"));
-		namedEntityElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(namedEntityElement);
-		
-		// ratio of substitutive demonstrative pronouns
-		Element subDemPronElement = new Element("attribute");
-		subDemPronElement.addAttribute(new Attribute("name", "subDemPronRatio"));
-		subDemPronElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(subDemPronElement);
-		
-		// ratio of attributive demonstrative pronouns
-		Element attrDemPronElement = new Element("attribute");
-		attrDemPronElement.addAttribute(new Attribute("name", "attrDemPronRatio"));
-		attrDemPronElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(attrDemPronElement);
-		
-		// ratio of substitutive indefinite pronouns
-		Element subIndefPronElement = new Element("attribute");
-		subIndefPronElement.addAttribute(new Attribute("name", "subIndefPronRatio"));
-		subIndefPronElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(subIndefPronElement);
-		
-		// ratio of attributive indefinite pronouns
-		Element attrIndefPronElement = new Element("attribute");
-		attrIndefPronElement.addAttribute(new Attribute("name", "attrIndefPronRatio"));
-		attrIndefPronElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(attrIndefPronElement);
-
-		// ratio of personal pronouns
-		Element personalPronounElement = new Element("attribute");
-		personalPronounElement.addAttribute(new Attribute("name", "personalPronounRatio"));
-		personalPronounElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(personalPronounElement);
-
-		// ratio of substitutive possessive pronouns
-		Element subPossPronElement = new Element("attribute");
-		subPossPronElement.addAttribute(new Attribute("name", "subPossPronRatio"));
-		subPossPronElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(subPossPronElement);
-		
-		// ratio of attributive possessive pronouns
-		Element attrPossPronElement = new Element("attribute");
-		attrPossPronElement.addAttribute(new Attribute("name", "attrPossPronRatio"));
-		attrPossPronElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(attrPossPronElement);
-		
-		// ratio of substitutive relative pronouns
-		Element subRelPronElement = new Element("attribute");
-		subRelPronElement.addAttribute(new Attribute("name", "subRelPronRatio"));
-		subRelPronElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(subRelPronElement);
-		
-		// ratio of attributive relative pronouns
-		Element attrRelPronElement = new Element("attribute");
-		attrRelPronElement.addAttribute(new Attribute("name", "attrRelPronRatio"));
-		attrRelPronElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(attrRelPronElement);
-
-		// ratio of pronominal adverbs
-		Element pronominalAdverbsElement = new Element("attribute");
-		pronominalAdverbsElement.addAttribute(new Attribute("name", "pronominalAdverbRatio"));
-		pronominalAdverbsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(pronominalAdverbsElement);
-
-		// ratio of interrogative pronoun
-		Element interrogativePronounElement = new Element("attribute");
-		interrogativePronounElement.addAttribute(new Attribute("name", "interrogativePronounRatio"));
-		interrogativePronounElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(interrogativePronounElement);
-		
-		// ratio of negation particles
-		Element negationParticleElement = new Element("attribute");
-		negationParticleElement.addAttribute(new Attribute("name", "negationParticleRatio"));
-		negationParticleElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(negationParticleElement);
-		
-		// ratio of answer particles
-		Element answerParticleElement = new Element("attribute");
-		answerParticleElement.addAttribute(new Attribute("name", "answerParticleRatio"));
-		answerParticleElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(answerParticleElement);
-		
-		// ratio of compound parts
-		Element compoundElement = new Element("attribute");
-		compoundElement.addAttribute(new Attribute("name", "compoundPartRatio"));
-		compoundElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(compoundElement);
-			
-		// ratio of finite main verbs
-		Element finiteMainVerbsElement = new Element("attribute");
-		finiteMainVerbsElement.addAttribute(new Attribute("name", "finiteMainVerbsRatio"));
-		finiteMainVerbsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(finiteMainVerbsElement);
-		
-		// ratio of imperative main verbs
-		Element imperativeMainVerbsElement = new Element("attribute");
-		imperativeMainVerbsElement.addAttribute(new Attribute("name", "imperativeMainVerbsRatio"));
-		imperativeMainVerbsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(imperativeMainVerbsElement);
-		
-		// ratio of infinitive main verbs
-		Element infinitiveMainVerbsElement = new Element("attribute");
-		infinitiveMainVerbsElement.addAttribute(new Attribute("name", "infinitiveMainVerbsRatio"));
-		infinitiveMainVerbsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(infinitiveMainVerbsElement);
-		
-		// ratio of perfect participle main verbs
-		Element perfPartMainVerbsElement = new Element("attribute");
-		perfPartMainVerbsElement.addAttribute(new Attribute("name", "perfectParticipleMainVerbsRatio"));
-		perfPartMainVerbsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(perfPartMainVerbsElement);
-		
-		// ratio of auxiliar verbs
-		Element auxiliarVerbsElement = new Element("attribute");
-		auxiliarVerbsElement.addAttribute(new Attribute("name", "auxiliarVerbsRatio"));
-		auxiliarVerbsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(auxiliarVerbsElement);
+		int index = firstIndex;
+		for(EbookFeature feature : EbookFeature.numericFeatures)
+		{
+			writeValue(writer, feature.getDescription(), feature.getValue(content), index);
+			index = index > 0 ? index + 1 : 0;
+		}
 
-		// ratio of modal verbs
-		Element modalVerbsElement = new Element("attribute");
-		modalVerbsElement.addAttribute(new Attribute("name", "modalVerbsRatio"));
-		modalVerbsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(modalVerbsElement);
-		
-		// ratio of coordinating conjunctions
-		Element coordConjunctionsElement = new Element("attribute");
-		coordConjunctionsElement.addAttribute(new Attribute("name", "coordinatingConjunctionsRatio"));
-		coordConjunctionsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(coordConjunctionsElement);
-		
-		// ratio of subordinating conjunctions
-		Element subordConjunctionsElement = new Element("attribute");
-		subordConjunctionsElement.addAttribute(new Attribute("name", "subordinatingConjunctionsRatio"));
-		subordConjunctionsElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(subordConjunctionsElement);
-		
-		// number of images
-		Element numberOfImagesElement = new Element("attribute");
-		numberOfImagesElement.addAttribute(new Attribute("name", "numberOfImages"));
-		numberOfImagesElement.addAttribute(new Attribute("type", "numeric"));
-		attributes.appendChild(numberOfImagesElement);
-		
 		// handle controlled vocabulary terms, if an appropriate service is defined
 		if(null != controlledVocabularyService)
 		{
@@ -724,100 +261,118 @@ public class XrffFileWriter
 			while(cvIterator.hasNext())
 			{
 				String term = cvIterator.next();
-				Element termElement = new Element("attribute");
-				termElement.addAttribute(new Attribute("name", "cv_" + term));
-				termElement.addAttribute(new Attribute("type", "numeric"));
-				attributes.appendChild(termElement);
+				double numberOfOccurrences = content.getNormalizedLemmaFrequency(term);
+				writeValue(writer, "number of term occurrances for " + term, "" + numberOfOccurrences, index);
+				index = index > 0 ? index + 1 : 0;
 			}
 		}
-		
-		// handle hyperonyms, if they're available
+	}
+
+	/**
+	 * Lists the hyperonyms of an e-book in alphabetical order, each one followed by its relative frequency in an XML comment
+	 *
+	 * @param content The e-book
+	 * @return The hyperonyms, or an empty list if the e-book has no hyperonyms
+	 */
+	static List<String> getHyperonymLines(final EbookContentData content)
+	{
+		List<String> hyperonymLines = new ArrayList<String>();
 		if(null != content.getHyperonymFrequencies())
 		{
-			Element hyperonymElement = new Element("attribute");
-			hyperonymElement.addAttribute(new Attribute("name", "hyperonyms"));
-			hyperonymElement.addAttribute(new Attribute("type", "string"));
-			attributes.appendChild(hyperonymElement);
+			SortedMap<String, Integer> hyperonymFrequencies = content.getHyperonymFrequencies().toSortedMap();
+			int numberOfHyperonyms = hyperonymFrequencies.size();
+			for(Entry<String, Integer> hyperonym : hyperonymFrequencies.entrySet())
+			{
+				hyperonymLines.add(hyperonym.getKey().replace(' ', '_') + " <!-- " + ((double)hyperonym.getValue() / (double)numberOfHyperonyms) + " -->");
+			}
 		}
-		
-		// class element
-		Element classElement = new Element("attribute");
-		classElement.addAttribute(new Attribute("class", "yes"));
-		classElement.addAttribute(new Attribute("name", "class"));
-		classElement.addAttribute(new Attribute("type", "nominal"));
-		attributes.appendChild(classElement);
+		return hyperonymLines;
+	}
+
+	/**
+	 * Determines the relative frequencies of the hyperonyms of an e-book, i.e. the values in the comments of getHyperonymLines()
+	 *
+	 * @param content The e-book
+	 * @return The relative frequencies by hyperonym, with underscores instead of blanks, or an empty map if the e-book has no hyperonyms
+	 */
+	static Map<String, Double> getHyperonymWeights(final EbookContentData content)
+	{
+		Map<String, Double> hyperonymWeights = new HashMap<String, Double>();
+		if(null != content.getHyperonymFrequencies())
+		{
+			SortedMap<String, Integer> hyperonymFrequencies = content.getHyperonymFrequencies().toSortedMap();
+			int numberOfHyperonyms = hyperonymFrequencies.size();
+			for(Entry<String, Integer> hyperonym : hyperonymFrequencies.entrySet())
+			{
+				hyperonymWeights.merge(hyperonym.getKey().replace(' ', '_'), (double)hyperonym.getValue() / (double)numberOfHyperonyms, Double::sum);
+			}
+		}
+		return hyperonymWeights;
 	}
 
-	public void addTfIdfStatistics(final Element root, final EbookContentData content, int wordVectorSize)
+	/**
+	 * Determines the terms of an e-book with the highest TF/IDF values
+	 *
+	 * @param luceneService The Lucene service with an open searcher manager
+	 * @param content The e-book
+	 * @param wordVectorSize The maximum number of terms
+	 * @param logger The logger to be used
+	 * @return The terms and their TF/IDF values, ordered by descending TF/IDF value, or null if the e-book is not in the Lucene index
+	 */
+	static List<Entry<String, TfIdfTuple>> findTopTfIdfTerms(final LuceneService luceneService, final EbookContentData content, final int wordVectorSize,
+			final Logger logger)
 	{
-	    Nodes attributesNode = root.query("/dataset/header/attributes");
-	    Element attributesElement = (Element)attributesNode.get(0);
-	    Element attributeElement = new Element("attribute");
-	    attributeElement.addAttribute(new Attribute("name", "top-idf"));
-	    attributeElement.addAttribute(new Attribute("type", "string"));
-	    attributesElement.insertChild(attributeElement, attributesElement.getChildCount() - 1);
-	    
-	    Nodes instanceNode = root.query("/dataset/body/instances/instance");
-	    Element instanceElement = (Element)instanceNode.get(0);
-	    
+		IndexSearcher isearcher = null;
 		try
 		{
-			IndexReader luceneIndexReader = DirectoryReader.open(luceneIndexDirectory);
+			// the searcher is shared by all XrffFileWriters of the second iteration, so we don't open a new index reader per document
+			isearcher = luceneService.acquireSearcher();
+			IndexReader luceneIndexReader = isearcher.getIndexReader();
 			String documentId = content.getDocumentId();
-			int totalNumberOfDocumentsInLuceneIndex = luceneIndexReader.numDocs();
-			// termThreshold is a value to prevent very rare words to be used in the output. The threshold is at least 2 and grows moderately (i.e. logarithmically) with the number of indexed documents 
-			int termThreshold = 2 + (int)Math.log10(totalNumberOfDocumentsInLuceneIndex);
-			int upperThreshold = totalNumberOfDocumentsInLuceneIndex - (2 * (int)Math.log(totalNumberOfDocumentsInLuceneIndex));
+			// the document frequency window and the inverse document frequencies are calculated once per corpus and shared by all XrffFileWriters
+			InverseDocumentFrequencyTable inverseDocumentFrequencyTable = luceneService.getInverseDocumentFrequencyTable();
 			
 			logger.info(String.format(infoMessagesBundle.getString("avve.extractor.retrievingTfIdfForDocument"), documentId));
 			
-		    IndexSearcher isearcher = new IndexSearcher(luceneIndexReader);
-		    // Parse a simple query that searches for "text":
-		    QueryBuilder queryBuilder = new QueryBuilder(new KeywordAnalyzer());
-		    Query query = queryBuilder.createPhraseQuery("docId", documentId);
-		    
-		    // expecting one hit per document ID
-		    ScoreDoc[] hits = isearcher.search(query, 1).scoreDocs;
-		    if(hits.length > 0)
+		    int luceneDocumentNumber = luceneService.findDocument(isearcher, documentId);
+		    if(luceneDocumentNumber >= 0)
 		    {
-			    Terms terms = luceneIndexReader.getTermVector(hits[0].doc, "fulltext");
+			    Terms terms = luceneIndexReader.getTermVector(luceneDocumentNumber, "fulltext");
 			    // Beware that there may be differences between the tokenization in EbookContentData and in the Lucene index. The programmer should 
 			    // ensure that tokenization is done in a similar way on both sides, so that the number of tokens in EbookContentData is similar with the
 			    // number of tokens in the Lucene index
 		    	int numberOfTermsInFullTextField = content.getNumberOfTokens();
 		    	
-			    long numberOfDocuments = luceneIndexReader.getDocCount("fulltext");
 			    TermsEnum termsEnum = terms.iterator();
 			    BytesRef bytesRefToTerm = null;
-			    SortedMap<String, TfIdfTuple> tfIdfTuples = new TreeMap<String, TfIdfTuple>();
+			    // we only keep the best wordVectorSize terms; the head of the queue is the worst of them
+			    PriorityQueue<Entry<String, TfIdfTuple>> topTfIdfTuples = new PriorityQueue<Entry<String, TfIdfTuple>>(Math.max(wordVectorSize, 1), Collections.reverseOrder(byTfIdfDescending));
 			    
-			    // iterate through all terms in the current document's "fulltext" field
+			    // iterate through all terms in the current document's "fulltext" field (term vectors hold each term only once, in ascending order)
 			    while ((bytesRefToTerm = termsEnum.next()) != null)
 			    {
 			    	String term = bytesRefToTerm.utf8ToString();
 			    	
 			    	// try to get the same term from EbookContentData
-			    	if(content.getLemmaFrequencies().containsKey(term))
+			    	int termFrequencyInDocumentField = content.getLemmaFrequencies().get(term);
+			    	if(termFrequencyInDocumentField > 0)
 			    	{
-			    		int termFrequencyInDocumentField = content.getLemmaFrequencies().get(term);	
-			    		
-				    	// calculate term frequency
-				    	if(tfIdfTuples.containsKey(term))
-				    	{
-				    		// increment term frequency of existing entry
-				    		tfIdfTuples.get(term).incrementTermFrequency(termFrequencyInDocumentField);
-				    	}
-				    	else
-				    	{
-				    		// only use words that don't appear in (nearly) all documents and that appear at least in three documents
-				    		int docFreq = luceneIndexReader.docFreq(new Term("fulltext", bytesRefToTerm));
-				    		if(docFreq > termThreshold && docFreq < upperThreshold)
+			    		// only use words that don't appear in (nearly) all documents and that appear at least in three documents
+			    		if(inverseDocumentFrequencyTable.contains(term))
+			    		{
+				    		double idf = inverseDocumentFrequencyTable.getInverseDocumentFrequency(term);
+				    		Entry<String, TfIdfTuple> candidate = new AbstractMap.SimpleImmutableEntry<String, TfIdfTuple>(term, 
+				    				new TfIdfTuple(termFrequencyInDocumentField, idf, 1.0 / Math.sqrt(numberOfTermsInFullTextField)));
+				    		if(topTfIdfTuples.size() < wordVectorSize)
+				    		{
+				    			topTfIdfTuples.add(candidate);
+				    		}
+				    		else if(wordVectorSize > 0 && byTfIdfDescending.compare(candidate, topTfIdfTuples.peek()) < 0)
 				    		{
-					    		// initialize term frequency and calculate inverse document frequency (only need to do that once per term)
-					    		double idf = 1 + Math.log(numberOfDocuments / docFreq + 1.0);
-					    		tfIdfTuples.put(term, new TfIdfTuple(termFrequencyInDocumentField, idf, 1.0 / Math.sqrt(numberOfTermsInFullTextField)));
+				    			topTfIdfTuples.poll();
+				    			topTfIdfTuples.add(candidate);
 				    		}
-				    	}
+			    		}
 			    	}
 			    	else
 			    	{
@@ -825,41 +380,12 @@ public class XrffFileWriter
 			    	}
 			    }
 			    
-			    List<Entry<String, TfIdfTuple>> sortedByIdfDescending = new ArrayList<Entry<String, TfIdfTuple>>(tfIdfTuples.entrySet());
-			    
-			    Collections.sort(sortedByIdfDescending, new Comparator<Entry<String, TfIdfTuple>>()
-			    {
-			    	@Override
-			    	public int compare(Entry<String, TfIdfTuple> e1, Entry<String, TfIdfTuple> e2)
-			    	{
-			    		return e2.getValue().compareTo(e1.getValue());
-			    	}
-			    });
-			    
-			    int numberOfIdfValuesToInclude = sortedByIdfDescending.size() > wordVectorSize ? wordVectorSize : sortedByIdfDescending.size();
-			    
-			    Element newValueElement = new Element("value");
-			    Comment newValueComment = new Comment("[index] term - normalizedTfIdfValue - idf - term frequency");
-			    newValueElement.appendChild(newValueComment);
-			    newValueElement.appendChild(new Text(System.lineSeparator()));
-			    for(int i = 0; i < numberOfIdfValuesToInclude; i++ )
-			    {
-			    	String term = sortedByIdfDescending.get(i).getKey();
-			    	Node termText = new Text(term);
-			    	Node termComment = new Comment("[" + i + "] - "
-			    			+ sortedByIdfDescending.get(i).getValue().getNormalizedTfIdfValue() + " - "
-			    			+ sortedByIdfDescending.get(i).getValue().getInverseDocumentFrequency() + " - "
-			    			+ sortedByIdfDescending.get(i).getValue().getTermFrequency()
-			    			);
-			    	newValueElement.appendChild(termComment);
-			    	newValueElement.appendChild(termText);
-			    	newValueElement.appendChild(new Text(System.lineSeparator()));
-			    }
-			    instanceElement.insertChild(newValueElement, instanceElement.getChildCount() - 1);
+			    List<Entry<String, TfIdfTuple>> sortedByIdfDescending = new ArrayList<Entry<String, TfIdfTuple>>(topTfIdfTuples);
+			    Collections.sort(sortedByIdfDescending, byTfIdfDescending);
+			    return sortedByIdfDescending;
 		    }
 		    else
 		    {
-		    	instanceElement.insertChild(new Element("value"), instanceElement.getChildCount() - 1);
 		    	logger.debug(String.format(infoMessagesBundle.getString("avve.extractor.couldNotFindDocumentInLuceneIndex"), documentId));		    	
 		    }
 	    }
@@ -871,17 +397,102 @@ public class XrffFileWriter
 		{
 			logger.error(errorMessageBundle.getString("avve.extractor.luceneIndexAccessError"), exc);
 		}
+		finally
+		{
+			if(null != isearcher)
+			{
+				luceneService.releaseSearcher(isearcher);
+			}
+		}
+		return null;
+	}
+	
+	// without TF/IDF values, the top-idf value is empty
+	static void writeTfIdfStatistics(final XMLStreamWriter writer, final List<Entry<String, TfIdfTuple>> topTfIdfTerms) throws XMLStreamException
+	{
+		writeLineBreak(writer, 4);
+		if(null == topTfIdfTerms)
+		{
+			writer.writeEmptyElement("value");
+			return;
+		}
+		
+		writer.writeStartElement("value");
+		writer.writeComment("[index] term - normalizedTfIdfValue - idf - term frequency");
+		writer.writeCharacters(System.lineSeparator());
+		for(int i = 0; i < topTfIdfTerms.size(); i++ )
+		{
+			TfIdfTuple tfIdfTuple = topTfIdfTerms.get(i).getValue();
+			writer.writeComment("[" + i + "] - "
+					+ tfIdfTuple.getNormalizedTfIdfValue() + " - "
+					+ tfIdfTuple.getInverseDocumentFrequency() + " - "
+					+ tfIdfTuple.getTermFrequency()
+					);
+			writer.writeCharacters(topTfIdfTerms.get(i).getKey());
+			writer.writeCharacters(System.lineSeparator());
+		}
+		writer.writeEndElement();
+	}
+	
+	static void writeAttributeDefinition(final XMLStreamWriter writer, final String name, final String type) throws XMLStreamException
+	{
+		writeLineBreak(writer, 3);
+		writer.writeEmptyElement("attribute");
+		writer.writeAttribute("name", name);
+		writer.writeAttribute("type", type);
+	}
+	
+	// indents the next element by four spaces per level
+	static void writeLineBreak(final XMLStreamWriter writer, final int level) throws XMLStreamException
+	{
+		writer.writeCharacters(System.lineSeparator() + indentation.substring(0, 4 * level));
+	}
+	
+	static void writeValue(final XMLStreamWriter writer, final String comment, final String value) throws XMLStreamException
+	{
+		writeValue(writer, comment, value, 0);
+	}
+	
+	// the index is the 1-based attribute index of a value in a sparse instance, or 0 in a normal instance
+	static void writeValue(final XMLStreamWriter writer, final String comment, final String value, final int index) throws XMLStreamException
+	{
+		writeLineBreak(writer, 4);
+		writer.writeStartElement("value");
+		if(index > 0)
+		{
+			writer.writeAttribute("index", "" + index);
+		}
+		if(null != comment)
+		{
+			writer.writeComment(comment);
+		}
+		writer.writeCharacters(value);
+		writer.writeEndElement();
 	}
 	
 	private final ControlledVocabularyService controlledVocabularyService;
 	private final String filePath;
 	private final FileService fileService;
 	private final Logger logger;
-	private final Directory luceneIndexDirectory;
+	private final LuceneService luceneService;
+	
+	// orders by normalized TF/IDF value, descending; ties are ordered by term, so that the order doesn't depend on the order of insertion
+	private static final Comparator<Entry<String, TfIdfTuple>> byTfIdfDescending = new Comparator<Entry<String, TfIdfTuple>>()
+	{
+		@Override
+		public int compare(Entry<String, TfIdfTuple> e1, Entry<String, TfIdfTuple> e2)
+		{
+			int comparison = e2.getValue().compareTo(e1.getValue());
+			return comparison != 0 ? comparison : e1.getKey().compareTo(e2.getKey());
+		}
+	};
 	
 	private static final ResourceBundle errorMessageBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
 	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
 	
+	private static final String indentation = "                        ";
+	private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+	
 	public static final String dtd = "<!DOCTYPE dataset [" + System.lineSeparator() + 
 			"<!ELEMENT dataset (header,body)>" + System.lineSeparator() + 
 			"<!ATTLIST dataset name CDATA #REQUIRED>" + System.lineSeparator() + 
@@ -912,4 +523,7 @@ public class XrffFileWriter
 			"<!ATTLIST value index CDATA #IMPLIED>   <!-- 1-based index (only used for instance format \"sparse\") -->" + System.lineSeparator() + 
 			"<!ATTLIST value missing (yes|no) \"no\">" + System.lineSeparator() + 
 			"]>";
+	
+	// written before the dataset element of every file
+	static final String xmlDeclarationAndDoctype = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + System.lineSeparator() + dtd + System.lineSeparator();
 }
\ No newline at end of file
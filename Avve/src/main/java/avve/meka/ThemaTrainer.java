@@ -43,6 +43,7 @@ import weka.filters.unsupervised.attribute.StringToWordVector;
  * ThemaTrainer first unifies the class sets of the two files and removes those classes whose number of instances is below a given
  * threshold. It then combines the two files for building a common word vector, then separates
  * them again and builds a MEKA Binary Relevance model with the training data. Then it runs an evaluation on the testing data.
+ * Files written with the -tv parameter already contain term vectors, so the word vector step is skipped for them.
  * The evaluation is posted to the command line and to the log file.
  *  
  * @author Kai Weber
@@ -198,43 +199,56 @@ public class ThemaTrainer
 		    
 		    // Open question: Do we want to remove instances without any class labels left?
 
-		    // we need to calculate the word vector on the union of train and test instances
-		    // so we set a flag first to be able to separate those two sets again later
-		    addTrainingSetFlag(filteredTrainingSet, true);
-		    addTrainingSetFlag(filteredTestingSet, false);
+		    // files written by EpubExtractor with the -tv option already carry the term vectors of a corpus-wide dictionary, and the
+		    // attribute intersection above has reduced them to the terms present in both files, so they need no re-vectorising
+		    Instances wordVectorizedTrainingSet;
+		    Instances wordVectorizedTestingSet;
+		    if(filteredTrainingSet.attribute("hyperonyms") == null && filteredTrainingSet.attribute("top-idf") == null)
+		    {
+		    	logger.info(infoMessagesBundle.getString("avve.meka.usingTermVectors"));
+		    	wordVectorizedTrainingSet = filteredTrainingSet;
+		    	wordVectorizedTestingSet = filteredTestingSet;
+		    }
+		    else
+		    {
+			    // we need to calculate the word vector on the union of train and test instances
+			    // so we set a flag first to be able to separate those two sets again later
+			    addTrainingSetFlag(filteredTrainingSet, true);
+			    addTrainingSetFlag(filteredTestingSet, false);
 		    
-		    // combine the training and testing sets
-		    Instances combinedTrainAndTestSet = new Instances(filteredTrainingSet);
-		    combinedTrainAndTestSet.addAll(filteredTestingSet);
+			    // combine the training and testing sets
+			    Instances combinedTrainAndTestSet = new Instances(filteredTrainingSet);
+			    combinedTrainAndTestSet.addAll(filteredTestingSet);
 		    
-		    // Transform String attributes to word vectors for hyperonyms
-		    Instances combinedHyperonymSet = stringAttributeToWordVector("hyperonyms", "hy_", combinedTrainAndTestSet);
+			    // Transform String attributes to word vectors for hyperonyms
+			    Instances combinedHyperonymSet = stringAttributeToWordVector("hyperonyms", "hy_", combinedTrainAndTestSet);
 		    
-		    // Transform String attributes to word vectors for normal word vector
-		    Instances combinedWordVectorizedSet = stringAttributeToWordVector("top-idf", "wv_", combinedHyperonymSet);
+			    // Transform String attributes to word vectors for normal word vector
+			    Instances combinedWordVectorizedSet = stringAttributeToWordVector("top-idf", "wv_", combinedHyperonymSet);
 		    
-		    // separate the training and testing set again
-		    Instances wordVectorizedTrainingSet = new Instances(combinedWordVectorizedSet, 0);
-		    Instances wordVectorizedTestingSet = new Instances(combinedWordVectorizedSet, 0);
-		    int trainingFlagIndex = combinedWordVectorizedSet.attribute(TRAINING_FLAG_NAME).index();
+			    // separate the training and testing set again
+			    wordVectorizedTrainingSet = new Instances(combinedWordVectorizedSet, 0);
+			    wordVectorizedTestingSet = new Instances(combinedWordVectorizedSet, 0);
+			    int trainingFlagIndex = combinedWordVectorizedSet.attribute(TRAINING_FLAG_NAME).index();
 		    		
-		    for(Instance instance : combinedWordVectorizedSet)
-		    {
-		    	if(instance.value(trainingFlagIndex) != 0.0)
-		    	{
-		    		wordVectorizedTrainingSet.add(instance);
-		    	}
-		    	else
-		    	{
-		    		wordVectorizedTestingSet.add(instance);
-		    	}
-		    }
-		    combinedWordVectorizedSet.clear();
+			    for(Instance instance : combinedWordVectorizedSet)
+			    {
+			    	if(instance.value(trainingFlagIndex) != 0.0)
+			    	{
+			    		wordVectorizedTrainingSet.add(instance);
+			    	}
+			    	else
+			    	{
+			    		wordVectorizedTestingSet.add(instance);
+			    	}
+			    }
+			    combinedWordVectorizedSet.clear();
 		                                                                                                         
-    		// instantiate an attribute filter         
-    		removeTrainingSetFlag("Avve multilabel training set", wordVectorizedTrainingSet);
-    		removeTrainingSetFlag("Avve multilabel testing set", wordVectorizedTestingSet);                                                                 
-    		                    
+	    		// instantiate an attribute filter         
+	    		removeTrainingSetFlag("Avve multilabel training set", wordVectorizedTrainingSet);
+	    		removeTrainingSetFlag("Avve multilabel testing set", wordVectorizedTestingSet);
+		    }
+
 		    // Dump cleaned training and test set files
 		    ArffSaver saver = new ArffSaver();
 		    saver.setFile(new File("tmp_train.arff"));
@@ -0,0 +1,20 @@
+package avve.services;
+
+/**
+ * The data of an EbookContentData object which preprocessing stages read or populate. Used for declaring the inputs and outputs of the
+ * stages of a PreprocessingPipeline.
+ *
+ * @author Kai Weber
+ *
+ */
+public enum ContentDataField
+{
+	PLAINTEXT,
+	SENTENCES,
+	TOKENS,
+	WORDFREQUENCIES,
+	PARTSOFSPEECH,
+	LEMMAS,
+	LEMMAFREQUENCIES,
+	HYPERONYMFREQUENCIES;
+}
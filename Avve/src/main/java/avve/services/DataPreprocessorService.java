@@ -5,53 +5,38 @@ import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
-import org.apache.commons.cli.CommandLine;
 import org.apache.logging.log4j.Logger;
 
 import avve.epubhandling.EbookContentData;
-import avve.extractor.CommandLineArguments;
 import avve.textpreprocess.*;
 
 /**
  * This service orchestrates a list of text preprocessing services for an e-book file and provides a preProcessText() method
  * that iterates through the configured preprocessors one after another. The preprocessors all modify or populate certain
  * data in an EbookContentData object.
- * 
+ *
+ * The preprocessors are the stages of a PreprocessingPipeline. The time each stage takes is recorded in a StageTimings object,
+ * which may be shared by the services of several threads, and logged per e-book.
+ *
  * @author Kai Weber
  *
  */
 public class DataPreprocessorService
-{	
-	public DataPreprocessorService(final Logger logservice, final CommandLine cliArguments)
+{
+	public DataPreprocessorService(final PreprocessingPipeline pipeline, final PreprocessingContext context, final StageTimings stageTimings)
 	{
-		this.logger = logservice;
-		
+		this.logger = context.getLogger();
+		this.stageTimings = stageTimings;
+
 		logger.info(infoMessagesBundle.getString("avve.services.configuringDataPrepreprocessorService"));
-		
-		preprocessorQueue = new ArrayList<TextPreprocessor>(12);
-		
-		// TODO: for the time being, just configure the services here; if useful, refactor later to an approach using external configuration
-		if(cliArguments.hasOption(CommandLineArguments.NORMALIZEURLS.toString()))
-		{
-			preprocessorQueue.add(new UrlNormalizer(logger));
-		}
-		preprocessorQueue.add(new SentenceDetectorPreprocessor(logger));
-		preprocessorQueue.add(new TextTokenizer(logger));
-		preprocessorQueue.add(new RemovePunctuationPreprocessor(logger));
-		if(cliArguments.hasOption(CommandLineArguments.NOLIGATURES.toString()))
-		{
-			preprocessorQueue.add(new ReplaceLigaturesPreprocessor(logger));
-		}
-		preprocessorQueue.add(new WordFrequencyPreprocessor(logger));
-		preprocessorQueue.add(new PartOfSpeechTagger(logger, cliArguments));
-		preprocessorQueue.add(new NumberProcessor());
-		preprocessorQueue.add(new Lemmatizer(logger, cliArguments));
-		if(cliArguments.hasOption(CommandLineArguments.USETHESAURUS.toString()))
+
+		stages = pipeline.getStages();
+		preprocessorQueue = new ArrayList<TextPreprocessor>(stages.size());
+		for(PreprocessingStage stage : stages)
 		{
-			preprocessorQueue.add(new HyperonymPreprocessor(logger));
+			preprocessorQueue.add(stage.createPreprocessor(context));
 		}
-		// preprocessorQueue.add(new ToLowerCasePreprocessor(logger));
-		
+
 		for(TextPreprocessor preprocessor : preprocessorQueue)
 		{
 			logger.info(String.format(infoMessagesBundle.getString("avve.services.textpreProcessorAdded"), preprocessor.getName()));
@@ -67,14 +52,27 @@ public class DataPreprocessorService
 	 */
 	public void preProcessText(final EbookContentData ebookContentData)
 	{
-		for(TextPreprocessor preprocessor : preprocessorQueue)
+		StringBuilder stageSummary = new StringBuilder();
+		long bookStart = System.nanoTime();
+		for(int i = 0; i < preprocessorQueue.size(); i++)
 		{
-			preprocessor.process(ebookContentData);
+			long stageStart = System.nanoTime();
+			preprocessorQueue.get(i).process(ebookContentData);
+			long stageTime = System.nanoTime() - stageStart;
+
+			stageTimings.record(stages.get(i), stageTime);
+			stageSummary.append(i == 0 ? "" : ", ").append(preprocessorQueue.get(i).getName()).append(' ').append(stageTime / 1000000).append(" ms");
 		}
+		long bookTime = System.nanoTime() - bookStart;
+		stageTimings.recordBook(bookTime);
+
+		logger.info(String.format(infoMessagesBundle.getString("avve.services.bookPreprocessingTimes"), ebookContentData.getDocumentId(), bookTime / 1000000, stageSummary));
 	}
-	
+
 	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
-	
+
 	private Logger logger;
 	private List<TextPreprocessor> preprocessorQueue;
-}
\ No newline at end of file
+	private StageTimings stageTimings;
+	private List<PreprocessingStage> stages;
+}
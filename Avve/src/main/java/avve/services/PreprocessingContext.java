@@ -0,0 +1,70 @@
+package avve.services;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.logging.log4j.Logger;
+
+import avve.textpreprocess.LemmaCache;
+import avve.textpreprocess.SentenceChunkExecutor;
+import avve.textpreprocess.TreeTaggerPool;
+import avve.textpreprocess.hyperonym.ThesaurusBackend;
+
+/**
+ * The resources the preprocessing stages are created with: the command line arguments and the objects that are shared by the
+ * preprocessor chains of all threads.
+ *
+ * @author Kai Weber
+ *
+ */
+public class PreprocessingContext
+{
+	public PreprocessingContext(final Logger logger, final CommandLine cliArguments, final TreeTaggerPool treeTaggerPool, final LemmaCache lemmaCache,
+			final SentenceChunkExecutor chunkExecutor, final ThesaurusBackend thesaurusBackend)
+	{
+		this.chunkExecutor = chunkExecutor;
+		this.cliArguments = cliArguments;
+		this.lemmaCache = lemmaCache;
+		this.logger = logger;
+		this.thesaurusBackend = thesaurusBackend;
+		this.treeTaggerPool = treeTaggerPool;
+	}
+
+	public SentenceChunkExecutor getChunkExecutor()
+	{
+		return chunkExecutor;
+	}
+
+	public CommandLine getCliArguments()
+	{
+		return cliArguments;
+	}
+
+	public LemmaCache getLemmaCache()
+	{
+		return lemmaCache;
+	}
+
+	public Logger getLogger()
+	{
+		return logger;
+	}
+
+	/**
+	 * @return The thesaurus backend, or null if the pipeline doesn't use a thesaurus
+	 */
+	public ThesaurusBackend getThesaurusBackend()
+	{
+		return thesaurusBackend;
+	}
+
+	public TreeTaggerPool getTreeTaggerPool()
+	{
+		return treeTaggerPool;
+	}
+
+	private final SentenceChunkExecutor chunkExecutor;
+	private final CommandLine cliArguments;
+	private final LemmaCache lemmaCache;
+	private final Logger logger;
+	private final ThesaurusBackend thesaurusBackend;
+	private final TreeTaggerPool treeTaggerPool;
+}
@@ -0,0 +1,155 @@
+package avve.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import org.apache.commons.cli.CommandLine;
+
+import avve.extractor.CommandLineArguments;
+
+/**
+ * An ordered list of preprocessing stages, which the DataPreprocessorService runs on every e-book. A pipeline is either built via
+ * PreprocessingPipeline.builder(), read from a pipeline file (command line parameter -pipeline) or derived from the command line
+ * arguments (defaultPipeline()).
+ *
+ * When a pipeline is built, it is validated against the inputs and outputs the stages declare: every input of a stage must be the
+ * e-book's plain text or the output of an earlier stage.
+ *
+ * A pipeline file lists one stage name per line (see PreprocessingStage, case is ignored); empty lines and lines starting with # are skipped.
+ *
+ * @author Kai Weber
+ *
+ */
+public class PreprocessingPipeline
+{
+	private static final ResourceBundle errorMessageBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
+
+	/**
+	 * Builds a pipeline stage by stage
+	 */
+	public static class Builder
+	{
+		private Builder()
+		{
+		}
+
+		public Builder add(final PreprocessingStage stage)
+		{
+			stages.add(stage);
+			return this;
+		}
+
+		/**
+		 * @return The new pipeline
+		 * @throws IllegalArgumentException If a stage's input is not available at the stage's position in the pipeline
+		 */
+		public PreprocessingPipeline build()
+		{
+			Set<ContentDataField> availableFields = EnumSet.of(ContentDataField.PLAINTEXT);
+			for(PreprocessingStage stage : stages)
+			{
+				for(ContentDataField input : stage.getInputs())
+				{
+					if(!availableFields.contains(input))
+					{
+						throw new IllegalArgumentException(String.format(errorMessageBundle.getString("avve.services.pipelineInputMissing"), stage, input));
+					}
+				}
+				availableFields.addAll(stage.getOutputs());
+			}
+			return new PreprocessingPipeline(stages);
+		}
+
+		private final List<PreprocessingStage> stages = new ArrayList<PreprocessingStage>();
+	}
+
+	private PreprocessingPipeline(final List<PreprocessingStage> stages)
+	{
+		this.stages = Collections.unmodifiableList(new ArrayList<PreprocessingStage>(stages));
+	}
+
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	/**
+	 * @param cliArguments The command line arguments
+	 * @return The pipeline configured by the command line flags, as used when no pipeline file is given
+	 */
+	public static PreprocessingPipeline defaultPipeline(final CommandLine cliArguments)
+	{
+		Builder builder = builder();
+		if(cliArguments.hasOption(CommandLineArguments.NORMALIZEURLS.toString()))
+		{
+			builder.add(PreprocessingStage.URLNORMALIZER);
+		}
+		builder.add(PreprocessingStage.SENTENCEDETECTOR)
+			.add(PreprocessingStage.TOKENIZER)
+			// removes punctuation and, if requested, replaces ligatures in one pass (replacing RemovePunctuationPreprocessor and ReplaceLigaturesPreprocessor)
+			.add(PreprocessingStage.TOKENNORMALIZATION)
+			.add(PreprocessingStage.WORDFREQUENCY)
+			.add(PreprocessingStage.PARTOFSPEECHTAGGER)
+			.add(PreprocessingStage.NUMBERPROCESSOR)
+			.add(PreprocessingStage.LEMMATIZER);
+		if(cliArguments.hasOption(CommandLineArguments.USETHESAURUS.toString()))
+		{
+			builder.add(PreprocessingStage.HYPERONYMS);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @param pipelineFile A UTF-8 text file with one stage name per line
+	 * @return The pipeline defined in the file
+	 * @throws IOException If the file cannot be read
+	 * @throws IllegalArgumentException If the file contains an unknown stage name or the pipeline is not valid
+	 */
+	public static PreprocessingPipeline fromFile(final Path pipelineFile) throws IOException
+	{
+		Builder builder = builder();
+		try (BufferedReader reader = Files.newBufferedReader(pipelineFile, StandardCharsets.UTF_8))
+		{
+			String line;
+			while((line = reader.readLine()) != null)
+			{
+				line = line.trim();
+				if(!line.isEmpty() && !line.startsWith("#"))
+				{
+					try
+					{
+						builder.add(PreprocessingStage.valueOf(line.toUpperCase(Locale.ROOT)));
+					}
+					catch (IllegalArgumentException exc)
+					{
+						throw new IllegalArgumentException(String.format(errorMessageBundle.getString("avve.services.pipelineStageUnknown"), line, pipelineFile), exc);
+					}
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	public List<PreprocessingStage> getStages()
+	{
+		return stages;
+	}
+
+	@Override
+	public String toString()
+	{
+		return stages.toString();
+	}
+
+	private final List<PreprocessingStage> stages;
+}
@@ -0,0 +1,77 @@
+package avve.services;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Function;
+
+import avve.extractor.CommandLineArguments;
+import avve.textpreprocess.*;
+
+/**
+ * The registry of all text preprocessors that can be used as stages of a PreprocessingPipeline, with the EbookContentData fields each
+ * of them requires as input and populates as output, and a factory for creating the preprocessor.
+ *
+ * @author Kai Weber
+ *
+ */
+public enum PreprocessingStage
+{
+	URLNORMALIZER(EnumSet.of(ContentDataField.PLAINTEXT), EnumSet.of(ContentDataField.PLAINTEXT),
+			context -> new UrlNormalizer(context.getLogger())),
+	TOLOWERCASE(EnumSet.of(ContentDataField.PLAINTEXT), EnumSet.of(ContentDataField.PLAINTEXT),
+			context -> new ToLowerCasePreprocessor(context.getLogger())),
+	SENTENCEDETECTOR(EnumSet.of(ContentDataField.PLAINTEXT), EnumSet.of(ContentDataField.SENTENCES),
+			context -> new SentenceDetectorPreprocessor(context.getLogger())),
+	TOKENIZER(EnumSet.of(ContentDataField.SENTENCES), EnumSet.of(ContentDataField.TOKENS),
+			context -> new TextTokenizer(context.getLogger(), context.getChunkExecutor())),
+	TOKENNORMALIZATION(EnumSet.of(ContentDataField.TOKENS), EnumSet.of(ContentDataField.TOKENS),
+			context -> new TokenNormalizationPreprocessor(context.getLogger(),
+					context.getCliArguments().hasOption(CommandLineArguments.NOLIGATURES.toString()), context.getChunkExecutor())),
+	REMOVEPUNCTUATION(EnumSet.of(ContentDataField.TOKENS), EnumSet.of(ContentDataField.TOKENS),
+			context -> new RemovePunctuationPreprocessor(context.getLogger())),
+	REPLACELIGATURES(EnumSet.of(ContentDataField.TOKENS), EnumSet.of(ContentDataField.TOKENS),
+			context -> new ReplaceLigaturesPreprocessor(context.getLogger())),
+	WORDFREQUENCY(EnumSet.of(ContentDataField.TOKENS), EnumSet.of(ContentDataField.WORDFREQUENCIES),
+			context -> new WordFrequencyPreprocessor(context.getLogger())),
+	PARTOFSPEECHTAGGER(EnumSet.of(ContentDataField.TOKENS), EnumSet.of(ContentDataField.PARTSOFSPEECH),
+			context -> new PartOfSpeechTagger(context.getLogger(), context.getCliArguments(), context.getChunkExecutor())),
+	NUMBERPROCESSOR(EnumSet.of(ContentDataField.PLAINTEXT, ContentDataField.TOKENS), EnumSet.of(ContentDataField.PLAINTEXT, ContentDataField.TOKENS),
+			context -> new NumberProcessor()),
+	LEMMATIZER(EnumSet.of(ContentDataField.TOKENS, ContentDataField.PARTSOFSPEECH), EnumSet.of(ContentDataField.LEMMAS, ContentDataField.LEMMAFREQUENCIES),
+			context -> new Lemmatizer(context.getLogger(), context.getCliArguments(), context.getTreeTaggerPool(), context.getLemmaCache(),
+					context.getChunkExecutor())),
+	HYPERONYMS(EnumSet.of(ContentDataField.TOKENS), EnumSet.of(ContentDataField.HYPERONYMFREQUENCIES),
+			context -> new HyperonymPreprocessor(context.getLogger(), context.getThesaurusBackend()));
+
+	private PreprocessingStage(final Set<ContentDataField> inputs, final Set<ContentDataField> outputs,
+			final Function<PreprocessingContext, TextPreprocessor> factory)
+	{
+		this.inputs = Collections.unmodifiableSet(inputs);
+		this.outputs = Collections.unmodifiableSet(outputs);
+		this.factory = factory;
+	}
+
+	/**
+	 * @param context The shared resources for the new preprocessor
+	 * @return A new preprocessor for this stage
+	 */
+	public TextPreprocessor createPreprocessor(final PreprocessingContext context)
+	{
+		return factory.apply(context);
+	}
+
+	public Set<ContentDataField> getInputs()
+	{
+		return inputs;
+	}
+
+	public Set<ContentDataField> getOutputs()
+	{
+		return outputs;
+	}
+
+	private final Function<PreprocessingContext, TextPreprocessor> factory;
+	private final Set<ContentDataField> inputs;
+	private final Set<ContentDataField> outputs;
+}
@@ -0,0 +1,145 @@
+package avve.services;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the processing times of the preprocessing stages, and of the whole preprocessing of each e-book, over a run. The times are
+ * kept in histograms with power-of-two buckets (in microseconds), so the memory needed doesn't depend on the number of books. All
+ * methods can be called from several threads concurrently.
+ *
+ * At the end of a run, writeJsonReport() writes the number of books, total, mean and maximum times and approximate percentiles (the upper
+ * bound of the bucket the percentile falls into, capped at the maximum) for each stage.
+ *
+ * @author Kai Weber
+ *
+ */
+public class StageTimings
+{
+	private static final int NUMBER_OF_BUCKETS = 40;
+
+	public StageTimings()
+	{
+		for(PreprocessingStage stage : PreprocessingStage.values())
+		{
+			stageHistograms.put(stage, new Histogram());
+		}
+	}
+
+	/**
+	 * @param stage A preprocessing stage
+	 * @param nanoseconds The time the stage took for one e-book
+	 */
+	public void record(final PreprocessingStage stage, final long nanoseconds)
+	{
+		stageHistograms.get(stage).record(nanoseconds);
+	}
+
+	/**
+	 * @param nanoseconds The time all stages took for one e-book
+	 */
+	public void recordBook(final long nanoseconds)
+	{
+		bookHistogram.record(nanoseconds);
+	}
+
+	/**
+	 * Writes a JSON report of the stage timings recorded so far
+	 *
+	 * @param writer The writer for the report; it is not closed by this method
+	 * @throws IOException If writing fails
+	 */
+	public void writeJsonReport(final Writer writer) throws IOException
+	{
+		writer.write("{\n  \"books\": ");
+		bookHistogram.writeJson(writer, "  ");
+		writer.write(",\n  \"stages\": {");
+		String separator = "\n";
+		for(Map.Entry<PreprocessingStage, Histogram> stageEntry : stageHistograms.entrySet())
+		{
+			if(stageEntry.getValue().count.sum() > 0)
+			{
+				writer.write(separator + "    \"" + stageEntry.getKey() + "\": ");
+				stageEntry.getValue().writeJson(writer, "    ");
+				separator = ",\n";
+			}
+		}
+		writer.write("\n  }\n}\n");
+		writer.flush();
+	}
+
+	private static class Histogram
+	{
+		void record(final long nanoseconds)
+		{
+			long microseconds = nanoseconds / 1000;
+			// bucket i holds the times below 2^i microseconds (and at least 2^(i-1) microseconds)
+			int bucket = Math.min(64 - Long.numberOfLeadingZeros(microseconds), NUMBER_OF_BUCKETS - 1);
+			buckets.incrementAndGet(bucket);
+			count.increment();
+			totalNanoseconds.add(nanoseconds);
+			maximumNanoseconds.accumulate(nanoseconds);
+		}
+
+		// returns the upper bound of the bucket in which the given share of all recorded times falls, but no more than the maximum time
+		double getPercentileMilliseconds(final double share)
+		{
+			long threshold = (long)Math.ceil(share * count.sum());
+			long cumulatedCount = 0;
+			for(int i = 0; i < NUMBER_OF_BUCKETS; i++)
+			{
+				cumulatedCount += buckets.get(i);
+				if(cumulatedCount >= threshold && cumulatedCount > 0)
+				{
+					return Math.min((1L << i) / 1000.0, maximumNanoseconds.get() / 1e6);
+				}
+			}
+			return 0.0;
+		}
+
+		void writeJson(final Writer writer, final String indentation) throws IOException
+		{
+			long numberOfRecords = count.sum();
+			long total = totalNanoseconds.sum();
+			writer.write("{\n");
+			writer.write(indentation + "  \"count\": " + numberOfRecords + ",\n");
+			writer.write(indentation + "  \"totalMillis\": " + formatMilliseconds(total / 1e6) + ",\n");
+			writer.write(indentation + "  \"meanMillis\": " + formatMilliseconds(numberOfRecords == 0 ? 0.0 : total / 1e6 / numberOfRecords) + ",\n");
+			writer.write(indentation + "  \"maxMillis\": " + formatMilliseconds(maximumNanoseconds.get() / 1e6) + ",\n");
+			writer.write(indentation + "  \"p50Millis\": " + formatMilliseconds(getPercentileMilliseconds(0.5)) + ",\n");
+			writer.write(indentation + "  \"p90Millis\": " + formatMilliseconds(getPercentileMilliseconds(0.9)) + ",\n");
+			writer.write(indentation + "  \"p99Millis\": " + formatMilliseconds(getPercentileMilliseconds(0.99)) + ",\n");
+			writer.write(indentation + "  \"histogram\": [");
+			String separator = "";
+			for(int i = 0; i < NUMBER_OF_BUCKETS; i++)
+			{
+				long bucketCount = buckets.get(i);
+				if(bucketCount > 0)
+				{
+					writer.write(separator + "{ \"belowMicros\": " + (1L << i) + ", \"count\": " + bucketCount + " }");
+					separator = ", ";
+				}
+			}
+			writer.write("]\n" + indentation + "}");
+		}
+
+		private static String formatMilliseconds(final double milliseconds)
+		{
+			return String.format(Locale.ROOT, "%.3f", milliseconds);
+		}
+
+		private final AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+		private final LongAdder count = new LongAdder();
+		private final LongAccumulator maximumNanoseconds = new LongAccumulator(Math::max, 0L);
+		private final LongAdder totalNanoseconds = new LongAdder();
+	}
+
+	private final Histogram bookHistogram = new Histogram();
+	private final Map<PreprocessingStage, Histogram> stageHistograms = new EnumMap<PreprocessingStage, Histogram>(PreprocessingStage.class);
+}
@@ -0,0 +1,449 @@
+package avve.services;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.logging.log4j.Logger;
+
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.Serializer;
+
+/**
+ * Merges the per-book XRFF files of the statistics folder (output/stats) into a single XRFF file for Weka or a single multi-label ARFF file
+ * for Meka. The files are read one after the other with StAX and their instances are appended to the output stream, so the memory needed
+ * doesn't depend on the number of books. The attributes of the merged file are taken from the header of the first file; the headers of the
+ * other files are checked against it.
+ *
+ * The output is the same as the one of the XSLT scripts Merge_statistics_files.xsl and Merge_multiclass_files.xsl used before: the files are
+ * read in the same order, and the XRFF file is written by the same (Saxon) serializer. As with the scripts, the first (lemmas) value of each
+ * instance is left out.
+ *
+ * @author Kai Weber
+ *
+ */
+public class StatisticsFileMerger
+{
+	private static final ResourceBundle errorMessagesBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
+	private static final String xmlDeclaration = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+	// the internal DTD subset of the merged XRFF file, as written by Merge_statistics_files.xsl
+	private static final String dtd = "\n<!DOCTYPE dataset [\n"
+			+ "<!ELEMENT dataset (header,body)> <!ATTLIST dataset name CDATA #REQUIRED> <!ATTLIST dataset version CDATA \"3.5.4\"> <!ELEMENT header (notes?,attributes)> <!ELEMENT body (instances)> <!ELEMENT notes ANY> <!-- comments, information, copyright, etc. -->\n"
+			+ "<!ELEMENT attributes (attribute+)> <!ELEMENT attribute (labels?,metadata?,attributes?)> <!ATTLIST attribute name CDATA #REQUIRED> <!ATTLIST attribute type (numeric|date|nominal|string|relational) #REQUIRED> <!ATTLIST attribute format CDATA #IMPLIED>\n"
+			+ "<!ATTLIST attribute class (yes|no) \"no\"> <!ELEMENT labels (label*)> <!-- only for type \"nominal\" --> <!ELEMENT label ANY> <!ELEMENT metadata (property*)> <!ELEMENT property ANY> <!ATTLIST property name CDATA #REQUIRED> <!ELEMENT instances (instance*)>\n"
+			+ "<!ELEMENT instance (value*)> <!ATTLIST instance type (normal|sparse) \"normal\"> <!ATTLIST instance weight CDATA #IMPLIED> <!ELEMENT value (#PCDATA|instances)*> <!ATTLIST value index CDATA #IMPLIED> <!-- 1-based index (only used for instance format\n"
+			+ "\"sparse\") --> <!ATTLIST value missing (yes|no) \"no\"> ]>\n"
+			+ "  ";
+
+	/**
+	 * Constructor
+	 * @param statsDirectory The folder with the per-book XRFF files; its subfolders are searched, too
+	 * @param logger The logger to be used
+	 */
+	public StatisticsFileMerger(final File statsDirectory, final Logger logger)
+	{
+		this.statsDirectory = statsDirectory;
+		this.logger = logger;
+		xmlInputFactory = XMLInputFactory.newInstance();
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	}
+
+	/**
+	 * Writes all instances to a single XRFF file
+	 *
+	 * @param classLabels The labels of the nominal class attribute, as a list of comma-separated labels
+	 * @param outputFile The merged XRFF file
+	 * @throws IOException If a file cannot be read or written
+	 */
+	public void writeXrffFile(final Collection<String> classLabels, final File outputFile) throws IOException
+	{
+		List<File> statisticsFiles = getStatisticsFiles();
+		List<String[]> attributes = statisticsFiles.isEmpty() ? new ArrayList<String[]>() : readAttributes(statisticsFiles.get(0));
+
+		try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(outputFile), 65536))
+		{
+			outputStream.write((xmlDeclaration + dtd).getBytes(StandardCharsets.UTF_8));
+			Serializer serializer = new Processor(false).newSerializer(outputStream);
+			serializer.setOutputProperty(Serializer.Property.METHOD, "xml");
+			serializer.setOutputProperty(Serializer.Property.ENCODING, "UTF-8");
+			serializer.setOutputProperty(Serializer.Property.INDENT, "yes");
+			serializer.setOutputProperty(Serializer.Property.OMIT_XML_DECLARATION, "yes");
+			XMLStreamWriter writer = serializer.getXMLStreamWriter();
+
+			writer.writeStartDocument();
+			writer.writeStartElement("dataset");
+			writer.writeAttribute("name", "avve");
+			writer.writeStartElement("header");
+			writer.writeStartElement("attributes");
+			for(String[] attribute : getFeatureAttributes(attributes))
+			{
+				writer.writeEmptyElement("attribute");
+				writer.writeAttribute("name", attribute[0]);
+				writer.writeAttribute("type", attribute[1]);
+			}
+			writer.writeStartElement("attribute");
+			writer.writeAttribute("class", "yes");
+			writer.writeAttribute("name", "class");
+			writer.writeAttribute("type", "nominal");
+			writer.writeStartElement("labels");
+			// each class name may consist of several comma-separated labels
+			String commaSeparatedLabels = String.join(",", classLabels);
+			List<String> labels = new ArrayList<String>();
+			if(!commaSeparatedLabels.isEmpty())
+			{
+				labels.addAll(Arrays.asList(commaSeparatedLabels.split(",", -1)));
+			}
+			Collections.sort(labels);
+			for(String label : labels)
+			{
+				writer.writeStartElement("label");
+				writer.writeCharacters(normalizeSpace(label));
+				writer.writeEndElement();
+			}
+			writer.writeEndElement();
+			writer.writeEndElement();
+			writer.writeEndElement();
+			writer.writeEndElement();
+
+			writer.writeStartElement("body");
+			writer.writeStartElement("instances");
+			for(File statisticsFile : statisticsFiles)
+			{
+				copyXrffInstances(statisticsFile, attributes, writer);
+			}
+			writer.writeEndElement();
+			writer.writeEndElement();
+			writer.writeEndElement();
+			writer.writeEndDocument();
+			writer.close();
+		}
+		catch (SaxonApiException | XMLStreamException exc)
+		{
+			throw new IOException(exc.getLocalizedMessage(), exc);
+		}
+	}
+
+	/**
+	 * Writes all instances to a single multi-label ARFF file for Meka, with one binary attribute per class label
+	 *
+	 * @param classLabels The class labels
+	 * @param outputFile The merged ARFF file
+	 * @throws IOException If a file cannot be read or written
+	 */
+	public void writeMultiClassArffFile(final Collection<String> classLabels, final File outputFile) throws IOException
+	{
+		List<File> statisticsFiles = getStatisticsFiles();
+		List<String[]> attributes = statisticsFiles.isEmpty() ? new ArrayList<String[]>() : readAttributes(statisticsFiles.get(0));
+
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8), 65536))
+		{
+			writer.write("@relation \"Avve multiclass dataset: -C " + classLabels.size() + "\"\n\n");
+			for(String classLabel : classLabels)
+			{
+				writer.write("@attribute " + classLabel + " {0, 1}\n");
+			}
+			for(String[] attribute : getFeatureAttributes(attributes))
+			{
+				writer.write("@attribute " + attribute[0] + " " + attribute[1] + "\n");
+			}
+			writer.write("\n@data");
+
+			for(File statisticsFile : statisticsFiles)
+			{
+				writeArffInstances(statisticsFile, attributes, classLabels, writer);
+			}
+		}
+		catch (XMLStreamException exc)
+		{
+			throw new IOException(exc.getLocalizedMessage(), exc);
+		}
+	}
+
+	// copies the instances of a file, without their attributes and without the first value
+	private void copyXrffInstances(final File statisticsFile, final List<String[]> attributes, final XMLStreamWriter writer)
+			throws IOException, XMLStreamException
+	{
+		try (InputStream inputStream = new FileInputStream(statisticsFile))
+		{
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(statisticsFile.toURI().toString(), inputStream);
+			List<String[]> fileAttributes = new ArrayList<String[]>();
+			while(reader.hasNext())
+			{
+				if(reader.next() == XMLStreamConstants.START_ELEMENT)
+				{
+					if(reader.getLocalName().equals("attribute"))
+					{
+						fileAttributes.add(readAttribute(reader));
+					}
+					else if(reader.getLocalName().equals("instance"))
+					{
+						checkAttributes(statisticsFile, attributes, fileAttributes);
+						writer.writeComment(statisticsFile.toURI() + "|" + nullToEmpty(reader.getAttributeValue(null, "documentId")));
+						writer.writeStartElement("instance");
+						copyValues(reader, writer);
+						writer.writeEndElement();
+					}
+				}
+			}
+			reader.close();
+		}
+	}
+
+	// copies the comments and text of all but the first value of an instance
+	private static void copyValues(final XMLStreamReader reader, final XMLStreamWriter writer) throws XMLStreamException
+	{
+		int numberOfValues = 0;
+		int depth = 0;
+		boolean copying = false;
+		while(true)
+		{
+			int event = reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT)
+			{
+				depth++;
+				if(depth == 1 && reader.getLocalName().equals("value") && ++numberOfValues > 1)
+				{
+					writer.writeStartElement("value");
+					copying = true;
+				}
+			}
+			else if(event == XMLStreamConstants.END_ELEMENT)
+			{
+				if(depth == 0)
+				{
+					return;
+				}
+				if(depth == 1 && copying)
+				{
+					writer.writeEndElement();
+					copying = false;
+				}
+				depth--;
+			}
+			else if(copying && depth == 1)
+			{
+				if(event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.CDATA)
+				{
+					writer.writeCharacters(reader.getText());
+				}
+				else if(event == XMLStreamConstants.COMMENT)
+				{
+					writer.writeComment(reader.getText());
+				}
+			}
+		}
+	}
+
+	// writes one data line per instance: the class flags followed by all but the first and the last (class) value
+	private void writeArffInstances(final File statisticsFile, final List<String[]> attributes, final Collection<String> classLabels, final Writer writer)
+			throws IOException, XMLStreamException
+	{
+		try (InputStream inputStream = new FileInputStream(statisticsFile))
+		{
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(statisticsFile.toURI().toString(), inputStream);
+			List<String[]> fileAttributes = new ArrayList<String[]>();
+			while(reader.hasNext())
+			{
+				if(reader.next() == XMLStreamConstants.START_ELEMENT)
+				{
+					if(reader.getLocalName().equals("attribute"))
+					{
+						fileAttributes.add(readAttribute(reader));
+					}
+					else if(reader.getLocalName().equals("instance"))
+					{
+						checkAttributes(statisticsFile, attributes, fileAttributes);
+						writer.write("\n% " + statisticsFile.toURI() + "|" + nullToEmpty(reader.getAttributeValue(null, "documentId")) + "\n");
+						List<String> values = readValues(reader);
+						String classes = "," + (values.isEmpty() ? "" : values.get(values.size() - 1)) + ",";
+						for(String classLabel : classLabels)
+						{
+							writer.write(classes.contains("," + classLabel + ",") ? "1," : "0,");
+						}
+						for(int i = 1; i < values.size() - 1; i++)
+						{
+							writer.write("\"" + values.get(i) + "\"");
+							if(i < values.size() - 2)
+							{
+								writer.write(",");
+							}
+						}
+					}
+				}
+			}
+			reader.close();
+		}
+	}
+
+	// returns the whitespace-normalized text of the values of an instance; the text of the first value is not needed and not kept
+	private static List<String> readValues(final XMLStreamReader reader) throws XMLStreamException
+	{
+		List<String> values = new ArrayList<String>();
+		StringBuilder value = new StringBuilder();
+		int depth = 0;
+		while(true)
+		{
+			int event = reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT)
+			{
+				if(++depth == 1)
+				{
+					value.setLength(0);
+				}
+			}
+			else if(event == XMLStreamConstants.END_ELEMENT)
+			{
+				if(depth == 0)
+				{
+					return values;
+				}
+				if(depth-- == 1)
+				{
+					values.add(values.isEmpty() ? "" : normalizeSpace(value));
+				}
+			}
+			else if(depth > 0 && !values.isEmpty() && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE
+					|| event == XMLStreamConstants.CDATA))
+			{
+				value.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+			}
+		}
+	}
+
+	private void checkAttributes(final File statisticsFile, final List<String[]> attributes, final List<String[]> fileAttributes)
+	{
+		boolean sameAttributes = fileAttributes.size() == attributes.size();
+		for(int i = 0; sameAttributes && i < attributes.size(); i++)
+		{
+			sameAttributes = Arrays.equals(attributes.get(i), fileAttributes.get(i));
+		}
+		if(!sameAttributes)
+		{
+			logger.warn(String.format(errorMessagesBundle.getString("avve.services.statisticsFileHeaderMismatch"), statisticsFile));
+		}
+	}
+
+	// the attributes of the merged files leave out the first (lemmas) and the last (class) attribute of the per-book files
+	private static List<String[]> getFeatureAttributes(final List<String[]> attributes)
+	{
+		return attributes.size() < 2 ? new ArrayList<String[]>() : attributes.subList(1, attributes.size() - 1);
+	}
+
+	// the XRFF files in the statistics folder and its subfolders, in the order in which the directories list them (like XSLT's collection())
+	private List<File> getStatisticsFiles()
+	{
+		List<File> statisticsFiles = new ArrayList<File>();
+		addStatisticsFiles(statsDirectory, statisticsFiles);
+		return statisticsFiles;
+	}
+
+	private static void addStatisticsFiles(final File directory, final List<File> statisticsFiles)
+	{
+		File[] files = directory.listFiles();
+		if(null != files)
+		{
+			for(File file : files)
+			{
+				if(file.isDirectory())
+				{
+					addStatisticsFiles(file, statisticsFiles);
+				}
+				else if(file.getName().endsWith(".xml"))
+				{
+					statisticsFiles.add(file);
+				}
+			}
+		}
+	}
+
+	// reads the name and type of the attributes in the header of a file
+	private List<String[]> readAttributes(final File statisticsFile) throws IOException
+	{
+		List<String[]> attributes = new ArrayList<String[]>();
+		try (InputStream inputStream = new FileInputStream(statisticsFile))
+		{
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(statisticsFile.toURI().toString(), inputStream);
+			while(reader.hasNext())
+			{
+				if(reader.next() == XMLStreamConstants.START_ELEMENT)
+				{
+					if(reader.getLocalName().equals("attribute"))
+					{
+						attributes.add(readAttribute(reader));
+					}
+					else if(reader.getLocalName().equals("body"))
+					{
+						break;
+					}
+				}
+			}
+			reader.close();
+		}
+		catch (XMLStreamException exc)
+		{
+			throw new IOException(exc.getLocalizedMessage(), exc);
+		}
+		return attributes;
+	}
+
+	private static String[] readAttribute(final XMLStreamReader reader)
+	{
+		return new String[] { nullToEmpty(reader.getAttributeValue(null, "name")), nullToEmpty(reader.getAttributeValue(null, "type")) };
+	}
+
+	// XPath's normalize-space(): removes leading and trailing whitespace and collapses inner whitespace to single spaces
+	static String normalizeSpace(final CharSequence text)
+	{
+		StringBuilder normalizedText = new StringBuilder(text.length());
+		boolean whitespace = false;
+		for(int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			if(c == ' ' || c == '\t' || c == '\n' || c == '\r')
+			{
+				whitespace = normalizedText.length() > 0;
+			}
+			else
+			{
+				if(whitespace)
+				{
+					normalizedText.append(' ');
+					whitespace = false;
+				}
+				normalizedText.append(c);
+			}
+		}
+		return normalizedText.toString();
+	}
+
+	private static String nullToEmpty(final String value)
+	{
+		return null == value ? "" : value;
+	}
+
+	private final Logger logger;
+	private final File statsDirectory;
+	private final XMLInputFactory xmlInputFactory;
+}
@@ -0,0 +1,192 @@
+package avve.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A streaming (SAX based) extractor for the plain text of (X)HTML content documents. It produces the same text as XmlService's
+ * textExtractionFromHtml stylesheet, but it doesn't build any document tree, so memory consumption doesn't grow with the size of
+ * the content document. The extracted text is appended to a buffer handed in by the caller.
+ *
+ * The rules, in descending order of precedence (mirroring the template order of the stylesheet):
+ * - head, style and script elements are skipped with all their content
+ * - sup elements are skipped with all their content
+ * - span elements with a class of reg-begriff1 to reg-begriff4 are skipped with all their content
+ * - td elements and elements with a class of left2 are surrounded by blanks
+ * - br elements are replaced by a line break
+ * - p and div elements are preceded by a blank and followed by a line break
+ *
+ * Instances are not thread-safe, as they keep the state of the document being parsed.
+ *
+ * @author Kai Weber
+ *
+ */
+public class XhtmlTextExtractor extends DefaultHandler
+{
+	private static final String LINE_BREAK = "\r\n ";
+
+	private static final int PASS_THROUGH = 0;
+	private static final int PARAGRAPH = 1;
+	private static final int CELL = 2;
+	private static final int BREAK = 3;
+	private static final int SUPPRESSED = 4;
+
+	public XhtmlTextExtractor(final XMLReader xmlReader)
+	{
+		this.xmlReader = xmlReader;
+		xmlReader.setContentHandler(this);
+	}
+
+	/**
+	 * Parses the (X)HTML document from the input stream and appends its text content to the target buffer
+	 *
+	 * @param inStream The content document
+	 * @param target The buffer to append the text to
+	 * @throws IOException If the input stream cannot be read
+	 * @throws SAXException If the content document is not well-formed
+	 */
+	public void extractText(final InputStream inStream, final StringBuilder target) throws IOException, SAXException
+	{
+		this.target = target;
+		try
+		{
+			xmlReader.parse(new InputSource(inStream));
+		}
+		finally
+		{
+			this.target = null;
+		}
+	}
+
+	@Override
+	public void startDocument()
+	{
+		depth = 0;
+		suppressedDepth = 0;
+	}
+
+	@Override
+	public void startElement(final String uri, final String localName, final String qName, final Attributes attributes)
+	{
+		if(suppressedDepth > 0)
+		{
+			suppressedDepth++;
+			return;
+		}
+
+		int mode = determineMode(localName.isEmpty() ? qName : localName, attributes.getValue("", "class"));
+		switch(mode)
+		{
+			case SUPPRESSED:
+				suppressedDepth = 1;
+				return;
+			case BREAK:
+				// the stylesheet's br template doesn't apply templates to the element's content
+				target.append(LINE_BREAK);
+				suppressedDepth = 1;
+				return;
+			case PARAGRAPH:
+			case CELL:
+				target.append(' ');
+				break;
+			default:
+				break;
+		}
+
+		if(depth == modeStack.length)
+		{
+			int[] newStack = new int[modeStack.length * 2];
+			System.arraycopy(modeStack, 0, newStack, 0, modeStack.length);
+			modeStack = newStack;
+		}
+		modeStack[depth++] = mode;
+	}
+
+	@Override
+	public void endElement(final String uri, final String localName, final String qName)
+	{
+		if(suppressedDepth > 0)
+		{
+			suppressedDepth--;
+			return;
+		}
+
+		switch(modeStack[--depth])
+		{
+			case PARAGRAPH:
+				target.append(LINE_BREAK);
+				break;
+			case CELL:
+				target.append(' ');
+				break;
+			default:
+				break;
+		}
+	}
+
+	@Override
+	public void characters(final char[] characters, final int start, final int length)
+	{
+		if(suppressedDepth == 0)
+		{
+			target.append(characters, start, length);
+		}
+	}
+
+	@Override
+	public void ignorableWhitespace(final char[] characters, final int start, final int length)
+	{
+		// XOM keeps ignorable whitespace as text nodes, so the stylesheet outputs it, too
+		characters(characters, start, length);
+	}
+
+	private int determineMode(final String elementName, final String classAttribute)
+	{
+		switch(elementName)
+		{
+			case "head":
+			case "style":
+			case "script":
+			case "sup":
+				return SUPPRESSED;
+			case "span":
+				if("reg-begriff1".equals(classAttribute) || "reg-begriff2".equals(classAttribute) || "reg-begriff3".equals(classAttribute) || "reg-begriff4".equals(classAttribute))
+				{
+					return SUPPRESSED;
+				}
+				break;
+			case "td":
+				return CELL;
+			default:
+				break;
+		}
+
+		if("left2".equals(classAttribute))
+		{
+			return CELL;
+		}
+
+		switch(elementName)
+		{
+			case "br":
+				return BREAK;
+			case "p":
+			case "div":
+				return PARAGRAPH;
+			default:
+				return PASS_THROUGH;
+		}
+	}
+
+	private int depth;
+	private int[] modeStack = new int[64];
+	private int suppressedDepth;
+	private StringBuilder target;
+	private XMLReader xmlReader;
+}
@@ -2,8 +2,6 @@ package avve.services;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collection;
@@ -55,6 +53,7 @@ public class XmlService
 	private FileService fileService;
 	private Logger logger;
 	private Processor saxonProcessor;
+	private XhtmlTextExtractor xhtmlTextExtractor;
 
 	public XmlService(FileService fileService, Logger logservice)
 	{
@@ -67,9 +66,11 @@ public class XmlService
 		CatalogManager xmlCatalogManager = new CatalogManager();
 		this.xmlCatalogResolver = new CatalogResolver(xmlCatalogManager);
 		XMLReader xmlReader = null;
+		XMLReader textExtractionXmlReader = null;
 		try
 		{
 			xmlReader = XMLReaderFactory.createXMLReader();
+			textExtractionXmlReader = XMLReaderFactory.createXMLReader();
 		}
 		catch (SAXException e)
 		{
@@ -78,6 +79,8 @@ public class XmlService
 		}
 		xmlReader.setEntityResolver(xmlCatalogResolver);
 		xomXmlParser = new Builder(xmlReader);
+		textExtractionXmlReader.setEntityResolver(xmlCatalogResolver);
+		xhtmlTextExtractor = new XhtmlTextExtractor(textExtractionXmlReader);
 		
 		saxonProcessor = new Processor(false);
 	}
@@ -119,7 +122,14 @@ public class XmlService
 		LocalDateTime timePoint = LocalDateTime.now();
 		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd-HHmmss");
 		
-		runXsltAndWriteOutputFile(classes, this.getClass().getClassLoader().getResourceAsStream("xml/Merge_statistics_files.xsl"), new File("output/result_" + timePoint.format(formatter) + ".xrff"));
+		try
+		{
+			new StatisticsFileMerger(new File("output/stats"), logger).writeXrffFile(classes, new File("output/result_" + timePoint.format(formatter) + ".xrff"));
+		}
+		catch(IOException exc)
+		{
+			logger.error(exc.getLocalizedMessage(), exc);
+		}
 	}
 
 	public void createCombinedMultiClassFile(Collection<String> collectionOfClassNames)
@@ -142,7 +152,14 @@ public class XmlService
 		LocalDateTime timePoint = LocalDateTime.now();
 		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd-HHmmss");
 		
-		runXsltAndWriteOutputFile(uniqueClassLabels, this.getClass().getClassLoader().getResourceAsStream("xml/Merge_multiclass_files.xsl"), new File("output/result_" + timePoint.format(formatter) + ".arff"));
+		try
+		{
+			new StatisticsFileMerger(new File("output/stats"), logger).writeMultiClassArffFile(uniqueClassLabels, new File("output/result_" + timePoint.format(formatter) + ".arff"));
+		}
+		catch(IOException exc)
+		{
+			logger.error(exc.getLocalizedMessage(), exc);
+		}
 	}
 	
 	public String evaluateXpath(Document xmlDocument, String xPathExpression, String namespacePrefix, String nameSpaceUri)
@@ -173,6 +190,27 @@ public class XmlService
 		}
 	}
 	
+	/**
+	 * Streams the text content of an (X)HTML document into the target buffer, without building a document tree. The result is the same
+	 * as the one of extractTextFromXhtml(Document). If the document cannot be parsed, nothing is appended.
+	 * 
+	 * @param inStream The (X)HTML content document
+	 * @param target The buffer to append the text to
+	 */
+	public void extractTextFromXhtml(final InputStream inStream, final StringBuilder target)
+	{
+		int chapterStart = target.length();
+		try
+		{
+			xhtmlTextExtractor.extractText(inStream, target);
+		}
+		catch (SAXException | IOException exc)
+		{
+			logger.error(exc.getLocalizedMessage());
+			target.setLength(chapterStart);
+		}
+	}
+	
 	public String extractTextFromXhtml(Document contentDocument)
 	{
 		StringWriter stringWriter = new StringWriter();
@@ -181,7 +219,7 @@ public class XmlService
         System.setProperty("javax.xml.transform.TransformerFactory", "net.sf.saxon.TransformerFactoryImpl");
 		TransformerFactory transformerFactory = TransformerFactory.newInstance();
 		
-		synchronized(this)
+		synchronized(XmlService.class)
 		{
 			// we cache the xslt stylesheet in a static variable, so we only need to compile it once
 			if(null == stylesheet)
@@ -224,51 +262,32 @@ public class XmlService
 		return stringWriter.toString();
 	}
 	
-    private synchronized DOMImplementation getDefaultDOMImplementation()
+    private DOMImplementation getDefaultDOMImplementation()
     {
-        if (domImplementation == null)
+        // the DOM implementation is cached in a static variable, so we lock on the class rather than on this instance
+        synchronized(XmlService.class)
         {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-
-            try
+            if (domImplementation == null)
             {
-            	domImplementation = factory.newDocumentBuilder().getDOMImplementation();
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
 
+                try
+                {
+                	domImplementation = factory.newDocumentBuilder().getDOMImplementation();
+
+                }
+                catch (ParserConfigurationException exc)
+                {
+                	// TODO: get message from resource bundle
+                    logger.error("Unable to get default DOM implementation", exc);
+                }
             }
-            catch (ParserConfigurationException exc)
-            {
-            	// TODO: get message from resource bundle
-                logger.error("Unable to get default DOM implementation", exc);
-            }
-        }
 
-        return domImplementation;
+            return domImplementation;
+        }
     }
     
-	private void runXsltAndWriteOutputFile(Collection<String> classes, InputStream xsltStream, File outputFile)
-	{
-		TransformerFactory transformerFactory = TransformerFactory.newInstance();
-		InputStream xmlDummyInputStream = this.getClass().getClassLoader().getResourceAsStream("xml/dummy.xml");
-		
-		try
-		{	
-			Path directory = Paths.get("output/stats");
-			Transformer transformer = transformerFactory.newTransformer(new StreamSource(xsltStream));
-			transformer.setParameter("sourceFolder", directory.toAbsolutePath().toUri());
-			transformer.setParameter("classLabels", String.join(",", classes));
-			transformer.transform(new StreamSource(xmlDummyInputStream), new StreamResult(outputFile));
-		}
-		catch(TransformerConfigurationException exc)
-		{
-			logger.error(exc.getLocalizedMessage(), exc);
-		}
-		catch(TransformerException exc)
-		{
-			logger.error(exc.getLocalizedMessage(), exc);
-		}
-	}
-	
 	private static String textExtractionFromHtml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + 
 			"<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\" xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">" + 
 			"<xsl:output method=\"text\" encoding=\"UTF-8\"/>" +
@@ -0,0 +1,117 @@
+package avve.services.lucene;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * A corpus-level table of inverse document frequencies for the terms of the Lucene index' full text field. The table is computed once
+ * after indexing and can then be shared by all threads, as it is never modified.
+ *
+ * Only terms within the document frequency window are kept: Very rare terms (not more than termThreshold documents) and terms
+ * that appear in (nearly) all documents (upperThreshold documents or more) are not suitable for the top-idf word vector.
+ *
+ * @author Kai Weber
+ *
+ */
+public class InverseDocumentFrequencyTable
+{
+	private InverseDocumentFrequencyTable(final long numberOfDocuments, final int termThreshold, final int upperThreshold)
+	{
+		this.numberOfDocuments = numberOfDocuments;
+		this.termThreshold = termThreshold;
+		this.upperThreshold = upperThreshold;
+		this.inverseDocumentFrequencies = new HashMap<String, Double>();
+	}
+
+	/**
+	 * Reads the document frequencies of all terms in a field of the index and calculates the inverse document frequencies
+	 *
+	 * @param luceneIndexReader The index reader
+	 * @param fieldName The name of the field, usually "fulltext"
+	 * @return The inverse document frequency table
+	 * @throws IOException If the index cannot be read
+	 */
+	public static InverseDocumentFrequencyTable build(final IndexReader luceneIndexReader, final String fieldName) throws IOException
+	{
+		int totalNumberOfDocumentsInLuceneIndex = luceneIndexReader.numDocs();
+		// termThreshold is a value to prevent very rare words to be used in the output. The threshold is at least 2 and grows moderately (i.e. logarithmically) with the number of indexed documents
+		int termThreshold = 2 + (int)Math.log10(totalNumberOfDocumentsInLuceneIndex);
+		int upperThreshold = totalNumberOfDocumentsInLuceneIndex - (2 * (int)Math.log(totalNumberOfDocumentsInLuceneIndex));
+		long numberOfDocuments = luceneIndexReader.getDocCount(fieldName);
+
+		InverseDocumentFrequencyTable table = new InverseDocumentFrequencyTable(numberOfDocuments, termThreshold, upperThreshold);
+
+		Terms terms = MultiFields.getTerms(luceneIndexReader, fieldName);
+		if(null != terms)
+		{
+			TermsEnum termsEnum = terms.iterator();
+			BytesRef bytesRefToTerm = null;
+			while ((bytesRefToTerm = termsEnum.next()) != null)
+			{
+				// only use words that don't appear in (nearly) all documents and that appear at least in three documents
+				int docFreq = termsEnum.docFreq();
+				if(docFreq > termThreshold && docFreq < upperThreshold)
+				{
+					double idf = 1 + Math.log(numberOfDocuments / docFreq + 1.0);
+					table.inverseDocumentFrequencies.put(bytesRefToTerm.utf8ToString(), idf);
+				}
+			}
+		}
+
+		return table;
+	}
+
+	/**
+	 * @param term A term of the full text field
+	 * @return true, if the term's document frequency is within the window of usable terms
+	 */
+	public boolean contains(final String term)
+	{
+		return inverseDocumentFrequencies.containsKey(term);
+	}
+
+	/**
+	 * @param term A term of the full text field
+	 * @return The inverse document frequency of the term, or 0.0 if the term is outside the window of usable terms
+	 */
+	public double getInverseDocumentFrequency(final String term)
+	{
+		Double idf = inverseDocumentFrequencies.get(term);
+		return null == idf ? 0.0 : idf;
+	}
+
+	public long getNumberOfDocuments()
+	{
+		return numberOfDocuments;
+	}
+
+	/**
+	 * @return The number of terms within the window of usable terms
+	 */
+	public int getNumberOfTerms()
+	{
+		return inverseDocumentFrequencies.size();
+	}
+
+	public int getTermThreshold()
+	{
+		return termThreshold;
+	}
+
+	public int getUpperThreshold()
+	{
+		return upperThreshold;
+	}
+
+	private final Map<String, Double> inverseDocumentFrequencies;
+	private final long numberOfDocuments;
+	private final int termThreshold;
+	private final int upperThreshold;
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
@@ -13,20 +14,39 @@ import org.apache.lucene.analysis.miscellaneous.LengthFilterFactory;
 import org.apache.lucene.analysis.standard.*;
 import org.apache.lucene.document.*;
 import org.apache.lucene.index.*;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.*;
 
 import avve.epubhandling.EbookContentData;
 import avve.services.FileService;
 
+/**
+ * This service manages the Lucene index, which holds the lemmatized texts of all e-books of an extraction run for TF/IDF retrieval.
+ * 
+ * @author Kai Weber
+ *
+ */
 public class LuceneService
 {
 	private static final ResourceBundle errorMessageBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
 	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
 	
 	private static String indexDirectory = "output/index";
+	static final String documentIdFieldName = "docId";
+	static final String fullTextFieldName = "fulltext";
 	
 	private Logger logger;
 	private FileService fileService;
+	private int commitInterval = 0;
+	private AtomicInteger numberOfUncommittedDocuments = new AtomicInteger();
+	private Analyzer indexWriterAnalyzer;
+	private volatile IndexWriter indexWriter;
+	private Directory directory;
+	private volatile SearcherManager searcherManager;
+	private InverseDocumentFrequencyTable inverseDocumentFrequencyTable;
 	
 	public LuceneService(final Logger logger, final FileService fileService)
 	{
@@ -34,82 +54,164 @@ public class LuceneService
 		this.logger = logger;
 	}
 	
-	public void addTextToLuceneIndex(final EbookContentData ebookContent, final String language, final boolean excludeForeignWords)
-	{		
-		IndexWriter iwriter = null;
+	/**
+	 * Opens the index writer for an extraction run. The writer stays open until closeIndexWriter() is called, so that documents are only
+	 * appended to the writer's RAM buffer instead of being committed one by one. If no writer has been opened explicitly, the first
+	 * call to addTextToLuceneIndex() opens it.
+	 * 
+	 * @param language The language of the documents to be indexed; determines the Lucene analyzer used by the writer
+	 */
+	public synchronized void openIndexWriter(final String language)
+	{
+		if(null != indexWriter)
+		{
+			return;
+		}
 		
-		try(Analyzer analyzer = getLuceneAnalyzer(language))
-		{
-		    Directory directory = getLuceneIndexDirectory();
-		    IndexWriterConfig config = new IndexWriterConfig(analyzer);
-		    
-		    int retryCount = 0;
-		    while(null == iwriter && retryCount < 5)
-		    {
-			    try
-			    {
-				    iwriter = new IndexWriter(directory, config);	
-			    }
-			    catch(LockObtainFailedException exc)
-			    {
-			    	retryCount++;
-			    	try
-			    	{
-						Thread.sleep((int)Math.pow(10, retryCount));
-					}
-			    	catch (InterruptedException iexc)
-			    	{
-			    		// ignore
-					}
-			    }
-		    }
-
-		    Document luceneDocument = new Document();
-		    
-		    // arrange the document id field
-		    FieldType documentIdFieldType = new FieldType();
-		    documentIdFieldType.setIndexOptions(IndexOptions.DOCS_AND_FREQS);
-		    documentIdFieldType.setStored(true);
-		    documentIdFieldType.setStoreTermVectors(false);
-		    documentIdFieldType.setTokenized(false);
-		    Field documentIdField = new Field("docId", ebookContent.getDocumentId(), documentIdFieldType);
-		    luceneDocument.add(documentIdField);
-		    
-		    // arrange the text content field
-		    FieldType luceneFieldType = new FieldType();
-		    luceneFieldType.setIndexOptions(IndexOptions.DOCS_AND_FREQS);
-		    luceneFieldType.setStored(false);
-		    luceneFieldType.setStoreTermVectors(true);
-		    luceneFieldType.setTokenized(true);
-		    Field fullTextField = null;
-		    if(excludeForeignWords)
-		    {
-		    	fullTextField = new Field("fulltext", ebookContent.getLemmatizedTextWithoutForeignWords(), luceneFieldType);
-		    }
-		    else
-		    {
-		    	fullTextField = new Field("fulltext", ebookContent.getLemmatizedText(), luceneFieldType);
-		    }
-		    
-		    luceneDocument.add(fullTextField);
-		    
-			if(null != iwriter)
+		indexWriterAnalyzer = getLuceneAnalyzer(language);
+		Directory directory = getLuceneIndexDirectory();
+		IndexWriterConfig config = new IndexWriterConfig(indexWriterAnalyzer);
+		
+		int retryCount = 0;
+		while(null == indexWriter && retryCount < 5)
+		{
+			try
 			{
-				iwriter.updateDocument(new Term(ebookContent.getDocumentId()), luceneDocument);
-			    iwriter.close();
+				indexWriter = new IndexWriter(directory, config);	
 			}
-			else
+			catch(LockObtainFailedException exc)
+			{
+				retryCount++;
+				try
+				{
+					Thread.sleep((int)Math.pow(10, retryCount));
+				}
+				catch (InterruptedException iexc)
+				{
+					// ignore
+				}
+			}
+			catch(IOException exc)
+			{
+				logger.error(String.format(errorMessageBundle.getString("avve.services.lucene.indexWriterOpenError"), Paths.get(indexDirectory)), exc);
+				break;
+			}
+		}
+		
+		if(null == indexWriter)
+		{
+			fileService.safeClose(indexWriterAnalyzer);
+			indexWriterAnalyzer = null;
+		}
+	}
+	
+	/**
+	 * Sets the number of documents after which the index writer commits its changes. A value of 0 or less means that changes are only
+	 * committed when the writer is closed.
+	 * 
+	 * @param commitInterval The number of documents between two commits
+	 */
+	public void setCommitInterval(final int commitInterval)
+	{
+		this.commitInterval = commitInterval;
+	}
+	
+	/**
+	 * Adds an e-book's lemmatized text to the index, replacing an earlier version of the same document. This method may be called
+	 * concurrently from several threads.
+	 */
+	public void addTextToLuceneIndex(final EbookContentData ebookContent, final String language, final boolean excludeForeignWords)
+	{
+		if(null == indexWriter)
+		{
+			openIndexWriter(language);
+		}
+		
+		IndexWriter iwriter = indexWriter;
+		if(null == iwriter)
+		{
+			logger.error(String.format(errorMessageBundle.getString("avve.extractor.luceneIndexWritingError"), ebookContent.getDocumentId()));
+			return;
+		}
+		
+		Document luceneDocument = new Document();
+		
+		// arrange the document id field
+		FieldType documentIdFieldType = new FieldType();
+		documentIdFieldType.setIndexOptions(IndexOptions.DOCS_AND_FREQS);
+		documentIdFieldType.setStored(true);
+		documentIdFieldType.setStoreTermVectors(false);
+		documentIdFieldType.setTokenized(false);
+		Field documentIdField = new Field(documentIdFieldName, ebookContent.getDocumentId(), documentIdFieldType);
+		luceneDocument.add(documentIdField);
+		
+		// arrange the text content field
+		FieldType luceneFieldType = new FieldType();
+		luceneFieldType.setIndexOptions(IndexOptions.DOCS_AND_FREQS);
+		luceneFieldType.setStored(false);
+		luceneFieldType.setStoreTermVectors(true);
+		luceneFieldType.setTokenized(true);
+		Field fullTextField = null;
+		if(excludeForeignWords)
+		{
+			fullTextField = new Field(fullTextFieldName, ebookContent.getLemmatizedTextWithoutForeignWords(), luceneFieldType);
+		}
+		else
+		{
+			fullTextField = new Field(fullTextFieldName, ebookContent.getLemmatizedText(), luceneFieldType);
+		}
+		
+		luceneDocument.add(fullTextField);
+		
+		try
+		{
+			iwriter.updateDocument(new Term(documentIdFieldName, ebookContent.getDocumentId()), luceneDocument);
+			
+			if(commitInterval > 0 && numberOfUncommittedDocuments.incrementAndGet() % commitInterval == 0)
 			{
-				logger.error(String.format(errorMessageBundle.getString("avve.extractor.luceneIndexWritingError"), ebookContent.getDocumentId()));
+				commit();
 			}
 		}
 		catch (final IOException exc)
 		{
 			logger.error(String.format(errorMessageBundle.getString("avve.extractor.luceneIndexWritingError"), ebookContent.getDocumentId()), exc);
 		}
-		finally
+	}
+	
+	/**
+	 * Commits all pending changes of the index writer, if it is open
+	 */
+	public void commit()
+	{
+		IndexWriter iwriter = indexWriter;
+		if(null != iwriter)
 		{
-			fileService.safeClose(iwriter);
+			try
+			{
+				iwriter.commit();
+				logger.trace(String.format(infoMessagesBundle.getString("avve.services.lucene.indexCommitted"), iwriter.numDocs()));
+			}
+			catch (final IOException exc)
+			{
+				logger.error(String.format(errorMessageBundle.getString("avve.services.lucene.indexCommitError"), Paths.get(indexDirectory)), exc);
+			}
+		}
+	}
+	
+	/**
+	 * Commits all pending changes and closes the index writer. Must be called at the end of an extraction run, before the index is read.
+	 */
+	public synchronized void closeIndexWriter()
+	{
+		if(null != indexWriter)
+		{
+			commit();
+			// the index has changed, so inverse document frequencies need to be recalculated
+			inverseDocumentFrequencyTable = null;
+			fileService.safeClose(indexWriter);
+			fileService.safeClose(indexWriterAnalyzer);
+			indexWriter = null;
+			indexWriterAnalyzer = null;
 		}
 	}
 	
@@ -144,19 +246,130 @@ public class LuceneService
 		return analyzer;
 	}
 	
-	public Directory getLuceneIndexDirectory()
+	/**
+	 * Provides the directory of the Lucene index. The directory is opened once and then shared by all readers and writers.
+	 * 
+	 * @return The Lucene index directory, or null if it could not be opened
+	 */
+	public synchronized Directory getLuceneIndexDirectory()
 	{
-		Directory directory = null;
+		if(null == directory)
+		{
+			try
+			{
+				directory = FSDirectory.open(Paths.get(indexDirectory));
+			}
+			catch (final IOException exc)
+			{
+				logger.error(String.format(errorMessageBundle.getString("avve.extractor.luceneIndexWritingError"), Paths.get(indexDirectory)), exc);
+			}
+		}
 		
+		return directory;
+	}
+	
+	/**
+	 * Opens a SearcherManager on the index, which provides a shared, reference-counted IndexSearcher for reading the index. Must be called
+	 * after the index writer has been closed. Searchers are obtained with acquireSearcher() and must be handed back with releaseSearcher().
+	 */
+	public synchronized void openSearcherManager()
+	{
+		if(null == searcherManager)
+		{
+			try
+			{
+				searcherManager = new SearcherManager(getLuceneIndexDirectory(), null);
+			}
+			catch (final IOException exc)
+			{
+				logger.error(errorMessageBundle.getString("avve.extractor.luceneIndexAccessError"), exc);
+			}
+		}
+	}
+	
+	/**
+	 * Provides the corpus-level inverse document frequency table of the full text field. The table is calculated on first access, so
+	 * this method must not be called before all documents have been indexed.
+	 * 
+	 * @return The inverse document frequency table, shared by all callers
+	 * @throws IOException If the index cannot be read
+	 */
+	public synchronized InverseDocumentFrequencyTable getInverseDocumentFrequencyTable() throws IOException
+	{
+		if(null == inverseDocumentFrequencyTable)
+		{
+			IndexSearcher searcher = acquireSearcher();
+			try
+			{
+				inverseDocumentFrequencyTable = InverseDocumentFrequencyTable.build(searcher.getIndexReader(), fullTextFieldName);
+				logger.info(String.format(infoMessagesBundle.getString("avve.services.lucene.inverseDocumentFrequencyTableBuilt"), 
+						inverseDocumentFrequencyTable.getNumberOfTerms(), inverseDocumentFrequencyTable.getNumberOfDocuments()));
+			}
+			finally
+			{
+				releaseSearcher(searcher);
+			}
+		}
+		return inverseDocumentFrequencyTable;
+	}
+	
+	/**
+	 * Acquires the shared IndexSearcher; opens the SearcherManager, if this hasn't been done yet.
+	 * 
+	 * @return An IndexSearcher, to be released with releaseSearcher()
+	 * @throws IOException If the index cannot be read
+	 */
+	public IndexSearcher acquireSearcher() throws IOException
+	{
+		if(null == searcherManager)
+		{
+			openSearcherManager();
+		}
+		if(null == searcherManager)
+		{
+			throw new IOException(errorMessageBundle.getString("avve.extractor.luceneIndexAccessError"));
+		}
+		return searcherManager.acquire();
+	}
+	
+	/**
+	 * Hands back an IndexSearcher obtained from acquireSearcher()
+	 * 
+	 * @param searcher The searcher to release
+	 */
+	public void releaseSearcher(final IndexSearcher searcher)
+	{
 		try
 		{
-			directory = FSDirectory.open(Paths.get(indexDirectory));
+			searcherManager.release(searcher);
 		}
 		catch (final IOException exc)
 		{
-			logger.error(String.format(errorMessageBundle.getString("avve.extractor.luceneIndexWritingError"), Paths.get(indexDirectory)), exc);
+			logger.error(errorMessageBundle.getString("avve.extractor.luceneIndexAccessError"), exc);
 		}
-		
-		return directory;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Closes the SearcherManager; searchers that are still acquired stay usable until they are released.
+	 */
+	public synchronized void closeSearcherManager()
+	{
+		fileService.safeClose(searcherManager);
+		searcherManager = null;
+	}
+	
+	/**
+	 * Looks up the Lucene-internal document number of an e-book by its document ID
+	 * 
+	 * @param searcher The searcher to use for the lookup
+	 * @param documentId The e-book's document ID
+	 * @return The Lucene document number or -1, if the document is not in the index
+	 * @throws IOException If the index cannot be read
+	 */
+	public int findDocument(final IndexSearcher searcher, final String documentId) throws IOException
+	{
+		// expecting one hit per document ID
+		ScoreDoc[] hits = searcher.search(new TermQuery(new Term(documentIdFieldName, documentId)), 1).scoreDocs;
+		return hits.length > 0 ? hits[0].doc : -1;
+	}
+}
@@ -0,0 +1,268 @@
+package avve.textpreprocess;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A cache of TreeTagger lemmas, keyed by a token and its (OpenNLP) part of speech tag. The Lemmatizer looks up every token here first and only
+ * sends sentences with cache misses to the TreeTagger, so word forms that have been lemmatized before cost no external process work.
+ *
+ * The cache is shared by the Lemmatizers of all threads. It holds about capacity entries; once it is full, each new entry evicts an old one
+ * by the CLOCK algorithm: the entries form a ring in insertion order, a cache hit marks an entry as referenced, and the eviction skips (and
+ * unmarks) referenced entries, so the entries that haven't been used since the last pass are evicted. Entries loaded from a file start
+ * unmarked, so word forms of an earlier corpus that don't occur in the current one are evicted first. A capacity of 0 disables the cache.
+ *
+ * The cache can be saved to and loaded from a file between runs (command line parameter -lcf). The file is read and written via memory mapping:
+ * a header (magic number, version, number of part of speech tags), followed by one group per part of speech tag, consisting of the tag, the
+ * number of entries and the entries as token and lemma pairs. All strings are stored as length-prefixed UTF-8.
+ *
+ * @author Kai Weber
+ *
+ */
+public class LemmaCache
+{
+	private static final ResourceBundle errorMessageBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
+	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
+	private static final int FILE_MAGIC_NUMBER = 0x41564C43; // "AVLC"
+	private static final int FILE_VERSION = 1;
+
+	public static final int capacityDefaultValue = 1000000;
+
+	/**
+	 * Constructor
+	 * @param capacity The maximum number of cached lemmas
+	 * @param logger The logger to be used
+	 */
+	public LemmaCache(final int capacity, final Logger logger)
+	{
+		this.capacity = Math.max(capacity, 0);
+		this.logger = logger;
+	}
+
+	/**
+	 * @param token A token
+	 * @param partOfSpeech The token's part of speech tag
+	 * @return The cached lemma, or null if there is none
+	 */
+	public String get(final String token, final String partOfSpeech)
+	{
+		if(null == token || null == partOfSpeech)
+		{
+			return null;
+		}
+		Map<String, CacheEntry> lemmas = lemmasByPartOfSpeech.get(partOfSpeech);
+		CacheEntry entry = null == lemmas ? null : lemmas.get(token);
+		if(null == entry)
+		{
+			return null;
+		}
+		// most lookups hit entries that are marked already, so the volatile field is only written if necessary
+		if(!entry.referenced)
+		{
+			entry.referenced = true;
+		}
+		return entry.lemma;
+	}
+
+	/**
+	 * Adds a lemma to the cache; if the cache is full, an entry that hasn't been used recently is evicted
+	 *
+	 * @param token A token
+	 * @param partOfSpeech The token's part of speech tag
+	 * @param lemma The token's lemma; null values are not cached
+	 */
+	public void put(final String token, final String partOfSpeech, final String lemma)
+	{
+		if(null == token || null == partOfSpeech || null == lemma || 0 == capacity)
+		{
+			return;
+		}
+		Map<String, CacheEntry> lemmas = lemmasByPartOfSpeech.computeIfAbsent(partOfSpeech, key -> new ConcurrentHashMap<String, CacheEntry>());
+		CacheEntry entry = new CacheEntry(token, partOfSpeech, lemma);
+		if(null == lemmas.putIfAbsent(token, entry))
+		{
+			clock.offer(entry);
+			if(size.incrementAndGet() > capacity)
+			{
+				if(!isFull.getAndSet(true))
+				{
+					logger.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.lemmaCacheFull"), capacity));
+				}
+				evict();
+			}
+		}
+	}
+
+	/**
+	 * @return The number of cached lemmas
+	 */
+	public int size()
+	{
+		return size.get();
+	}
+
+	/**
+	 * Adds the lemmas of a cache file written by save() to this cache
+	 *
+	 * @param file The cache file
+	 * @throws IOException If the file cannot be read or is not a valid cache file
+	 */
+	public void load(final Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.getInt() != FILE_MAGIC_NUMBER || buffer.getInt() != FILE_VERSION)
+			{
+				throw new IOException(String.format(errorMessageBundle.getString("avve.textpreprocess.corruptLemmaCacheFile"), file));
+			}
+			int numberOfPartsOfSpeech = buffer.getInt();
+			for(int i = 0; i < numberOfPartsOfSpeech; i++)
+			{
+				String partOfSpeech = readString(buffer);
+				int numberOfEntries = buffer.getInt();
+				for(int j = 0; j < numberOfEntries; j++)
+				{
+					String token = readString(buffer);
+					put(token, partOfSpeech, readString(buffer));
+				}
+			}
+		}
+		catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException exc)
+		{
+			throw new IOException(String.format(errorMessageBundle.getString("avve.textpreprocess.corruptLemmaCacheFile"), file), exc);
+		}
+		logger.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.lemmaCacheLoaded"), size(), file));
+	}
+
+	/**
+	 * Writes all cached lemmas to a file, replacing an existing file. The data is written to a temporary file first, so an existing cache file
+	 * stays intact if writing fails.
+	 *
+	 * @param file The cache file
+	 * @throws IOException If the file cannot be written
+	 */
+	public void save(final Path file) throws IOException
+	{
+		// encode all strings first, so that the file can be mapped with its final size
+		List<byte[]> encodedStrings = new ArrayList<byte[]>(2 * size() + lemmasByPartOfSpeech.size());
+		List<Integer> numbersOfEntries = new ArrayList<Integer>(lemmasByPartOfSpeech.size());
+		long fileSize = 3 * Integer.BYTES;
+		for(Map.Entry<String, ConcurrentHashMap<String, CacheEntry>> partOfSpeechEntry : lemmasByPartOfSpeech.entrySet())
+		{
+			fileSize += addEncodedString(encodedStrings, partOfSpeechEntry.getKey()) + Integer.BYTES;
+			int numberOfEntries = 0;
+			for(Map.Entry<String, CacheEntry> lemmaEntry : partOfSpeechEntry.getValue().entrySet())
+			{
+				fileSize += addEncodedString(encodedStrings, lemmaEntry.getKey());
+				fileSize += addEncodedString(encodedStrings, lemmaEntry.getValue().lemma);
+				numberOfEntries++;
+			}
+			numbersOfEntries.add(numberOfEntries);
+		}
+
+		Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+			buffer.putInt(FILE_MAGIC_NUMBER);
+			buffer.putInt(FILE_VERSION);
+			buffer.putInt(numbersOfEntries.size());
+			int stringIndex = 0;
+			for(int numberOfEntries : numbersOfEntries)
+			{
+				writeString(buffer, encodedStrings.get(stringIndex++));
+				buffer.putInt(numberOfEntries);
+				for(int j = 0; j < 2 * numberOfEntries; j++)
+				{
+					writeString(buffer, encodedStrings.get(stringIndex++));
+				}
+			}
+			buffer.force();
+		}
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+		logger.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.lemmaCacheSaved"), size(), file));
+	}
+
+	// moves the clock hand until it reaches an entry that hasn't been referenced since the last pass and removes that entry
+	private void evict()
+	{
+		CacheEntry entry;
+		while(null != (entry = clock.poll()))
+		{
+			if(entry.referenced)
+			{
+				entry.referenced = false;
+				clock.offer(entry);
+			}
+			else if(lemmasByPartOfSpeech.get(entry.partOfSpeech).remove(entry.token, entry))
+			{
+				size.decrementAndGet();
+				return;
+			}
+		}
+	}
+
+	private static int addEncodedString(final List<byte[]> encodedStrings, final String string)
+	{
+		byte[] encodedString = string.getBytes(StandardCharsets.UTF_8);
+		encodedStrings.add(encodedString);
+		return Integer.BYTES + encodedString.length;
+	}
+
+	private static String readString(final ByteBuffer buffer)
+	{
+		byte[] encodedString = new byte[buffer.getInt()];
+		buffer.get(encodedString);
+		return new String(encodedString, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(final ByteBuffer buffer, final byte[] encodedString)
+	{
+		buffer.putInt(encodedString.length);
+		buffer.put(encodedString);
+	}
+
+	private final int capacity;
+	// the ring of the CLOCK algorithm; its head is the position of the clock hand
+	private final ConcurrentLinkedQueue<CacheEntry> clock = new ConcurrentLinkedQueue<CacheEntry>();
+	private final AtomicBoolean isFull = new AtomicBoolean();
+	private final ConcurrentHashMap<String, ConcurrentHashMap<String, CacheEntry>> lemmasByPartOfSpeech = new ConcurrentHashMap<String, ConcurrentHashMap<String, CacheEntry>>();
+	private Logger logger;
+	private final AtomicInteger size = new AtomicInteger();
+
+	private static final class CacheEntry
+	{
+		CacheEntry(final String token, final String partOfSpeech, final String lemma)
+		{
+			this.token = token;
+			this.partOfSpeech = partOfSpeech;
+			this.lemma = lemma;
+		}
+
+		final String token;
+		final String partOfSpeech;
+		final String lemma;
+		volatile boolean referenced;
+	}
+}
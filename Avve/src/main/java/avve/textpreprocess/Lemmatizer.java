@@ -1,20 +1,21 @@
 package avve.textpreprocess;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
-import java.util.SortedMap;
 
+import org.annolab.tt4j.TokenHandler;
 import org.annolab.tt4j.TreeTaggerException;
 import org.annolab.tt4j.TreeTaggerWrapper;
 import org.apache.commons.cli.CommandLine;
 import org.apache.logging.log4j.Logger;
 
 import avve.epubhandling.EbookContentData;
+import avve.epubhandling.FrequencyCounter;
 import avve.extractor.CommandLineArguments;
 
 /**
@@ -31,6 +32,18 @@ import avve.extractor.CommandLineArguments;
  * .../src/main/resources/opennlp/lemmatizer-de-dict.txt. If you want this correction file to be used, pass the command line parameter flag -lc
  * on startup of Avve.
  * 
+ * The TreeTagger processes are borrowed from a TreeTaggerPool for each e-book, so Lemmatizers in several threads can work in parallel;
+ * the Lemmatizer itself keeps no state between calls of process().
+ * 
+ * To reduce the number of round trips to the external TreeTagger process, sentences are sent in blocks of about treeTaggerBatchSize tokens
+ * (command line parameter -ttbs), each sentence followed by a sentence boundary token. The lemmas are mapped back to their sentence and
+ * token position by the order and identity of the token objects the TreeTagger hands back. A batch size of 0 sends every sentence
+ * separately, as done by earlier versions.
+ * 
+ * Before that, every token is looked up in a LemmaCache shared by all Lemmatizers, keyed by the token and its part of speech tag; only
+ * sentences containing at least one cache miss are sent to the TreeTagger. Whole sentences are sent, rather than single tokens, so that
+ * the TreeTagger still tags the missing tokens in their context.
+ * 
  * @author Kai Weber
  *
  */
@@ -38,45 +51,50 @@ public class Lemmatizer implements TextPreprocessor
 {
 	private static final ResourceBundle errorMessageBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
 	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
-	private static int sentencePointer = 0;
-	private static int tokenPointer = 0;
+	// compared by identity, so this must be a distinct String object, never equal (==) to a token of the text
+	static final String sentenceBoundary = new String(".");
+	
+	public static final int treeTaggerBatchSizeDefaultValue = 10000;
 	
+	private SentenceChunkExecutor chunkExecutor;
 	private CommandLine cliArguments;
-	HashMap<String, String> correctionMap;
+	TokenTagCorrectionTable correctionTable;
+	private LemmaCache lemmaCache;
 	private Logger logger;
-	private TreeTaggerWrapper<String> treeTagger;
+	private int treeTaggerBatchSize;
+	private TreeTaggerPool treeTaggerPool;
 		
-	public Lemmatizer(Logger logger, CommandLine cliArguments)
+	public Lemmatizer(Logger logger, CommandLine cliArguments, TreeTaggerPool treeTaggerPool, LemmaCache lemmaCache)
+	{
+		this(logger, cliArguments, treeTaggerPool, lemmaCache, SentenceChunkExecutor.sequential());
+	}
+	
+	public Lemmatizer(Logger logger, CommandLine cliArguments, TreeTaggerPool treeTaggerPool, LemmaCache lemmaCache, SentenceChunkExecutor chunkExecutor)
 	{
+		this.chunkExecutor = chunkExecutor;
 		this.cliArguments = cliArguments;
+		this.lemmaCache = lemmaCache;
 		this.logger = logger;
-		this.treeTagger = new TreeTaggerWrapper<String>();
-		try
-		{
-			treeTagger.setModel("german-utf8.par");
-		} 
-		catch (IOException exc)
+		this.treeTaggerPool = treeTaggerPool;
+		this.treeTaggerBatchSize = treeTaggerBatchSizeDefaultValue;
+		if(cliArguments.hasOption(CommandLineArguments.TREETAGGERBATCHSIZE.toString()))
 		{
-			logger.error(errorMessageBundle.getString("avve.textpreprocess.lemmatizerIoException"), exc);
+			try
+			{
+				treeTaggerBatchSize = Math.max(Integer.parseInt(cliArguments.getOptionValue(CommandLineArguments.TREETAGGERBATCHSIZE.toString())), 0);
+			}
+			catch (NumberFormatException exc)
+			{
+				logger.error(String.format(errorMessageBundle.getString("avve.textpreprocess.treeTaggerBatchSizeNumberFormatError"), treeTaggerBatchSizeDefaultValue));
+			}
 		}
 				
 		// if we have a command line argument set for POS-tag correction, we use a resource text file for correction values
 		if(cliArguments.hasOption(CommandLineArguments.LEMMACORRECTION.toString()))
 		{
-			correctionMap = new HashMap<String, String>();
-			
 			try (InputStream modelIn = this.getClass().getClassLoader().getResourceAsStream("opennlp/lemmatizer-de-dict.txt"))
 			{
-				BufferedReader reader = new BufferedReader(new InputStreamReader(modelIn, "UTF-8"));
-				String line;
-				while((line = reader.readLine()) != null)
-				{
-					if(!line.startsWith("//"))
-					{
-						String[] tokens = line.split("\\s+");
-						correctionMap.put(tokens[0] + "_" + tokens[1], tokens[2]);
-					}
-				}
+				correctionTable = TokenTagCorrectionTable.load(modelIn);
 			}
 			catch (IOException exc)
 			{
@@ -97,10 +115,11 @@ public class Lemmatizer implements TextPreprocessor
 	@Override
 	public void process(EbookContentData ebookContentData)
 	{
-		boolean isCorrectionRequired = cliArguments.hasOption(CommandLineArguments.POSCORRECTION.toString()) && null != correctionMap;
+		boolean isCorrectionRequired = cliArguments.hasOption(CommandLineArguments.POSCORRECTION.toString()) && null != correctionTable;
 		
 		// check if we already have a tokenized text as input for the lemmatizer
-		if(ebookContentData.getTokens() == null || ebookContentData.getTokens().length == 0)
+		String[][] tokens = ebookContentData.getTokens();
+		if(tokens == null || tokens.length == 0)
 		{
 			ebookContentData.setLemmas(new String[0][0]);
 			this.logger.error(String.format(errorMessageBundle.getString("avve.textpreprocess.noTokensAvailable"), "Lemmatizer.process()"));
@@ -111,84 +130,219 @@ public class Lemmatizer implements TextPreprocessor
 		    // unfortunately this is a system-dependent external tool
 			// we're currently using this TreeTagger lemmatizer, because it provides a German lemma model, whereas the OpenNLP lemmatizer has no such pre-built model
 			// however, we're using a custom dictionary-based OpenNLP lemmatizer as a post-processor for improving data
-			String[][] lemmaArray = new String[ebookContentData.getTokens().length][];
+			String[][] lemmaArray = new String[tokens.length][];
+			String[][] partsOfSpeech = ebookContentData.getPartsOfSpeech();
 			
-			try
+			// large books are lemmatized in parallel chunks of sentences, each chunk with its own TreeTagger process from the pool
+			FrequencyCounter chunkLemmaFrequencies = chunkExecutor.process(tokens.length,
+					(fromSentence, toSentence) -> lemmatizeSentences(tokens, partsOfSpeech, lemmaArray, fromSentence, toSentence, isCorrectionRequired),
+					FrequencyCounter::addAll);
+			
+			// lemmaFrequencies only calculated for logging purposes
+			FrequencyCounter lemmaFrequencies = ebookContentData.getLemmaFrequencies();
+			lemmaFrequencies.addAll(chunkLemmaFrequencies);
+			
+			ebookContentData.setLemmas(lemmaArray);
+			
+			logger.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.numberOfLemmasDetected"), lemmaFrequencies.size()));
+		}
+	}
+	
+	/**
+	 * Lemmatizes a range of sentences, looking up the lemma cache first and sending the sentences with cache misses to a TreeTagger
+	 * from the pool. The lemmas are stored in the range of lemmaArray.
+	 * 
+	 * @return The frequencies of the lemmas in the range
+	 */
+	private FrequencyCounter lemmatizeSentences(final String[][] tokens, final String[][] partsOfSpeech, final String[][] lemmaArray,
+			final int fromSentence, final int toSentence, final boolean isCorrectionRequired)
+	{
+		// look up all tokens in the lemma cache first; only sentences with cache misses need to go to the TreeTagger
+		int[] sentencesToTag = new int[toSentence - fromSentence];
+		int numberOfSentencesToTag = 0;
+		for(int i = fromSentence; i < toSentence; i++)
+		{
+			lemmaArray[i] = new String[tokens[i].length];
+			boolean isCacheMiss = false;
+			for(int j = 0; j < tokens[i].length; j++)
 			{
-				treeTagger.setHandler((token, pos, lemma) -> 
+				lemmaArray[i][j] = lemmaCache.get(tokens[i][j], getPartOfSpeech(partsOfSpeech, i, j));
+				isCacheMiss |= null == lemmaArray[i][j];
+			}
+			if(isCacheMiss)
+			{
+				sentencesToTag[numberOfSentencesToTag++] = i;
+			}
+		}
+		logger.trace(String.format(infoMessagesBundle.getString("avve.textpreprocess.lemmaCacheHits"), toSentence - fromSentence - numberOfSentencesToTag, toSentence - fromSentence));
+		
+		LemmaCollector lemmaCollector = new LemmaCollector(tokens, lemmaArray, sentencesToTag);
+		List<String> block = new ArrayList<String>(treeTaggerBatchSize + 64);
+		TreeTaggerWrapper<String> treeTagger = null;
+		
+		try
+		{
+			if(numberOfSentencesToTag > 0)
+			{
+				treeTagger = treeTaggerPool.borrow();
+				treeTagger.setHandler(lemmaCollector);
+			}
+			int entryIndex = 0;
+			while(entryIndex < numberOfSentencesToTag)
+			{
+				// collect whole sentences until the block has reached the batch size
+				int firstEntryOfBlock = entryIndex;
+				block.clear();
+				do
 				{
-					lemmaArray[sentencePointer][tokenPointer] = lemma;
-					tokenPointer++;
-				});
-				for(int i = 0; i < ebookContentData.getTokens().length; i++)
+					Collections.addAll(block, tokens[sentencesToTag[entryIndex]]);
+					if(treeTaggerBatchSize > 0)
+					{
+						block.add(sentenceBoundary);
+					}
+					entryIndex++;
+				}
+				while(entryIndex < numberOfSentencesToTag && block.size() < treeTaggerBatchSize);
+				
+				lemmaCollector.startBlock(firstEntryOfBlock);
+				try
+				{
+					treeTagger.process(block);
+				}
+				catch (TreeTaggerException exc)
+				{
+					// the TreeTagger process might have crashed; retry the block once with a new process
+					logger.warn(String.format(errorMessageBundle.getString("avve.textpreprocess.treeTaggerRestarted"), sentencesToTag[firstEntryOfBlock]), exc);
+					// the failed TreeTagger is destroyed by the pool, so it must not be released if no new one can be started
+					TreeTaggerWrapper<String> failedTreeTagger = treeTagger;
+					treeTagger = null;
+					treeTagger = treeTaggerPool.restart(failedTreeTagger);
+					treeTagger.setHandler(lemmaCollector);
+					lemmaCollector.startBlock(firstEntryOfBlock);
+					treeTagger.process(block);
+				}
+				
+				// the cache holds the TreeTagger's lemmas before correction, as the correction depends on the command line arguments
+				for(int k = firstEntryOfBlock; k < entryIndex; k++)
 				{
-					String[] tokenizedSentence = ebookContentData.getTokens()[i];
-					
-					lemmaArray[sentencePointer] = new String[tokenizedSentence.length];
-					treeTagger.process(tokenizedSentence);
-					
-					// if we have a command line argument set for lemma correction, we process the tagging results through a replacement table
-					if(isCorrectionRequired)
+					int i = sentencesToTag[k];
+					for(int j = 0; j < tokens[i].length; j++)
 					{
-						for(int j = 0; j < lemmaArray[sentencePointer].length; j++)
-						{
-							String lemmaAndPosTag = lemmaArray[sentencePointer][j].toLowerCase() + "_" + ebookContentData.getPartsOfSpeech()[sentencePointer][j];
-							if(correctionMap.containsKey(lemmaAndPosTag))
-							{
-								lemmaArray[sentencePointer][j] = correctionMap.get(lemmaAndPosTag);
-							}
-						}
+						lemmaCache.put(tokens[i][j], getPartOfSpeech(partsOfSpeech, i, j), lemmaArray[i][j]);
 					}
-					
-					sentencePointer++;
-					tokenPointer = 0;
 				}
 			}
-			catch (IOException exc)
-			{
-				logger.error(errorMessageBundle.getString("avve.textpreprocess.lemmatizerIoException"), exc);
-			}
-			catch (TreeTaggerException exc)
-			{
-				logger.error(exc.getLocalizedMessage(), exc);
-			}
-			finally
+		}
+		catch (IOException exc)
+		{
+			logger.error(errorMessageBundle.getString("avve.textpreprocess.lemmatizerIoException"), exc);
+		}
+		catch (TreeTaggerException exc)
+		{
+			logger.error(exc.getLocalizedMessage(), exc);
+		}
+		finally
+		{
+			if(null != treeTagger)
 			{
-				sentencePointer = 0;
-				tokenPointer = 0;
+				treeTaggerPool.release(treeTagger);
 			}
-			
-			// lemmaFrequencies only calculated for logging purposes
-			SortedMap<String, Integer> lemmaFrequencies = ebookContentData.getLemmaFrequencies();
-			
-			for(int i = 0; i < lemmaArray.length; i++)
+		}
+		
+		// if we have a command line argument set for lemma correction, we process the tagging results through a replacement table
+		if(isCorrectionRequired)
+		{
+			for(int i = fromSentence; i < toSentence; i++)
 			{
 				for(int j = 0; j < lemmaArray[i].length; j++)
 				{
-					String key = lemmaArray[i][j];
-					if(null != key)
+					String correctedLemma = correctionTable.get(lemmaArray[i][j], getPartOfSpeech(partsOfSpeech, i, j));
+					if(null != correctedLemma)
 					{
-						if(lemmaFrequencies.containsKey(key))
-						{
-							lemmaFrequencies.put(key, lemmaFrequencies.get(key) + 1);
-						}
-						else
-						{
-							lemmaFrequencies.put(key, 1);
-						}	
+						lemmaArray[i][j] = correctedLemma;
 					}
 				}
 			}
-			
-			ebookContentData.setLemmas(lemmaArray);
-			
-			logger.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.numberOfLemmasDetected"), lemmaFrequencies.size()));
 		}
+		
+		FrequencyCounter lemmaFrequencies = new FrequencyCounter();
+		for(int i = fromSentence; i < toSentence; i++)
+		{
+			for(int j = 0; j < lemmaArray[i].length; j++)
+			{
+				String key = lemmaArray[i][j];
+				if(null != key)
+				{
+					lemmaFrequencies.increment(key);
+				}
+			}
+		}
+		return lemmaFrequencies;
 	}
 	
-	@Override
-	protected void finalize()
+	private static String getPartOfSpeech(final String[][] partsOfSpeech, final int sentence, final int token)
+	{
+		if(null == partsOfSpeech || null == partsOfSpeech[sentence] || token >= partsOfSpeech[sentence].length)
+		{
+			return null;
+		}
+		return partsOfSpeech[sentence][token];
+	}
+	
+	/**
+	 * Receives the lemmas of a block of sentences (given as indices into sentencesToTag) from the TreeTagger and stores them at the sentence and token position of the
+	 * respective token. The TreeTagger hands back the token objects it has been given, in order, but it may skip tokens it cannot
+	 * process (e.g. tokens containing whitespace); so the position is found by searching the current sentence for the identical
+	 * token object, leaving the lemma of skipped tokens null.
+	 */
+	static class LemmaCollector implements TokenHandler<String>
 	{
-		treeTagger.destroy();
+		LemmaCollector(final String[][] tokens, final String[][] lemmas, final int[] sentencesToTag)
+		{
+			this.tokens = tokens;
+			this.lemmas = lemmas;
+			this.sentencesToTag = sentencesToTag;
+		}
+		
+		/**
+		 * @param firstEntry The index into sentencesToTag of the block's first sentence
+		 */
+		void startBlock(final int firstEntry)
+		{
+			this.entry = firstEntry;
+			this.sentence = sentencesToTag[firstEntry];
+			this.position = 0;
+		}
+		
+		@Override
+		public void token(final String token, final String pos, final String lemma)
+		{
+			if(token == sentenceBoundary)
+			{
+				entry++;
+				sentence = entry < sentencesToTag.length ? sentencesToTag[entry] : sentence;
+				position = 0;
+				return;
+			}
+			
+			String[] sentenceTokens = tokens[sentence];
+			int tokenPosition = position;
+			while(tokenPosition < sentenceTokens.length && sentenceTokens[tokenPosition] != token)
+			{
+				tokenPosition++;
+			}
+			if(tokenPosition < sentenceTokens.length)
+			{
+				lemmas[sentence][tokenPosition] = lemma;
+				position = tokenPosition + 1;
+			}
+		}
+		
+		private int entry;
+		private final String[][] lemmas;
+		private int position;
+		private int sentence;
+		private final int[] sentencesToTag;
+		private final String[][] tokens;
 	}
 }
\ No newline at end of file
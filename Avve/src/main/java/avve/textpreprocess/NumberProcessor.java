@@ -4,7 +4,7 @@ import avve.epubhandling.EbookContentData;
 
 /**
  * The NumberProcessor replaces all digits in an EbookContentData's plain text (via getPlainText()) and within the tokenized
- * text (via getTokens()) with a #-symbol (via setPlainText().
+ * text (via getTokens()) with a #-symbol (via setPlainText() and setTokens()).
  * It should therefore run before other activities are executed on the plain text.
  * 
  * @author Kai Weber
@@ -24,15 +24,17 @@ public class NumberProcessor implements TextPreprocessor
 		contentData.setPlainText(contentData.getPlainText().replaceAll("[0-9]", "#"));
 		
 		// check if we need to also process tokens
-		if(null != contentData.getTokens() && contentData.getTokens().length > 0)
+		String[][] tokens = contentData.getTokens();
+		if(null != tokens && tokens.length > 0)
 		{
-			for(int i = 0; i < contentData.getTokens().length; i++)
+			for(int i = 0; i < tokens.length; i++)
 			{
-				for(int j = 0; j < contentData.getTokens()[i].length; j++)
+				for(int j = 0; j < tokens[i].length; j++)
 				{
-					contentData.getTokens()[i][j] = contentData.getTokens()[i][j].replaceAll("[0-9]", "#");
+					tokens[i][j] = tokens[i][j].replaceAll("[0-9]", "#");
 				}
 			}
+			contentData.setTokens(tokens);
 		}
 	}
 }
\ No newline at end of file
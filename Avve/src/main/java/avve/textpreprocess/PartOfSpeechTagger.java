@@ -1,13 +1,9 @@
 package avve.textpreprocess;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.ResourceBundle;
-import java.util.SortedMap;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.logging.log4j.Logger;
@@ -21,6 +17,10 @@ import opennlp.tools.postag.POSTaggerME;
  * This class populates an EbookContentData object's part of speech statistics (via setPartsOfSpeech()). It required a tokenized input text
  * (from EbookContentData object's getTokens()).
  * 
+ * The maxent POS model and the POS correction table are loaded once and shared by all instances, as both are immutable. POSTaggerME is not
+ * thread-safe, though, so every thread gets its own POSTaggerME instance on top of the shared model. This also allows tagging the sentences
+ * of a large book in parallel chunks via a SentenceChunkExecutor.
+ * 
  * @author Kai Weber
  *
  */
@@ -29,10 +29,16 @@ public class PartOfSpeechTagger implements TextPreprocessor
 	private static final ResourceBundle errorMessageBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
 	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
 	
+	// loaded once for all threads, see getModel() and getCorrectionTable()
+	private static POSModel model = null;
+	private static TokenTagCorrectionTable correctionTable = null;
+	
+	private SentenceChunkExecutor chunkExecutor;
 	CommandLine cliArguments;
-	HashMap<String, String> correctionMap;
 	private Logger logger;
-	private POSTaggerME tagger;
+	private final POSModel posModel;
+	// POSTaggerME is not thread-safe, so each thread tags with its own instance on top of posModel
+	private final ThreadLocal<POSTaggerME> tagger = new ThreadLocal<POSTaggerME>();
 	
 	@Override
 	public String getName()
@@ -42,41 +48,28 @@ public class PartOfSpeechTagger implements TextPreprocessor
 	
 	public PartOfSpeechTagger(Logger logger, CommandLine cliArguments)
 	{
+		this(logger, cliArguments, SentenceChunkExecutor.sequential());
+	}
+	
+	public PartOfSpeechTagger(Logger logger, CommandLine cliArguments, SentenceChunkExecutor chunkExecutor)
+	{
+		this(logger, cliArguments, chunkExecutor, getModel(logger));
+	}
+	
+	/**
+	 * Constructor for tagging with a given model instead of the shared de-pos-maxent model, e.g. a model trained for a test
+	 */
+	PartOfSpeechTagger(Logger logger, CommandLine cliArguments, SentenceChunkExecutor chunkExecutor, POSModel posModel)
+	{
+		this.chunkExecutor = chunkExecutor;
 		this.cliArguments = cliArguments;
 		this.logger = logger;
-		
-		try (InputStream modelIn = this.getClass().getClassLoader().getResourceAsStream("opennlp/de-pos-maxent.bin"))
-		{
-			POSModel model = new POSModel(modelIn);
-			tagger = new POSTaggerME(model);
-		}
-		catch (IOException exc)
-		{
-			this.logger.error(errorMessageBundle.getString("avve.textpreprocess.partOfSpeechTaggerModelInitError"), exc);
-		}
+		this.posModel = posModel;
 		
 		// if we have a command line argument set for POS-tag correction, we use a resource text file for correction values
 		if(cliArguments.hasOption(CommandLineArguments.POSCORRECTION.toString()))
 		{
-			correctionMap = new HashMap<String, String>();
-			
-			try (InputStream modelIn = this.getClass().getClassLoader().getResourceAsStream("opennlp/postag-de-dict.txt"))
-			{
-				BufferedReader reader = new BufferedReader(new InputStreamReader(modelIn, "UTF-8"));
-				String line;
-				while((line = reader.readLine()) != null)
-				{
-					if(!line.startsWith("//"))
-					{
-						String[] tokens = line.split("\\s+");
-						correctionMap.put(tokens[0] + "_" + tokens[1], tokens[2]);
-					}
-				}
-			}
-			catch (IOException exc)
-			{
-				this.logger.error(errorMessageBundle.getString("avve.textpreprocess.PartOfSpeechTaggerCorrectionFileInitError"), exc);
-			}
+			getCorrectionTable(logger);
 		}
 	}
 	
@@ -85,57 +78,94 @@ public class PartOfSpeechTagger implements TextPreprocessor
 	{
 		logger.info(infoMessagesBundle.getString("avve.textpreprocess.partOfSpeechTaggingStarted"));
 		
-		if(ebookContentData.getTokens() == null || ebookContentData.getTokens().length == 0)
+		// decoded here in the book's thread, as the chunks must not call the EbookContentData object
+		String[][] tokens = ebookContentData.getTokens();
+		int numberOfSentences = null == tokens ? 0 : tokens.length;
+		if(numberOfSentences == 0)
 		{
 			ebookContentData.setPartsOfSpeech(new String[0][0]);
 			this.logger.error(String.format(errorMessageBundle.getString("avve.textpreprocess.noTokensAvailable"), "PartOfSpeechTagger.process()"));
 		}
 		else
 		{
-			boolean isCorrectionRequired = cliArguments.hasOption(CommandLineArguments.POSCORRECTION.toString()) && null != correctionMap;
-			
-			String[][] partsOfSpeech = new String[ebookContentData.getTokens().length][];
+			TokenTagCorrectionTable posCorrectionTable = cliArguments.hasOption(CommandLineArguments.POSCORRECTION.toString()) ? getCorrectionTable(logger) : null;
+			String[][] partsOfSpeech = new String[numberOfSentences][];
 			
-			for(int i = 0; i < partsOfSpeech.length; i++)
+			chunkExecutor.process(numberOfSentences, (fromSentence, toSentence) ->
 			{
-				String[] currentSentence = ebookContentData.getTokens()[i];
-				
-				partsOfSpeech[i] = tagger.tag(currentSentence);
-				
-				// if we have a command line argument set for POS-tag correction, we process the tagging results through a replacement table
-				if(isCorrectionRequired)
+				POSTaggerME posTagger = getTagger();
+				for(int i = fromSentence; i < toSentence; i++)
 				{
-					for(int j = 0; j < partsOfSpeech[i].length; j++)
+					String[] currentSentence = tokens[i];
+					
+					partsOfSpeech[i] = posTagger.tag(currentSentence);
+					
+					// if we have a command line argument set for POS-tag correction, we process the tagging results through a replacement table
+					if(null != posCorrectionTable)
 					{
-						String tokenAndPosTag = ebookContentData.getTokens()[i][j].toLowerCase() + "_" + partsOfSpeech[i][j];
-						if(correctionMap.containsKey(tokenAndPosTag))
+						for(int j = 0; j < partsOfSpeech[i].length; j++)
 						{
-							partsOfSpeech[i][j] = correctionMap.get(tokenAndPosTag);
+							String correctedPosTag = posCorrectionTable.get(currentSentence[j], partsOfSpeech[i][j]);
+							if(null != correctedPosTag)
+							{
+								partsOfSpeech[i][j] = correctedPosTag;
+							}
 						}
 					}
 				}
-			}
+				return null;
+			});
 			ebookContentData.setPartsOfSpeech(partsOfSpeech);
 			
-			// this counting is only done for logging purposes
-			SortedMap<String, Integer> posMap = ebookContentData.getPartsOfSpeechFrequencies();
+			ebookContentData.countPartsOfSpeech();
 			
-			for(String[] sentence : ebookContentData.getPartsOfSpeech())
+			logger.trace(String.format(infoMessagesBundle.getString("avve.textpreprocess.partOfSpeechTaggerDifferentPos"), ebookContentData.getNumberOfDistinctPartsOfSpeech()));
+		}
+	}
+	
+	/**
+	 * @return The calling thread's POSTaggerME instance, which is created on first use
+	 */
+	private POSTaggerME getTagger()
+	{
+		POSTaggerME posTagger = tagger.get();
+		if(null == posTagger)
+		{
+			posTagger = new POSTaggerME(posModel);
+			tagger.set(posTagger);
+		}
+		return posTagger;
+	}
+	
+	private static synchronized POSModel getModel(final Logger logger)
+	{
+		if(null == model)
+		{
+			try (InputStream modelIn = PartOfSpeechTagger.class.getClassLoader().getResourceAsStream("opennlp/de-pos-maxent.bin"))
 			{
-				for(String tag : sentence)
-				{
-					if(posMap.containsKey(tag))
-					{
-						posMap.put(tag, posMap.get(tag) + 1);
-					}
-					else
-					{
-						posMap.put(tag, 1);
-					}	
-				}
+				model = new POSModel(modelIn);
+			}
+			catch (IOException exc)
+			{
+				logger.error(errorMessageBundle.getString("avve.textpreprocess.partOfSpeechTaggerModelInitError"), exc);
+			}
+		}
+		return model;
+	}
+	
+	private static synchronized TokenTagCorrectionTable getCorrectionTable(final Logger logger)
+	{
+		if(null == correctionTable)
+		{
+			try (InputStream correctionFileIn = PartOfSpeechTagger.class.getClassLoader().getResourceAsStream("opennlp/postag-de-dict.txt"))
+			{
+				correctionTable = TokenTagCorrectionTable.load(correctionFileIn);
+			}
+			catch (IOException exc)
+			{
+				logger.error(errorMessageBundle.getString("avve.textpreprocess.PartOfSpeechTaggerCorrectionFileInitError"), exc);
 			}
-			
-			logger.trace(String.format(infoMessagesBundle.getString("avve.textpreprocess.partOfSpeechTaggerDifferentPos"), posMap.keySet().size()));
 		}
+		return correctionTable;
 	}
-}
\ No newline at end of file
+}
@@ -32,7 +32,8 @@ public class RemovePunctuationPreprocessor implements TextPreprocessor
 	@Override
 	public void process(EbookContentData contentData)
 	{
-		if(null == contentData.getTokens() || contentData.getTokens().length == 0)
+		String[][] tokens = contentData.getTokens();
+		if(null == tokens || tokens.length == 0)
 		{
 			logger.error(String.format(errorMessagesBundle.getString("avve.textpreprocess.noTokensAvailable"), "RemovePunctuationPreprocessor.process()"));
 		}
@@ -40,15 +41,15 @@ public class RemovePunctuationPreprocessor implements TextPreprocessor
 		{
 			logger.info(infoMessagesBundle.getString("avve.textpreprocess.removingPunctuation"));
 			
-			for(int i = 0; i < contentData.getTokens().length; i++)
+			for(int i = 0; i < tokens.length; i++)
 			{
 				// temporary storage for the current sentence
 				ArrayList<String> tempTokenStore = new ArrayList<String>();
 				
 				// process all words in the current sentence
-				for(int j = 0; j < contentData.getTokens()[i].length; j++)
+				for(int j = 0; j < tokens[i].length; j++)
 				{
-					String orig = contentData.getTokens()[i][j];
+					String orig = tokens[i][j];
 					String replaced = orig.replaceAll("[!\"$%&'()*+,./:;<=>?@\\[\\]^_`{|}~‘’‚‛„”“‟†‡•‣․%…‧’′″‴‵‶‷‸‹›⸮¿¡»«©·→←＿]", " ");
 					String[] newTokens = replaced.split(" ");
 					for(String token : newTokens)
@@ -59,8 +60,9 @@ public class RemovePunctuationPreprocessor implements TextPreprocessor
 						}	
 					}
 				}
-				contentData.getTokens()[i] = tempTokenStore.toArray(new String[0]);
+				tokens[i] = tempTokenStore.toArray(new String[0]);
 			}
+			contentData.setTokens(tokens);
 		}
 	}
 
@@ -33,7 +33,8 @@ public class ReplaceLigaturesPreprocessor  implements TextPreprocessor
 	@Override
 	public void process(EbookContentData contentData)
 	{
-		if(null == contentData.getTokens() || contentData.getTokens().length == 0)
+		String[][] tokens = contentData.getTokens();
+		if(null == tokens || tokens.length == 0)
 		{
 			logger.error(String.format(errorMessagesBundle.getString("avve.textpreprocess.noTokensAvailable"), "ReplaceLigaturesPreprocessor.process()"));
 		}
@@ -42,12 +43,12 @@ public class ReplaceLigaturesPreprocessor  implements TextPreprocessor
 			logger.info(infoMessagesBundle.getString("avve.textpreprocess.replacingLigatures"));
 			
 			// process all sentences
-			for(int i = 0; i < contentData.getTokens().length; i++)
+			for(int i = 0; i < tokens.length; i++)
 			{
 				// process all words in the current sentence
-				for(int j = 0; j < contentData.getTokens()[i].length; j++)
+				for(int j = 0; j < tokens[i].length; j++)
 				{
-					String token = contentData.getTokens()[i][j];
+					String token = tokens[i][j];
 					token = token.replaceAll("ﬂ", "fl");
 					token = token.replaceAll("ﬁ", "fi");
 					token = token.replaceAll("ﬀ", "ff");
@@ -55,9 +56,10 @@ public class ReplaceLigaturesPreprocessor  implements TextPreprocessor
 					token = token.replaceAll("ﬄ", "ffl");
 					token = token.replaceAll("ﬆ", "st");
 					token = token.replaceAll("ﬅ", "st");
-					contentData.getTokens()[i][j] = token;
+					tokens[i][j] = token;
 				}
 			}
+			contentData.setTokens(tokens);
 		}
 	}
 	
@@ -0,0 +1,120 @@
+package avve.textpreprocess;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Runs per-sentence work of a single e-book in parallel. The sentence range of a book is split into chunks of about chunkSize
+ * sentences, which are processed via fork/join on a shared ForkJoinPool; the partial results of the chunks are merged in sentence
+ * order. This is meant for very large books (e.g. anthologies), which would otherwise hold up a single thread for many minutes.
+ *
+ * The chunk functions must only write to their own sentence range of shared arrays and must not call the EbookContentData object,
+ * which is not thread-safe; counts should be collected per chunk and merged by the combiner. Without a ForkJoinPool, or for books
+ * with no more than chunkSize sentences, all sentences are processed as one chunk in the calling thread.
+ *
+ * @author Kai Weber
+ *
+ */
+public class SentenceChunkExecutor
+{
+	public static final int chunkSizeDefaultValue = 1000;
+
+	/**
+	 * Work on a range of sentences
+	 *
+	 * @param <T> The type of the partial result
+	 */
+	@FunctionalInterface
+	public interface ChunkFunction<T>
+	{
+		/**
+		 * @param fromSentence The index of the first sentence of the chunk
+		 * @param toSentence The index after the last sentence of the chunk
+		 * @return The chunk's partial result
+		 */
+		T apply(int fromSentence, int toSentence);
+	}
+
+	/**
+	 * Constructor
+	 * @param forkJoinPool The pool for processing chunks, or null for processing all sentences in the calling thread
+	 * @param chunkSize The number of sentences up to which a range is not split any further
+	 */
+	public SentenceChunkExecutor(final ForkJoinPool forkJoinPool, final int chunkSize)
+	{
+		this.forkJoinPool = forkJoinPool;
+		this.chunkSize = Math.max(chunkSize, 1);
+	}
+
+	/**
+	 * @return An executor that processes all sentences in the calling thread
+	 */
+	public static SentenceChunkExecutor sequential()
+	{
+		return new SentenceChunkExecutor(null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Processes all sentences chunk by chunk and merges the chunks' results in sentence order
+	 *
+	 * @param numberOfSentences The number of sentences of the e-book
+	 * @param function The work on a chunk of sentences
+	 * @param combiner Merges the results of two adjacent ranges, the earlier one being the first argument
+	 * @return The merged result
+	 */
+	public <T> T process(final int numberOfSentences, final ChunkFunction<T> function, final BinaryOperator<T> combiner)
+	{
+		if(null == forkJoinPool || numberOfSentences <= chunkSize)
+		{
+			return function.apply(0, numberOfSentences);
+		}
+		return forkJoinPool.invoke(new ChunkTask<T>(0, numberOfSentences, function, combiner));
+	}
+
+	/**
+	 * Processes all sentences chunk by chunk, for work that doesn't produce a result (e.g. filling an array)
+	 *
+	 * @param numberOfSentences The number of sentences of the e-book
+	 * @param function The work on a chunk of sentences
+	 */
+	public void process(final int numberOfSentences, final ChunkFunction<Void> function)
+	{
+		process(numberOfSentences, function, (first, second) -> null);
+	}
+
+	private class ChunkTask<T> extends RecursiveTask<T>
+	{
+		private static final long serialVersionUID = 4378140912275062013L;
+
+		ChunkTask(final int fromSentence, final int toSentence, final ChunkFunction<T> function, final BinaryOperator<T> combiner)
+		{
+			this.fromSentence = fromSentence;
+			this.toSentence = toSentence;
+			this.function = function;
+			this.combiner = combiner;
+		}
+
+		@Override
+		protected T compute()
+		{
+			if(toSentence - fromSentence <= chunkSize)
+			{
+				return function.apply(fromSentence, toSentence);
+			}
+			int middle = (fromSentence + toSentence) >>> 1;
+			ChunkTask<T> secondHalf = new ChunkTask<T>(middle, toSentence, function, combiner);
+			secondHalf.fork();
+			T firstResult = new ChunkTask<T>(fromSentence, middle, function, combiner).compute();
+			return combiner.apply(firstResult, secondHalf.join());
+		}
+
+		private final BinaryOperator<T> combiner;
+		private final int fromSentence;
+		private final ChunkFunction<T> function;
+		private final int toSentence;
+	}
+
+	private final int chunkSize;
+	private final ForkJoinPool forkJoinPool;
+}
@@ -16,6 +16,9 @@ import avve.epubhandling.EbookContentData;
  * This is merely a wrapper class which delegates sentence detection to OpenNLP's maximum entropy sentence detector
  * It works on EbookContentData object's plain text and populates its sentences object (via setSentences())
  * 
+ * The sentence model is loaded once and shared; as SentenceDetectorME is not thread-safe, every thread gets its own SentenceDetectorME
+ * instance, which is reused for all books processed by that thread.
+ * 
  * @author Kai Weber
  *
  */
@@ -23,8 +26,11 @@ public class SentenceDetectorPreprocessor implements TextPreprocessor
 {	
 	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
 	
+	// loaded once for all threads, see getModel()
+	private static SentenceModel model = null;
+	private static final ThreadLocal<SentenceDetectorME> sentenceDetector = new ThreadLocal<SentenceDetectorME>();
+	
 	private Logger logger;
-	private SentenceModel model;
 	
 	@Override
 	public String getName()
@@ -35,15 +41,8 @@ public class SentenceDetectorPreprocessor implements TextPreprocessor
 	public SentenceDetectorPreprocessor(Logger logger)
 	{
 		this.logger = logger;
-		try (InputStream modelIn = this.getClass().getClassLoader().getResourceAsStream("opennlp/de-sent.bin"))
-		{
-			  model = new SentenceModel(modelIn);
-		}
-		catch (IOException exc)
-		{
-			this.logger.error(exc.getLocalizedMessage());
-			exc.printStackTrace();
-		}
+		
+		getModel(logger);
 	}
 
 	@Override
@@ -51,9 +50,39 @@ public class SentenceDetectorPreprocessor implements TextPreprocessor
 	{
 		logger.info(infoMessagesBundle.getString("avve.textpreprocess.sentenceDetectorStarted"));
 		
-		SentenceDetectorME sentenceDetector = new SentenceDetectorME(model);
-		ebookContentData.setSentences(sentenceDetector.sentDetect(ebookContentData.getPlainText()));
+		String[] sentences = getSentenceDetector().sentDetect(ebookContentData.getPlainText());
+		ebookContentData.setSentences(sentences);
 		
-		logger.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.numberOfSentencesDetected"), ebookContentData.getSentences().length));
+		logger.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.numberOfSentencesDetected"), sentences.length));
+	}
+	
+	/**
+	 * @return The calling thread's SentenceDetectorME instance, which is created on first use
+	 */
+	private SentenceDetectorME getSentenceDetector()
+	{
+		SentenceDetectorME threadSentenceDetector = sentenceDetector.get();
+		if(null == threadSentenceDetector)
+		{
+			threadSentenceDetector = new SentenceDetectorME(getModel(logger));
+			sentenceDetector.set(threadSentenceDetector);
+		}
+		return threadSentenceDetector;
+	}
+	
+	private static synchronized SentenceModel getModel(final Logger logger)
+	{
+		if(null == model)
+		{
+			try (InputStream modelIn = SentenceDetectorPreprocessor.class.getClassLoader().getResourceAsStream("opennlp/de-sent.bin"))
+			{
+				model = new SentenceModel(modelIn);
+			}
+			catch (IOException exc)
+			{
+				logger.error(exc.getLocalizedMessage(), exc);
+			}
+		}
+		return model;
 	}
 }
\ No newline at end of file
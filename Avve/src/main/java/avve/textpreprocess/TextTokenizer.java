@@ -16,6 +16,9 @@ import opennlp.tools.tokenize.*;
  * It works on EbookContentData object's sentences (via getSentences()) and populates its token object (via setTokens()).
  * It also takes care of counting tokens and setting the EbookContentData object's setNumberOfTokens().
  * 
+ * The tokenizer model is loaded once and shared; as TokenizerME is not thread-safe, every thread gets its own TokenizerME instance.
+ * This allows tokenizing the sentences of a large book in parallel chunks via a SentenceChunkExecutor.
+ * 
  * @author Kai Weber
  *
  */
@@ -23,8 +26,12 @@ public class TextTokenizer implements TextPreprocessor
 {
 	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
 	
+	// loaded once for all threads, see getModel()
+	private static TokenizerModel model = null;
+	private static final ThreadLocal<Tokenizer> tokenizer = new ThreadLocal<Tokenizer>();
+	
+	private SentenceChunkExecutor chunkExecutor;
 	private Logger logger;
-	private Tokenizer tokenizer;
 	
 	@Override
 	public String getName()
@@ -34,18 +41,15 @@ public class TextTokenizer implements TextPreprocessor
 	
 	public TextTokenizer(Logger logger)
 	{
+		this(logger, SentenceChunkExecutor.sequential());
+	}
+	
+	public TextTokenizer(Logger logger, SentenceChunkExecutor chunkExecutor)
+	{
+		this.chunkExecutor = chunkExecutor;
 		this.logger = logger;
 		
-		try (InputStream modelIn = this.getClass().getClassLoader().getResourceAsStream("opennlp/de-token.bin"))
-		{
-			  TokenizerModel model = new TokenizerModel(modelIn);
-			  tokenizer = new TokenizerME(model);
-		}
-		catch (IOException exc)
-		{
-			this.logger.error(exc.getLocalizedMessage());
-			exc.printStackTrace();
-		}
+		getModel(logger);
 	}
 
 	@Override
@@ -53,18 +57,54 @@ public class TextTokenizer implements TextPreprocessor
 	{
 		logger.info(infoMessagesBundle.getString("avve.textpreprocess.tokenizingText"));
 		
-		String[][] tokenizedSentences = new String[ebookContentData.getSentences().length][];
-		int counter = 0;
+		String[] sentences = ebookContentData.getSentences();
+		String[][] tokenizedSentences = new String[sentences.length][];
 		
-		for(int i = 0; i < tokenizedSentences.length; i++)
+		int counter = chunkExecutor.process(sentences.length, (fromSentence, toSentence) ->
 		{
-			tokenizedSentences[i] = tokenizer.tokenize(ebookContentData.getSentences()[i]);
-			counter += tokenizedSentences[i].length;
-		}
+			Tokenizer chunkTokenizer = getTokenizer();
+			int numberOfTokens = 0;
+			for(int i = fromSentence; i < toSentence; i++)
+			{
+				tokenizedSentences[i] = chunkTokenizer.tokenize(sentences[i]);
+				numberOfTokens += tokenizedSentences[i].length;
+			}
+			return numberOfTokens;
+		}, Integer::sum);
 		
 		ebookContentData.setTokens(tokenizedSentences);
 		ebookContentData.setNumberOfTokens(counter);
 		
 		logger.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.numberOfTokensDetected"), counter));
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * @return The calling thread's TokenizerME instance, which is created on first use
+	 */
+	private Tokenizer getTokenizer()
+	{
+		Tokenizer threadTokenizer = tokenizer.get();
+		if(null == threadTokenizer)
+		{
+			threadTokenizer = new TokenizerME(getModel(logger));
+			tokenizer.set(threadTokenizer);
+		}
+		return threadTokenizer;
+	}
+	
+	private static synchronized TokenizerModel getModel(final Logger logger)
+	{
+		if(null == model)
+		{
+			try (InputStream modelIn = TextTokenizer.class.getClassLoader().getResourceAsStream("opennlp/de-token.bin"))
+			{
+				model = new TokenizerModel(modelIn);
+			}
+			catch (IOException exc)
+			{
+				logger.error(exc.getLocalizedMessage(), exc);
+			}
+		}
+		return model;
+	}
+}
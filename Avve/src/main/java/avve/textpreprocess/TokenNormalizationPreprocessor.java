@@ -0,0 +1,185 @@
+package avve.textpreprocess;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+import org.apache.logging.log4j.Logger;
+
+import avve.epubhandling.EbookContentData;
+
+/**
+ * This preprocessor normalizes the EbookContentData's tokens in a single pass over each token's characters. It splits tokens at
+ * punctuation characters and blanks, drops fragments that consist of whitespace only and - optionally - replaces typographic
+ * ligatures (e. g. ﬁ) with the corresponding single characters (e. g. fi). 
+ * 
+ * The result is identical to running the RemovePunctuationPreprocessor followed by the ReplaceLigaturesPreprocessor, but no regular
+ * expressions are evaluated: The characters are classified through a lookup table, and tokens that need no change are kept as they are.
+ * 
+ * @author Kai Weber
+ *
+ */
+public class TokenNormalizationPreprocessor implements TextPreprocessor
+{
+	private static final ResourceBundle errorMessagesBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
+	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
+	
+	// the same characters as in the RemovePunctuationPreprocessor's regular expression
+	private static final String punctuationCharacters = "!\"$%&'()*+,./:;<=>?@[]^_`{|}~‘’‚‛„”“‟†‡•‣․…‧′″‴‵‶‷‸‹›⸮¿¡»«©·→←＿";
+	
+	private static final byte REGULAR = 0;
+	private static final byte SEPARATOR = 1;
+	private static final byte WHITESPACE = 2;
+	private static final byte LIGATURE = 3;
+	
+	private static final byte[] characterClasses = new byte[Character.MAX_VALUE + 1];
+	private static final char firstLigature = '\uFB00';
+	// indexed by the ligature's distance from firstLigature
+	private static final String[] ligatureReplacements = { "ff", "fi", "fl", "ffi", "ffl", "st", "st" };
+	
+	static
+	{
+		for(int i = 0; i < punctuationCharacters.length(); i++)
+		{
+			characterClasses[punctuationCharacters.charAt(i)] = SEPARATOR;
+		}
+		characterClasses[' '] = SEPARATOR;
+		
+		// characters matched by the regular expression \s, apart from the blank
+		characterClasses['\t'] = WHITESPACE;
+		characterClasses['\n'] = WHITESPACE;
+		characterClasses[0x0B] = WHITESPACE;
+		characterClasses['\f'] = WHITESPACE;
+		characterClasses['\r'] = WHITESPACE;
+		
+		for(int i = 0; i < ligatureReplacements.length; i++)
+		{
+			characterClasses[firstLigature + i] = LIGATURE;
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * @param logger The logger to be used
+	 * @param replaceLigatures true, if ligatures are to be replaced, as done by the ReplaceLigaturesPreprocessor
+	 */
+	public TokenNormalizationPreprocessor(Logger logger, boolean replaceLigatures)
+	{
+		this(logger, replaceLigatures, SentenceChunkExecutor.sequential());
+	}
+
+	/**
+	 * Constructor
+	 * @param logger The logger to be used
+	 * @param replaceLigatures true, if ligatures are to be replaced, as done by the ReplaceLigaturesPreprocessor
+	 * @param chunkExecutor The executor for normalizing the tokens of large books in parallel chunks of sentences
+	 */
+	public TokenNormalizationPreprocessor(Logger logger, boolean replaceLigatures, SentenceChunkExecutor chunkExecutor)
+	{
+		this.chunkExecutor = chunkExecutor;
+		this.logger = logger;
+		this.replaceLigatures = replaceLigatures;
+	}
+
+	@Override
+	public String getName()
+	{
+		return "TokenNormalizationPreprocessor";
+	}
+	
+	@Override
+	public void process(EbookContentData contentData)
+	{
+		String[][] tokens = contentData.getTokens();
+		if(null == tokens || tokens.length == 0)
+		{
+			logger.error(String.format(errorMessagesBundle.getString("avve.textpreprocess.noTokensAvailable"), "TokenNormalizationPreprocessor.process()"));
+		}
+		else
+		{
+			logger.info(infoMessagesBundle.getString("avve.textpreprocess.normalizingTokens"));
+			
+			chunkExecutor.process(tokens.length, (fromSentence, toSentence) ->
+			{
+				ArrayList<String> normalizedSentence = new ArrayList<String>();
+				StringBuilder fragmentBuilder = new StringBuilder();
+				for(int i = fromSentence; i < toSentence; i++)
+				{
+					normalizedSentence.clear();
+					for(String token : tokens[i])
+					{
+						normalizeToken(token, normalizedSentence, fragmentBuilder);
+					}
+					tokens[i] = normalizedSentence.toArray(new String[normalizedSentence.size()]);
+				}
+				return null;
+			});
+			contentData.setTokens(tokens);
+		}
+	}
+	
+	/**
+	 * Splits a single token at punctuation characters and blanks and adds the resulting fragments to the target list
+	 */
+	private void normalizeToken(final String token, final ArrayList<String> target, final StringBuilder fragmentBuilder)
+	{
+		int fragmentStart = 0;
+		boolean hasNonWhitespace = false;
+		boolean hasLigature = false;
+		int length = token.length();
+		
+		for(int i = 0; i <= length; i++)
+		{
+			byte characterClass = i < length ? characterClasses[token.charAt(i)] : SEPARATOR;
+			switch(characterClass)
+			{
+				case SEPARATOR:
+					if(hasNonWhitespace)
+					{
+						target.add(createFragment(token, fragmentStart, i, hasLigature, fragmentBuilder));
+					}
+					fragmentStart = i + 1;
+					hasNonWhitespace = false;
+					hasLigature = false;
+					break;
+				case WHITESPACE:
+					break;
+				case LIGATURE:
+					hasLigature |= replaceLigatures;
+					hasNonWhitespace = true;
+					break;
+				default:
+					hasNonWhitespace = true;
+					break;
+			}
+		}
+	}
+	
+	private String createFragment(final String token, final int start, final int end, final boolean hasLigature, final StringBuilder fragmentBuilder)
+	{
+		if(!hasLigature)
+		{
+			// substring() returns the token itself, if the fragment spans the whole token
+			return token.substring(start, end);
+		}
+		
+		fragmentBuilder.setLength(0);
+		for(int i = start; i < end; i++)
+		{
+			char character = token.charAt(i);
+			if(characterClasses[character] == LIGATURE)
+			{
+				fragmentBuilder.append(ligatureReplacements[character - firstLigature]);
+			}
+			else
+			{
+				fragmentBuilder.append(character);
+			}
+		}
+		return fragmentBuilder.toString();
+	}
+	
+	private SentenceChunkExecutor chunkExecutor;
+	private Logger logger;
+	private boolean replaceLigatures;
+}
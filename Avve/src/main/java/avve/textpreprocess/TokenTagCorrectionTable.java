@@ -0,0 +1,162 @@
+package avve.textpreprocess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * A replacement table for tagging results, keyed by a word (token or lemma) and a part of speech tag. The words are matched case-insensitively.
+ * It replaces the former HashMaps with keys like word.toLowerCase() + "_" + tag: the key's hash code is computed from the word's and the tag's
+ * characters directly, so looking up a word doesn't create any new strings.
+ *
+ * The table is filled once, when it is loaded, and is read-only afterwards, so it can be shared between threads.
+ *
+ * @author Kai Weber
+ *
+ */
+public class TokenTagCorrectionTable
+{
+	private static final int INITIAL_CAPACITY = 1024;
+
+	public TokenTagCorrectionTable()
+	{
+		words = new String[INITIAL_CAPACITY];
+		tags = new String[INITIAL_CAPACITY];
+		replacements = new String[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Loads a correction file with lines of three whitespace-separated columns: the word in lower case, the part of speech tag and the replacement.
+	 * Lines starting with "//" are comments.
+	 *
+	 * @param inputStream The UTF-8 encoded correction file; it is not closed by this method
+	 * @return The new correction table
+	 * @throws IOException If the correction file cannot be read
+	 */
+	public static TokenTagCorrectionTable load(final InputStream inputStream) throws IOException
+	{
+		TokenTagCorrectionTable correctionTable = new TokenTagCorrectionTable();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+		String line;
+		while((line = reader.readLine()) != null)
+		{
+			if(!line.startsWith("//"))
+			{
+				String[] columns = line.split("\\s+");
+				if(columns.length >= 3)
+				{
+					correctionTable.put(columns[0], columns[1], columns[2]);
+				}
+			}
+		}
+		return correctionTable;
+	}
+
+	/**
+	 * @param word A token or lemma, in any case
+	 * @param tag A part of speech tag
+	 * @return The replacement for the word and tag, or null if there is none
+	 */
+	public String get(final String word, final String tag)
+	{
+		if(null == word || null == tag)
+		{
+			return null;
+		}
+		return replacements[findSlot(word, tag)];
+	}
+
+	/**
+	 * Adds a replacement; an existing replacement for the same word and tag is overwritten
+	 *
+	 * @param word The word; it is stored in lower case
+	 * @param tag The part of speech tag
+	 * @param replacement The replacement
+	 */
+	public void put(final String word, final String tag, final String replacement)
+	{
+		String lowerCaseWord = word.toLowerCase();
+		int slot = findSlot(lowerCaseWord, tag);
+		if(null == words[slot])
+		{
+			if((size + 1) * 2 > words.length)
+			{
+				resize();
+				slot = findSlot(lowerCaseWord, tag);
+			}
+			words[slot] = lowerCaseWord;
+			tags[slot] = tag;
+			size++;
+		}
+		replacements[slot] = replacement;
+	}
+
+	/**
+	 * @return The number of replacements
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	// linear probing; returns the slot holding the key or the empty slot where it would be inserted
+	private int findSlot(final String word, final String tag)
+	{
+		int hash = 0;
+		for(int i = 0; i < word.length(); i++)
+		{
+			hash = 31 * hash + Character.toLowerCase(word.charAt(i));
+		}
+		hash = 31 * hash + tag.hashCode();
+		hash ^= (hash >>> 16);
+		int mask = words.length - 1;
+		int slot = hash & mask;
+		while(null != words[slot] && !(isSameWord(words[slot], word) && tags[slot].equals(tag)))
+		{
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static boolean isSameWord(final String lowerCaseWord, final String word)
+	{
+		if(lowerCaseWord.length() != word.length())
+		{
+			return false;
+		}
+		for(int i = 0; i < word.length(); i++)
+		{
+			if(lowerCaseWord.charAt(i) != Character.toLowerCase(word.charAt(i)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void resize()
+	{
+		String[] oldWords = words;
+		String[] oldTags = tags;
+		String[] oldReplacements = replacements;
+		words = new String[oldWords.length * 2];
+		tags = new String[oldTags.length * 2];
+		replacements = new String[oldReplacements.length * 2];
+		for(int i = 0; i < oldWords.length; i++)
+		{
+			if(null != oldWords[i])
+			{
+				int slot = findSlot(oldWords[i], oldTags[i]);
+				words[slot] = oldWords[i];
+				tags[slot] = oldTags[i];
+				replacements[slot] = oldReplacements[i];
+			}
+		}
+	}
+
+	private String[] replacements;
+	private int size;
+	private String[] tags;
+	private String[] words;
+}
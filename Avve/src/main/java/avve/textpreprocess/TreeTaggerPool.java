@@ -0,0 +1,214 @@
+package avve.textpreprocess;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.annolab.tt4j.TreeTaggerException;
+import org.annolab.tt4j.TreeTaggerWrapper;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A pool of TreeTagger processes, which can be shared by several Lemmatizers running in different threads. Each TreeTaggerWrapper
+ * controls one external TreeTagger process and must only be used by one thread at a time, so callers borrow a wrapper, use it for
+ * one e-book and return it via release().
+ *
+ * Processes are started lazily, up to the configured pool size. When borrowed, a wrapper is checked by tagging a single probe token,
+ * at most once per health check interval, as the check costs a round-trip to the external process; a new or restarted wrapper counts
+ * as checked. A wrapper that fails the check, or that has thrown a TreeTaggerException (see restart()), is destroyed and replaced by a
+ * new one.
+ * A wrapper whose model cannot be loaded is destroyed right away and never enters the pool.
+ *
+ * @author Kai Weber
+ *
+ */
+public class TreeTaggerPool
+{
+	private static final ResourceBundle errorMessageBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
+	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
+	private static final String modelName = "german-utf8.par";
+	private static final String[] healthCheckProbe = new String[] { "Haus" };
+	private static final long healthCheckInterval = TimeUnit.MINUTES.toNanos(1);
+
+	/**
+	 * Constructor
+	 * @param size The maximum number of TreeTagger processes
+	 * @param logger The logger to be used
+	 */
+	public TreeTaggerPool(final int size, final Logger logger)
+	{
+		this.size = Math.max(size, 1);
+		this.logger = logger;
+	}
+
+	/**
+	 * Borrows a TreeTagger from the pool, starting a new process if none is idle and the pool size has not been reached yet. Otherwise
+	 * this method blocks until another thread releases a TreeTagger.
+	 *
+	 * @return A TreeTagger for the exclusive use of the calling thread
+	 * @throws IOException If the pool has been closed, the TreeTagger model cannot be loaded or the calling thread is interrupted while waiting
+	 */
+	public TreeTaggerWrapper<String> borrow() throws IOException
+	{
+		TreeTaggerWrapper<String> treeTagger = null;
+		while(null == treeTagger)
+		{
+			if(closed)
+			{
+				throw new IOException(errorMessageBundle.getString("avve.textpreprocess.treeTaggerPoolClosed"));
+			}
+			treeTagger = idleTreeTaggers.poll();
+			if(null != treeTagger)
+			{
+				break;
+			}
+			if(numberOfTreeTaggers.incrementAndGet() <= size)
+			{
+				treeTagger = createTreeTagger();
+			}
+			else
+			{
+				numberOfTreeTaggers.decrementAndGet();
+				try
+				{
+					// a TreeTagger that fails to start frees its place in the pool without being released, so waiting threads check again after a while
+					treeTagger = idleTreeTaggers.poll(1, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException exc)
+				{
+					Thread.currentThread().interrupt();
+					throw new IOException(errorMessageBundle.getString("avve.textpreprocess.treeTaggerPoolInterrupted"), exc);
+				}
+			}
+		}
+
+		if(isHealthCheckDue(treeTagger) && !isHealthy(treeTagger))
+		{
+			logger.warn(errorMessageBundle.getString("avve.textpreprocess.treeTaggerHealthCheckFailed"));
+			treeTagger = restart(treeTagger);
+		}
+		return treeTagger;
+	}
+
+	/**
+	 * Returns a borrowed TreeTagger to the pool
+	 *
+	 * @param treeTagger The TreeTagger returned by borrow() or restart()
+	 */
+	public void release(final TreeTaggerWrapper<String> treeTagger)
+	{
+		treeTagger.setHandler(null);
+		if(closed)
+		{
+			destroy(treeTagger);
+			numberOfTreeTaggers.decrementAndGet();
+		}
+		else
+		{
+			idleTreeTaggers.offer(treeTagger);
+		}
+	}
+
+	/**
+	 * Destroys a TreeTagger process that has failed and replaces it by a new one, which stays borrowed by the calling thread
+	 *
+	 * @param treeTagger The failed TreeTagger
+	 * @return The new TreeTagger
+	 * @throws IOException If the TreeTagger model cannot be loaded; the failed TreeTagger has been destroyed anyway and must not be released
+	 */
+	public TreeTaggerWrapper<String> restart(final TreeTaggerWrapper<String> treeTagger) throws IOException
+	{
+		destroy(treeTagger);
+		return createTreeTagger();
+	}
+
+	/**
+	 * Destroys all idle TreeTagger processes; processes that are still borrowed are destroyed when they are released
+	 */
+	public void close()
+	{
+		closed = true;
+		TreeTaggerWrapper<String> treeTagger;
+		while(null != (treeTagger = idleTreeTaggers.poll()))
+		{
+			destroy(treeTagger);
+			numberOfTreeTaggers.decrementAndGet();
+		}
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	// the caller has already counted the new TreeTagger; if its model cannot be loaded, it is destroyed and doesn't count any longer
+	private TreeTaggerWrapper<String> createTreeTagger() throws IOException
+	{
+		TreeTaggerWrapper<String> treeTagger = new TreeTaggerWrapper<String>();
+		try
+		{
+			treeTagger.setModel(modelName);
+		}
+		catch (IOException exc)
+		{
+			treeTagger.destroy();
+			numberOfTreeTaggers.decrementAndGet();
+			throw new IOException(errorMessageBundle.getString("avve.textpreprocess.lemmatizerIoException"), exc);
+		}
+		lastHealthChecks.put(treeTagger, System.nanoTime());
+		logger.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.treeTaggerStarted"), size));
+		return treeTagger;
+	}
+
+	private void destroy(final TreeTaggerWrapper<String> treeTagger)
+	{
+		lastHealthChecks.remove(treeTagger);
+		treeTagger.destroy();
+	}
+
+	// a borrowed wrapper is only used by the calling thread, so its entry can be checked and updated without further synchronization
+	private boolean isHealthCheckDue(final TreeTaggerWrapper<String> treeTagger)
+	{
+		long now = System.nanoTime();
+		Long lastHealthCheck = lastHealthChecks.get(treeTagger);
+		if(null != lastHealthCheck && now - lastHealthCheck < healthCheckInterval)
+		{
+			return false;
+		}
+		lastHealthChecks.put(treeTagger, now);
+		return true;
+	}
+
+	private boolean isHealthy(final TreeTaggerWrapper<String> treeTagger)
+	{
+		AtomicInteger numberOfTaggedTokens = new AtomicInteger();
+		treeTagger.setHandler((token, pos, lemma) -> numberOfTaggedTokens.incrementAndGet());
+		try
+		{
+			treeTagger.process(healthCheckProbe);
+		}
+		catch (IOException | TreeTaggerException exc)
+		{
+			logger.error(exc.getLocalizedMessage(), exc);
+			return false;
+		}
+		finally
+		{
+			treeTagger.setHandler(null);
+		}
+		return numberOfTaggedTokens.get() == healthCheckProbe.length;
+	}
+
+	private volatile boolean closed = false;
+	private final BlockingQueue<TreeTaggerWrapper<String>> idleTreeTaggers = new LinkedBlockingQueue<TreeTaggerWrapper<String>>();
+	private final Map<TreeTaggerWrapper<String>, Long> lastHealthChecks = new ConcurrentHashMap<TreeTaggerWrapper<String>, Long>();
+	private Logger logger;
+	private final AtomicInteger numberOfTreeTaggers = new AtomicInteger();
+	private final int size;
+}
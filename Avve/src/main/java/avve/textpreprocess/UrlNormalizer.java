@@ -16,12 +16,17 @@ import avve.epubhandling.EbookContentData;
  * 
  * It works on EbookContentData's plain text only. It leaves the protocol name http / ftp / https in the text and removes all following characters
  * 
+ * The pattern is compiled once for all instances. If the text contains no URL, it is left untouched, without copying it; texts without
+ * "://" are not even scanned with the regular expression.
+ * 
  * @author Kai Weber
  *
  */
 public class UrlNormalizer implements TextPreprocessor
 {
 	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
+	// using a regex suggested by CodeWrite on Stack Overflow: https://stackoverflow.com/questions/6038061/regular-expression-to-find-urls-within-a-string
+	private static final Pattern urlPattern = Pattern.compile("(http|ftp|https)://([\\w_-]+(?:(?:\\.[\\w_-]+)+))([\\w.,@?^=%&:/~+#-]*[\\w@?^=%&/~+#-])?", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
 	
 	private Logger logService;
 	
@@ -40,21 +45,26 @@ public class UrlNormalizer implements TextPreprocessor
 	@Override
 	public void process(EbookContentData contentData)
 	{
-		// using a regex suggested by CodeWrite on Stack Overflow: https://stackoverflow.com/questions/6038061/regular-expression-to-find-urls-within-a-string
-		Pattern pattern = Pattern.compile("(http|ftp|https)://([\\w_-]+(?:(?:\\.[\\w_-]+)+))([\\w.,@?^=%&:/~+#-]*[\\w@?^=%&/~+#-])?", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
-		Matcher matcher = pattern.matcher(contentData.getPlainText());
-		    
-		int numberOfReplacements = 0;
-		StringBuffer sb = new StringBuffer();
+		String plainText = contentData.getPlainText();
+		// every URL contains "://", so texts without it needn't be scanned by the (much slower) regular expression
+		Matcher matcher = plainText.contains("://") ? urlPattern.matcher(plainText) : null;
 		
-		while(matcher.find())
+		int numberOfReplacements = 0;
+		if(null != matcher && matcher.find())
 		{
-			numberOfReplacements++;
-			matcher.appendReplacement(sb, "$1:// ");
+			StringBuilder sb = new StringBuilder(plainText.length());
+			int endOfPreviousUrl = 0;
+			do
+			{
+				numberOfReplacements++;
+				sb.append(plainText, endOfPreviousUrl, matcher.start()).append(plainText, matcher.start(1), matcher.end(1)).append(":// ");
+				endOfPreviousUrl = matcher.end();
+			}
+			while(matcher.find());
+			sb.append(plainText, endOfPreviousUrl, plainText.length());
+			
+			contentData.setPlainText(sb.toString());
 		}
-		matcher.appendTail(sb);
-		
-		contentData.setPlainText(sb.toString());
 		this.logService.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.urlsNormalized"), numberOfReplacements));	
 	}
 }
\ No newline at end of file
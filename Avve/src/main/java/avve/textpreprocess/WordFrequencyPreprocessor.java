@@ -35,9 +35,9 @@ public class WordFrequencyPreprocessor implements TextPreprocessor
 	{
 		logger.debug(infoMessagesBundle.getString("avve.textpreprocess.wordFrequencyProcessorStart"));
 		
-		for(String[] sentence : contentData.getTokens())
+		for(int i = 0; i < contentData.getNumberOfTokenizedSentences(); i++)
 		{
-			for(String token : sentence)
+			for(String token : contentData.getTokens(i))
 			{
 				contentData.countWord(token);
 			}
@@ -0,0 +1,47 @@
+package avve.textpreprocess.hyperonym;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A thesaurus backend that looks up all terms in a ThesaurusSnapshot held in memory, so no database is needed while e-books are processed.
+ *
+ * @author Kai Weber
+ *
+ */
+public class EmbeddedThesaurusBackend implements ThesaurusBackend
+{
+	public EmbeddedThesaurusBackend(final ThesaurusSnapshot thesaurusSnapshot)
+	{
+		this.thesaurusSnapshot = thesaurusSnapshot;
+	}
+
+	@Override
+	public ThesaurusTermMatcher getTermMatcher()
+	{
+		return thesaurusSnapshot.getTermMatcher();
+	}
+
+	@Override
+	public int lookUp(final Collection<String> terms, final Map<String, ThesaurusEntry> entries)
+	{
+		for(String term : terms)
+		{
+			entries.put(term, thesaurusSnapshot.lookup(term));
+		}
+		return terms.size();
+	}
+
+	@Override
+	public void close()
+	{
+		// nothing to release
+	}
+
+	public ThesaurusSnapshot getThesaurusSnapshot()
+	{
+		return thesaurusSnapshot;
+	}
+
+	private final ThesaurusSnapshot thesaurusSnapshot;
+}
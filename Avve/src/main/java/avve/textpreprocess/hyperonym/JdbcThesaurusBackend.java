@@ -0,0 +1,107 @@
+package avve.textpreprocess.hyperonym;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A thesaurus backend that queries the OpenThesaurus MySQL database via a ThesaurusConnectionPool. The terms of the thesaurus are read once
+ * for the term matcher; the entries of the terms found are read in batches by a ThesaurusDatabaseReader and cached in a ThesaurusEntryCache.
+ *
+ * @author Kai Weber
+ *
+ */
+public class JdbcThesaurusBackend implements ThesaurusBackend
+{
+	private static final ResourceBundle infoMessagesBundle = ResourceBundle.getBundle("InfoMessagesBundle", Locale.getDefault());
+
+	/**
+	 * Constructor
+	 * @param connectionPool The pool of database connections
+	 * @param entryCache The cache of the entries read from the database
+	 * @param logger The logger to be used
+	 */
+	public JdbcThesaurusBackend(final ThesaurusConnectionPool connectionPool, final ThesaurusEntryCache entryCache, final Logger logger)
+	{
+		this.connectionPool = connectionPool;
+		this.databaseReader = new ThesaurusDatabaseReader(entryCache);
+		this.entryCache = entryCache;
+		this.logger = logger;
+	}
+
+	/**
+	 * Reads all tables the HyperonymPreprocessor needs into a snapshot
+	 *
+	 * @return A snapshot of the database
+	 * @throws SQLException If the database cannot be read
+	 */
+	public ThesaurusSnapshot createSnapshot() throws SQLException
+	{
+		Connection connection = connectionPool.borrow();
+		try
+		{
+			return ThesaurusSnapshot.fromDatabase(connection);
+		}
+		finally
+		{
+			connectionPool.release(connection);
+		}
+	}
+
+	@Override
+	public synchronized ThesaurusTermMatcher getTermMatcher() throws SQLException
+	{
+		if(null == termMatcher)
+		{
+			ThesaurusTermMatcher newTermMatcher = new ThesaurusTermMatcher();
+			Connection connection = connectionPool.borrow();
+			try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("SELECT word FROM term"))
+			{
+				while(resultSet.next())
+				{
+					newTermMatcher.addTerm(resultSet.getString(1));
+				}
+			}
+			finally
+			{
+				connectionPool.release(connection);
+			}
+			termMatcher = newTermMatcher;
+			logger.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.thesaurusTermsLoaded"), termMatcher.size()));
+		}
+		return termMatcher;
+	}
+
+	@Override
+	public int lookUp(final Collection<String> terms, final Map<String, ThesaurusEntry> entries) throws SQLException
+	{
+		try
+		{
+			return databaseReader.lookUp(connectionPool, terms, entries);
+		}
+		finally
+		{
+			logger.info(String.format(infoMessagesBundle.getString("avve.textpreprocess.thesaurusCacheStatistics"), entryCache.getHits(),
+					entryCache.getMisses(), entryCache.size()));
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		connectionPool.close();
+	}
+
+	private final ThesaurusConnectionPool connectionPool;
+	private final ThesaurusDatabaseReader databaseReader;
+	private final ThesaurusEntryCache entryCache;
+	private Logger logger;
+	private ThesaurusTermMatcher termMatcher;
+}
@@ -0,0 +1,443 @@
+package avve.textpreprocess.hyperonym;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Imports the MySQL dump of the OpenThesaurus database (as offered for download by OpenThesaurus, or written by mysqldump) into a
+ * ThesaurusSnapshot, so that the thesaurus can be used without a MySQL server. The dump is read statement by statement; only the
+ * INSERT statements of the synset, term, category, category_link and synset_link tables are evaluated. The columns of a table are
+ * taken from the column list of the INSERT statement or, if there is none, from the table's CREATE TABLE statement, so the importer
+ * doesn't depend on the column order of a particular OpenThesaurus version.
+ *
+ * Dump files with the extension .gz are decompressed while reading.
+ *
+ * @author Kai Weber
+ *
+ */
+public class OpenThesaurusDumpImporter
+{
+	private static final ResourceBundle errorMessagesBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
+
+	/**
+	 * @param dumpFile An OpenThesaurus MySQL dump
+	 * @return A snapshot of the thesaurus
+	 * @throws IOException If the dump cannot be read or lacks a table column the snapshot needs
+	 */
+	public static ThesaurusSnapshot importDump(final Path dumpFile) throws IOException
+	{
+		OpenThesaurusDumpImporter importer = new OpenThesaurusDumpImporter(dumpFile);
+		boolean isCompressed = dumpFile.getFileName().toString().endsWith(".gz");
+		// every stream is a resource of its own, so that the file is closed even if the GZIP header cannot be read
+		try (InputStream fileInputStream = Files.newInputStream(dumpFile);
+				InputStream inputStream = isCompressed ? new GZIPInputStream(fileInputStream, 65536) : fileInputStream;
+				Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), 65536))
+		{
+			importer.readStatements(reader);
+		}
+		catch (NumberFormatException | IndexOutOfBoundsException exc)
+		{
+			throw new IOException(String.format(errorMessagesBundle.getString("avve.textpreprocess.hyperonym.dumpSyntaxError"), dumpFile, -1), exc);
+		}
+		return importer.builder.build();
+	}
+
+	private OpenThesaurusDumpImporter(final Path dumpFile)
+	{
+		this.dumpFile = dumpFile;
+	}
+
+	// splits the dump into statements, skipping comments; quoted strings are kept unchanged for parsing the statement
+	private void readStatements(final Reader reader) throws IOException
+	{
+		StringBuilder statement = new StringBuilder();
+		int c;
+		while((c = reader.read()) != -1)
+		{
+			if(c == '\'' || c == '"' || c == '`')
+			{
+				statement.append((char)c);
+				copyQuoted(reader, (char)c, statement);
+			}
+			else if(c == '-' && statement.length() > 0 && statement.charAt(statement.length() - 1) == '-')
+			{
+				// "--" comment up to the end of the line
+				statement.setLength(statement.length() - 1);
+				skipLine(reader);
+			}
+			else if(c == '*' && statement.length() > 0 && statement.charAt(statement.length() - 1) == '/')
+			{
+				// "/* */" comment, including MySQL's conditional "/*!...*/" statements, which don't concern the thesaurus tables
+				statement.setLength(statement.length() - 1);
+				skipBlockComment(reader);
+			}
+			else if(c == ';')
+			{
+				evaluateStatement(statement.toString().trim());
+				statement.setLength(0);
+			}
+			else
+			{
+				statement.append((char)c);
+			}
+		}
+		evaluateStatement(statement.toString().trim());
+	}
+
+	private void evaluateStatement(final String statement) throws IOException
+	{
+		if(startsWithIgnoreCase(statement, "CREATE TABLE"))
+		{
+			StatementParser parser = new StatementParser(statement, "CREATE TABLE".length());
+			String table = parser.readIdentifier();
+			List<String> columns = new ArrayList<String>();
+			// column definitions start with the (quoted) column name; keys and constraints start with a keyword
+			for(String line : statement.split("\n"))
+			{
+				line = line.trim();
+				if(line.startsWith("`"))
+				{
+					columns.add(line.substring(1, line.indexOf('`', 1)));
+				}
+			}
+			tableColumns.put(table, columns);
+		}
+		else if(startsWithIgnoreCase(statement, "INSERT INTO"))
+		{
+			StatementParser parser = new StatementParser(statement, "INSERT INTO".length());
+			String table = parser.readIdentifier();
+			RowHandler rowHandler = getRowHandler(table);
+			if(null == rowHandler)
+			{
+				return;
+			}
+			List<String> columns = tableColumns.get(table);
+			if(parser.nextIs('('))
+			{
+				columns = parser.readIdentifierList();
+			}
+			ColumnIndexes columnIndexes = new ColumnIndexes(table, columns);
+			parser.skipKeyword("VALUES");
+			List<String> values;
+			while(null != (values = parser.readTuple()))
+			{
+				rowHandler.handle(values, columnIndexes);
+			}
+		}
+	}
+
+	private RowHandler getRowHandler(final String table)
+	{
+		switch(table)
+		{
+			case "synset":
+				return (values, columns) -> builder.addSynset(parseInt(values.get(columns.get("id"))),
+						parseBoolean(values.get(columns.get("is_visible"))), values.get(columns.get("synset_preferred_term")));
+			case "term":
+				return (values, columns) -> builder.addTerm(parseInt(values.get(columns.get("synset_id"))), values.get(columns.get("word")));
+			case "category":
+				return (values, columns) -> builder.addCategory(parseInt(values.get(columns.get("id"))), values.get(columns.get("category_name")));
+			case "category_link":
+				return (values, columns) -> builder.addCategoryLink(parseInt(values.get(columns.get("category_id"))),
+						parseInt(values.get(columns.get("synset_id"))));
+			case "synset_link":
+				return (values, columns) ->
+				{
+					// only hyperonym links (link type 1) are used
+					if(parseInt(values.get(columns.get("link_type_id"))) == 1)
+					{
+						builder.addHyperonymLink(parseInt(values.get(columns.get("synset_id"))), parseInt(values.get(columns.get("target_synset_id"))));
+					}
+				};
+			default:
+				return null;
+		}
+	}
+
+	// bit columns are dumped as b'1', as numbers or as strings of a single byte 0 or 1
+	private static boolean parseBoolean(final String value)
+	{
+		if(null == value || value.isEmpty())
+		{
+			return false;
+		}
+		char c = value.charAt(0);
+		return c != '\0' && c != '0';
+	}
+
+	private static int parseInt(final String value)
+	{
+		return null == value ? -1 : Integer.parseInt(value.trim());
+	}
+
+	private static boolean startsWithIgnoreCase(final String string, final String prefix)
+	{
+		return string.regionMatches(true, 0, prefix, 0, prefix.length());
+	}
+
+	private static void copyQuoted(final Reader reader, final char quote, final StringBuilder statement) throws IOException
+	{
+		int c;
+		while((c = reader.read()) != -1)
+		{
+			statement.append((char)c);
+			if(c == '\\' && quote != '`')
+			{
+				int escaped = reader.read();
+				if(escaped != -1)
+				{
+					statement.append((char)escaped);
+				}
+			}
+			else if(c == quote)
+			{
+				return;
+			}
+		}
+	}
+
+	private static void skipBlockComment(final Reader reader) throws IOException
+	{
+		int previous = -1;
+		int c;
+		while((c = reader.read()) != -1 && !(previous == '*' && c == '/'))
+		{
+			previous = c;
+		}
+	}
+
+	private static void skipLine(final Reader reader) throws IOException
+	{
+		int c;
+		while((c = reader.read()) != -1 && c != '\n')
+		{
+			// skip
+		}
+	}
+
+	@FunctionalInterface
+	private interface RowHandler
+	{
+		void handle(List<String> values, ColumnIndexes columns) throws IOException;
+	}
+
+	// the positions of the columns of an INSERT statement's values
+	private class ColumnIndexes
+	{
+		ColumnIndexes(final String table, final List<String> columns)
+		{
+			this.table = table;
+			if(null != columns)
+			{
+				for(int i = 0; i < columns.size(); i++)
+				{
+					indexes.put(columns.get(i), i);
+				}
+			}
+		}
+
+		int get(final String column) throws IOException
+		{
+			Integer index = indexes.get(column);
+			if(null == index)
+			{
+				throw new IOException(String.format(errorMessagesBundle.getString("avve.textpreprocess.hyperonym.dumpColumnMissing"), table, dumpFile, column));
+			}
+			return index;
+		}
+
+		private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+		private final String table;
+	}
+
+	// reads identifiers and value tuples from a statement
+	private class StatementParser
+	{
+		StatementParser(final String statement, final int position)
+		{
+			this.statement = statement;
+			this.position = position;
+		}
+
+		String readIdentifier()
+		{
+			skipWhitespace();
+			if(position < statement.length() && statement.charAt(position) == '`')
+			{
+				int end = statement.indexOf('`', position + 1);
+				String identifier = statement.substring(position + 1, end);
+				position = end + 1;
+				return identifier;
+			}
+			int start = position;
+			while(position < statement.length() && (Character.isLetterOrDigit(statement.charAt(position)) || statement.charAt(position) == '_'))
+			{
+				position++;
+			}
+			return statement.substring(start, position);
+		}
+
+		List<String> readIdentifierList()
+		{
+			List<String> identifiers = new ArrayList<String>();
+			position++; // (
+			while(true)
+			{
+				identifiers.add(readIdentifier());
+				skipWhitespace();
+				if(statement.charAt(position++) == ')')
+				{
+					return identifiers;
+				}
+			}
+		}
+
+		// returns the values of the next tuple, or null if there are no more tuples
+		List<String> readTuple() throws IOException
+		{
+			skipWhitespace();
+			if(position < statement.length() && statement.charAt(position) == ',')
+			{
+				position++;
+				skipWhitespace();
+			}
+			if(position >= statement.length())
+			{
+				return null;
+			}
+			if(statement.charAt(position) != '(')
+			{
+				throw new IOException(String.format(errorMessagesBundle.getString("avve.textpreprocess.hyperonym.dumpSyntaxError"), dumpFile, position));
+			}
+			position++;
+			List<String> values = new ArrayList<String>();
+			while(true)
+			{
+				values.add(readValue());
+				skipWhitespace();
+				char c = position < statement.length() ? statement.charAt(position++) : ')';
+				if(c == ')')
+				{
+					return values;
+				}
+				if(c != ',')
+				{
+					throw new IOException(String.format(errorMessagesBundle.getString("avve.textpreprocess.hyperonym.dumpSyntaxError"), dumpFile, position - 1));
+				}
+			}
+		}
+
+		// skips whitespace and returns true if the next character is the expected one
+		boolean nextIs(final char expected)
+		{
+			skipWhitespace();
+			return position < statement.length() && statement.charAt(position) == expected;
+		}
+
+		void skipKeyword(final String keyword)
+		{
+			skipWhitespace();
+			if(statement.regionMatches(true, position, keyword, 0, keyword.length()))
+			{
+				position += keyword.length();
+			}
+		}
+
+		private String readValue()
+		{
+			skipWhitespace();
+			if(statement.startsWith("_binary", position))
+			{
+				position += "_binary".length();
+				skipWhitespace();
+			}
+			char c = statement.charAt(position);
+			if(c == '\'')
+			{
+				return readString();
+			}
+			if((c == 'b' || c == 'B') && statement.charAt(position + 1) == '\'')
+			{
+				position++;
+				return String.valueOf(Long.parseLong(readString(), 2));
+			}
+			int start = position;
+			while(position < statement.length() && statement.charAt(position) != ',' && statement.charAt(position) != ')')
+			{
+				position++;
+			}
+			String value = statement.substring(start, position).trim();
+			return value.equalsIgnoreCase("NULL") ? null : value;
+		}
+
+		private String readString()
+		{
+			StringBuilder value = new StringBuilder();
+			position++; // opening quote
+			while(position < statement.length())
+			{
+				char c = statement.charAt(position++);
+				if(c == '\\' && position < statement.length())
+				{
+					char escaped = statement.charAt(position++);
+					switch(escaped)
+					{
+						case '0': value.append('\0'); break;
+						case 'b': value.append('\b'); break;
+						case 'n': value.append('\n'); break;
+						case 'r': value.append('\r'); break;
+						case 't': value.append('\t'); break;
+						case 'Z': value.append('\u001A'); break;
+						case '%': case '_': value.append('\\').append(escaped); break;
+						default: value.append(escaped);
+					}
+				}
+				else if(c == '\'')
+				{
+					if(position < statement.length() && statement.charAt(position) == '\'')
+					{
+						value.append('\'');
+						position++;
+					}
+					else
+					{
+						break;
+					}
+				}
+				else
+				{
+					value.append(c);
+				}
+			}
+			return value.toString();
+		}
+
+		private void skipWhitespace()
+		{
+			while(position < statement.length() && Character.isWhitespace(statement.charAt(position)))
+			{
+				position++;
+			}
+		}
+
+		private int position;
+		private final String statement;
+	}
+
+	private final ThesaurusSnapshot.Builder builder = ThesaurusSnapshot.builder();
+	private final Path dumpFile;
+	private final Map<String, List<String>> tableColumns = new HashMap<String, List<String>>();
+}
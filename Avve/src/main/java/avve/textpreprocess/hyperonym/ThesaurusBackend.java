@@ -0,0 +1,39 @@
+package avve.textpreprocess.hyperonym;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The source of the thesaurus data used by the HyperonymPreprocessor. A backend is shared by the HyperonymPreprocessors of all threads, so
+ * implementations must be thread-safe.
+ *
+ * There are two implementations: JdbcThesaurusBackend queries the OpenThesaurus MySQL database, EmbeddedThesaurusBackend looks up the terms
+ * in a ThesaurusSnapshot, which has been read from the database or imported from an OpenThesaurus database dump.
+ *
+ * @author Kai Weber
+ *
+ */
+public interface ThesaurusBackend
+{
+	/**
+	 * @return A trie of all thesaurus terms
+	 * @throws SQLException If the terms cannot be read
+	 */
+	ThesaurusTermMatcher getTermMatcher() throws SQLException;
+
+	/**
+	 * Looks up the thesaurus entries of terms
+	 *
+	 * @param terms Terms found by the backend's term matcher
+	 * @param entries Receives the thesaurus entry of each term
+	 * @return The number of lookups the backend has performed, e.g. database queries
+	 * @throws SQLException If the thesaurus cannot be queried
+	 */
+	int lookUp(Collection<String> terms, Map<String, ThesaurusEntry> entries) throws SQLException;
+
+	/**
+	 * Releases the resources held by the backend
+	 */
+	void close();
+}
@@ -0,0 +1,133 @@
+package avve.textpreprocess.hyperonym;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Logger;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * A pool of connections to the OpenThesaurus MySQL database, shared by the HyperonymPreprocessors of all threads, so that a connection is
+ * not opened and closed for every e-book. Callers borrow a connection and return it via release().
+ *
+ * The pool is a HikariCP data source. Connections are opened lazily, up to the configured pool size. When borrowed, a connection that has
+ * been idle for a while is checked with Connection.isValid() and replaced if the check fails or takes longer than the validation timeout,
+ * for example because the server has closed it after a timeout. A connection that has not been released within the leak detection
+ * threshold is reported as abandoned in the log. The database is configured in the hyperonym properties (see HyperonymProperties).
+ *
+ * @author Kai Weber
+ *
+ */
+public class ThesaurusConnectionPool
+{
+	private static final ResourceBundle errorMessagesBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
+	private static final long validationTimeout = TimeUnit.SECONDS.toMillis(2);
+	// the pool has a connection per thread by default, so this is mostly the time to wait for an unreachable database
+	private static final long connectionTimeout = TimeUnit.SECONDS.toMillis(10);
+	private static final long leakDetectionThreshold = TimeUnit.MINUTES.toMillis(1);
+
+	/**
+	 * Constructor
+	 * @param size The maximum number of connections
+	 * @param logger The logger to be used
+	 */
+	public ThesaurusConnectionPool(final int size, final Logger logger)
+	{
+		this.size = Math.max(size, 1);
+		this.logger = logger;
+		HyperonymProperties hyperonymProperties = HyperonymProperties.getInstance(logger);
+		dbUrl = "jdbc:mysql://" + hyperonymProperties.getProperty(HyperonymPropertyName.DB_HOST) + ":3306/openthesaurus?useSSL=false&requireSSL=false";
+		loadMysqlDriver();
+
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("thesaurus");
+		config.setJdbcUrl(dbUrl);
+		config.setUsername(hyperonymProperties.getProperty(HyperonymPropertyName.DB_USER));
+		config.setPassword(hyperonymProperties.getProperty(HyperonymPropertyName.DB_PASSWORD));
+		config.setMaximumPoolSize(this.size);
+		config.setMinimumIdle(0);
+		config.setConnectionTimeout(connectionTimeout);
+		config.setValidationTimeout(validationTimeout);
+		config.setLeakDetectionThreshold(leakDetectionThreshold);
+		// don't connect before the first connection is borrowed, so that the pool can be created without a running database
+		config.setInitializationFailTimeout(-1);
+		dataSource = new HikariDataSource(config);
+	}
+
+	/**
+	 * Borrows a connection from the pool, opening a new connection if none is idle and the pool size has not been reached yet. Otherwise
+	 * this method blocks until another thread releases a connection, at most for the connection timeout.
+	 *
+	 * @return A connection for the exclusive use of the calling thread
+	 * @throws SQLException If the pool has been closed, a connection cannot be opened or no connection has been released in time
+	 */
+	public Connection borrow() throws SQLException
+	{
+		if(dataSource.isClosed())
+		{
+			throw new SQLException(errorMessagesBundle.getString("avve.textpreprocess.hyperonym.connectionPoolClosed"));
+		}
+
+		try
+		{
+			return dataSource.getConnection();
+		}
+		catch (SQLException exc)
+		{
+			logger.error(String.format(errorMessagesBundle.getString("avve.textpreprocess.dbConnectionException"), dbUrl));
+			throw exc;
+		}
+	}
+
+	/**
+	 * Returns a borrowed connection to the pool
+	 *
+	 * @param connection The connection returned by borrow()
+	 */
+	public void release(final Connection connection)
+	{
+		try
+		{
+			connection.close();
+		}
+		catch (SQLException exc)
+		{
+			logger.warn(exc.getLocalizedMessage(), exc);
+		}
+	}
+
+	/**
+	 * Closes the pool and all its connections
+	 */
+	public void close()
+	{
+		dataSource.close();
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	private void loadMysqlDriver()
+	{
+		try
+		{
+			Class.forName("com.mysql.jdbc.Driver").newInstance();
+		}
+		catch (Exception exc)
+		{
+			logger.error(String.format(errorMessagesBundle.getString("avve.textpreprocess.dbDriverLoadException"), getClass().getSimpleName()));
+		}
+	}
+
+	private final HikariDataSource dataSource;
+	private final String dbUrl;
+	private Logger logger;
+	private final int size;
+}
@@ -0,0 +1,165 @@
+package avve.textpreprocess.hyperonym;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the thesaurus entries of terms from the OpenThesaurus database. Terms that are in the ThesaurusEntryCache are taken from there; the
+ * others are read in batches of up to BATCH_SIZE terms, with one category query and one hyperonym query per batch, and added to the cache.
+ *
+ * As in the per-term queries used before, terms are matched by the database's collation. The rows of a batch are assigned to the terms
+ * case-insensitively, so rows of words that only match a term by the collation's folding of accented characters are not used.
+ *
+ * @author Kai Weber
+ *
+ */
+public class ThesaurusDatabaseReader
+{
+	public static final int BATCH_SIZE = 500;
+
+	private static final String categoryQueryTemplate = "SELECT t.word, category_name "
+			+ "FROM category cat "
+			+ "INNER JOIN category_link cl on cat.id = cl.category_id "
+			+ "LEFT JOIN synset syn ON cl.synset_id = syn.id "
+			+ "LEFT JOIN term t ON t.synset_id = syn.id "
+			+ "WHERE t.word IN (%s)";
+	// the rows are ordered so that the hyperonym used for a term doesn't depend on the batch it is read in
+	private static final String hyperonymQueryTemplate =
+			"SELECT t.word, targsynset.synset_preferred_term, t2.word AS target_word "
+			+ " FROM synset_link sl "
+			+ "  INNER JOIN synset s ON s.id = sl.synset_id "
+			+ "  INNER JOIN link_type lt ON sl.link_type_id = lt.id "
+			+ "  LEFT JOIN term t ON sl.synset_id = t.synset_id "
+			+ "  LEFT JOIN term t2 ON sl.target_synset_id = t2.synset_id "
+			+ "  INNER JOIN synset targsynset ON t2.synset_id = targsynset.id "
+			+ "WHERE s.is_visible "
+			+ "  AND lt.id = 1 "
+			+ "  AND t.word IN (%s) "
+			+ "ORDER BY t.id, sl.id, t2.id";
+
+	/**
+	 * Constructor
+	 * @param entryCache The cache shared by all readers
+	 */
+	public ThesaurusDatabaseReader(final ThesaurusEntryCache entryCache)
+	{
+		this.entryCache = entryCache;
+	}
+
+	/**
+	 * Looks up the thesaurus entries of terms
+	 *
+	 * @param connectionPool The pool of connections to the OpenThesaurus database; a connection is only borrowed if a term is not cached
+	 * @param terms The terms
+	 * @param entries Receives the thesaurus entry of each term
+	 * @return The number of database queries performed
+	 * @throws SQLException If a query fails
+	 */
+	public int lookUp(final ThesaurusConnectionPool connectionPool, final Collection<String> terms, final Map<String, ThesaurusEntry> entries) throws SQLException
+	{
+		// terms that only differ by case are read once
+		Map<String, List<String>> uncachedTerms = new LinkedHashMap<String, List<String>>();
+		for(String term : terms)
+		{
+			ThesaurusEntry entry = entryCache.get(term);
+			if(null == entry)
+			{
+				uncachedTerms.computeIfAbsent(ThesaurusSnapshot.normalize(term), key -> new ArrayList<String>(1)).add(term);
+			}
+			else
+			{
+				entries.put(term, entry);
+			}
+		}
+
+		if(uncachedTerms.isEmpty())
+		{
+			return 0;
+		}
+		Connection connection = connectionPool.borrow();
+		try
+		{
+			return readEntries(connection, uncachedTerms, entries);
+		}
+		finally
+		{
+			connectionPool.release(connection);
+		}
+	}
+
+	private int readEntries(final Connection connection, final Map<String, List<String>> uncachedTerms, final Map<String, ThesaurusEntry> entries) throws SQLException
+	{
+		int numberOfQueries = 0;
+		List<String> normalizedTerms = new ArrayList<String>(uncachedTerms.keySet());
+		for(int from = 0; from < normalizedTerms.size(); from += BATCH_SIZE)
+		{
+			List<String> batch = normalizedTerms.subList(from, Math.min(from + BATCH_SIZE, normalizedTerms.size()));
+			String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+
+			Map<String, List<String>> categories = new HashMap<String, List<String>>();
+			try (PreparedStatement statement = connection.prepareStatement(String.format(categoryQueryTemplate, placeholders)))
+			{
+				setTerms(statement, batch);
+				try (ResultSet resultSet = statement.executeQuery())
+				{
+					while(resultSet.next())
+					{
+						if(null != resultSet.getString(2))
+						{
+							categories.computeIfAbsent(ThesaurusSnapshot.normalize(resultSet.getString(1)), key -> new ArrayList<String>(2)).add(resultSet.getString(2));
+						}
+					}
+				}
+				numberOfQueries++;
+			}
+
+			Map<String, String[]> hyperonyms = new HashMap<String, String[]>();
+			try (PreparedStatement statement = connection.prepareStatement(String.format(hyperonymQueryTemplate, placeholders)))
+			{
+				setTerms(statement, batch);
+				try (ResultSet resultSet = statement.executeQuery())
+				{
+					while(resultSet.next())
+					{
+						// only the first hyperonym of a term is used
+						hyperonyms.putIfAbsent(ThesaurusSnapshot.normalize(resultSet.getString(1)), new String[] { resultSet.getString(2), resultSet.getString(3) });
+					}
+				}
+				numberOfQueries++;
+			}
+
+			for(String normalizedTerm : batch)
+			{
+				List<String> termCategories = categories.getOrDefault(normalizedTerm, Collections.emptyList());
+				String[] termHyperonyms = hyperonyms.get(normalizedTerm);
+				ThesaurusEntry entry = new ThesaurusEntry(termCategories.toArray(new String[termCategories.size()]),
+						null == termHyperonyms ? null : termHyperonyms[0], null == termHyperonyms ? null : termHyperonyms[1]);
+				entryCache.put(normalizedTerm, entry);
+				for(String term : uncachedTerms.get(normalizedTerm))
+				{
+					entries.put(term, entry);
+				}
+			}
+		}
+		return numberOfQueries;
+	}
+
+	private static void setTerms(final PreparedStatement statement, final List<String> terms) throws SQLException
+	{
+		for(int i = 0; i < terms.size(); i++)
+		{
+			statement.setString(i + 1, terms.get(i));
+		}
+	}
+
+	private final ThesaurusEntryCache entryCache;
+}
@@ -0,0 +1,51 @@
+package avve.textpreprocess.hyperonym;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The thesaurus data the HyperonymPreprocessor needs for one term: the names of the categories of all synsets the term belongs to (one
+ * entry per category link, so a name may occur more than once) and the term's first hyperonym, both as the preferred term of the
+ * hyperonym's synset and as the synset's first word.
+ *
+ * @author Kai Weber
+ *
+ */
+public final class ThesaurusEntry
+{
+	public ThesaurusEntry(final String[] categories, final String preferredHyperonym, final String hyperonym)
+	{
+		this.categories = categories;
+		this.hyperonym = hyperonym;
+		this.preferredHyperonym = preferredHyperonym;
+	}
+
+	/**
+	 * @return The category names of the term's synsets
+	 */
+	public List<String> getCategories()
+	{
+		return Collections.unmodifiableList(Arrays.asList(categories));
+	}
+
+	/**
+	 * @return The first word of the term's first hyperonym synset, or null if the term has no hyperonym
+	 */
+	public String getHyperonym()
+	{
+		return hyperonym;
+	}
+
+	/**
+	 * @return The preferred term of the term's first hyperonym synset, or null if the synset has none
+	 */
+	public String getPreferredHyperonym()
+	{
+		return preferredHyperonym;
+	}
+
+	final String[] categories;
+	final String hyperonym;
+	final String preferredHyperonym;
+}
@@ -0,0 +1,104 @@
+package avve.textpreprocess.hyperonym;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of the thesaurus entries read from the thesaurus database, keyed by term. It is shared by the HyperonymPreprocessors of all threads,
+ * so every term is read from the database once per run rather than once per e-book.
+ *
+ * The cache holds at most capacity entries; when it is full, the least recently used entry is evicted. A capacity of 0 disables the cache.
+ * The numbers of hits and misses are counted for logging.
+ *
+ * @author Kai Weber
+ *
+ */
+public class ThesaurusEntryCache
+{
+	public static final int capacityDefaultValue = 100000;
+
+	/**
+	 * Constructor
+	 * @param capacity The maximum number of cached entries
+	 */
+	public ThesaurusEntryCache(final int capacity)
+	{
+		this.capacity = Math.max(capacity, 0);
+		entries = new LinkedHashMap<String, ThesaurusEntry>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, ThesaurusEntry> eldest)
+			{
+				return size() > ThesaurusEntryCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * @param term A term
+	 * @return The term's cached entry, or null if it is not cached
+	 */
+	public ThesaurusEntry get(final String term)
+	{
+		ThesaurusEntry entry;
+		synchronized(entries)
+		{
+			entry = entries.get(ThesaurusSnapshot.normalize(term));
+		}
+		if(null == entry)
+		{
+			misses.increment();
+		}
+		else
+		{
+			hits.increment();
+		}
+		return entry;
+	}
+
+	public long getHits()
+	{
+		return hits.sum();
+	}
+
+	public long getMisses()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * Adds an entry to the cache, evicting the least recently used entry if the cache is full
+	 *
+	 * @param term A term
+	 * @param entry The term's thesaurus entry
+	 */
+	public void put(final String term, final ThesaurusEntry entry)
+	{
+		if(capacity > 0)
+		{
+			synchronized(entries)
+			{
+				entries.put(ThesaurusSnapshot.normalize(term), entry);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of cached entries
+	 */
+	public int size()
+	{
+		synchronized(entries)
+		{
+			return entries.size();
+		}
+	}
+
+	private final int capacity;
+	private final LinkedHashMap<String, ThesaurusEntry> entries;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+}
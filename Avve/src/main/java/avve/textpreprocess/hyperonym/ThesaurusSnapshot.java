@@ -0,0 +1,394 @@
+package avve.textpreprocess.hyperonym;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * An in-memory copy of the parts of the OpenThesaurus database the HyperonymPreprocessor uses: for every term, the names of its synsets'
+ * categories and its first hyperonym. With a snapshot, all thesaurus lookups are hash lookups in the process instead of database queries,
+ * and e-books can be processed on machines without access to the database.
+ *
+ * A snapshot is built once from the database tables (fromDatabase()) and can be saved to and loaded from a snapshot file (command line
+ * parameter -ths). The file is read and written via memory mapping: a header (magic number, version, number of category names), the
+ * category names, the number of terms and one record per term, consisting of the term, the number of categories, the category names'
+ * indexes, the preferred hyperonym and the hyperonym. All strings are stored as length-prefixed UTF-8, missing strings with a length of -1.
+ *
+ * Terms are looked up case-insensitively, as in the database's default collation; the collation's folding of accented characters is not
+ * replicated.
+ *
+ * @author Kai Weber
+ *
+ */
+public class ThesaurusSnapshot
+{
+	private static final ResourceBundle errorMessagesBundle = ResourceBundle.getBundle("ErrorMessagesBundle", Locale.getDefault());
+	private static final int FILE_MAGIC_NUMBER = 0x41565453; // "AVTS"
+	private static final int FILE_VERSION = 1;
+	private static final Locale termLocale = Locale.GERMAN;
+
+	/**
+	 * Collects the rows of the thesaurus tables and builds a snapshot from them. Terms and links must be added in the order of their ids,
+	 * which determines the hyperonym chosen for a term with several hyperonyms.
+	 */
+	public static class Builder
+	{
+		private Builder()
+		{
+		}
+
+		public Builder addCategory(final int categoryId, final String categoryName)
+		{
+			categoryNames.put(categoryId, categoryName);
+			return this;
+		}
+
+		public Builder addCategoryLink(final int categoryId, final int synsetId)
+		{
+			categoryIdsBySynset.computeIfAbsent(synsetId, key -> new ArrayList<Integer>(2)).add(categoryId);
+			return this;
+		}
+
+		/**
+		 * Adds a link of type 1 (hyperonym) from a synset to its hyperonym synset
+		 */
+		public Builder addHyperonymLink(final int synsetId, final int hyperonymSynsetId)
+		{
+			hyperonymSynsetIdsBySynset.computeIfAbsent(synsetId, key -> new ArrayList<Integer>(2)).add(hyperonymSynsetId);
+			return this;
+		}
+
+		public Builder addSynset(final int synsetId, final boolean isVisible, final String preferredTerm)
+		{
+			preferredTerms.put(synsetId, preferredTerm);
+			if(isVisible)
+			{
+				visibleSynsetIds.put(synsetId, Boolean.TRUE);
+			}
+			return this;
+		}
+
+		public Builder addTerm(final int synsetId, final String word)
+		{
+			termSynsetIds.add(synsetId);
+			termWords.add(word);
+			wordsBySynset.computeIfAbsent(synsetId, key -> new ArrayList<String>(4)).add(word);
+			return this;
+		}
+
+		public ThesaurusSnapshot build()
+		{
+			Map<String, List<String>> categoriesByTerm = new HashMap<String, List<String>>();
+			Map<String, String[]> hyperonymsByTerm = new HashMap<String, String[]>();
+			for(int i = 0; i < termWords.size(); i++)
+			{
+				String term = normalize(termWords.get(i));
+				int synsetId = termSynsetIds.get(i);
+				List<String> categories = categoriesByTerm.computeIfAbsent(term, key -> new ArrayList<String>(2));
+				if(preferredTerms.containsKey(synsetId))
+				{
+					for(int categoryId : categoryIdsBySynset.getOrDefault(synsetId, Collections.emptyList()))
+					{
+						String categoryName = categoryNames.get(categoryId);
+						if(null != categoryName)
+						{
+							categories.add(categoryName);
+						}
+					}
+				}
+				// the hyperonym of a term is taken from its first visible synset with a hyperonym link to a synset with words
+				if(!hyperonymsByTerm.containsKey(term) && visibleSynsetIds.containsKey(synsetId))
+				{
+					for(int hyperonymSynsetId : hyperonymSynsetIdsBySynset.getOrDefault(synsetId, Collections.emptyList()))
+					{
+						List<String> hyperonymWords = wordsBySynset.get(hyperonymSynsetId);
+						if(preferredTerms.containsKey(hyperonymSynsetId) && null != hyperonymWords)
+						{
+							hyperonymsByTerm.put(term, new String[] { preferredTerms.get(hyperonymSynsetId), hyperonymWords.get(0) });
+							break;
+						}
+					}
+				}
+			}
+
+			Map<String, ThesaurusEntry> entries = new HashMap<String, ThesaurusEntry>(2 * categoriesByTerm.size());
+			for(Map.Entry<String, List<String>> termEntry : categoriesByTerm.entrySet())
+			{
+				String[] hyperonyms = hyperonymsByTerm.get(termEntry.getKey());
+				entries.put(termEntry.getKey(), new ThesaurusEntry(termEntry.getValue().toArray(new String[termEntry.getValue().size()]),
+						null == hyperonyms ? null : hyperonyms[0], null == hyperonyms ? null : hyperonyms[1]));
+			}
+			return new ThesaurusSnapshot(entries);
+		}
+
+		private final Map<Integer, List<Integer>> categoryIdsBySynset = new HashMap<Integer, List<Integer>>();
+		private final Map<Integer, String> categoryNames = new HashMap<Integer, String>();
+		private final Map<Integer, List<Integer>> hyperonymSynsetIdsBySynset = new HashMap<Integer, List<Integer>>();
+		private final Map<Integer, String> preferredTerms = new HashMap<Integer, String>();
+		private final List<Integer> termSynsetIds = new ArrayList<Integer>();
+		private final List<String> termWords = new ArrayList<String>();
+		private final Map<Integer, Boolean> visibleSynsetIds = new HashMap<Integer, Boolean>();
+		private final Map<Integer, List<String>> wordsBySynset = new HashMap<Integer, List<String>>();
+	}
+
+	private ThesaurusSnapshot(final Map<String, ThesaurusEntry> entries)
+	{
+		this.entries = entries;
+	}
+
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	/**
+	 * Reads the term, synset, category and link tables of an OpenThesaurus database, one query per table
+	 *
+	 * @param connection A connection to the OpenThesaurus database
+	 * @return A snapshot of the database
+	 * @throws SQLException If a table cannot be read
+	 */
+	public static ThesaurusSnapshot fromDatabase(final Connection connection) throws SQLException
+	{
+		Builder builder = builder();
+		try (Statement statement = connection.createStatement())
+		{
+			try (ResultSet resultSet = statement.executeQuery("SELECT id, is_visible, synset_preferred_term FROM synset"))
+			{
+				while(resultSet.next())
+				{
+					builder.addSynset(resultSet.getInt(1), resultSet.getBoolean(2), resultSet.getString(3));
+				}
+			}
+			try (ResultSet resultSet = statement.executeQuery("SELECT synset_id, word FROM term ORDER BY id"))
+			{
+				while(resultSet.next())
+				{
+					builder.addTerm(resultSet.getInt(1), resultSet.getString(2));
+				}
+			}
+			try (ResultSet resultSet = statement.executeQuery("SELECT id, category_name FROM category"))
+			{
+				while(resultSet.next())
+				{
+					builder.addCategory(resultSet.getInt(1), resultSet.getString(2));
+				}
+			}
+			try (ResultSet resultSet = statement.executeQuery("SELECT category_id, synset_id FROM category_link"))
+			{
+				while(resultSet.next())
+				{
+					builder.addCategoryLink(resultSet.getInt(1), resultSet.getInt(2));
+				}
+			}
+			try (ResultSet resultSet = statement.executeQuery("SELECT synset_id, target_synset_id FROM synset_link WHERE link_type_id = 1 ORDER BY id"))
+			{
+				while(resultSet.next())
+				{
+					builder.addHyperonymLink(resultSet.getInt(1), resultSet.getInt(2));
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @param file A snapshot file written by save()
+	 * @return The snapshot read from the file
+	 * @throws IOException If the file cannot be read or is not a valid snapshot file
+	 */
+	public static ThesaurusSnapshot load(final Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if(buffer.getInt() != FILE_MAGIC_NUMBER || buffer.getInt() != FILE_VERSION)
+			{
+				throw new IOException(String.format(errorMessagesBundle.getString("avve.textpreprocess.hyperonym.corruptThesaurusSnapshotFile"), file));
+			}
+			String[] categoryNames = new String[buffer.getInt()];
+			for(int i = 0; i < categoryNames.length; i++)
+			{
+				categoryNames[i] = readString(buffer);
+			}
+			int numberOfTerms = buffer.getInt();
+			Map<String, ThesaurusEntry> entries = new HashMap<String, ThesaurusEntry>(2 * numberOfTerms);
+			for(int i = 0; i < numberOfTerms; i++)
+			{
+				String term = readString(buffer);
+				String[] categories = new String[buffer.getInt()];
+				for(int j = 0; j < categories.length; j++)
+				{
+					categories[j] = categoryNames[buffer.getInt()];
+				}
+				String preferredHyperonym = readString(buffer);
+				entries.put(term, new ThesaurusEntry(categories, preferredHyperonym, readString(buffer)));
+			}
+			return new ThesaurusSnapshot(entries);
+		}
+		catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException | NullPointerException exc)
+		{
+			throw new IOException(String.format(errorMessagesBundle.getString("avve.textpreprocess.hyperonym.corruptThesaurusSnapshotFile"), file), exc);
+		}
+	}
+
+	/**
+	 * @param term A term (one or more words, separated by spaces)
+	 * @return True if the term is contained in the thesaurus
+	 */
+	public boolean containsTerm(final String term)
+	{
+		return entries.containsKey(normalize(term));
+	}
+
+	/**
+	 * @return A trie of the snapshot's terms, which is created on the first call
+	 */
+	public synchronized ThesaurusTermMatcher getTermMatcher()
+	{
+		if(null == termMatcher)
+		{
+			termMatcher = new ThesaurusTermMatcher();
+			for(String term : entries.keySet())
+			{
+				termMatcher.addTerm(term);
+			}
+		}
+		return termMatcher;
+	}
+
+	/**
+	 * @param term A term (one or more words, separated by spaces)
+	 * @return The term's categories and hyperonyms, or null if the term is not contained in the thesaurus
+	 */
+	public ThesaurusEntry lookup(final String term)
+	{
+		return entries.get(normalize(term));
+	}
+
+	/**
+	 * Writes the snapshot to a file, replacing an existing file. The data is written to a temporary file first, so an existing snapshot
+	 * file stays intact if writing fails.
+	 *
+	 * @param file The snapshot file
+	 * @throws IOException If the file cannot be written
+	 */
+	public void save(final Path file) throws IOException
+	{
+		// encode all strings first, so that the file can be mapped with its final size
+		Map<String, Integer> categoryIndexes = new HashMap<String, Integer>();
+		List<byte[]> encodedCategoryNames = new ArrayList<byte[]>();
+		List<byte[]> encodedStrings = new ArrayList<byte[]>(3 * entries.size());
+		long fileSize = 4 * Integer.BYTES;
+		for(Map.Entry<String, ThesaurusEntry> termEntry : entries.entrySet())
+		{
+			ThesaurusEntry entry = termEntry.getValue();
+			fileSize += addEncodedString(encodedStrings, termEntry.getKey()) + Integer.BYTES * (1 + entry.categories.length);
+			fileSize += addEncodedString(encodedStrings, entry.preferredHyperonym);
+			fileSize += addEncodedString(encodedStrings, entry.hyperonym);
+			for(String categoryName : entry.categories)
+			{
+				if(!categoryIndexes.containsKey(categoryName))
+				{
+					categoryIndexes.put(categoryName, encodedCategoryNames.size());
+					fileSize += addEncodedString(encodedCategoryNames, categoryName);
+				}
+			}
+		}
+
+		Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+			buffer.putInt(FILE_MAGIC_NUMBER);
+			buffer.putInt(FILE_VERSION);
+			buffer.putInt(encodedCategoryNames.size());
+			for(byte[] encodedCategoryName : encodedCategoryNames)
+			{
+				writeString(buffer, encodedCategoryName);
+			}
+			buffer.putInt(entries.size());
+			int stringIndex = 0;
+			for(ThesaurusEntry entry : entries.values())
+			{
+				writeString(buffer, encodedStrings.get(stringIndex++));
+				buffer.putInt(entry.categories.length);
+				for(String categoryName : entry.categories)
+				{
+					buffer.putInt(categoryIndexes.get(categoryName));
+				}
+				writeString(buffer, encodedStrings.get(stringIndex++));
+				writeString(buffer, encodedStrings.get(stringIndex++));
+			}
+			buffer.force();
+		}
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * @return The number of terms in the snapshot
+	 */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	private static int addEncodedString(final List<byte[]> encodedStrings, final String string)
+	{
+		byte[] encodedString = null == string ? null : string.getBytes(StandardCharsets.UTF_8);
+		encodedStrings.add(encodedString);
+		return Integer.BYTES + (null == encodedString ? 0 : encodedString.length);
+	}
+
+	static String normalize(final String term)
+	{
+		return term.toLowerCase(termLocale);
+	}
+
+	private static String readString(final ByteBuffer buffer)
+	{
+		int length = buffer.getInt();
+		if(length < 0)
+		{
+			return null;
+		}
+		byte[] encodedString = new byte[length];
+		buffer.get(encodedString);
+		return new String(encodedString, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(final ByteBuffer buffer, final byte[] encodedString)
+	{
+		if(null == encodedString)
+		{
+			buffer.putInt(-1);
+		}
+		else
+		{
+			buffer.putInt(encodedString.length);
+			buffer.put(encodedString);
+		}
+	}
+
+	private final Map<String, ThesaurusEntry> entries;
+	private ThesaurusTermMatcher termMatcher;
+}
@@ -0,0 +1,98 @@
+package avve.textpreprocess.hyperonym;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A token trie of all thesaurus terms with up to MAXIMUM_TERM_LENGTH words. It finds all terms starting at a position of a sentence by
+ * walking the sentence's tokens, without building candidate strings, so matching a sentence takes time linear in its number of tokens.
+ *
+ * Tokens are matched case-insensitively, like the terms of a ThesaurusSnapshot. The words of a term are separated by single spaces.
+ *
+ * @author Kai Weber
+ *
+ */
+public class ThesaurusTermMatcher
+{
+	public static final int MAXIMUM_TERM_LENGTH = 3;
+
+	/**
+	 * Adds a term to the trie. Terms with more than MAXIMUM_TERM_LENGTH words are ignored.
+	 *
+	 * @param term A thesaurus term
+	 */
+	public void addTerm(final String term)
+	{
+		String[] words = term.split(" ", -1);
+		if(words.length > MAXIMUM_TERM_LENGTH)
+		{
+			return;
+		}
+		Node node = root;
+		for(String word : words)
+		{
+			node = node.getOrAddChild(ThesaurusSnapshot.normalize(word));
+		}
+		if(!node.isTerm)
+		{
+			node.isTerm = true;
+			size++;
+		}
+	}
+
+	/**
+	 * @param tokens The tokens of a sentence
+	 * @param start The position of the first token of the terms
+	 * @return A bit set of the lengths of all terms starting at the position: bit n is set if the n tokens starting at start form a term
+	 */
+	public int matchLengths(final String[] tokens, final int start)
+	{
+		int lengths = 0;
+		Node node = root;
+		for(int n = 1; n <= MAXIMUM_TERM_LENGTH && start + n <= tokens.length; n++)
+		{
+			node = node.getChild(tokens[start + n - 1]);
+			if(null == node)
+			{
+				break;
+			}
+			if(node.isTerm)
+			{
+				lengths |= 1 << n;
+			}
+		}
+		return lengths;
+	}
+
+	/**
+	 * @return The number of terms in the trie
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	private static class Node
+	{
+		Node getChild(final String token)
+		{
+			return null == children || null == token ? null : children.get(ThesaurusSnapshot.normalize(token));
+		}
+
+		Node getOrAddChild(final String word)
+		{
+			if(null == children)
+			{
+				// most nodes are leaves or have a single child
+				children = new HashMap<String, Node>(2);
+			}
+			return children.computeIfAbsent(word, key -> new Node());
+		}
+
+		private Map<String, Node> children;
+		private boolean isTerm;
+	}
+
+	private final Node root = new Node();
+	private int size;
+}
@@ -0,0 +1,92 @@
+package avve.epubhandling;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+
+public class EbookContentDataSerializerTest
+{
+	@Test
+	public void read_restores_content_data_written_by_write() throws IOException
+	{
+		// Arrange
+		Logger logger = LogManager.getLogger();
+		EbookContentDataSerializer serializer = new EbookContentDataSerializer(logger);
+		EbookContentData content = createContentData(logger);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		// Act
+		serializer.write(content, outputStream);
+		byte[] serializedData = outputStream.toByteArray();
+		EbookContentData restoredContent = serializer.read(serializedData);
+
+		// Assert
+		assertTrue(EbookContentDataSerializer.hasSerializerHeader(serializedData));
+		assertEquals("urn:x:4711", restoredContent.getDocumentId());
+		assertEquals("de", restoredContent.getLanguage());
+		assertEquals(12345L, restoredContent.getFileSize());
+		assertEquals(-1, restoredContent.getDepthOfToc());
+		assertEquals("110", restoredContent.getTargetClass());
+		assertEquals(2, restoredContent.getNumberOfSentences());
+		assertEquals(content.getNumberOfTokens(), restoredContent.getNumberOfTokens());
+		assertEquals(content.getAverageWordLength(), restoredContent.getAverageWordLength(), 0.0);
+		assertEquals(content.getLemmaFrequencies().toSortedMap(), restoredContent.getLemmaFrequencies().toSortedMap());
+		assertEquals(content.getHyperonymFrequencies().toSortedMap(), restoredContent.getHyperonymFrequencies().toSortedMap());
+		assertEquals(content.getPartsOfSpeechFrequencies(), restoredContent.getPartsOfSpeechFrequencies());
+		assertEquals(content.getPlainText(), restoredContent.getPlainText());
+		assertArrayEquals(content.getSentences(), restoredContent.getSentences());
+		assertArrayEquals(content.getTokens(), restoredContent.getTokens());
+		assertArrayEquals(content.getLemmas(), restoredContent.getLemmas());
+		assertArrayEquals(content.getPartsOfSpeech(), restoredContent.getPartsOfSpeech());
+		assertEquals(content.getNumberOfTokenizedSentences(), restoredContent.getNumberOfTokenizedSentences());
+		assertArrayEquals(content.getTokens()[1], restoredContent.getTokens(1));
+		assertArrayEquals(content.getLemmas()[1], restoredContent.getLemmas(1));
+		assertArrayEquals(content.getPartsOfSpeech()[1], restoredContent.getPartsOfSpeech(1));
+		assertEquals(content.getLemmatizedTextWithoutForeignWords(), restoredContent.getLemmatizedTextWithoutForeignWords());
+		assertEquals(1.0 / 8.0, restoredContent.getAdverbRatio(), 0.0);
+		assertEquals(1, restoredContent.getNumberOfPassiveConstructions());
+	}
+
+	@Test(expected=IOException.class)
+	public void read_throws_error_for_java_serialized_data() throws IOException
+	{
+		// Arrange
+		EbookContentDataSerializer serializer = new EbookContentDataSerializer(LogManager.getLogger());
+		byte[] javaSerializedData = { (byte)0xAC, (byte)0xED, 0x00, 0x05, 0x73, 0x72 };
+
+		// Act
+		serializer.read(javaSerializedData);
+
+		// Assert
+		// empty, assertion is made via @Test(expected...) annotation
+	}
+
+	private EbookContentData createContentData(final Logger logger)
+	{
+		EpubFile epubFile = new EpubFile("urn:x:4711", "input/110/buch.epub", 12345L, "de", 3, 1, 5, "toc.ncx", -1, logger);
+		EbookContentData content = new EbookContentData(epubFile, "Das Buch wird gelesen. Ciao Bella!", "110", logger);
+		content.setSentences(new String[] { "Das Buch wird gelesen.", "Ciao Bella!" });
+		content.setTokens(new String[][] { { "Das", "Buch", "wird", "gelesen", "." }, { "Ciao", "Bella", "!" } });
+		content.setLemmas(new String[][] { { "die", "Buch", "werden", "lesen", "." }, { "Ciao", "Bella", null } });
+		content.setPartsOfSpeech(new String[][] { { "ART", "NN", "VAFIN", "VVPP", "$." }, { "FM", "ADV|FM", "$." } });
+		for(String[] sentence : content.getTokens())
+		{
+			for(String token : sentence)
+			{
+				content.countWord(token);
+			}
+		}
+		FrequencyCounter hyperonymFrequencies = new FrequencyCounter();
+		hyperonymFrequencies.increment("Druckwerk");
+		content.setHyperonymFrequencies(hyperonymFrequencies);
+		content.getLemmaFrequencies().increment("Buch");
+		content.getLemmaFrequencies().increment("lesen");
+		content.countPartsOfSpeech();
+		return content;
+	}
+}
@@ -1,9 +1,14 @@
 package avve.epubhandling;
 
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.Test;
 
@@ -29,4 +34,92 @@ public class EpubFileTest
 		// Assert
 		// empty, assertion is made via @Test(expected...) annotation
 	}
+
+	@Test
+	public void reading_from_zip_yields_the_same_text_and_metadata_as_unzipping() throws IOException
+	{
+		// Arrange
+		File epub = File.createTempFile("avve", ".epub");
+		Logger logger = LogManager.getLogger();
+		FileService fileService = new FileServiceImpl();
+		EpubFile zipEpubFile;
+		EpubFile unzippedEpubFile;
+		String zipText;
+		String unzippedText;
+		long fileSize;
+
+		try
+		{
+			writeEpub(epub);
+			fileSize = epub.length();
+			zipEpubFile = new EpubFile(epub.getPath(), fileService, logger);
+			zipEpubFile.setReadFromZip(true);
+			unzippedEpubFile = new EpubFile(epub.getPath(), fileService, logger);
+
+			// Act
+			zipText = zipEpubFile.extractPlainText();
+			unzippedText = unzippedEpubFile.extractPlainText();
+		}
+		finally
+		{
+			epub.delete();
+		}
+
+		// Assert
+		assertTrue(zipText.contains("Erstes Kapitel"));
+		assertTrue(zipText.indexOf("Der Baum steht im Wald.") < zipText.indexOf("Zweites Kapitel"));
+		assertEquals(unzippedText, zipText);
+		assertEquals("urn:x:4711_" + fileSize, zipEpubFile.getDocumentId());
+		assertEquals("de", zipEpubFile.getLanguageCode());
+		assertEquals(2, zipEpubFile.getNumberOfChapters());
+		assertEquals(1, zipEpubFile.getNumberOfImages());
+		assertEquals(3, zipEpubFile.getNumberOfTocItems());
+		assertEquals(2, zipEpubFile.getDepthOfToc());
+		assertEquals(unzippedEpubFile.getDocumentId(), zipEpubFile.getDocumentId());
+		assertEquals(unzippedEpubFile.getNumberOfTocItems(), zipEpubFile.getNumberOfTocItems());
+		assertEquals(unzippedEpubFile.getDepthOfToc(), zipEpubFile.getDepthOfToc());
+	}
+
+	// an EPUB 2 file with the OPF in a sub-folder, two chapters, an image and a nested NCX table of contents
+	private static void writeEpub(final File epub) throws IOException
+	{
+		try(ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(epub)))
+		{
+			writeZipEntry(zipOutputStream, "mimetype", "application/epub+zip");
+			writeZipEntry(zipOutputStream, "META-INF/container.xml", "<?xml version=\"1.0\"?>"
+					+ "<container version=\"1.0\" xmlns=\"urn:oasis:names:tc:opendocument:xmlns:container\"><rootfiles>"
+					+ "<rootfile full-path=\"OEBPS/content.opf\" media-type=\"application/oebps-package+xml\"/></rootfiles></container>");
+			writeZipEntry(zipOutputStream, "OEBPS/content.opf", "<?xml version=\"1.0\"?>"
+					+ "<package xmlns=\"http://www.idpf.org/2007/opf\" unique-identifier=\"bookid\" version=\"2.0\">"
+					+ "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:identifier id=\"bookid\">urn:x:4711</dc:identifier>"
+					+ "<dc:language>de-DE</dc:language></metadata>"
+					+ "<manifest><item id=\"ncx\" href=\"toc.ncx\" media-type=\"application/x-dtbncx+xml\"/>"
+					+ "<item id=\"c1\" href=\"text/chapter1.xhtml\" media-type=\"application/xhtml+xml\"/>"
+					+ "<item id=\"c2\" href=\"text/chapter2.xhtml\" media-type=\"application/xhtml+xml\"/>"
+					+ "<item id=\"cover\" href=\"images/cover.jpg\" media-type=\"image/jpeg\"/></manifest>"
+					+ "<spine toc=\"ncx\"><itemref idref=\"c1\"/><itemref idref=\"c2\"/></spine></package>");
+			writeZipEntry(zipOutputStream, "OEBPS/toc.ncx", "<?xml version=\"1.0\"?>"
+					+ "<ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\" version=\"2005-1\"><navMap>"
+					+ "<navPoint id=\"n1\"><navLabel><text>Erstes Kapitel</text></navLabel><content src=\"text/chapter1.xhtml\"/>"
+					+ "<navPoint id=\"n2\"><navLabel><text>Wald</text></navLabel><content src=\"text/chapter1.xhtml#wald\"/></navPoint></navPoint>"
+					+ "<navPoint id=\"n3\"><navLabel><text>Zweites Kapitel</text></navLabel><content src=\"text/chapter2.xhtml\"/></navPoint>"
+					+ "</navMap></ncx>");
+			writeZipEntry(zipOutputStream, "OEBPS/text/chapter1.xhtml", createChapter("Erstes Kapitel", "Der Baum steht im Wald."));
+			writeZipEntry(zipOutputStream, "OEBPS/text/chapter2.xhtml", createChapter("Zweites Kapitel", "Die Häuser stehen am Fluss."));
+			writeZipEntry(zipOutputStream, "OEBPS/images/cover.jpg", "");
+		}
+	}
+
+	private static String createChapter(final String heading, final String paragraph)
+	{
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>" + heading + "</title></head>"
+				+ "<body><h1>" + heading + "</h1><p>" + paragraph + "</p></body></html>";
+	}
+
+	private static void writeZipEntry(final ZipOutputStream zipOutputStream, final String name, final String content) throws IOException
+	{
+		zipOutputStream.putNextEntry(new ZipEntry(name));
+		zipOutputStream.write(content.getBytes(StandardCharsets.UTF_8));
+		zipOutputStream.closeEntry();
+	}
 }
@@ -0,0 +1,326 @@
+package avve.extractor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.search.IndexSearcher;
+import org.junit.Test;
+
+import avve.epubhandling.EbookContentData;
+import avve.epubhandling.FrequencyCounter;
+import avve.services.FileService;
+import avve.services.FileServiceImpl;
+import avve.services.lucene.LuceneService;
+import weka.core.Instances;
+import weka.core.converters.AbstractFileLoader;
+import weka.core.converters.ArffLoader;
+import weka.core.converters.XRFFLoader;
+
+public class CorpusFileWriterTest
+{
+	private static final Logger logger = LogManager.getLogger();
+	private static final FileService fileService = new FileServiceImpl();
+
+	// without a Lucene index, the top-idf values are empty
+	private static final LuceneService luceneServiceWithoutIndex = new LuceneService(logger, fileService)
+	{
+		@Override
+		public IndexSearcher acquireSearcher() throws IOException
+		{
+			throw new IOException("no index");
+		}
+	};
+
+	// the terms with the highest TF/IDF values, as if they had been read from a Lucene index
+	private static final Map<String, List<Entry<String, TfIdfTuple>>> topTfIdfTerms = new HashMap<String, List<Entry<String, TfIdfTuple>>>();
+
+	static
+	{
+		topTfIdfTerms.put("book1", Arrays.asList(new SimpleEntry<String, TfIdfTuple>("haus", new TfIdfTuple(4, 2.0, 0.5)),
+				new SimpleEntry<String, TfIdfTuple>("baum", new TfIdfTuple(1, 3.0))));
+		topTfIdfTerms.put("book2", Arrays.asList(new SimpleEntry<String, TfIdfTuple>("baum", new TfIdfTuple(1, 1.5)),
+				new SimpleEntry<String, TfIdfTuple>("wald", new TfIdfTuple(9, 1.0, 0.25))));
+	}
+
+	@Test
+	public void corpus_files_of_all_formats_can_be_read_by_weka() throws Exception
+	{
+		// Arrange
+		Path outputDirectory = Files.createTempDirectory("corpus");
+		Instances[] corpora = new Instances[3];
+
+		try
+		{
+			// Act
+			corpora[0] = writeAndReadCorpusFile(new File(outputDirectory.toFile(), "result.xrff"), CorpusFileWriter.Format.XRFF, false, false);
+			corpora[1] = writeAndReadCorpusFile(new File(outputDirectory.toFile(), "result.arff"), CorpusFileWriter.Format.ARFF, false, false);
+			corpora[2] = writeAndReadCorpusFile(new File(outputDirectory.toFile(), "sparse.arff"), CorpusFileWriter.Format.SPARSEARFF, false, false);
+		}
+		finally
+		{
+			FileUtils.deleteDirectory(outputDirectory.toFile());
+		}
+
+		// Assert
+		for(Instances corpus : corpora)
+		{
+			assertEquals(2, corpus.numInstances());
+			assertEquals(EbookFeature.numericFeatures.size() + 3, corpus.numAttributes());
+			assertEquals("class", corpus.attribute(corpus.numAttributes() - 1).name());
+			assertEquals(4711.0, corpus.instance(0).value(corpus.attribute("fileSizeInBytes")), 0.0);
+			assertEquals(0.0, corpus.instance(1).value(corpus.attribute("numberOfImages")), 0.0);
+			// the XRFF value has one hyperonym per line
+			assertEquals("Baum <!-- 0.5 --> Holz_haus <!-- 1.0 -->", corpus.instance(0).stringValue(corpus.attribute("hyperonyms")).replaceAll("\\s+", " ").trim());
+			assertEquals("haus baum", corpus.instance(0).stringValue(corpus.attribute("top-idf")).replaceAll("\\s+", " ").trim());
+			assertEquals("WTD", corpus.instance(1).stringValue(corpus.numAttributes() - 1));
+		}
+		assertEquals(Arrays.toString(corpora[1].instance(0).toDoubleArray()), Arrays.toString(corpora[2].instance(0).toDoubleArray()));
+	}
+
+	@Test
+	public void multi_label_corpus_file_starts_with_binary_class_attributes() throws Exception
+	{
+		// Arrange
+		Path outputDirectory = Files.createTempDirectory("corpus");
+		Instances corpus;
+
+		try
+		{
+			// Act
+			corpus = writeAndReadCorpusFile(new File(outputDirectory.toFile(), "result.arff"), CorpusFileWriter.Format.SPARSEARFF, true, false);
+		}
+		finally
+		{
+			FileUtils.deleteDirectory(outputDirectory.toFile());
+		}
+
+		// Assert
+		assertEquals("Avve multiclass dataset: -C 2", corpus.relationName());
+		assertEquals("FBA", corpus.attribute(0).name());
+		assertEquals("WTD", corpus.attribute(1).name());
+		assertEquals("[1.0, 1.0]", Arrays.toString(Arrays.copyOf(corpus.instance(0).toDoubleArray(), 2)));
+		assertEquals("[0.0, 1.0]", Arrays.toString(Arrays.copyOf(corpus.instance(1).toDoubleArray(), 2)));
+	}
+
+	@Test
+	public void term_vectors_are_written_as_sparse_instances_with_a_corpus_wide_dictionary() throws Exception
+	{
+		// Arrange
+		Path outputDirectory = Files.createTempDirectory("corpus");
+		Instances[] corpora = new Instances[2];
+
+		try
+		{
+			// Act
+			corpora[0] = writeAndReadCorpusFile(new File(outputDirectory.toFile(), "result.xrff"), CorpusFileWriter.Format.XRFF, false, true);
+			corpora[1] = writeAndReadCorpusFile(new File(outputDirectory.toFile(), "result.arff"), CorpusFileWriter.Format.ARFF, true, true);
+			assertFalse(new File(outputDirectory.toFile(), "result.xrff.instances").exists());
+		}
+		finally
+		{
+			FileUtils.deleteDirectory(outputDirectory.toFile());
+		}
+
+		// Assert
+		for(Instances corpus : corpora)
+		{
+			assertNull(corpus.attribute("hyperonyms"));
+			assertNull(corpus.attribute("top-idf"));
+			assertEquals("wv_wald", corpus.attribute(corpus.numAttributes() - 1).name());
+			assertEquals(4711.0, corpus.instance(1).value(corpus.attribute("fileSizeInBytes")), 0.0);
+			assertEquals(0.5, corpus.instance(0).value(corpus.attribute("hy_Baum")), 0.0);
+			assertEquals(1.0, corpus.instance(0).value(corpus.attribute("hy_Holz_haus")), 0.0);
+			assertEquals(0.0, corpus.instance(0).value(corpus.attribute("hy_Wald")), 0.0);
+			assertEquals(0.0, corpus.instance(1).value(corpus.attribute("hy_Baum")), 0.0);
+			assertEquals(1.0, corpus.instance(1).value(corpus.attribute("hy_Wald")), 0.0);
+		}
+		assertEquals("WTD", corpora[0].instance(1).stringValue(corpora[0].attribute("class")));
+		assertEquals(1.0, corpora[1].instance(1).value(corpora[1].attribute("WTD")), 0.0);
+	}
+
+	@Test
+	public void top_tf_idf_terms_are_written_with_their_normalized_values_and_sparse_indices() throws Exception
+	{
+		// Arrange
+		Path outputDirectory = Files.createTempDirectory("corpus");
+		File xrffFile = new File(outputDirectory.toFile(), "result.xrff");
+		File arffFile = new File(outputDirectory.toFile(), "result.arff");
+		Instances[] corpora = new Instances[2];
+		String xrffText;
+		String arffText;
+
+		try
+		{
+			// Act
+			writeCorpusFile(xrffFile, CorpusFileWriter.Format.XRFF, false, true, true);
+			writeCorpusFile(arffFile, CorpusFileWriter.Format.ARFF, false, true, true);
+			xrffText = FileUtils.readFileToString(xrffFile, StandardCharsets.UTF_8);
+			arffText = FileUtils.readFileToString(arffFile, StandardCharsets.UTF_8);
+			corpora[0] = readCorpusFile(xrffFile, CorpusFileWriter.Format.XRFF);
+			corpora[1] = readCorpusFile(arffFile, CorpusFileWriter.Format.ARFF);
+		}
+		finally
+		{
+			FileUtils.deleteDirectory(outputDirectory.toFile());
+		}
+
+		// Assert
+		for(String term : Arrays.asList("wv_haus", "wv_baum", "wv_wald"))
+		{
+			assertTrue(xrffText.contains("<attribute name=\"" + term + "\" type=\"numeric\"/>"));
+			assertTrue(arffText.contains("@attribute " + term + " numeric\n"));
+		}
+		// XRFF indices are 1-based, ARFF indices are 0-based
+		int baumIndex = corpora[0].attribute("wv_baum").index();
+		int waldIndex = corpora[0].attribute("wv_wald").index();
+		assertEquals(baumIndex, corpora[1].attribute("wv_baum").index());
+		assertTrue(xrffText.contains("<value index=\"" + (baumIndex + 1) + "\">3.0</value>"));
+		assertTrue(xrffText.contains("<value index=\"" + (baumIndex + 1) + "\">1.5</value>"));
+		assertTrue(xrffText.contains("<value index=\"" + (waldIndex + 1) + "\">0.75</value>"));
+		assertTrue(arffText.matches("(?s).*[{,]" + baumIndex + " 3\\.0[,}].*"));
+		assertTrue(arffText.matches("(?s).*[{,]" + baumIndex + " 1\\.5[,}].*"));
+		assertTrue(arffText.matches("(?s).*[{,]" + waldIndex + " 0\\.75[,}].*"));
+		for(Instances corpus : corpora)
+		{
+			assertEquals(2.0, corpus.instance(0).value(corpus.attribute("wv_haus")), 0.0);
+			assertEquals(3.0, corpus.instance(0).value(corpus.attribute("wv_baum")), 0.0);
+			assertEquals(0.0, corpus.instance(0).value(corpus.attribute("wv_wald")), 0.0);
+			assertEquals(0.0, corpus.instance(1).value(corpus.attribute("wv_haus")), 0.0);
+			assertEquals(1.5, corpus.instance(1).value(corpus.attribute("wv_baum")), 0.0);
+			assertEquals(0.75, corpus.instance(1).value(corpus.attribute("wv_wald")), 0.0);
+		}
+	}
+
+	@Test
+	public void top_idf_values_are_empty_without_a_lucene_index() throws Exception
+	{
+		// Arrange
+		Path outputDirectory = Files.createTempDirectory("corpus");
+		File stringFile = new File(outputDirectory.toFile(), "result.arff");
+		File termVectorFile = new File(outputDirectory.toFile(), "result.xrff");
+		Instances stringCorpus;
+		Instances termVectorCorpus;
+
+		try
+		{
+			// Act
+			writeCorpusFile(stringFile, CorpusFileWriter.Format.ARFF, false, false, false);
+			writeCorpusFile(termVectorFile, CorpusFileWriter.Format.XRFF, false, true, false);
+			stringCorpus = readCorpusFile(stringFile, CorpusFileWriter.Format.ARFF);
+			termVectorCorpus = readCorpusFile(termVectorFile, CorpusFileWriter.Format.XRFF);
+		}
+		finally
+		{
+			FileUtils.deleteDirectory(outputDirectory.toFile());
+		}
+
+		// Assert
+		assertEquals("", stringCorpus.instance(0).stringValue(stringCorpus.attribute("top-idf")));
+		assertEquals("", stringCorpus.instance(1).stringValue(stringCorpus.attribute("top-idf")));
+		// only the hyperonyms are left in the term dictionary
+		assertEquals(EbookFeature.numericFeatures.size() + 4, termVectorCorpus.numAttributes());
+		assertEquals("hy_Wald", termVectorCorpus.attribute(termVectorCorpus.numAttributes() - 1).name());
+	}
+
+	private static Instances writeAndReadCorpusFile(final File corpusFile, final CorpusFileWriter.Format format, final boolean multiLabel,
+			final boolean termVectors) throws Exception
+	{
+		writeCorpusFile(corpusFile, format, multiLabel, termVectors, true);
+		return readCorpusFile(corpusFile, format);
+	}
+
+	private static void writeCorpusFile(final File corpusFile, final CorpusFileWriter.Format format, final boolean multiLabel,
+			final boolean termVectors, final boolean withTopTfIdfTerms) throws IOException
+	{
+		CorpusFileWriter corpusFileWriter = new CorpusFileWriter(corpusFile.getPath(), format, Arrays.asList("WTD", multiLabel ? "FBA,WTD" : "FBA"),
+				multiLabel, true, termVectors, fileService, luceneServiceWithoutIndex, logger, null)
+		{
+			@Override
+			List<Entry<String, TfIdfTuple>> findTopTfIdfTerms(final EbookContentData content, final int wordVectorSize)
+			{
+				return withTopTfIdfTerms ? topTfIdfTerms.get(content.getDocumentId()) : super.findTopTfIdfTerms(content, wordVectorSize);
+			}
+		};
+		corpusFileWriter.open();
+		corpusFileWriter.appendEbookContentData(createEbookContentData("book1", multiLabel ? "FBA,WTD" : "FBA", 3, "Baum", "Holz haus"), 10);
+		corpusFileWriter.appendEbookContentData(createEbookContentData("book2", "WTD", 0, "Wald"), 10);
+		corpusFileWriter.close();
+	}
+
+	private static Instances readCorpusFile(final File corpusFile, final CorpusFileWriter.Format format) throws IOException
+	{
+		AbstractFileLoader loader = format == CorpusFileWriter.Format.XRFF ? new XRFFLoader() : new ArffLoader();
+		loader.setFile(corpusFile);
+		return loader.getDataSet();
+	}
+	// the hyperonyms occur once, twice and so on
+	private static EbookContentData createEbookContentData(final String documentId, final String targetClass, final int numberOfImages,
+			final String... hyperonyms)
+	{
+		EbookContentData content = new EbookContentData(null, "Der Baum steht.", targetClass, logger)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public String getDocumentId()
+			{
+				return documentId;
+			}
+
+			@Override
+			public int getDepthOfToc()
+			{
+				return 1;
+			}
+
+			@Override
+			public long getFileSize()
+			{
+				return 4711;
+			}
+
+			@Override
+			public int getNumberOfChapters()
+			{
+				return 2;
+			}
+
+			@Override
+			public int getNumberOfImages()
+			{
+				return numberOfImages;
+			}
+
+			@Override
+			public int getNumberOfTocItems()
+			{
+				return 2;
+			}
+		};
+		String[][] tokens = { { "Der", "Baum", "steht", "." } };
+		content.setTokens(tokens);
+		content.setLemmas(new String[][] { { "der", "baum", "stehen", "." } });
+		content.setPartsOfSpeech(new String[][] { { "ART", "NN", "VVFIN", "$." } });
+		FrequencyCounter hyperonymFrequencies = new FrequencyCounter();
+		for(int i = 0; i < hyperonyms.length; i++)
+		{
+			hyperonymFrequencies.add(hyperonyms[i], i + 1);
+		}
+		content.setHyperonymFrequencies(hyperonymFrequencies);
+		return content;
+	}
+}
@@ -0,0 +1,211 @@
+package avve.extractor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.search.IndexSearcher;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXParseException;
+
+import avve.epubhandling.EbookContentData;
+import avve.epubhandling.FrequencyCounter;
+import avve.services.FileService;
+import avve.services.FileServiceImpl;
+import avve.services.lucene.LuceneService;
+
+public class XrffFileWriterTest
+{
+	private static final Logger logger = LogManager.getLogger();
+	private static final FileService fileService = new FileServiceImpl();
+
+	// without a Lucene index, the top-idf value is empty
+	private static final LuceneService luceneServiceWithoutIndex = new LuceneService(logger, fileService)
+	{
+		@Override
+		public IndexSearcher acquireSearcher() throws IOException
+		{
+			throw new IOException("no index");
+		}
+	};
+
+	@Test
+	public void saveEbookContentData_writes_a_valid_xrff_file_with_the_attributes_in_feature_order() throws Exception
+	{
+		// Arrange
+		File xrffFile = File.createTempFile("avve", ".xrff");
+		XrffFileWriter xrffFileWriter = new XrffFileWriter(xrffFile.getPath(), fileService, luceneServiceWithoutIndex, logger, null);
+		String fileContent;
+		Document document;
+
+		try
+		{
+			// Act
+			xrffFileWriter.saveEbookContentData(createEbookContentData(), 10);
+			fileContent = new String(Files.readAllBytes(xrffFile.toPath()), StandardCharsets.UTF_8);
+			document = parseAndValidate(xrffFile);
+		}
+		finally
+		{
+			xrffFile.delete();
+		}
+
+		// Assert
+		assertTrue(fileContent.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + System.lineSeparator() + "<!DOCTYPE dataset ["));
+		assertTrue(fileContent.startsWith(XrffFileWriter.xmlDeclarationAndDoctype + "<dataset name=\"avve\">"));
+		assertEquals("dataset", document.getDoctype().getName());
+
+		Element dataset = document.getDocumentElement();
+		assertEquals("dataset", dataset.getTagName());
+		assertEquals("avve", dataset.getAttribute("name"));
+		List<Element> datasetChildren = getChildElements(dataset);
+		assertEquals(2, datasetChildren.size());
+		assertEquals("header", datasetChildren.get(0).getTagName());
+		assertEquals("body", datasetChildren.get(1).getTagName());
+
+		List<String> expectedAttributeNames = new ArrayList<String>();
+		expectedAttributeNames.add("lemmas");
+		for(EbookFeature feature : EbookFeature.numericFeatures)
+		{
+			expectedAttributeNames.add(feature.getAttributeName());
+		}
+		expectedAttributeNames.add("hyperonyms");
+		expectedAttributeNames.add("top-idf");
+		expectedAttributeNames.add("class");
+		List<Element> attributes = getChildElements(getSingleChildElement(datasetChildren.get(0), "attributes"));
+		List<String> attributeNames = new ArrayList<String>();
+		for(Element attribute : attributes)
+		{
+			attributeNames.add(attribute.getAttribute("name"));
+		}
+		assertEquals(expectedAttributeNames, attributeNames);
+		assertEquals("numeric", attributes.get(1).getAttribute("type"));
+		assertEquals("yes", attributes.get(attributes.size() - 1).getAttribute("class"));
+
+		Element instance = getSingleChildElement(getSingleChildElement(datasetChildren.get(1), "instances"), "instance");
+		assertEquals("book1", instance.getAttribute("documentId"));
+		List<Element> values = getChildElements(instance);
+		assertEquals(expectedAttributeNames.size(), values.size());
+		assertTrue(values.get(0).getTextContent().contains("[0] der_ART baum_NN stehen_VVFIN ._$."));
+		assertEquals("4711", values.get(expectedAttributeNames.indexOf("fileSizeInBytes")).getTextContent());
+		assertEquals("3", values.get(expectedAttributeNames.indexOf("numberOfImages")).getTextContent());
+		assertTrue(values.get(expectedAttributeNames.indexOf("hyperonyms")).getTextContent().startsWith("Baum"));
+		assertEquals("", values.get(expectedAttributeNames.indexOf("top-idf")).getTextContent());
+		assertEquals("FBA", values.get(values.size() - 1).getTextContent());
+	}
+
+	// parses the file with validation against its internal DTD; any validation error fails the test
+	private static Document parseAndValidate(final File xrffFile) throws Exception
+	{
+		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+		documentBuilderFactory.setValidating(true);
+		DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+		documentBuilder.setErrorHandler(new ErrorHandler()
+		{
+			@Override
+			public void warning(SAXParseException exc)
+			{
+			}
+
+			@Override
+			public void error(SAXParseException exc) throws SAXParseException
+			{
+				throw exc;
+			}
+
+			@Override
+			public void fatalError(SAXParseException exc) throws SAXParseException
+			{
+				throw exc;
+			}
+		});
+		return documentBuilder.parse(xrffFile);
+	}
+
+	private static List<Element> getChildElements(final Element parent)
+	{
+		List<Element> childElements = new ArrayList<Element>();
+		for(Node child = parent.getFirstChild(); null != child; child = child.getNextSibling())
+		{
+			if(child.getNodeType() == Node.ELEMENT_NODE)
+			{
+				childElements.add((Element)child);
+			}
+		}
+		return childElements;
+	}
+
+	private static Element getSingleChildElement(final Element parent, final String tagName)
+	{
+		List<Element> childElements = getChildElements(parent);
+		assertEquals(1, childElements.size());
+		assertEquals(tagName, childElements.get(0).getTagName());
+		return childElements.get(0);
+	}
+
+	private static EbookContentData createEbookContentData()
+	{
+		EbookContentData content = new EbookContentData(null, "Der Baum steht.", "FBA", logger)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public String getDocumentId()
+			{
+				return "book1";
+			}
+
+			@Override
+			public int getDepthOfToc()
+			{
+				return 1;
+			}
+
+			@Override
+			public long getFileSize()
+			{
+				return 4711;
+			}
+
+			@Override
+			public int getNumberOfChapters()
+			{
+				return 2;
+			}
+
+			@Override
+			public int getNumberOfImages()
+			{
+				return 3;
+			}
+
+			@Override
+			public int getNumberOfTocItems()
+			{
+				return 2;
+			}
+		};
+		content.setTokens(new String[][] { { "Der", "Baum", "steht", "." } });
+		content.setLemmas(new String[][] { { "der", "baum", "stehen", "." } });
+		content.setPartsOfSpeech(new String[][] { { "ART", "NN", "VVFIN", "$." } });
+		FrequencyCounter hyperonymFrequencies = new FrequencyCounter();
+		hyperonymFrequencies.add("Baum", 2);
+		hyperonymFrequencies.add("Pflanze", 1);
+		content.setHyperonymFrequencies(hyperonymFrequencies);
+		return content;
+	}
+}
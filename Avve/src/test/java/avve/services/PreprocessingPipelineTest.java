@@ -0,0 +1,44 @@
+package avve.services;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PreprocessingPipelineTest
+{
+	@Test
+	public void build_keeps_stages_in_order()
+	{
+		// Arrange
+		PreprocessingPipeline.Builder builder = PreprocessingPipeline.builder()
+			.add(PreprocessingStage.SENTENCEDETECTOR)
+			.add(PreprocessingStage.TOKENIZER)
+			.add(PreprocessingStage.PARTOFSPEECHTAGGER)
+			.add(PreprocessingStage.LEMMATIZER);
+
+		// Act
+		PreprocessingPipeline pipeline = builder.build();
+
+		// Assert
+		assertEquals(Arrays.asList(PreprocessingStage.SENTENCEDETECTOR, PreprocessingStage.TOKENIZER, PreprocessingStage.PARTOFSPEECHTAGGER,
+				PreprocessingStage.LEMMATIZER), pipeline.getStages());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void build_throws_error_if_a_stage_input_is_missing()
+	{
+		// Arrange
+		PreprocessingPipeline.Builder builder = PreprocessingPipeline.builder()
+			.add(PreprocessingStage.SENTENCEDETECTOR)
+			.add(PreprocessingStage.TOKENIZER)
+			.add(PreprocessingStage.LEMMATIZER);
+
+		// Act
+		builder.build();
+
+		// Assert
+		// empty, assertion is made via @Test(expected...) annotation
+	}
+}
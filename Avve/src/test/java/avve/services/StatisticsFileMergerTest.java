@@ -0,0 +1,102 @@
+package avve.services;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.junit.Test;
+
+public class StatisticsFileMergerTest
+{
+	private static final String statisticsFile = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<dataset name=\"avve\">\n"
+			+ "    <header>\n"
+			+ "        <attributes>\n"
+			+ "            <attribute name=\"lemmas\" type=\"string\"/>\n"
+			+ "            <attribute name=\"fileSizeInBytes\" type=\"numeric\"/>\n"
+			+ "            <attribute name=\"hyperonyms\" type=\"string\"/>\n"
+			+ "            <attribute class=\"yes\" name=\"class\" type=\"nominal\"/>\n"
+			+ "        </attributes>\n"
+			+ "    </header>\n"
+			+ "    <body>\n"
+			+ "        <instances>\n"
+			+ "            <instance documentId=\"book1\">\n"
+			+ "                <value><!--lemmas-->[0] Baum_NN</value>\n"
+			+ "                <value><!--file size in bytes-->4711</value>\n"
+			+ "                <value>\n                    <!--hyperonyms-->Pflanze &lt;!-- 0.5 --&gt;\n                    Holz\n                </value>\n"
+			+ "                <value><!--class-->WTD,FBA</value>\n"
+			+ "            </instance>\n"
+			+ "        </instances>\n"
+			+ "    </body>\n"
+			+ "</dataset>\n";
+
+	@Test
+	public void writeMultiClassArffFile_writes_class_flags_and_values_of_all_instances() throws IOException
+	{
+		// Arrange
+		Path statsDirectory = Files.createTempDirectory("stats");
+		File bookFile = new File(statsDirectory.toFile(), "WTD/book1.xml");
+		File arffFile = new File(statsDirectory.toFile(), "result.arff");
+		String arff;
+
+		try
+		{
+			FileUtils.writeStringToFile(bookFile, statisticsFile, StandardCharsets.UTF_8);
+
+			// Act
+			new StatisticsFileMerger(new File(statsDirectory.toFile(), "WTD"), LogManager.getLogger()).writeMultiClassArffFile(Arrays.asList("FBA", "YXF", "WTD"), arffFile);
+			arff = FileUtils.readFileToString(arffFile, StandardCharsets.UTF_8);
+		}
+		finally
+		{
+			FileUtils.deleteDirectory(statsDirectory.toFile());
+		}
+
+		// Assert
+		assertEquals("@relation \"Avve multiclass dataset: -C 3\"\n\n"
+				+ "@attribute FBA {0, 1}\n@attribute YXF {0, 1}\n@attribute WTD {0, 1}\n"
+				+ "@attribute fileSizeInBytes numeric\n@attribute hyperonyms string\n\n"
+				+ "@data\n% " + bookFile.toURI() + "|book1\n"
+				+ "1,0,1,\"4711\",\"Pflanze <!-- 0.5 --> Holz\"", arff);
+	}
+
+	@Test
+	public void writeXrffFile_copies_all_but_the_first_value_with_comments() throws IOException
+	{
+		// Arrange
+		Path statsDirectory = Files.createTempDirectory("stats");
+		File bookFile = new File(statsDirectory.toFile(), "WTD/book1.xml");
+		File xrffFile = new File(statsDirectory.toFile(), "result.xrff");
+		String xrff;
+
+		try
+		{
+			FileUtils.writeStringToFile(bookFile, statisticsFile, StandardCharsets.UTF_8);
+
+			// Act
+			new StatisticsFileMerger(new File(statsDirectory.toFile(), "WTD"), LogManager.getLogger()).writeXrffFile(Arrays.asList("WTD,FBA"), xrffFile);
+			xrff = FileUtils.readFileToString(xrffFile, StandardCharsets.UTF_8);
+		}
+		finally
+		{
+			FileUtils.deleteDirectory(statsDirectory.toFile());
+		}
+
+		// Assert
+		assertTrue(xrff.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!DOCTYPE dataset ["));
+		assertTrue(xrff.contains("<attribute name=\"fileSizeInBytes\" type=\"numeric\"/>"));
+		assertFalse(xrff.contains("name=\"lemmas\""));
+		assertTrue(xrff.indexOf("<label>FBA</label>") < xrff.indexOf("<label>WTD</label>"));
+		assertTrue(xrff.contains("<!--" + bookFile.toURI() + "|book1-->"));
+		assertTrue(xrff.contains("<value><!--file size in bytes-->4711</value>"));
+		assertTrue(xrff.contains("<!--hyperonyms-->Pflanze &lt;!-- 0.5 --&gt;\n                    Holz"));
+		assertFalse(xrff.contains("Baum_NN"));
+	}
+}
@@ -0,0 +1,73 @@
+package avve.services;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+
+import nu.xom.Document;
+
+public class XhtmlTextExtractorTest
+{
+	private static final String xhtmlDocument = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.1//EN\" \"http://www.w3.org/TR/xhtml11/DTD/xhtml11.dtd\">\n"
+			+ "<html xmlns=\"http://www.w3.org/1999/xhtml\">\n"
+			+ "<head><title>Titel</title><style type=\"text/css\">p { color: red; }</style></head>\n"
+			+ "<body>\n"
+			+ "  <div class=\"chapter\">\n"
+			+ "    <p>Der Hund&nbsp;lief<sup>1</sup> schnell &amp; weit.</p>\n"
+			+ "    <p>Zweiter <span class=\"reg-begriff2\">Registereintrag</span>Satz.<br/>Neue Zeile <span class=\"left2\">links</span></p>\n"
+			+ "    <!-- ein Kommentar -->\n"
+			+ "    <table><tr><td>Zelle 1</td><td class=\"left2\">Zelle <em>2</em></td></tr></table>\n"
+			+ "    <p class=\"left2\">Absatz mit Klasse</p>\n"
+			+ "    <script type=\"text/javascript\"><![CDATA[ var x = 1; ]]></script>\n"
+			+ "  </div>\n"
+			+ "</body>\n"
+			+ "</html>\n";
+
+	@Test
+	public void streaming_extraction_yields_same_text_as_xslt_extraction()
+	{
+		// Arrange
+		Logger logger = LogManager.getLogger();
+		XmlService xmlService = new XmlService(new FileServiceImpl(), logger);
+		Document contentDocument = xmlService.build(toInputStream(xhtmlDocument));
+		StringBuilder streamedText = new StringBuilder();
+
+		// Act
+		String xsltText = xmlService.extractTextFromXhtml(contentDocument);
+		xmlService.extractTextFromXhtml(toInputStream(xhtmlDocument), streamedText);
+
+		// Assert
+		assertTrue(xsltText.contains("Der Hund\u00a0lief schnell & weit."));
+		assertEquals(xsltText, streamedText.toString());
+	}
+
+	@Test
+	public void streaming_extraction_appends_to_buffer_and_can_be_reused()
+	{
+		// Arrange
+		Logger logger = LogManager.getLogger();
+		XmlService xmlService = new XmlService(new FileServiceImpl(), logger);
+		StringBuilder buffer = new StringBuilder("Anfang");
+
+		// Act
+		xmlService.extractTextFromXhtml(toInputStream(xhtmlDocument), buffer);
+		int lengthAfterFirstDocument = buffer.length();
+		xmlService.extractTextFromXhtml(toInputStream(xhtmlDocument), buffer);
+
+		// Assert
+		assertTrue(buffer.toString().startsWith("Anfang"));
+		assertEquals(buffer.substring(0, lengthAfterFirstDocument), "Anfang" + buffer.substring(lengthAfterFirstDocument));
+	}
+
+	private InputStream toInputStream(final String document)
+	{
+		return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,103 @@
+package avve.textpreprocess;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import avve.epubhandling.FrequencyCounter;
+import avve.textpreprocess.hyperonym.ThesaurusTermMatcher;
+
+public class HyperonymPreprocessorTest
+{
+	private static final String[] thesaurusTerms = { "Rote Bete", "Rote Bete Salat", "Rote", "Bete", "Salat", "Baum", "grüner Baum",
+			"im grünen Wald", "Wald", "Haus", "am Ende" };
+
+	@Test
+	public void findThesaurusTerms_counts_the_same_terms_as_the_window_lookups()
+	{
+		// Arrange
+		ThesaurusTermMatcher termMatcher = new ThesaurusTermMatcher();
+		for(String term : thesaurusTerms)
+		{
+			termMatcher.addTerm(term);
+		}
+		String[][] tokens = {
+				// overlapping terms of one to three tokens
+				{ "Der", "Rote", "Bete", "Salat", "ist", "Rote", "Bete", "." },
+				{ "Rote", "Bete", "Salat", "Rote", "Bete", "Salat", "!" },
+				// repeated terms, found again after they have been counted once
+				{ "Baum", "Baum", "grüner", "Baum", "Baum", "Haus", "Haus", "." },
+				{ "Ein", "grüner", "Baum", "steht", "im", "grünen", "Wald", "im", "grünen", "Wald", "." },
+				// terms at the end of a sentence, including a last token that isn't checked
+				{ "Alles", "ist", "am", "Ende" },
+				{ "Das", "Haus", "am", "Ende", "Salat" },
+				{ "Rote", "Bete" },
+				{ "Wald" },
+				{} };
+
+		// Act
+		FrequencyCounter terms = HyperonymPreprocessor.findThesaurusTerms(tokens, termMatcher);
+
+		// Assert
+		Map<String, Integer> expectedTerms = findTermsByWindowLookups(tokens, new HashSet<String>(Arrays.asList(thesaurusTerms)));
+		assertEquals(expectedTerms, terms.toSortedMap());
+		assertEquals(Integer.valueOf(3), expectedTerms.get("Baum"));
+		assertEquals(Integer.valueOf(2), expectedTerms.get("grüner Baum"));
+		assertTrue(expectedTerms.containsKey("am Ende"));
+	}
+
+	/**
+	 * The sliding window algorithm used before the term matcher was introduced, with a lookup in the set of thesaurus terms in place of the
+	 * database query. Each term is looked up only once; later occurrences are counted if the first lookup found the term.
+	 */
+	private static Map<String, Integer> findTermsByWindowLookups(final String[][] tokens, final Set<String> thesaurus)
+	{
+		Map<String, Integer> terms = new TreeMap<String, Integer>();
+		Set<String> termCache = new HashSet<String>();
+		int windowsize = 3;
+
+		for(String[] sentence : tokens)
+		{
+			int i = 1;
+			while(i < sentence.length)
+			{
+				for(int j = Math.min(windowsize, sentence.length - i + 1); j > 0; j--)
+				{
+					String[] currentWindow = Arrays.copyOfRange(sentence, i-1, i + j - 1);
+					String currentTerm = String.join(" ", currentWindow);
+
+					if(termCache.contains(currentTerm) && terms.containsKey(currentTerm))
+					{
+						terms.put(currentTerm, terms.get(currentTerm) + 1);
+						i = i + j;
+					}
+					else if (termCache.contains(currentTerm))
+					{
+						if ( j == 1)
+						{
+							i = i + j;
+						}
+					}
+					else
+					{
+						termCache.add(currentTerm);
+
+						if(thesaurus.contains(currentTerm))
+						{
+							terms.merge(currentTerm, 1, Integer::sum);
+							i = i + j;
+							break;
+						}
+						else if ( j == 1)
+						{
+							i = i + j;
+						}
+					}
+				}
+			}
+		}
+		return terms;
+	}
+}
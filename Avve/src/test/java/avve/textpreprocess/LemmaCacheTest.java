@@ -0,0 +1,64 @@
+package avve.textpreprocess;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+
+public class LemmaCacheTest
+{
+	@Test
+	public void load_restores_lemmas_written_by_save() throws IOException
+	{
+		// Arrange
+		Logger logger = LogManager.getLogger();
+		LemmaCache lemmaCache = new LemmaCache(10, logger);
+		lemmaCache.put("Häuser", "NN", "Haus");
+		lemmaCache.put("las", "VVFIN", "lesen");
+		lemmaCache.put("las", "NN", "Las");
+		Path cacheFile = Files.createTempFile("lemmacache", ".bin");
+		LemmaCache restoredLemmaCache = new LemmaCache(10, logger);
+
+		try
+		{
+			// Act
+			lemmaCache.save(cacheFile);
+			restoredLemmaCache.load(cacheFile);
+		}
+		finally
+		{
+			Files.deleteIfExists(cacheFile);
+		}
+
+		// Assert
+		assertEquals(3, restoredLemmaCache.size());
+		assertEquals("Haus", restoredLemmaCache.get("Häuser", "NN"));
+		assertEquals("lesen", restoredLemmaCache.get("las", "VVFIN"));
+		assertEquals("Las", restoredLemmaCache.get("las", "NN"));
+		assertNull(restoredLemmaCache.get("las", "ADJA"));
+	}
+
+	@Test
+	public void put_evicts_a_lemma_that_has_not_been_used_when_the_cache_is_full()
+	{
+		// Arrange
+		LemmaCache lemmaCache = new LemmaCache(2, LogManager.getLogger());
+		lemmaCache.put("Häuser", "NN", "Haus");
+		lemmaCache.put("las", "VVFIN", "lesen");
+		lemmaCache.get("Häuser", "NN");
+
+		// Act
+		lemmaCache.put("Bäume", "NN", "Baum");
+
+		// Assert
+		assertEquals(2, lemmaCache.size());
+		assertEquals("Haus", lemmaCache.get("Häuser", "NN"));
+		assertEquals("Baum", lemmaCache.get("Bäume", "NN"));
+		assertNull(lemmaCache.get("las", "VVFIN"));
+	}
+}
@@ -0,0 +1,40 @@
+package avve.textpreprocess;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LemmaCollectorTest
+{
+	@Test
+	public void lemmas_are_stored_at_the_position_of_the_tagged_tokens_across_sentence_boundaries()
+	{
+		// Arrange
+		String[][] tokens = { { "Die", "Häuser", "stehen" }, { "Er", "las" }, { "Ein", "Baum" }, { "Sie", "a b", "lacht" } };
+		String[][] lemmas = { { "die", null, null }, { "er", "lesen" }, new String[2], new String[3] };
+		// sentence 1 has been lemmatized from the lemma cache, so it is not sent to the TreeTagger
+		int[] sentencesToTag = { 0, 2, 3 };
+		Lemmatizer.LemmaCollector lemmaCollector = new Lemmatizer.LemmaCollector(tokens, lemmas, sentencesToTag);
+
+		// Act
+		lemmaCollector.startBlock(0);
+		lemmaCollector.token(tokens[0][0], "ART", "die");
+		lemmaCollector.token(tokens[0][1], "NN", "Haus");
+		lemmaCollector.token(tokens[0][2], "VVFIN", "stehen");
+		lemmaCollector.token(Lemmatizer.sentenceBoundary, "$.", ".");
+		lemmaCollector.token(tokens[2][0], "ART", "ein");
+		lemmaCollector.token(tokens[2][1], "NN", "Baum");
+		lemmaCollector.token(Lemmatizer.sentenceBoundary, "$.", ".");
+		lemmaCollector.startBlock(2);
+		lemmaCollector.token(tokens[3][0], "PPER", "sie");
+		// the TreeTagger skips the token containing whitespace
+		lemmaCollector.token(tokens[3][2], "VVFIN", "lachen");
+		lemmaCollector.token(Lemmatizer.sentenceBoundary, "$.", ".");
+
+		// Assert
+		assertArrayEquals(new String[] { "die", "Haus", "stehen" }, lemmas[0]);
+		assertArrayEquals(new String[] { "er", "lesen" }, lemmas[1]);
+		assertArrayEquals(new String[] { "ein", "Baum" }, lemmas[2]);
+		assertArrayEquals(new String[] { "sie", null, "lachen" }, lemmas[3]);
+	}
+}
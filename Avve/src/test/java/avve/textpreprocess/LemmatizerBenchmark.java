@@ -0,0 +1,103 @@
+package avve.textpreprocess;
+
+import java.util.Random;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import avve.epubhandling.EbookContentData;
+import avve.extractor.CommandLineArguments;
+
+/**
+ * Compares the lemmatization throughput of sending every sentence to the TreeTagger separately (batch size 0) with sending blocks of
+ * sentences (default batch size) on a synthetic book of 100,000 sentences. This is not a unit test, as it needs a TreeTagger installation
+ * (see Lemmatizer); run it with the test classpath and -Dtreetagger.home=... set.
+ *
+ * @author Kai Weber
+ *
+ */
+public class LemmatizerBenchmark
+{
+	private static final int numberOfSentences = 100000;
+	private static final String[] words = { "Der", "die", "das", "Mann", "Frau", "Kind", "Haus", "Buch", "Garten", "Stadt", "geht", "las",
+			"sieht", "gekauft", "hat", "wurde", "schnell", "alt", "neuen", "schönen", "und", "aber", "in", "mit", "nach", "dem", "den",
+			"einem", "Bäume", "Häuser", "Kinder", "spielten", "fuhren", "gestern", "heute", "nicht", "sehr", "kleine", "große", "Berlin" };
+
+	public static void main(final String[] args) throws ParseException
+	{
+		Logger logger = LogManager.getLogger();
+		String[][] tokens = createSyntheticBook(numberOfSentences);
+		TreeTaggerPool treeTaggerPool = new TreeTaggerPool(1, logger);
+		try
+		{
+			// warm up the TreeTagger process and the JIT before measuring
+			runLemmatizer(tokens, Lemmatizer.treeTaggerBatchSizeDefaultValue, treeTaggerPool, logger);
+
+			for(int batchSize : new int[] { 0, Lemmatizer.treeTaggerBatchSizeDefaultValue })
+			{
+				long start = System.nanoTime();
+				int numberOfLemmas = runLemmatizer(tokens, batchSize, treeTaggerPool, logger);
+				double seconds = (System.nanoTime() - start) / 1e9;
+				System.out.println(String.format("batch size %6d: %d lemmas in %.2f s, %.0f lemmas/s", batchSize, numberOfLemmas, seconds,
+						numberOfLemmas / seconds));
+			}
+		}
+		finally
+		{
+			treeTaggerPool.close();
+		}
+	}
+
+	private static String[][] createSyntheticBook(final int numberOfSentences)
+	{
+		Random random = new Random(4711);
+		String[][] tokens = new String[numberOfSentences][];
+		for(int i = 0; i < numberOfSentences; i++)
+		{
+			String[] sentence = new String[8 + random.nextInt(13)];
+			for(int j = 0; j < sentence.length - 1; j++)
+			{
+				sentence[j] = words[random.nextInt(words.length)];
+			}
+			sentence[sentence.length - 1] = ".";
+			tokens[i] = sentence;
+		}
+		return tokens;
+	}
+
+	private static int runLemmatizer(final String[][] tokens, final int batchSize, final TreeTaggerPool treeTaggerPool, final Logger logger)
+			throws ParseException
+	{
+		CommandLine cliArguments = new DefaultParser().parse(CommandLineArguments.getCommandLineOptions(),
+				new String[] { "-" + CommandLineArguments.TREETAGGERBATCHSIZE.toString(), String.valueOf(batchSize) });
+		EbookContentData content = new EbookContentData(null, "", "0", logger)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public String getDocumentId()
+			{
+				return "benchmark";
+			}
+		};
+		content.setTokens(tokens);
+		// no lemma cache, so that every run sends all sentences to the TreeTagger
+		new Lemmatizer(logger, cliArguments, treeTaggerPool, new LemmaCache(0, logger)).process(content);
+
+		int numberOfLemmas = 0;
+		for(String[] sentence : content.getLemmas())
+		{
+			for(String lemma : sentence)
+			{
+				if(null != lemma)
+				{
+					numberOfLemmas++;
+				}
+			}
+		}
+		return numberOfLemmas;
+	}
+}
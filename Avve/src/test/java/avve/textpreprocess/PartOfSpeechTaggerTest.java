@@ -0,0 +1,119 @@
+package avve.textpreprocess;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.ParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+
+import avve.epubhandling.EbookContentData;
+import avve.extractor.CommandLineArguments;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerFactory;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.postag.WordTagSampleStream;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.TrainingParameters;
+
+public class PartOfSpeechTaggerTest
+{
+	// the de-pos-maxent model is not part of the source tree, so the tests use a small model trained on these sentences
+	private static final String[] trainingSentences = {
+			"Der_ART Baum_NN steht_VVFIN im_APPRART Wald_NN ._$.",
+			"Die_ART Kinder_NN spielen_VVFIN am_APPRART Fluss_NN ._$.",
+			"Er_PPER hat_VAFIN das_ART Buch_NN gelesen_VVPP ._$.",
+			"Sie_PPER liest_VVFIN heute_ADV ein_ART neues_ADJA Buch_NN ._$.",
+			"Das_ART alte_ADJA Haus_NN wird_VAFIN verkauft_VVPP ._$.",
+			"Anna_NE und_KON Paul_NE wandern_VVFIN durch_APPR den_ART Wald_NN ._$." };
+
+	private static final String[][] sentences = {
+			{ "Der", "Baum", "steht", "am", "Fluss", "." },
+			{ "Sie", "hat", "ein", "altes", "Haus", "gekauft", "." },
+			{ "Paul", "liest", "heute", "das", "Buch", "." },
+			{ "Die", "Kinder", "wandern", "durch", "den", "neuen", "Wald", "." },
+			{ "Anna", "und", "Er", "spielen", "im", "Haus", "." } };
+
+	@Test
+	public void process_yields_the_same_tags_for_parallel_chunks_as_for_sequential_tagging() throws IOException, ParseException
+	{
+		// Arrange
+		Logger logger = LogManager.getLogger();
+		CommandLine cliArguments = new DefaultParser().parse(CommandLineArguments.getCommandLineOptions(), new String[0]);
+		POSModel model = trainModel();
+		ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+		PartOfSpeechTagger sequentialTagger = new PartOfSpeechTagger(logger, cliArguments, SentenceChunkExecutor.sequential(), model);
+		PartOfSpeechTagger parallelTagger = new PartOfSpeechTagger(logger, cliArguments, new SentenceChunkExecutor(forkJoinPool, 2), model);
+		EbookContentData sequentialContent = createContentData(40, logger);
+		EbookContentData parallelContent = createContentData(40, logger);
+
+		// Act
+		sequentialTagger.process(sequentialContent);
+		parallelTagger.process(parallelContent);
+		// a second book through the same instance reuses the workers' taggers
+		EbookContentData secondParallelContent = createContentData(40, logger);
+		parallelTagger.process(secondParallelContent);
+		forkJoinPool.shutdown();
+
+		// Assert
+		String[][] sequentialTags = sequentialContent.getPartsOfSpeech();
+		String[][] directTags = tagDirectly(model, sequentialContent.getTokens());
+		assertEquals(40, sequentialTags.length);
+		assertArrayEquals(directTags, sequentialTags);
+		assertArrayEquals(sequentialTags, parallelContent.getPartsOfSpeech());
+		assertArrayEquals(sequentialTags, secondParallelContent.getPartsOfSpeech());
+		assertEquals(sequentialContent.getPartsOfSpeechFrequencies(), parallelContent.getPartsOfSpeechFrequencies());
+	}
+
+	@Test
+	public void process_sets_empty_tags_without_tokens() throws IOException, ParseException
+	{
+		// Arrange
+		Logger logger = LogManager.getLogger();
+		CommandLine cliArguments = new DefaultParser().parse(CommandLineArguments.getCommandLineOptions(), new String[0]);
+		PartOfSpeechTagger partOfSpeechTagger = new PartOfSpeechTagger(logger, cliArguments, SentenceChunkExecutor.sequential(), trainModel());
+		EbookContentData content = createContentData(0, logger);
+
+		// Act
+		partOfSpeechTagger.process(content);
+
+		// Assert
+		assertEquals(0, content.getPartsOfSpeech().length);
+	}
+
+	private static POSModel trainModel() throws IOException
+	{
+		TrainingParameters trainingParameters = TrainingParameters.defaultParams();
+		trainingParameters.put(TrainingParameters.CUTOFF_PARAM, "1");
+		return POSTaggerME.train("de", new WordTagSampleStream(ObjectStreamUtils.createObjectStream(trainingSentences)), trainingParameters,
+				new POSTaggerFactory());
+	}
+
+	private static String[][] tagDirectly(final POSModel model, final String[][] tokens)
+	{
+		POSTaggerME posTagger = new POSTaggerME(model);
+		String[][] tags = new String[tokens.length][];
+		for(int i = 0; i < tokens.length; i++)
+		{
+			tags[i] = posTagger.tag(tokens[i]);
+		}
+		return tags;
+	}
+
+	private static EbookContentData createContentData(final int numberOfSentences, final Logger logger)
+	{
+		EbookContentData content = new EbookContentData(null, "", "110", logger);
+		String[][] tokens = new String[numberOfSentences][];
+		for(int i = 0; i < numberOfSentences; i++)
+		{
+			tokens[i] = sentences[i % sentences.length].clone();
+		}
+		content.setTokens(tokens);
+		return content;
+	}
+}
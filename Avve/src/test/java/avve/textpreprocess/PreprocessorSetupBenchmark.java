@@ -0,0 +1,135 @@
+package avve.textpreprocess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import avve.epubhandling.EbookContentData;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+
+/**
+ * Compares the per-book cost of the SentenceDetectorPreprocessor and the UrlNormalizer with their former implementations, which created
+ * a new SentenceDetectorME and compiled the URL pattern for every book and copied the text through a StringBuffer. The plain text is a
+ * synthetic text of about 5 MB, with and without URLs. This is not a unit test; run it with the test classpath.
+ *
+ * @author Kai Weber
+ *
+ */
+public class PreprocessorSetupBenchmark
+{
+	private static final int textSize = 5 * 1024 * 1024;
+	private static final int iterations = 20;
+	private static final String[] words = { "Der", "die", "das", "Mann", "Frau", "Kind", "Haus", "Buch", "Garten", "Stadt", "geht", "las",
+			"sieht", "gekauft", "hat", "wurde", "schnell", "alt", "neuen", "schönen", "und", "aber", "in", "mit", "nach", "dem", "den" };
+
+	public static void main(final String[] args) throws IOException
+	{
+		Logger logger = LogManager.getLogger();
+		String textWithoutUrls = createSyntheticText(textSize, false);
+		String textWithUrls = createSyntheticText(textSize, true);
+
+		SentenceModel sentenceModel;
+		try (InputStream modelIn = PreprocessorSetupBenchmark.class.getClassLoader().getResourceAsStream("opennlp/de-sent.bin"))
+		{
+			sentenceModel = new SentenceModel(modelIn);
+		}
+		SentenceDetectorPreprocessor sentenceDetectorPreprocessor = new SentenceDetectorPreprocessor(logger);
+		UrlNormalizer urlNormalizer = new UrlNormalizer(logger);
+
+		for(int round = 0; round < 2; round++)
+		{
+			// the first round warms up the JIT
+			System.out.println(round == 0 ? "warm-up" : "measurement");
+
+			long start = System.nanoTime();
+			for(int i = 0; i < iterations; i++)
+			{
+				new SentenceDetectorME(sentenceModel).sentDetect(textWithoutUrls);
+			}
+			print("sentence detection, new SentenceDetectorME per book", start);
+
+			EbookContentData[] books = createContentData(textWithoutUrls, logger);
+			start = System.nanoTime();
+			for(EbookContentData book : books)
+			{
+				sentenceDetectorPreprocessor.process(book);
+			}
+			print("sentence detection, reused SentenceDetectorME", start);
+
+			for(String text : new String[] { textWithoutUrls, textWithUrls })
+			{
+				String description = text == textWithUrls ? "with URLs" : "without URLs";
+				start = System.nanoTime();
+				for(int i = 0; i < iterations; i++)
+				{
+					normalizeUrlsAsBefore(text);
+				}
+				print("URL normalization " + description + ", compiled pattern and StringBuffer per book", start);
+
+				books = createContentData(text, logger);
+				start = System.nanoTime();
+				for(EbookContentData book : books)
+				{
+					urlNormalizer.process(book);
+				}
+				print("URL normalization " + description + ", static pattern and StringBuilder", start);
+			}
+		}
+	}
+
+	private static EbookContentData[] createContentData(final String plainText, final Logger logger)
+	{
+		EbookContentData[] books = new EbookContentData[iterations];
+		for(int i = 0; i < iterations; i++)
+		{
+			books[i] = new EbookContentData(null, plainText, "0", logger);
+		}
+		return books;
+	}
+
+	private static String createSyntheticText(final int size, final boolean withUrls)
+	{
+		Random random = new Random(4711);
+		StringBuilder text = new StringBuilder(size + 100);
+		while(text.length() < size)
+		{
+			int sentenceLength = 8 + random.nextInt(13);
+			for(int j = 0; j < sentenceLength; j++)
+			{
+				text.append(words[random.nextInt(words.length)]).append(' ');
+			}
+			if(withUrls && random.nextInt(50) == 0)
+			{
+				text.append("https://www.example.org/buch/").append(random.nextInt(100000)).append("?seite=3 ");
+			}
+			text.setCharAt(text.length() - 1, '.');
+			text.append(' ');
+		}
+		return text.toString();
+	}
+
+	// the UrlNormalizer's former implementation
+	private static String normalizeUrlsAsBefore(final String plainText)
+	{
+		Pattern pattern = Pattern.compile("(http|ftp|https)://([\\w_-]+(?:(?:\\.[\\w_-]+)+))([\\w.,@?^=%&:/~+#-]*[\\w@?^=%&/~+#-])?", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+		Matcher matcher = pattern.matcher(plainText);
+		StringBuffer sb = new StringBuffer();
+		while(matcher.find())
+		{
+			matcher.appendReplacement(sb, "$1:// ");
+		}
+		matcher.appendTail(sb);
+		return sb.toString();
+	}
+
+	private static void print(final String description, final long start)
+	{
+		System.out.println(String.format("  %-80s %8.2f ms per book", description, (System.nanoTime() - start) / 1e6 / iterations));
+	}
+}
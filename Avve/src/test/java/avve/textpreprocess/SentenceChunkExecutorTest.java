@@ -0,0 +1,45 @@
+package avve.textpreprocess;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class SentenceChunkExecutorTest
+{
+	@Test
+	public void process_covers_all_sentences_and_merges_results_in_order()
+	{
+		// Arrange
+		ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+		SentenceChunkExecutor chunkExecutor = new SentenceChunkExecutor(forkJoinPool, 7);
+		int[] processedSentences = new int[100];
+
+		// Act
+		List<Integer> result = chunkExecutor.process(processedSentences.length, (fromSentence, toSentence) ->
+		{
+			List<Integer> chunkResult = new ArrayList<Integer>();
+			for(int i = fromSentence; i < toSentence; i++)
+			{
+				processedSentences[i]++;
+				chunkResult.add(i);
+			}
+			return chunkResult;
+		}, (first, second) ->
+		{
+			first.addAll(second);
+			return first;
+		});
+		forkJoinPool.shutdown();
+
+		// Assert
+		for(int i = 0; i < processedSentences.length; i++)
+		{
+			assertEquals(1, processedSentences[i]);
+			assertEquals(i, result.get(i).intValue());
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package avve.textpreprocess;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import avve.epubhandling.EbookContentData;
+import avve.textpreprocess.hyperonym.EmbeddedThesaurusBackend;
+import avve.textpreprocess.hyperonym.JdbcThesaurusBackend;
+import avve.textpreprocess.hyperonym.OpenThesaurusDumpImporter;
+import avve.textpreprocess.hyperonym.ThesaurusBackend;
+import avve.textpreprocess.hyperonym.ThesaurusConnectionPool;
+import avve.textpreprocess.hyperonym.ThesaurusEntryCache;
+import avve.textpreprocess.hyperonym.ThesaurusSnapshot;
+
+/**
+ * Measures the throughput of the HyperonymPreprocessor with the embedded thesaurus backend and, if requested, with the JDBC backend, on
+ * synthetic books of 20,000 sentences processed by one thread per processor. This is not a unit test, as it needs a copy of OpenThesaurus.
+ * Run it with the test classpath and the path of a thesaurus snapshot or of an OpenThesaurus MySQL dump as first argument; add "jdbc" as
+ * second argument to also measure the database configured in the hyperonym properties (see HyperonymProperties).
+ *
+ * The first pass over the books is measured separately, as it includes reading the thesaurus terms and filling the entry cache.
+ *
+ * @author Kai Weber
+ *
+ */
+public class ThesaurusBackendBenchmark
+{
+	private static final int numberOfBooks = 16;
+	private static final int numberOfSentences = 20000;
+	private static final String[] words = { "Der", "die", "das", "Mann", "Frau", "Kind", "Haus", "Buch", "Garten", "Stadt", "geht", "las",
+			"sieht", "gekauft", "hat", "wurde", "schnell", "alt", "neuen", "schönen", "und", "aber", "in", "mit", "nach", "dem", "den",
+			"einem", "Bäume", "Häuser", "Kinder", "spielten", "fuhren", "gestern", "heute", "nicht", "sehr", "kleine", "große", "Berlin",
+			"Bank", "Geld", "Schule", "Lehrer", "Arzt", "Krankenhaus", "Auto", "Straße", "Wald", "Baum", "Hund", "Katze", "Wasser", "Feuer",
+			"Zug", "Bahnhof", "Brief", "Zeitung", "Kirche", "König", "Schloss", "Krieg", "Frieden", "Liebe", "öffentlicher", "Dienst" };
+
+	public static void main(final String[] args) throws IOException, InterruptedException, ExecutionException, SQLException
+	{
+		Logger logger = LogManager.getLogger();
+		Path thesaurusFile = Paths.get(args[0]);
+		List<String[][]> books = new ArrayList<String[][]>();
+		for(int i = 0; i < numberOfBooks; i++)
+		{
+			books.add(createSyntheticBook(numberOfSentences, i));
+		}
+
+		long start = System.nanoTime();
+		ThesaurusSnapshot snapshot = thesaurusFile.getFileName().toString().matches(".*\\.sql(\\.gz)?")
+				? OpenThesaurusDumpImporter.importDump(thesaurusFile) : ThesaurusSnapshot.load(thesaurusFile);
+		System.out.println(String.format("loaded %d terms from %s in %.2f s", snapshot.size(), thesaurusFile, (System.nanoTime() - start) / 1e9));
+		runBenchmark("embedded", new EmbeddedThesaurusBackend(snapshot), books, logger);
+
+		if(args.length > 1 && "jdbc".equalsIgnoreCase(args[1]))
+		{
+			int numberOfThreads = Runtime.getRuntime().availableProcessors();
+			runBenchmark("jdbc", new JdbcThesaurusBackend(new ThesaurusConnectionPool(numberOfThreads, logger),
+					new ThesaurusEntryCache(ThesaurusEntryCache.capacityDefaultValue), logger), books, logger);
+		}
+	}
+
+	private static String[][] createSyntheticBook(final int numberOfSentences, final int seed)
+	{
+		Random random = new Random(4711 + seed);
+		String[][] tokens = new String[numberOfSentences][];
+		for(int i = 0; i < numberOfSentences; i++)
+		{
+			String[] sentence = new String[8 + random.nextInt(13)];
+			for(int j = 0; j < sentence.length - 1; j++)
+			{
+				sentence[j] = words[random.nextInt(words.length)];
+			}
+			sentence[sentence.length - 1] = ".";
+			tokens[i] = sentence;
+		}
+		return tokens;
+	}
+
+	private static void runBenchmark(final String name, final ThesaurusBackend thesaurusBackend, final List<String[][]> books, final Logger logger)
+			throws InterruptedException, ExecutionException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try
+		{
+			for(String pass : new String[] { "first pass", "second pass" })
+			{
+				long start = System.nanoTime();
+				List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+				for(String[][] tokens : books)
+				{
+					results.add(executor.submit(() -> runHyperonymPreprocessor(tokens, thesaurusBackend, logger)));
+				}
+				long numberOfHyperonyms = 0;
+				for(Future<Integer> result : results)
+				{
+					numberOfHyperonyms += result.get();
+				}
+				double seconds = (System.nanoTime() - start) / 1e9;
+				System.out.println(String.format("%-8s %-11s: %d books, %d hyperonyms and categories in %.2f s, %.0f sentences/s", name, pass,
+						books.size(), numberOfHyperonyms, seconds, books.size() * numberOfSentences / seconds));
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+			thesaurusBackend.close();
+		}
+	}
+
+	private static int runHyperonymPreprocessor(final String[][] tokens, final ThesaurusBackend thesaurusBackend, final Logger logger)
+	{
+		EbookContentData content = new EbookContentData(null, "", "0", logger)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public String getDocumentId()
+			{
+				return "benchmark";
+			}
+		};
+		content.setTokens(tokens);
+		new HyperonymPreprocessor(logger, thesaurusBackend).process(content);
+		return content.getHyperonymFrequencies().keys().length;
+	}
+}
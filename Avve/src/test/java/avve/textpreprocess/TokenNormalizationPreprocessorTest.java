@@ -0,0 +1,64 @@
+package avve.textpreprocess;
+
+import static org.junit.Assert.*;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+
+import avve.epubhandling.EbookContentData;
+
+public class TokenNormalizationPreprocessorTest
+{
+	private static final String[][] tokens = new String[][] {
+		{ "„Hallo", "Welt!“", "z.B.", "...", "Straße", "-", "#", "A\tB", "\t", "\r\n", " ", "http://www.example.com/a_b?c=d" },
+		{ "Auﬂage", "ﬁnden", "«ﬀ»", "ﬃzient", "Koﬄektiv", "ﬅern", "Gaﬆ", "(ﬁ).", "'s", "50%", "x·y", "" }
+	};
+
+	@Test
+	public void normalization_without_ligatures_yields_same_tokens_as_remove_punctuation_preprocessor()
+	{
+		// Arrange
+		Logger logger = LogManager.getLogger();
+		EbookContentData expected = createContentData(logger);
+		EbookContentData actual = createContentData(logger);
+
+		// Act
+		new RemovePunctuationPreprocessor(logger).process(expected);
+		new TokenNormalizationPreprocessor(logger, false).process(actual);
+
+		// Assert
+		assertArrayEquals(expected.getTokens(), actual.getTokens());
+		assertEquals("Auﬂage", actual.getTokens()[1][0]);
+	}
+
+	@Test
+	public void normalization_with_ligatures_yields_same_tokens_as_remove_punctuation_and_replace_ligatures_preprocessors()
+	{
+		// Arrange
+		Logger logger = LogManager.getLogger();
+		EbookContentData expected = createContentData(logger);
+		EbookContentData actual = createContentData(logger);
+
+		// Act
+		new RemovePunctuationPreprocessor(logger).process(expected);
+		new ReplaceLigaturesPreprocessor(logger).process(expected);
+		new TokenNormalizationPreprocessor(logger, true).process(actual);
+
+		// Assert
+		assertArrayEquals(expected.getTokens(), actual.getTokens());
+		assertEquals("Auflage", actual.getTokens()[1][0]);
+	}
+
+	private EbookContentData createContentData(final Logger logger)
+	{
+		EbookContentData content = new EbookContentData(null, "", "110", logger);
+		String[][] copy = new String[tokens.length][];
+		for(int i = 0; i < tokens.length; i++)
+		{
+			copy[i] = tokens[i].clone();
+		}
+		content.setTokens(copy);
+		return content;
+	}
+}
@@ -0,0 +1,90 @@
+package avve.textpreprocess.hyperonym;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+public class OpenThesaurusDumpImporterTest
+{
+	private static final String dump = "-- MySQL dump 10.13\n"
+			+ "/*!40101 SET NAMES utf8 */;\n"
+			+ "DROP TABLE IF EXISTS `synset`;\n"
+			+ "CREATE TABLE `synset` (\n"
+			+ "  `id` bigint(20) NOT NULL AUTO_INCREMENT,\n"
+			+ "  `is_visible` bit(1) NOT NULL,\n"
+			+ "  `synset_preferred_term` varchar(255) DEFAULT NULL,\n"
+			+ "  PRIMARY KEY (`id`)\n"
+			+ ") ENGINE=InnoDB DEFAULT CHARSET=utf8;\n"
+			+ "INSERT INTO `synset` VALUES (1,_binary '\\0',NULL),(2,b'1',NULL),(3,b'1','Geldinstitut');\n"
+			+ "CREATE TABLE `term` (\n"
+			+ "  `id` bigint(20) NOT NULL,\n"
+			+ "  `synset_id` bigint(20) NOT NULL,\n"
+			+ "  `word` varchar(255) NOT NULL\n"
+			+ ");\n"
+			+ "INSERT INTO `term` VALUES (1,1,'Bank'),(2,2,'Bank'),(3,3,'Kreditinstitut'),(4,2,'Kunden\\'s \\\"Bank\\\"; (alt)');\n"
+			+ "INSERT INTO `category` (`category_name`, `id`) VALUES ('Finanzen',10);\n"
+			+ "INSERT INTO `category_link` (`id`, `category_id`, `synset_id`) VALUES (1,10,2);\n"
+			+ "INSERT INTO `synset_link` (`id`, `link_type_id`, `synset_id`, `target_synset_id`) VALUES (1,2,2,1),(2,1,2,3),(3,1,1,3);\n";
+
+	@Test
+	public void importDump_reads_the_thesaurus_tables_of_a_gzipped_dump() throws IOException
+	{
+		// Arrange
+		Path dumpFile = Files.createTempFile("openthesaurus", ".sql.gz");
+		ThesaurusSnapshot snapshot;
+
+		try
+		{
+			try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(dumpFile)), StandardCharsets.UTF_8))
+			{
+				writer.write(dump);
+			}
+
+			// Act
+			snapshot = OpenThesaurusDumpImporter.importDump(dumpFile);
+		}
+		finally
+		{
+			Files.deleteIfExists(dumpFile);
+		}
+
+		// Assert
+		ThesaurusEntry entry = snapshot.lookup("Bank");
+		assertEquals(Arrays.asList("Finanzen"), entry.getCategories());
+		assertEquals("Geldinstitut", entry.getPreferredHyperonym());
+		assertEquals("Kreditinstitut", entry.getHyperonym());
+		assertTrue(snapshot.containsTerm("Kunden's \"Bank\"; (alt)"));
+	}
+
+	@Test(expected=IOException.class)
+	public void importDump_throws_error_for_a_gz_file_without_gzip_header() throws IOException
+	{
+		// Arrange
+		Path dumpFile = Files.createTempFile("openthesaurus", ".sql.gz");
+
+		try
+		{
+			Files.write(dumpFile, dump.getBytes(StandardCharsets.UTF_8));
+
+			// Act
+			OpenThesaurusDumpImporter.importDump(dumpFile);
+		}
+		finally
+		{
+			// fails on Windows if the importer hasn't closed the file
+			Files.delete(dumpFile);
+		}
+
+		// Assert
+		// empty, assertion is made via @Test(expected...) annotation
+	}
+}
@@ -0,0 +1,32 @@
+package avve.textpreprocess.hyperonym;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ThesaurusEntryCacheTest
+{
+	@Test
+	public void put_evicts_least_recently_used_entry_when_full()
+	{
+		// Arrange
+		ThesaurusEntryCache entryCache = new ThesaurusEntryCache(2);
+		ThesaurusEntry bank = new ThesaurusEntry(new String[] { "Finanzen" }, "Geldinstitut", "Kreditinstitut");
+		ThesaurusEntry baum = new ThesaurusEntry(new String[] { "Biologie" }, null, "Gehölz");
+		ThesaurusEntry haus = new ThesaurusEntry(new String[0], null, "Gebäude");
+		entryCache.put("Bank", bank);
+		entryCache.put("Baum", baum);
+
+		// Act
+		entryCache.get("bank");
+		entryCache.put("Haus", haus);
+
+		// Assert
+		assertEquals(2, entryCache.size());
+		assertSame(bank, entryCache.get("Bank"));
+		assertNull(entryCache.get("Baum"));
+		assertSame(haus, entryCache.get("Haus"));
+		assertEquals(3, entryCache.getHits());
+		assertEquals(1, entryCache.getMisses());
+	}
+}
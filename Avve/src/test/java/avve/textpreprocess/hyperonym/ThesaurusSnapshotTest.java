@@ -0,0 +1,82 @@
+package avve.textpreprocess.hyperonym;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ThesaurusSnapshotTest
+{
+	@Test
+	public void build_collects_categories_and_first_hyperonym_of_a_term()
+	{
+		// Arrange
+		ThesaurusSnapshot.Builder builder = createThesaurus();
+
+		// Act
+		ThesaurusSnapshot snapshot = builder.build();
+
+		// Assert
+		ThesaurusEntry entry = snapshot.lookup("bank");
+		assertEquals(Arrays.asList("Finanzen", "Möbel"), entry.getCategories());
+		assertEquals("Geldinstitut", entry.getPreferredHyperonym());
+		assertEquals("Kreditinstitut", entry.getHyperonym());
+		assertTrue(snapshot.containsTerm("Sitzgelegenheit"));
+		assertNull(snapshot.lookup("Sitzgelegenheit").getHyperonym());
+		assertFalse(snapshot.containsTerm("Baum"));
+	}
+
+	@Test
+	public void load_restores_entries_written_by_save() throws IOException
+	{
+		// Arrange
+		ThesaurusSnapshot snapshot = createThesaurus().build();
+		Path snapshotFile = Files.createTempFile("thesaurus", ".bin");
+		ThesaurusSnapshot restoredSnapshot;
+
+		try
+		{
+			// Act
+			snapshot.save(snapshotFile);
+			restoredSnapshot = ThesaurusSnapshot.load(snapshotFile);
+		}
+		finally
+		{
+			Files.deleteIfExists(snapshotFile);
+		}
+
+		// Assert
+		assertEquals(snapshot.size(), restoredSnapshot.size());
+		ThesaurusEntry entry = restoredSnapshot.lookup("Bank");
+		assertEquals(Arrays.asList("Finanzen", "Möbel"), entry.getCategories());
+		assertEquals("Geldinstitut", entry.getPreferredHyperonym());
+		assertEquals("Kreditinstitut", entry.getHyperonym());
+		assertNull(restoredSnapshot.lookup("Sitzgelegenheit").getPreferredHyperonym());
+	}
+
+	private static ThesaurusSnapshot.Builder createThesaurus()
+	{
+		return ThesaurusSnapshot.builder()
+			.addSynset(1, true, null)
+			.addSynset(2, false, null)
+			.addSynset(3, true, "Geldinstitut")
+			.addSynset(4, true, null)
+			.addTerm(1, "Bank")
+			.addTerm(2, "Bank")
+			.addTerm(2, "Sitzgelegenheit")
+			.addTerm(3, "Kreditinstitut")
+			.addTerm(3, "Geldinstitut")
+			.addTerm(4, "Möbel")
+			.addCategory(10, "Finanzen")
+			.addCategory(11, "Möbel")
+			.addCategoryLink(10, 1)
+			.addCategoryLink(11, 2)
+			.addHyperonymLink(1, 3)
+			// synset 2 is not visible, so its hyperonym is not used
+			.addHyperonymLink(2, 4);
+	}
+}
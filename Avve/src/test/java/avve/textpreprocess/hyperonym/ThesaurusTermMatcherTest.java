@@ -0,0 +1,45 @@
+package avve.textpreprocess.hyperonym;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ThesaurusTermMatcherTest
+{
+	@Test
+	public void matchLengths_returns_lengths_of_all_terms_at_position()
+	{
+		// Arrange
+		ThesaurusTermMatcher termMatcher = new ThesaurusTermMatcher();
+		termMatcher.addTerm("Rote Bete");
+		termMatcher.addTerm("rot");
+		termMatcher.addTerm("Rote");
+		termMatcher.addTerm("rote Bete Salat");
+		termMatcher.addTerm("eins zwei drei vier");
+		String[] tokens = { "Die", "rote", "Bete", "Salat", "schmeckt" };
+
+		// Act
+		int lengthsAtRote = termMatcher.matchLengths(tokens, 1);
+		int lengthsAtDie = termMatcher.matchLengths(tokens, 0);
+
+		// Assert
+		assertEquals((1 << 1) | (1 << 2) | (1 << 3), lengthsAtRote);
+		assertEquals(0, lengthsAtDie);
+		assertEquals(4, termMatcher.size());
+	}
+
+	@Test
+	public void matchLengths_stops_at_end_of_sentence()
+	{
+		// Arrange
+		ThesaurusTermMatcher termMatcher = new ThesaurusTermMatcher();
+		termMatcher.addTerm("Rote Bete");
+		String[] tokens = { "Die", "rote" };
+
+		// Act
+		int lengths = termMatcher.matchLengths(tokens, 1);
+
+		// Assert
+		assertEquals(0, lengths);
+	}
+}